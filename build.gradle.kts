@@ -20,6 +20,37 @@ repositories {
 sourceSets.main.get().java.srcDir("src")
 sourceSets.test.get().java.srcDir("test")
 
+// Build-time generators, their output is compiled with the main sources
+val tools by sourceSets.creating {
+    java.srcDir("tools")
+}
+
+val generateLexer by tasks.registering(JavaExec::class) {
+    // Compile the token specification into the DFA tables of DfaLexer
+    val specification = file("src/main/java/compiler/Lexer/Tokens.txt")
+    val output = layout.buildDirectory.dir("generated/sources/lexer")
+    classpath = tools.runtimeClasspath
+    mainClass.set("compiler.tools.LexerGenerator")
+    inputs.file(specification)
+    outputs.dir(output)
+    args(specification.path, output.get().asFile.path)
+}
+
+val generateParser by tasks.registering(JavaExec::class) {
+    // Compile the grammar into the LL(1) tables of TableParser
+    val grammar = file("src/main/java/compiler/Parser/Grammar.txt")
+    val specification = file("src/main/java/compiler/Lexer/Tokens.txt")
+    val output = layout.buildDirectory.dir("generated/sources/parser")
+    classpath = tools.runtimeClasspath
+    mainClass.set("compiler.tools.ParserGenerator")
+    inputs.files(grammar, specification)
+    outputs.dir(output)
+    args(grammar.path, specification.path, output.get().asFile.path)
+}
+
+sourceSets.main.get().java.srcDir(generateLexer)
+sourceSets.main.get().java.srcDir(generateParser)
+
 dependencies {
     // Use JUnit test framework.
     testImplementation("junit:junit:4.13.2")
@@ -36,3 +67,39 @@ application {
     // Define the main class for the application.
     mainClass.set("compiler.Compiler")
 }
+
+tasks.register<JavaExec>("lexerBenchmark") {
+    // Measure the lexer throughput on a scaled-up "code_example.lang"
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("LexerBenchmark")
+}
+
+tasks.register<JavaExec>("astMemoryBenchmark") {
+    // Measure the heap kept by the parsed program, with one object per node and with an arena
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("AstMemoryBenchmark")
+}
+
+tasks.register<JavaExec>("parseCacheBenchmark") {
+    // Compare parsing a source with reading its program back from the parse cache
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("ParseCacheBenchmark")
+}
+
+tasks.register<JavaExec>("parserBenchmark") {
+    // Compare the recursive descent parser with the table-driven one
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("ParserBenchmark")
+}
+
+tasks.register<JavaExec>("scopeBenchmark") {
+    // Measure the scoped symbol table on procedures with deeply nested blocks and many locals
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("ScopeBenchmark")
+}
+
+tasks.register<JavaExec>("expressionBenchmark") {
+    // Measure the analysis and code generation of expressions of up to 10k terms, which must scale linearly
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("ExpressionBenchmark")
+}
@@ -2,6 +2,7 @@ package compiler.CodeGenerator;
 
 import compiler.Lexer.Lexer;
 import compiler.Parser.Expr;
+import compiler.Parser.Type;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -10,23 +11,37 @@ public class BinaryExprCodeGenerator extends ExpressionCodeGenerator {
     protected final ExpressionCodeGenerator left;
     protected final ExpressionCodeGenerator right;
     protected final int operator; // Opcodes.IADD, Opcodes.ISUB, Opcodes.IMUL, Opcodes.IDIV, etc.
+    private final boolean widenLeft; // Whether the left operand is an int converted to the real type of the operation
+    private final boolean widenRight; // Whether the right operand is an int converted to the real type of the operation
 
     public BinaryExprCodeGenerator(ExpressionCodeGenerator left, ExpressionCodeGenerator right, int operator) {
         super("BinaryExpr");
         this.left = left;
         this.right = right;
         this.operator = operator;
+        this.widenLeft = false;
+        this.widenRight = false;
     }
 
-    public BinaryExprCodeGenerator(Expr left, Expr right, Lexer.Token operator) {
+    /**
+     * Constructor for BinaryExprCodeGenerator choosing the opcode from the resolved type of the operation
+     * @param left - Left operand
+     * @param right - Right operand
+     * @param operator - Arithmetic operator
+     * @param type - Type resolved by the semantic analysis, int opcodes are used if it is not real or not known
+     */
+    public BinaryExprCodeGenerator(Expr left, Expr right, Lexer.Token operator, Type type) {
         super("BinaryExpr");
         this.left = castExpr(left);
         this.right = castExpr(right);
+        boolean real = type == Type.REAL;
+        this.widenLeft = real && left.getResolvedType() == Type.INT;
+        this.widenRight = real && right.getResolvedType() == Type.INT;
         switch (operator) {
-            case SYMBOL_PLUS -> this.operator = Opcodes.IADD;
-            case SYMBOL_MINUS -> this.operator = Opcodes.ISUB;
-            case SYMBOL_MULTIPLY -> this.operator = Opcodes.IMUL;
-            case SYMBOL_DIVIDE -> this.operator = Opcodes.IDIV;
+            case SYMBOL_PLUS -> this.operator = real ? Opcodes.FADD : Opcodes.IADD;
+            case SYMBOL_MINUS -> this.operator = real ? Opcodes.FSUB : Opcodes.ISUB;
+            case SYMBOL_MULTIPLY -> this.operator = real ? Opcodes.FMUL : Opcodes.IMUL;
+            case SYMBOL_DIVIDE -> this.operator = real ? Opcodes.FDIV : Opcodes.IDIV;
             default -> throw new RuntimeException("Invalid operator: " + operator);
         }
     }
@@ -34,9 +49,14 @@ public class BinaryExprCodeGenerator extends ExpressionCodeGenerator {
     @Override
     public void generateCode(MethodVisitor visitor) {
         left.generateCode(visitor);
+        if (widenLeft) {
+            visitor.visitInsn(Opcodes.I2F);
+        }
         right.generateCode(visitor);
+        if (widenRight) {
+            visitor.visitInsn(Opcodes.I2F);
+        }
         visitor.visitInsn(operator);
     }
 
 }
-
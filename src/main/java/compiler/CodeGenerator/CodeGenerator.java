@@ -1,4 +1,5 @@
 package compiler.CodeGenerator;
+import compiler.Parser.GeneralDecl;
 import compiler.Parser.Program;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
@@ -28,6 +29,22 @@ public class CodeGenerator {
 
     public byte[] generateByteCode(ProgramCodeGenerator program) {
         program.generateCode(this.writer, this.mv);
+        return finish();
+    }
+
+    /**
+     * Generate the code of one top-level declaration, so that declarations can be compiled as they are parsed
+     * @param declaration - Top-level declaration, not used by the generator afterwards
+     */
+    public void addDeclaration(GeneralDecl declaration) {
+        ProgramCodeGenerator.castDecl(declaration).generateCode(this.writer, this.mv);
+    }
+
+    /**
+     * End the class once every declaration is generated
+     * @return Bytecode of the class
+     */
+    public byte[] finish() {
         mv.visitInsn(Opcodes.RETURN);
         mv.visitMaxs(0, 0);
         mv.visitEnd();
@@ -20,11 +20,13 @@ public abstract class ExpressionCodeGenerator {
         } else if (expr instanceof ArrayExpr arrayExpr) {
             return new ArrayExprCodeGenerator(arrayExpr.getType(), arrayExpr.getSize(), arrayExpr.getContent());
         } else if (expr instanceof BinaryExpr binaryExpr) {
-            return new BinaryExprCodeGenerator(binaryExpr.getLeft(), binaryExpr.getRight(), binaryExpr.getOperator());
+            return new BinaryExprCodeGenerator(binaryExpr.getLeft(), binaryExpr.getRight(), binaryExpr.getOperator(), binaryExpr.getResolvedType());
         } else if (expr instanceof IdentifierExpr identifierExpr) {
             return new IdentifierExprCodeGenerator(identifierExpr.getIdentifier());
         } else if (expr instanceof RecordExpr recordExpr) {
-            return new RecordExprCodeGenerator(recordExpr.getType().getName(), recordExpr.getContent());
+            return new RecordExprCodeGenerator(recordExpr.getType().getName(), recordExpr.getContent(), recordExpr.getLayout());
+        } else if (expr instanceof RecordAccess recordAccess && recordAccess.getLayout() != null) {
+            return new RecordAccessCodeGenerator(castExpr(recordAccess.getIdentifier()), recordAccess.getLayout(), recordAccess.getFieldIndex());
         } else {
             throw new IllegalStateException("Unexpected expression type: " + expr.getType());
         }
@@ -1,44 +1,36 @@
 package compiler.CodeGenerator;
 
+import compiler.Parser.Type;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 public class GeneralDeclCodeGenerator extends DeclarationCodeGenerator {
+    protected static final String PROC_DESCRIPTOR = "Ljava/lang/Runnable;"; // Descriptor of the field of a procedure
     protected final String name;
     protected final String typeDescriptor;
     protected final ExpressionCodeGenerator initExpr;
     protected String className;
 
-    public GeneralDeclCodeGenerator(String name, ExpressionCodeGenerator initExpr, String type) {
-       this.name = name;
+    public GeneralDeclCodeGenerator(String name, ExpressionCodeGenerator initExpr, Type type) {
+        this(name, initExpr, getTypeDescriptor(type));
+    }
+
+    protected GeneralDeclCodeGenerator(String name, ExpressionCodeGenerator initExpr, String typeDescriptor) {
+        this.name = name;
         this.initExpr = initExpr;
-        this.typeDescriptor = getTypeDescriptor(type);
+        this.typeDescriptor = typeDescriptor;
     }
 
     /**
      * This is used to handle the difference between ints and floats
+     * Descriptors are computed once per interned type, only placeholder types have none
      */
-    private String getTypeDescriptor(String type) {
-        return switch (type) {
-            case "int" -> "I";
-            case "real", "float" -> "F";
-            case "bool" -> "B";
-            case "string" -> "Ljava/lang/String;";
-            case "proc" -> "Ljava/lang/Runnable;";
-            case "R" -> "Lcompiler/CodeGenerator/Record;";
-            default -> {
-                if (type.contains("[]")) {
-                    // array
-                    yield "[L" + type.replace("[]", "") + ";";
-                } else if (Character.isUpperCase(type.charAt(0))) {
-                    // record
-                    yield "Lcompiler/CodeGenerator/Record;";
-                } else {
-                    throw new IllegalArgumentException("Unsupported type: " + type);
-                }
-            }
-        };
+    private static String getTypeDescriptor(Type type) {
+        if (type.getDescriptor() == null) {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+        return type.getDescriptor();
     }
 
     public void generateCode(ClassWriter writer, MethodVisitor mv, String className) {
@@ -16,13 +16,13 @@ public class ProcDeclCodeGenerator extends GeneralDeclCodeGenerator {
     private ArrayList<StmtCodeGenerator> body;
 
     public ProcDeclCodeGenerator(String name, ArrayList<Param> params, ArrayList<StmtCodeGenerator> body) {
-        super(name, null, "proc");
+        super(name, null, PROC_DESCRIPTOR);
         this.params = params;
         this.body = body;
     }
 
     public ProcDeclCodeGenerator(String name, ArrayList<Param> params, Block body) {
-        super(name, null, "proc");
+        super(name, null, PROC_DESCRIPTOR);
         this.name = name;
         this.params = params;
         this.body = new ArrayList<>();
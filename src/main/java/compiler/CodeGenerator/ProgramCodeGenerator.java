@@ -1,4 +1,5 @@
 package compiler.CodeGenerator;
+import compiler.Exceptions.DuplicateFieldException;
 import compiler.Parser.GeneralDecl;
 import compiler.Parser.ProcDecl;
 import compiler.Parser.Program;
@@ -18,22 +19,35 @@ public class ProgramCodeGenerator {
 
     /**
      * Here, we use a polymorphic list and make good use of java's polymorphism and inheritance properties
+     * Declarations are generated in source order, as when they are compiled while the file is streamed
      */
     public void generateCode(ClassWriter writer, MethodVisitor mv) {
-        for (GeneralDecl declaration : this.program.getContent()) {
-            if (declaration instanceof RecordDecl recordDecl) {
-                // Generate code for record declaration
-                declarations.add(new RecordDeclCodeGenerator(recordDecl.getName(), recordDecl.getFields()));
-            } else if (declaration instanceof ProcDecl procDecl) {
-                // Generate code for procedure declaration
-                declarations.add(new ProcDeclCodeGenerator(procDecl.getIdentifier(), procDecl.getParams(), procDecl.getBody()));
-            } else {
-                // Generate code for other declarations
-                declarations.add(new GeneralDeclCodeGenerator(declaration.getIdentifier(), ExpressionCodeGenerator.castExpr(declaration.getValue()), declaration.getType().getName()));
-            }
+        for (GeneralDecl declaration : this.program.getSourceOrder()) {
+            declarations.add(castDecl(declaration));
         }
         for (GeneralDeclCodeGenerator declaration : declarations) {
             declaration.generateCode(writer, mv);
         }
     }
+
+    /**
+     * Make the code generator of a top-level declaration
+     * @param declaration - Record, procedure or global declaration
+     * @return GeneralDeclCodeGenerator - Code generator of the declaration
+     */
+    static GeneralDeclCodeGenerator castDecl(GeneralDecl declaration) {
+        if (declaration instanceof RecordDecl recordDecl) {
+            // Generate code for record declaration, from the layout shared with the semantic analysis
+            try {
+                return new RecordDeclCodeGenerator(recordDecl.getLayout());
+            } catch (DuplicateFieldException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        } else if (declaration instanceof ProcDecl procDecl) {
+            // Generate code for procedure declaration
+            return new ProcDeclCodeGenerator(procDecl.getIdentifier(), procDecl.getParams(), procDecl.getBody());
+        }
+        // Generate code for other declarations
+        return new GeneralDeclCodeGenerator(declaration.getIdentifier(), ExpressionCodeGenerator.castExpr(declaration.getValue()), declaration.getType());
+    }
 }
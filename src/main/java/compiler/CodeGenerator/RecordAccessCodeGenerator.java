@@ -1,19 +1,25 @@
 package compiler.CodeGenerator;
 
+import compiler.Parser.RecordLayout;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 public class RecordAccessCodeGenerator extends ExpressionCodeGenerator {
-    private final String name;
+    private final ExpressionCodeGenerator record; // Expression of the accessed record
+    private final RecordLayout layout; // Layout of the accessed record
+    private final int field; // Index of the field in the layout
 
-    public RecordAccessCodeGenerator(String name) {
+    public RecordAccessCodeGenerator(ExpressionCodeGenerator record, RecordLayout layout, int field) {
         super("RecordAccess");
-        this.name = name;
+        this.record = record;
+        this.layout = layout;
+        this.field = field;
     }
 
     @Override
     public void generateCode(MethodVisitor visitor) {
-        // Assuming all variables are global and stored as static fields
-        visitor.visitFieldInsn(Opcodes.GETSTATIC, "MyClass", name, "I");
+        // The field is resolved by the semantic analysis, so its owner and descriptor come from the layout
+        record.generateCode(visitor);
+        visitor.visitFieldInsn(Opcodes.GETFIELD, layout.getInternalName(), layout.getFieldName(field), layout.getFieldDescriptor(field));
     }
 }
@@ -4,48 +4,62 @@ import compiler.Parser.*;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
-import java.util.ArrayList;
 
 public class RecordDeclCodeGenerator extends GeneralDeclCodeGenerator {
-    private final ArrayList<RecordEntryCodeGenerator> fields;
-
-    public RecordDeclCodeGenerator(String name, ArrayList<RecordEntry> fields) {
-        super(name, null, "R");
-        this.fields = new ArrayList<>();
-        for (RecordEntry field : fields) {
-            Expr expression = field.getValue();
-            if (expression instanceof IntegerExpr integerExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new IntegerExprCodeGenerator(integerExpr.getValue())));
-            } else if (expression instanceof RealExpr realExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new RealExprCodeGenerator((float) realExpr.getValue())));
-            } else if (expression instanceof BooleanExpr booleanExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new BooleanExprCodeGenerator(booleanExpr.getValue())));
-            } else if (expression instanceof StringExpr stringExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new StringExprCodeGenerator(stringExpr.getValue())));
-            } else if (expression instanceof ArrayExpr arrayExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new ArrayExprCodeGenerator(arrayExpr.getType(), arrayExpr.getSize(), arrayExpr.getContent())));
-            } else if (expression instanceof BinaryExpr binaryExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new BinaryExprCodeGenerator(binaryExpr.getLeft(), binaryExpr.getRight(), binaryExpr.getOperator())));
-            } else if (expression instanceof IdentifierExpr identifierExpr) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), new IdentifierExprCodeGenerator(identifierExpr.getIdentifier())));
-            } else if (expression == null) {
-                this.fields.add(new RecordEntryCodeGenerator(field.getIdentifier(), field.getType(), null));
-            } else {
-                throw new IllegalStateException("Unexpected value: " + expression + " for field " + field.getIdentifier());
+    private final RecordLayout layout; // Fields of the record, in declaration order
+
+    public RecordDeclCodeGenerator(RecordLayout layout) {
+        super(layout.getName(), null, RecordType.DESCRIPTOR);
+        for (int i = 0; i < layout.getFieldCount(); i++) {
+            if (layout.getFieldDescriptor(i) == null) {
+                throw new IllegalArgumentException("Unsupported type: " + layout.getFieldType(i));
             }
         }
+        this.layout = layout;
     }
 
+    /**
+     * Generate the class of the record: a public field per field of the layout and a constructor taking their values
+     * in the same order, so a record construction is a single constructor call
+     */
     @Override
     public void generateCode(ClassWriter writer, MethodVisitor mv) {
         ClassWriter recordWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        recordWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, this.name, null, "java/lang/Object", null);
+        recordWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, layout.getInternalName(), null, "java/lang/Object", null);
+
+        for (int i = 0; i < layout.getFieldCount(); i++) {
+            recordWriter.visitField(Opcodes.ACC_PUBLIC, layout.getFieldName(i), layout.getFieldDescriptor(i), null, null).visitEnd();
+        }
 
-        for (RecordEntryCodeGenerator entry : fields) {
-            entry.generateCode(recordWriter, null);
+        MethodVisitor constructor = recordWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", layout.getConstructorDescriptor(), null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        for (int i = 0; i < layout.getFieldCount(); i++) {
+            // Every value takes one local slot, the record itself is in slot 0
+            constructor.visitVarInsn(Opcodes.ALOAD, 0);
+            constructor.visitVarInsn(loadOpcode(layout.getFieldType(i)), i + 1);
+            constructor.visitFieldInsn(Opcodes.PUTFIELD, layout.getInternalName(), layout.getFieldName(i), layout.getFieldDescriptor(i));
         }
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
 
         recordWriter.visitEnd();
         byte[] recordClass = recordWriter.toByteArray();
     }
+
+    /**
+     * Get the opcode loading a local of a type
+     * @param type - Type of the local
+     * @return int - ILOAD for ints and bools, FLOAD for reals, ALOAD for references
+     */
+    private static int loadOpcode(Type type) {
+        if (type == Type.INT || type == Type.BOOL) {
+            return Opcodes.ILOAD;
+        } else if (type == Type.REAL) {
+            return Opcodes.FLOAD;
+        }
+        return Opcodes.ALOAD;
+    }
 }
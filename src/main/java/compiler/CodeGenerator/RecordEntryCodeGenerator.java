@@ -16,6 +16,10 @@ public class RecordEntryCodeGenerator {
         this.value = value;
     }
 
+    public ExpressionCodeGenerator getValue() {
+        return value;
+    }
+
     public void generateCode(ClassWriter writer, MethodVisitor mv) {
         String descriptor = type.getName();
         writer.visitField(Opcodes.ACC_PUBLIC, name, descriptor, null, null).visitEnd();
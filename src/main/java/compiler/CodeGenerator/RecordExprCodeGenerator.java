@@ -1,6 +1,7 @@
 package compiler.CodeGenerator;
 
 import compiler.Parser.RecordEntry;
+import compiler.Parser.RecordLayout;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -8,10 +9,12 @@ import java.util.ArrayList;
 
 public class RecordExprCodeGenerator extends ExpressionCodeGenerator {
     protected final ArrayList<RecordEntryCodeGenerator> content; // Content of the record
+    private final RecordLayout layout; // Layout of the record type, null if the construction was not analysed
 
-    public RecordExprCodeGenerator(String type, ArrayList<RecordEntry> content) {
+    public RecordExprCodeGenerator(String type, ArrayList<RecordEntry> content, RecordLayout layout) {
         super("RealExpr");
         this.content = new ArrayList<>();
+        this.layout = layout;
         for (RecordEntry e : content) {
             this.content.add(new RecordEntryCodeGenerator(e.getIdentifier(), e.getType(), castExpr(e.getValue())));
         }
@@ -23,8 +26,18 @@ public class RecordExprCodeGenerator extends ExpressionCodeGenerator {
 
     @Override
     public void generateCode(MethodVisitor visitor) {
+        if (layout == null || layout.getConstructorDescriptor() == null) {
+            for (RecordEntryCodeGenerator e : content) {
+                visitor.visitInsn(Opcodes.DUP);
+            }
+            return;
+        }
+        // The values are in the order of the fields of the layout, which is the order of the constructor parameters
+        visitor.visitTypeInsn(Opcodes.NEW, layout.getInternalName());
+        visitor.visitInsn(Opcodes.DUP);
         for (RecordEntryCodeGenerator e : content) {
-            visitor.visitInsn(Opcodes.DUP);
+            e.getValue().generateCode(visitor);
         }
+        visitor.visitMethodInsn(Opcodes.INVOKESPECIAL, layout.getInternalName(), "<init>", layout.getConstructorDescriptor(), false);
     }
 }
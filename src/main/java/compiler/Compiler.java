@@ -6,18 +6,81 @@ import compiler.Exceptions.CodeGenerationException;
 import compiler.Exceptions.SemanticException;
 import compiler.Lexer.Lexer;
 import compiler.Lexer.Symbol;
+import compiler.Lexer.TokenPipeline;
+import compiler.Parser.ArenaParser;
+import compiler.Parser.LazyParser;
+import compiler.Parser.ParallelParser;
+import compiler.Parser.ParseCache;
 import compiler.Parser.Parser;
 import compiler.Parser.Program;
+import compiler.Parser.TableParser;
 import compiler.SemanticAnalyser.SemanticAnalyzer;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 public class Compiler {
+    private boolean pipelined; // Whether files are lexed on a separate thread while they are parsed
+    private boolean lazy; // Whether procedure bodies of files are parsed only when they are first used
+    private boolean compact; // Whether procedure bodies of files are stored in an arena instead of one object per node
+    private boolean tableDriven; // Whether blocks and expressions of files are parsed from the LL(1) tables instead of by recursive descent
+    private ParseCache parseCache; // Cache of the programs of parsed inputs, null to always parse
+    private boolean streaming; // Whether files are compiled one top-level declaration at a time, without keeping the program
+
+    /**
+     * Choose how source files are lexed
+     * @param pipelined - true to lex on a separate thread feeding the parser, false to lex the mapped file first
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Choose when procedure bodies of source files are parsed
+     * @param lazy - true to parse a body the first time a later phase uses it, false to parse every body with the file
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Choose how procedure bodies of source files are stored
+     * @param compact - true to store them in flat arrays read back on use, false to keep one object per node
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Choose how blocks and expressions of source files are parsed
+     * @param tableDriven - true to parse them with the LL(1) tables generated from Grammar.txt, false by recursive descent
+     */
+    public void setTableDriven(boolean tableDriven) {
+        this.tableDriven = tableDriven;
+    }
+
+    /**
+     * Choose where the programs of parsed inputs are cached
+     * @param parseCache - Cache read before parsing an input and filled after, null to always parse
+     */
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * Choose how source files are compiled
+     * @param streaming - true to check and generate each top-level declaration as soon as it is parsed, false to parse the whole file first
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     private static void printLexer(Lexer lexer, Symbol symbol) {
         // Print first symbol
         System.out.println("Symbol type: " + symbol.getToken() + ", Lexeme: " + symbol.getLexeme());
@@ -64,13 +127,95 @@ public class Compiler {
     }
 
     public Program parseInput(String input) throws Parser.ParserException {
-        StringReader reader = new StringReader(input);
-        Lexer lexer = new Lexer(reader);
-        Parser parser = new Parser(lexer);
+        if (this.parseCache != null) {
+            Program cached = this.parseCache.get(input);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // The whole input is in memory, lex it into a packed token buffer
+        Parser parser = new Parser(Lexer.tokenize(input));
 
+        if (this.parseCache != null) {
+            try {
+                this.parseCache.put(input, parser.getProgram());
+            } catch (IOException e) {
+                // The cache only saves time, the program is still correct
+                e.printStackTrace();
+            }
+        }
         return parser.getProgram();
     }
 
+    public Program parseFile(Path path) throws Parser.ParserException {
+        try {
+            if (this.pipelined) {
+                // Lex on another thread, the parser reads the tokens as they are produced
+                try (Reader reader = Files.newBufferedReader(path); TokenPipeline tokens = new TokenPipeline(reader)) {
+                    return new Parser(tokens).getProgram();
+                }
+            }
+            // Lex the memory-mapped file without decoding it to characters first
+            if (this.tableDriven) {
+                // Nesting is bounded by the heap instead of the thread stack
+                return new TableParser(Lexer.tokenize(path)).getProgram();
+            }
+            if (this.lazy) {
+                // Only the top-level declarations are parsed now, each procedure body when it is first used
+                return LazyParser.parse(Lexer.tokenize(path));
+            }
+            if (this.compact) {
+                // Each procedure body is moved to an arena as soon as it is parsed
+                return ArenaParser.parse(Lexer.tokenize(path));
+            }
+            // Parse procedure bodies in parallel
+            return ParallelParser.parse(Lexer.tokenize(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compile a source file one top-level declaration at a time
+     * Each declaration is checked against the declarations before it, its code is generated, then it is dropped, so the
+     * memory used is bounded by the largest declaration rather than by the file. Declarations are compiled in source order.
+     * @param path - Source file
+     * @param className - Name of the generated class
+     * @return Bytecode of the class
+     * @throws Parser.ParserException - At the first syntax error
+     * @throws SemanticException - At the first declaration that is not correct
+     */
+    public byte[] compileFile(Path path, String className) throws Parser.ParserException, SemanticException {
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
+        CodeGenerator codeGen = new CodeGenerator(className, null);
+        // The lexer runs ahead on another thread, only a window of tokens is held
+        try (Reader reader = Files.newBufferedReader(path); TokenPipeline tokens = new TokenPipeline(reader)) {
+            Parser.stream(tokens, declaration -> {
+                declaration.accept(semanticAnalyzer);
+                codeGen.addDeclaration(declaration);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        return codeGen.finish();
+    }
+
+    /**
+     * Compile a parsed program
+     * The whole program is checked first, then its declarations are generated in source order, so a correct program
+     * gives the same class as when its file is streamed through compileFile
+     * @param program - Parsed program
+     * @param className - Name of the generated class
+     * @return Bytecode of the class
+     * @throws SemanticException - If the program is not correct
+     */
+    public byte[] compileProgram(Program program, String className) throws SemanticException {
+        program.accept(new SemanticAnalyzer());
+        return new CodeGenerator(className, null).generateByteCode(new ProgramCodeGenerator(program));
+    }
+
     public void analyseProgram(Program program) {
         SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
         System.out.println("Performing semantic analysis...");
@@ -87,7 +232,7 @@ public class Compiler {
         System.out.println("Testing parser...");
         // Basic example of how to use the lexer
         System.out.println("--Basic example--");
-        String input = "var x int = 2; var y int = ((3 + 4) * 5));";
+        String input = "var x int = 2; var y int = ((3 + 4) * 5);";
         System.out.println("Input: " + input);
         StringReader reader = new StringReader(input); // Create a reader for the input
         Lexer lexer = new Lexer(reader); // Create a lexer for the reader
@@ -168,13 +313,7 @@ public class Compiler {
         // Example using "code_example.lang" file
         Path filename = Path.of("code_example.lang");
         System.out.println("--Example using \"code_example.lang\" file--");
-        try {
-            input = Files.readString(filename);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-        analyseProgram(parseInput(input));
+        analyseProgram(parseFile(filename));
     }
     public void writeClassFile(String className, byte[] bytecode) throws CodeGenerationException {
         try {
@@ -229,16 +368,14 @@ public class Compiler {
         Path filename = Path.of("code_example.lang");
         System.out.println("--Example using \"code_example.lang\" file--");
         try {
-            input = Files.readString(filename);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+            // Both ways give the same class, streaming only bounds the memory used
+            bytecode = this.streaming ? compileFile(filename, className) : compileProgram(parseFile(filename), className);
+        } catch (SemanticException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Semantic analysis failed!");
+            return;
         }
-        program = parseInput(input);
-        codeGen = new CodeGenerator(className, null); // Replace null with superclass name, if needed
-        code = codeGen.generateCode(new ProgramCodeGenerator(program));
-        System.out.println("Generated code:\n" + code);
-        bytecode = codeGen.generateByteCode(new ProgramCodeGenerator(program));
+        System.out.println("Generated code:\n" + Arrays.toString(bytecode));
         writeClassFile(className, bytecode);
     }
 
@@ -246,6 +383,14 @@ public class Compiler {
 
     public static void main(String[] args) throws Parser.ParserException, CodeGenerationException {
         Compiler compiler = new Compiler();
+        compiler.setPipelined(Arrays.asList(args).contains("--pipeline"));
+        compiler.setLazy(Arrays.asList(args).contains("--lazy"));
+        compiler.setCompact(Arrays.asList(args).contains("--compact"));
+        compiler.setTableDriven(Arrays.asList(args).contains("--table"));
+        compiler.setStreaming(Arrays.asList(args).contains("--stream"));
+        if (Arrays.asList(args).contains("--parse-cache")) {
+            compiler.setParseCache(new ParseCache(Path.of("build", "parse-cache")));
+        }
         compiler.lexer(args);
         compiler.parser();
         compiler.semanticAnalysis();
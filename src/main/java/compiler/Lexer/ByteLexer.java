@@ -0,0 +1,324 @@
+package compiler.Lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lexer over the raw bytes of a memory-mapped ASCII source file
+ * Runs of identifier characters, digits, spaces and comments are scanned 8 bytes at a time, using a long as a vector of bytes
+ * It produces the same tokens as Lexer, byte offsets are character offsets since the source is ASCII
+ */
+final class ByteLexer {
+    private static final long ONES = 0x0101010101010101L; // 0x01 in every byte
+    private static final long HIGH_BITS = 0x8080808080808080L; // High bit of every byte
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL; // Low 7 bits of every byte
+    private static final long SPACES = 0x2020202020202020L; // 8 spaces
+
+    private final ByteBuffer bytes; // Source bytes, read as little-endian words
+    private final int limit; // Number of bytes in the source
+    private int position; // Index of the current byte
+    private int tokenStart; // Index of the first byte of the token being scanned
+
+    /**
+     * Constructor for ByteLexer
+     * @param bytes - Source bytes, in little-endian order
+     */
+    private ByteLexer(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.limit = bytes.limit();
+    }
+
+    /**
+     * Lex a source file into a packed token buffer
+     * @param path - Path of the source file
+     * @return Tokens of the source, ending with EOF
+     * @throws IOException if the file cannot be read
+     */
+    static TokenBuffer tokenize(Path path) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Source file is too large to be mapped: " + path);
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (!isAscii(bytes)) {
+            // Slow path, decode the UTF-8 source and lex its characters
+            return Lexer.tokenize(Files.readString(path));
+        }
+        ByteLexer lexer = new ByteLexer(bytes);
+        TokenBuffer tokens = new TokenBuffer(new AsciiSource(bytes), bytes.limit() / 4 + 16);
+        Lexer.Token token;
+        do {
+            token = lexer.scan();
+            tokens.add(token, lexer.tokenStart, lexer.position - lexer.tokenStart);
+        } while (token != Lexer.Token.EOF);
+        return tokens;
+    }
+
+    /**
+     * Check that every byte is ASCII, 8 bytes at a time
+     * @param bytes - Bytes to check
+     * @return true if no byte has its high bit set
+     */
+    private static boolean isAscii(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        int i = 0;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if ((bytes.getLong(i) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; i < limit; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the zero bytes of a word
+     * @param word - 8 ASCII bytes
+     * @return Word with the high bit set in every byte that is zero
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    /**
+     * Find the bytes of a word in a range, no carry crosses bytes since they are all ASCII
+     * @param word - 8 ASCII bytes
+     * @param low - Lowest value of the range
+     * @param high - Highest value of the range
+     * @return Word with the high bit set in every byte in [low, high]
+     */
+    private static long inRange(long word, int low, int high) {
+        long atLeastLow = word + ONES * (0x80 - low);
+        long aboveHigh = word + ONES * (0x7F - high);
+        return atLeastLow & ~aboveHigh & HIGH_BITS;
+    }
+
+    /**
+     * Find the bytes of a word that can continue an identifier: letters, digits and '_'
+     * @param word - 8 ASCII bytes
+     * @return Word with the high bit set in every identifier byte
+     */
+    private static long identifierBytes(long word) {
+        return inRange(word | ONES * 0x20, 'a', 'z') | inRange(word, '0', '9') | zeroBytes(word ^ ONES * '_');
+    }
+
+    /**
+     * Find the bytes of a word that are digits
+     * @param word - 8 ASCII bytes
+     * @return Word with the high bit set in every digit
+     */
+    private static long digitBytes(long word) {
+        return inRange(word, '0', '9');
+    }
+
+    /**
+     * Move to the first byte that is not an identifier character
+     */
+    private void skipIdentifierPart() {
+        for (; this.position + Long.BYTES <= this.limit; this.position += Long.BYTES) {
+            long outside = ~identifierBytes(this.bytes.getLong(this.position)) & HIGH_BITS;
+            if (outside != 0) {
+                this.position += Long.numberOfTrailingZeros(outside) >>> 3;
+                return;
+            }
+        }
+        while (this.position < this.limit && Lexer.is(this.bytes.get(this.position), Lexer.LETTER | Lexer.DIGIT)) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Move to the first byte that is not a digit
+     */
+    private void skipDigits() {
+        for (; this.position + Long.BYTES <= this.limit; this.position += Long.BYTES) {
+            long outside = ~digitBytes(this.bytes.getLong(this.position)) & HIGH_BITS;
+            if (outside != 0) {
+                this.position += Long.numberOfTrailingZeros(outside) >>> 3;
+                return;
+            }
+        }
+        while (this.position < this.limit && Lexer.is(this.bytes.get(this.position), Lexer.DIGIT)) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Move to the next occurrence of a byte, or to the end of the source
+     * @param target - Byte to find
+     */
+    private void skipTo(int target) {
+        long pattern = ONES * target;
+        for (; this.position + Long.BYTES <= this.limit; this.position += Long.BYTES) {
+            long found = zeroBytes(this.bytes.getLong(this.position) ^ pattern);
+            if (found != 0) {
+                this.position += Long.numberOfTrailingZeros(found) >>> 3;
+                return;
+            }
+        }
+        while (this.position < this.limit && this.bytes.get(this.position) != target) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Skip whitespace and comments, a comment runs from '/' to the end of the line
+     */
+    private void skipWhitespaceAndComments() {
+        while (true) {
+            while (this.position < this.limit) {
+                // Indentation is skipped a word at a time
+                if (this.position + Long.BYTES <= this.limit && this.bytes.getLong(this.position) == SPACES) {
+                    this.position += Long.BYTES;
+                } else if (Lexer.is(this.bytes.get(this.position), Lexer.WHITESPACE)) {
+                    this.position++;
+                } else {
+                    break;
+                }
+            }
+            this.tokenStart = this.position;
+            if (this.position == this.limit || this.bytes.get(this.position) != '/') {
+                return;
+            }
+            // Skip comment, including the newline that ends it
+            skipTo('\n');
+            if (this.position < this.limit) {
+                this.position++;
+            }
+        }
+    }
+
+    /**
+     * Get the byte at the current position
+     * @return Current byte, or -1 at end of input
+     */
+    private int peek() {
+        return this.position < this.limit ? this.bytes.get(this.position) : -1;
+    }
+
+    /**
+     * Find the keyword matching the identifier being scanned
+     * @return Keyword token, or IDENTIFIER if the identifier is not a keyword
+     */
+    private Lexer.Token keyword() {
+        int length = this.position - this.tokenStart;
+        int index = Lexer.keywordCandidate(this.bytes.get(this.tokenStart), this.bytes.get(this.position - 1), length);
+        if (index == -1) {
+            return Lexer.Token.IDENTIFIER;
+        }
+        String keyword = Lexer.keywordText(index);
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != this.bytes.get(this.tokenStart + i)) {
+                return Lexer.Token.IDENTIFIER;
+            }
+        }
+        return Lexer.keywordToken(index);
+    }
+
+    /**
+     * Scan the next token, the bytes of the token are [tokenStart, position)
+     * @return Type of the token
+     */
+    private Lexer.Token scan() {
+        skipWhitespaceAndComments();
+        int c = peek();
+
+        // Check if end of input
+        if (c == -1) {
+            return Lexer.Token.EOF;
+        }
+
+        // Check for identifiers, keywords and boolean values
+        if (Lexer.is(c, Lexer.LETTER)) {
+            this.position++;
+            skipIdentifierPart();
+            return keyword();
+        }
+
+        // Check for values
+        if (Lexer.is(c, Lexer.DIGIT)) {
+            this.position++;
+            skipDigits();
+            // Check if lexeme is a real or integer
+            if (peek() != '.') {
+                return Lexer.Token.INTEGER;
+            }
+            this.position++;
+            skipDigits();
+            return Lexer.Token.REAL;
+        }
+
+        // Check for strings, the token includes the quotes
+        if (c == '"') {
+            this.position++;
+            skipTo('"');
+            if (this.position < this.limit) {
+                this.position++;
+            }
+            return Lexer.Token.STRING;
+        }
+
+        // Check for special symbols, with the same rules as Lexer
+        if (Lexer.is(c, Lexer.SPECIAL)) {
+            this.position++;
+            int next = peek();
+            if (Lexer.is(next, Lexer.SPECIAL) && !Lexer.is(c, Lexer.DUPLICATE) && next != '/') {
+                this.position++;
+                return Lexer.specialSymbol(c, next);
+            }
+            return Lexer.specialSymbol(c, -1);
+        }
+        // Skip the unknown character so that the lexer always makes progress
+        this.position++;
+        return Lexer.Token.UNKNOWN;
+    }
+
+    /**
+     * Characters of an ASCII source, read from its bytes without decoding them
+     */
+    private static final class AsciiSource implements CharSequence {
+        private final ByteBuffer bytes; // Source bytes
+
+        /**
+         * Constructor for AsciiSource
+         * @param bytes - Source bytes
+         */
+        AsciiSource(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return this.bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) this.bytes.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] characters = new byte[end - start];
+            this.bytes.get(start, characters);
+            return new String(characters, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
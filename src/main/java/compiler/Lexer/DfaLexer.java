@@ -0,0 +1,172 @@
+package compiler.Lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Lexer driven by the DFA tables generated from Tokens.txt
+ * Each token is the longest match of the specification, so two special characters that do not form an operator are
+ * two tokens instead of one UNKNOWN symbol, and only "//" starts a comment while "/" alone is SYMBOL_DIVIDE
+ */
+public class DfaLexer {
+    private final char[] input; // Characters of the source
+    private final int length; // Number of characters of the source
+    private int position; // Index of the next character
+    private int tokenStart; // Index of the first character of the last token
+    private final NameTable names = NameTable.shared(); // Table where identifiers are interned
+    public Symbol currentSymbol; // Current symbol
+
+    /**
+     * Constructor for DfaLexer, the whole source file is read in memory
+     * @param input - Source file
+     */
+    public DfaLexer(Reader input) {
+        this(readAll(input));
+    }
+
+    /**
+     * Constructor for an in-memory source
+     * @param input - Source code
+     */
+    public DfaLexer(String input) {
+        this(input.toCharArray(), input.length(), true);
+    }
+
+    /**
+     * Constructor for an in-memory source
+     * @param input - Characters of the source code
+     * @param length - Number of valid characters in the input
+     * @param readFirstSymbol - Whether to read the first symbol into currentSymbol
+     */
+    private DfaLexer(char[] input, int length, boolean readFirstSymbol) {
+        this.input = input;
+        this.length = length;
+        if (readFirstSymbol) {
+            this.currentSymbol = getNextSymbol(); // Get first symbol
+        }
+    }
+
+    /**
+     * Read a whole source file, read errors end the input as in Lexer
+     * @param input - Source file
+     * @return Content of the file
+     */
+    private static String readAll(Reader input) {
+        StringBuilder content = new StringBuilder();
+        char[] block = new char[1 << 16];
+        try {
+            int read;
+            while ((read = input.read(block)) > 0) {
+                content.append(block, 0, read);
+            }
+        } catch (IOException e) {
+            // Error while reading, treated as end of input
+            e.printStackTrace();
+        }
+        return content.toString();
+    }
+
+    /**
+     * Get the character class of a character
+     * @param c - Character
+     * @return Class of the character in the transition table
+     */
+    private static int classOf(char c) {
+        if (c < 128) {
+            return DfaTables.CLASSES[c];
+        }
+        // Slow path for non-ASCII characters
+        if (Character.isLetter(c)) {
+            return DfaTables.CLASSES[128];
+        }
+        if (Character.isDigit(c)) {
+            return DfaTables.CLASSES[129];
+        }
+        if (Character.isWhitespace(c)) {
+            return DfaTables.CLASSES[130];
+        }
+        return DfaTables.CLASSES[131];
+    }
+
+    /**
+     * Scan the next token, the characters of the token are input[tokenStart, position)
+     * @return Type of the token
+     */
+    private Lexer.Token scan() {
+        while (true) {
+            this.tokenStart = this.position;
+            if (this.position == this.length) {
+                return Lexer.Token.EOF;
+            }
+            // Run the automaton as far as it goes, remembering the last accepting state
+            short[] transitions = DfaTables.TRANSITIONS;
+            byte[] accept = DfaTables.ACCEPT;
+            int row = DfaTables.START;
+            int rule = -1;
+            int end = this.position;
+            for (int i = this.position; i < this.length; i++) {
+                row = transitions[row + classOf(this.input[i])];
+                if (row == 0) {
+                    break;
+                }
+                int accepted = accept[row >> DfaTables.CLASS_BITS];
+                if (accepted >= 0) {
+                    rule = accepted;
+                    end = i + 1;
+                }
+            }
+            if (rule == -1) {
+                // No rule matches, skip a single character
+                this.position++;
+                return Lexer.Token.UNKNOWN;
+            }
+            this.position = end;
+            Lexer.Token token = DfaTables.RULE_TOKENS[rule];
+            if (token != null) {
+                return token;
+            }
+        }
+    }
+
+    /**
+     * Get next symbol from source file
+     * @return Next symbol from source file
+     */
+    public Symbol getNextSymbol() {
+        Lexer.Token token = scan();
+        if (token == Lexer.Token.EOF) {
+            return new Symbol(Lexer.Token.EOF, null);
+        }
+        CharBuffer text = CharBuffer.wrap(this.input, this.tokenStart, this.position - this.tokenStart);
+        if (token == Lexer.Token.IDENTIFIER) {
+            Name name = this.names.intern(text.toString());
+            return new Symbol(Lexer.Token.IDENTIFIER, name.getText(), name);
+        }
+        return new Symbol(token, Lexer.lexemeOf(token, text));
+    }
+
+    /**
+     * Get the offset in the source of the first character of the last symbol returned
+     * @return Source offset of the last symbol
+     */
+    public int getTokenOffset() {
+        return this.tokenStart;
+    }
+
+    /**
+     * Lex a whole in-memory source into a packed token buffer
+     * @param source - Source code
+     * @return Tokens of the source, ending with EOF
+     */
+    public static TokenBuffer tokenize(String source) {
+        DfaLexer lexer = new DfaLexer(source.toCharArray(), source.length(), false);
+        TokenBuffer tokens = new TokenBuffer(source, source.length() / 4 + 16);
+        Lexer.Token token;
+        do {
+            token = lexer.scan();
+            tokens.add(token, lexer.tokenStart, lexer.position - lexer.tokenStart);
+        } while (token != Lexer.Token.EOF);
+        return tokens;
+    }
+}
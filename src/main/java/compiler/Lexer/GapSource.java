@@ -0,0 +1,119 @@
+package compiler.Lexer;
+
+/**
+ * Source code edited in place, stored as a gap buffer
+ * The characters are kept in one array with a gap at the last edit, so an edit only moves the characters between it and
+ * the previous edit, and the text after the gap stays contiguous for the lexer to scan
+ */
+final class GapSource implements CharSequence {
+    private static final int MIN_GAP = 1 << 10; // Number of free characters left after growing the array
+
+    private char[] characters; // Characters before the gap, then free space, then characters after the gap
+    private int gapStart; // Index of the first free character, also the offset of the first character after the gap
+    private int gapEnd; // Index of the first character after the gap
+
+    /**
+     * Constructor for GapSource
+     * @param source - Initial source code
+     */
+    GapSource(String source) {
+        this.characters = new char[source.length() + MIN_GAP];
+        source.getChars(0, source.length(), this.characters, 0);
+        this.gapStart = source.length();
+        this.gapEnd = this.characters.length;
+    }
+
+    @Override
+    public int length() {
+        return this.characters.length - (this.gapEnd - this.gapStart);
+    }
+
+    @Override
+    public char charAt(int index) {
+        return this.characters[index < this.gapStart ? index : index + this.gapEnd - this.gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (end <= this.gapStart) {
+            return new String(this.characters, start, end - start);
+        }
+        int gap = this.gapEnd - this.gapStart;
+        if (start >= this.gapStart) {
+            return new String(this.characters, start + gap, end - start);
+        }
+        return new StringBuilder(end - start)
+                .append(this.characters, start, this.gapStart - start)
+                .append(this.characters, this.gapEnd, end - this.gapStart)
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    /**
+     * Replace a range of characters, the gap is left after the inserted text
+     * @param offset - Offset of the first character replaced
+     * @param removedLength - Number of characters removed
+     * @param insertedText - Text inserted in their place
+     */
+    void replace(int offset, int removedLength, CharSequence insertedText) {
+        moveGap(offset);
+        this.gapEnd += removedLength;
+        int inserted = insertedText.length();
+        if (this.gapEnd - this.gapStart < inserted) {
+            // Grow the gap, the characters after it move to the end of the new array
+            int after = this.characters.length - this.gapEnd;
+            char[] grown = new char[Math.max(this.characters.length * 2, length() + inserted + MIN_GAP)];
+            System.arraycopy(this.characters, 0, grown, 0, this.gapStart);
+            System.arraycopy(this.characters, this.gapEnd, grown, grown.length - after, after);
+            this.characters = grown;
+            this.gapEnd = grown.length - after;
+        }
+        for (int i = 0; i < inserted; i++) {
+            this.characters[this.gapStart + i] = insertedText.charAt(i);
+        }
+        this.gapStart += inserted;
+    }
+
+    /**
+     * Move the gap to an offset, moving the characters between the old and the new place across it
+     * @param offset - Offset of the first character after the gap once it is moved
+     */
+    void moveGap(int offset) {
+        int gap = this.gapEnd - this.gapStart;
+        if (offset < this.gapStart) {
+            System.arraycopy(this.characters, offset, this.characters, offset + gap, this.gapStart - offset);
+        } else if (offset > this.gapStart) {
+            System.arraycopy(this.characters, this.gapEnd, this.characters, this.gapStart, offset - this.gapStart);
+        }
+        this.gapStart = offset;
+        this.gapEnd = offset + gap;
+    }
+
+    /**
+     * Get the array holding the characters, the characters after the gap run up to its end
+     * @return Array of the characters
+     */
+    char[] array() {
+        return this.characters;
+    }
+
+    /**
+     * Get the index in the array of the first character after the gap
+     * @return Index of the character at offset gapStart()
+     */
+    int gapEnd() {
+        return this.gapEnd;
+    }
+
+    /**
+     * Get the number of free characters of the gap, to turn an index in the array after the gap into an offset
+     * @return Length of the gap
+     */
+    int gapLength() {
+        return this.gapEnd - this.gapStart;
+    }
+}
@@ -0,0 +1,207 @@
+package compiler.Lexer;
+
+import java.util.Objects;
+
+/**
+ * Lexer keeping the tokens of a source up to date while the source is edited
+ * An edit is relexed from the last token that cannot be affected by it, until the new tokens fall back in step with the old ones
+ * The source and the tokens are gap buffers edited in place, so an edit costs the relexed window and the distance from
+ * the previous edit rather than the size of the file
+ */
+public class IncrementalLexer {
+    private final GapSource source; // Current source code
+    private final TokenBuffer tokens; // Tokens of the current source, ending with EOF
+    private String text; // Current source code as a string, null until it is asked for after an edit
+
+    /**
+     * Constructor for IncrementalLexer
+     * @param source - Initial source code
+     */
+    public IncrementalLexer(String source) {
+        this.source = new GapSource(source);
+        TokenBuffer tokens = Lexer.tokenize(source);
+        this.tokens = new TokenBuffer(this.source, tokens.size() + 16);
+        this.tokens.addAll(tokens, 0, tokens.size());
+        this.text = source;
+    }
+
+    /**
+     * Range of tokens replaced by an edit
+     */
+    public static final class Change {
+        private final int first; // Index of the first token replaced
+        private final int removed; // Number of old tokens replaced
+        private final int inserted; // Number of new tokens in their place
+        private final int start; // Offset of the first token replaced, in the old source
+        private final int end; // Offset of the first old token kept after the replaced ones, in the old source
+        private final int shift; // Number of characters added by the edit, negative if it removed characters
+
+        /**
+         * Constructor for Change
+         * @param first - Index of the first token replaced
+         * @param removed - Number of old tokens replaced
+         * @param inserted - Number of new tokens in their place
+         * @param start - Offset of the first token replaced, in the old source
+         * @param end - Offset of the first old token kept after the replaced ones, in the old source
+         * @param shift - Number of characters added by the edit
+         */
+        Change(int first, int removed, int inserted, int start, int end, int shift) {
+            this.first = first;
+            this.removed = removed;
+            this.inserted = inserted;
+            this.start = start;
+            this.end = end;
+            this.shift = shift;
+        }
+
+        /**
+         * Get the index of the first token replaced, tokens before it are unchanged
+         * @return Index of the first token replaced
+         */
+        public int getFirst() {
+            return this.first;
+        }
+
+        /**
+         * Get the number of old tokens replaced, from the first one
+         * @return Number of old tokens replaced
+         */
+        public int getRemoved() {
+            return this.removed;
+        }
+
+        /**
+         * Get the number of new tokens in place of the old ones, tokens after them are unchanged apart from their offset
+         * @return Number of new tokens
+         */
+        public int getInserted() {
+            return this.inserted;
+        }
+
+        /**
+         * Get the offset in the old source of the first token replaced, old tokens before it are unchanged
+         * @return Offset of the first token replaced
+         */
+        public int getStart() {
+            return this.start;
+        }
+
+        /**
+         * Get the offset in the old source of the first old token kept after the replaced ones
+         * @return Offset of the token, Integer.MAX_VALUE if no old token was kept after the edit
+         */
+        public int getEnd() {
+            return this.end;
+        }
+
+        /**
+         * Get the move of the characters after the edit
+         * @return Number of characters added by the edit, negative if it removed characters
+         */
+        public int getShift() {
+            return this.shift;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{first=" + this.first + ", removed=" + this.removed + ", inserted=" + this.inserted + "}";
+        }
+    }
+
+    /**
+     * Get the current source, built once after each edit it is asked for after
+     * @return Source code
+     */
+    public String getSource() {
+        if (this.text == null) {
+            this.text = this.source.toString();
+        }
+        return this.text;
+    }
+
+    /**
+     * Get the number of characters of the current source
+     * @return Length of the source
+     */
+    public int length() {
+        return this.source.length();
+    }
+
+    /**
+     * Get the tokens of the current source
+     * @return Tokens of the source, ending with EOF
+     */
+    public TokenBuffer getTokens() {
+        return this.tokens;
+    }
+
+    /**
+     * Replace a range of the source and relex the tokens it affects
+     * @param offset - Offset of the first character replaced
+     * @param removedLength - Number of characters removed
+     * @param insertedText - Text inserted in their place
+     * @return Change - Range of tokens that changed
+     */
+    public Change edit(int offset, int removedLength, String insertedText) {
+        Objects.checkFromIndexSize(offset, removedLength, this.source.length());
+        int insertedEnd = offset + insertedText.length(); // End of the inserted text, in the edited source
+        int shift = insertedText.length() - removedLength; // Move of the tokens after the edit
+
+        // A token is only affected if the edit starts at or before the character after it, the last character it peeked at
+        int first = firstTokenEndingAtOrAfter(offset);
+        int restart = first == 0 ? 0 : this.tokens.getStart(first - 1) + this.tokens.getLength(first - 1);
+        int firstStart = this.tokens.getStart(first);
+
+        // The tokens from the first one on go after the gap before the text is edited, so their offsets follow the edit
+        this.tokens.moveGap(first);
+        this.source.replace(offset, removedLength, insertedText);
+        this.text = null;
+
+        // The text from the restart offset on is contiguous after the gap of the source, the scanner reads it in place
+        this.source.moveGap(restart);
+        char[] input = this.source.array();
+        int gapLength = this.source.gapLength();
+        Lexer lexer = Lexer.scanner(input, input.length, this.source.gapEnd());
+
+        // Relex until a new token starts where an old token after the edit starts
+        TokenBuffer relexed = new TokenBuffer(this.source, 16);
+        int old = first; // First old token that can still match a new one
+        int size = this.tokens.size();
+        Lexer.Token token;
+        do {
+            token = lexer.scanToken();
+            int start = lexer.tokenStart() - gapLength;
+            while (old < size && (this.tokens.getStart(old) < insertedEnd || this.tokens.getStart(old) < start)) {
+                old++;
+            }
+            if (old < size && this.tokens.getStart(old) == start) {
+                // Same text from here on, so the rest of the old tokens are still valid
+                break;
+            }
+            relexed.add(token, start, lexer.tokenLength());
+        } while (token != Lexer.Token.EOF);
+
+        int end = old < size ? this.tokens.getStart(old) - shift : Integer.MAX_VALUE;
+        this.tokens.replace(old - first, relexed);
+        return new Change(first, old - first, relexed.size(), firstStart, end, shift);
+    }
+
+    /**
+     * Find the first token, EOF excluded, ending at or after an offset
+     * @param offset - Offset in the source
+     * @return Index of the token, or the index of EOF if every token ends before the offset
+     */
+    private int firstTokenEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = this.tokens.size() - 1; // EOF
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.tokens.getStart(middle) + this.tokens.getLength(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,10 +1,83 @@
 package compiler.Lexer;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class Lexer {
-    private final Reader sourceFile; // Source file
-    private int currentChar; // Current character
+    private static final int BLOCK_SIZE = 1 << 16; // Number of characters read from the source file at once
+    private static final int NAME_CACHE_SIZE = 1 << 10; // Number of slots in the identifier cache (power of two)
+    static final String SPECIAL_SYMBOLS = "=+-*/%<>!(){}[].;,?"; // Characters that start an operator or special symbol
+    private static final String DUPLICATE_SYMBOLS = "(){}[]"; // Special symbols that are never followed by a second character
+    private static final String[] KEYWORDS = {"const", "record", "var", "val", "proc", "for", "to", "by", "while", "if",
+            "else", "return", "and", "or", "true", "false", "void"};
+    private static final Token[] KEYWORD_TOKENS = {Token.KEYWORD_CONST, Token.KEYWORD_RECORD, Token.KEYWORD_VAR,
+            Token.KEYWORD_VAL, Token.KEYWORD_PROC, Token.KEYWORD_FOR, Token.KEYWORD_TO, Token.KEYWORD_BY,
+            Token.KEYWORD_WHILE, Token.KEYWORD_IF, Token.KEYWORD_ELSE, Token.KEYWORD_RETURN, Token.KEYWORD_AND,
+            Token.KEYWORD_OR, Token.BOOLEAN, Token.BOOLEAN, Token.VOID};
+
+    // Character classes, ASCII characters are classified with a table and other characters with java.lang.Character
+    private static final int ASCII = 128; // Size of the character class table
+    static final byte WHITESPACE = 1; // Skipped between tokens
+    static final byte LETTER = 2; // Starts an identifier, '_' included
+    static final byte DIGIT = 4; // Starts a number, may continue an identifier
+    static final byte SPECIAL = 8; // Starts an operator or special symbol
+    static final byte DUPLICATE = 16; // Special symbol that is never followed by a second character
+    private static final byte[] CHAR_CLASSES = new byte[ASCII]; // Classes of each ASCII character
+
+    // Keywords are found with a collision-free hash of their first character, last character and length
+    private static final int KEYWORD_SLOTS = 32; // Size of the keyword hash table (power of two)
+    private static final int KEYWORD_MIN_LENGTH = 2; // Length of the shortest keyword
+    private static final int KEYWORD_MAX_LENGTH = 6; // Length of the longest keyword
+    private static final byte[] KEYWORD_INDEX = new byte[KEYWORD_SLOTS]; // Index in KEYWORDS of each slot, -1 if empty
+
+    private static final String[] FIXED_LEXEMES = new String[Token.values().length]; // Lexeme of tokens that always have the same text
+
+    static {
+        for (int c = 0; c < ASCII; c++) {
+            int classes = 0;
+            if (Character.isWhitespace(c)) classes |= WHITESPACE;
+            if (c == '_' || Character.isLetter(c)) classes |= LETTER;
+            if (Character.isDigit(c)) classes |= DIGIT;
+            if (SPECIAL_SYMBOLS.indexOf(c) >= 0) classes |= SPECIAL;
+            if (DUPLICATE_SYMBOLS.indexOf(c) >= 0) classes |= DUPLICATE;
+            CHAR_CLASSES[c] = (byte) classes;
+        }
+        Arrays.fill(KEYWORD_INDEX, (byte) -1);
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String keyword = KEYWORDS[i];
+            int slot = keywordSlot(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+            if (KEYWORD_INDEX[slot] != -1) {
+                throw new IllegalStateException("Keywords " + KEYWORDS[KEYWORD_INDEX[slot]] + " and " + keyword + " collide");
+            }
+            KEYWORD_INDEX[slot] = (byte) i;
+            if (KEYWORD_TOKENS[i] != Token.BOOLEAN) {
+                FIXED_LEXEMES[KEYWORD_TOKENS[i].ordinal()] = keyword;
+            }
+        }
+        for (int i = 0; i < SPECIAL_SYMBOLS.length(); i++) {
+            char c = SPECIAL_SYMBOLS.charAt(i);
+            Token token = specialSymbol(c, -1);
+            if (token != Token.UNKNOWN) {
+                FIXED_LEXEMES[token.ordinal()] = String.valueOf(c);
+            }
+        }
+        for (String symbol : new String[]{"==", "!=", "<=", ">="}) {
+            FIXED_LEXEMES[specialSymbol(symbol.charAt(0), symbol.charAt(1)).ordinal()] = symbol;
+        }
+    }
+
+    private final Reader sourceFile; // Source file, null when lexing an in-memory buffer
+    private char[] buffer; // Block of characters read from the source file
+    private int bufferOffset; // Offset in the source of the first character in the buffer
+    private int position; // Index of the current character in the buffer
+    private int limit; // Number of valid characters in the buffer
+    private int tokenStart; // Index in the buffer of the first character of the token being scanned
+    private final NameTable names = NameTable.shared(); // Table where identifiers are interned
+    private final Name[] nameCache = new Name[NAME_CACHE_SIZE]; // Recently seen identifiers, indexed by hash
+    private int identifierHash; // Hash of the characters of the last identifier scanned
+    private int keywordIndex; // Index in KEYWORDS of the last keyword scanned
     public Symbol currentSymbol; // Current symbol
 
     /**
@@ -14,13 +87,42 @@ public class Lexer {
     public Lexer(Reader input) {
         // Initialize lexer
         this.sourceFile = input; // Set source file
-        if (readNextChar() == -1) {
-            // Error while reading next character
-            this.currentSymbol = new Symbol(Token.EOF, null);
-        }
+        this.buffer = new char[BLOCK_SIZE];
         this.currentSymbol = getNextSymbol(); // Get first symbol
     }
 
+    /**
+     * Constructor for an in-memory source, the whole input is scanned without copying it block by block
+     * @param input Source code
+     */
+    public Lexer(String input) {
+        this(input.toCharArray(), input.length());
+    }
+
+    /**
+     * Constructor for an in-memory source
+     * @param input Characters of the source code
+     * @param length Number of valid characters in the input
+     */
+    public Lexer(char[] input, int length) {
+        this(input, length, true);
+    }
+
+    /**
+     * Constructor for an in-memory source
+     * @param input Characters of the source code
+     * @param length Number of valid characters in the input
+     * @param readFirstSymbol Whether to read the first symbol into currentSymbol
+     */
+    private Lexer(char[] input, int length, boolean readFirstSymbol) {
+        this.sourceFile = null;
+        this.buffer = input;
+        this.limit = length;
+        if (readFirstSymbol) {
+            this.currentSymbol = getNextSymbol(); // Get first symbol
+        }
+    }
+
     /**
      * Symbol type
      */
@@ -44,191 +146,466 @@ public class Lexer {
     }
 
     /**
-     * Read next character from source file
-     * @return 0 if successful, -1 if error
+     * Refill the character buffer from the source file, keeping the characters of the token being scanned
+     * @return true if new characters are available, false at end of input
      */
-    private int readNextChar() {
+    private boolean fill() {
+        if (this.sourceFile == null) {
+            // In-memory input, the whole source is already in the buffer
+            return false;
+        }
+        // Move the current token to the front of the buffer so that its lexeme stays contiguous
+        int keep = this.limit - this.tokenStart;
+        if (this.tokenStart > 0) {
+            System.arraycopy(this.buffer, this.tokenStart, this.buffer, 0, keep);
+            this.bufferOffset += this.tokenStart;
+            this.position -= this.tokenStart;
+            this.tokenStart = 0;
+            this.limit = keep;
+        }
+        if (this.limit == this.buffer.length) {
+            // A single token fills the whole buffer, grow it
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
         try {
-            this.currentChar = this.sourceFile.read();
-            return 0;
-        } catch(IOException e) {
+            int read = this.sourceFile.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (read <= 0) {
+                return false;
+            }
+            this.limit += read;
+            return true;
+        } catch (IOException e) {
+            // Error while reading, treated as end of input
             e.printStackTrace();
-            return -1;
+            return false;
         }
     }
 
     /**
-     * Get next symbol from source file
-     * @return Next symbol from source file
+     * Peek at the character at the current position, refilling the buffer if needed
+     * @return Current character, or -1 at end of input
      */
-    public Symbol getNextSymbol() {
-        StringBuilder lexemeBuilder = new StringBuilder(); // String builder for lexeme
+    private int peek() {
+        if (this.position < this.limit || fill()) {
+            return this.buffer[this.position];
+        }
+        return -1;
+    }
 
-        // Skip Whitespace
-        while(Character.isWhitespace(currentChar)){
-            if (readNextChar() == -1) {
-                // Error while reading next character
-                return new Symbol(Token.EOF, null);
+    /**
+     * Skip whitespace and comments, a comment runs from '/' to the end of the line
+     */
+    private void skipWhitespaceAndComments() {
+        while (true) {
+            // Skip whitespace
+            this.tokenStart = this.position;
+            int c;
+            while (is(c = peek(), WHITESPACE)) {
+                this.position++;
+                this.tokenStart = this.position;
+            }
+            if (c != '/') {
+                return;
+            }
+            // Skip comment, including the newline that ends it
+            while ((c = peek()) != -1) {
+                this.position++;
+                this.tokenStart = this.position;
+                if (c == '\n') {
+                    break;
+                }
             }
         }
+    }
 
-        // Check if end of input
-        if (currentChar == -1) {
-            return new Symbol(Token.EOF, null);
+    /**
+     * Get the lexeme of the token being scanned
+     * @param from - Index of the first character of the lexeme in the buffer
+     * @return Lexeme from the given index up to the current position
+     */
+    private String lexeme(int from) {
+        return new String(this.buffer, from, this.position - from);
+    }
+
+    /**
+     * Look up the identifier being scanned in the cache, without building a string for it
+     * @param hash - Hash of the identifier characters
+     * @return Name of the identifier, or null if it is not in the cache
+     */
+    private Name cachedName(int hash) {
+        Name name = this.nameCache[hash & (NAME_CACHE_SIZE - 1)];
+        if (name == null) {
+            return null;
         }
-        // Check for comments
-        if (currentChar == '/') {
-            while (currentChar != '\n' && currentChar != -1) {
-                // Skip comment
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
+        String text = name.getText();
+        int length = this.position - this.tokenStart;
+        if (text.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) != this.buffer[this.tokenStart + i]) {
+                return null;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Intern an identifier and remember it in the cache
+     * @param lexeme - Text of the identifier
+     * @param hash - Hash of the identifier characters
+     * @return Name of the identifier
+     */
+    private Name internName(String lexeme, int hash) {
+        Name name = this.names.intern(lexeme);
+        this.nameCache[hash & (NAME_CACHE_SIZE - 1)] = name;
+        return name;
+    }
+
+    /**
+     * Check whether a character belongs to one of the given classes
+     * @param c - Character, or -1 at end of input
+     * @param classes - Classes to check
+     * @return true if the character is in at least one of the classes
+     */
+    static boolean is(int c, int classes) {
+        if (c < ASCII) {
+            return c >= 0 && (CHAR_CLASSES[c] & classes) != 0;
+        }
+        // Slow path for non-ASCII characters
+        return (classes & WHITESPACE) != 0 && Character.isWhitespace(c)
+                || (classes & LETTER) != 0 && Character.isLetter(c)
+                || (classes & DIGIT) != 0 && Character.isDigit(c);
+    }
+
+    /**
+     * Hash a keyword candidate, the hash has no collision between keywords
+     * @param first - First character
+     * @param last - Last character
+     * @param length - Number of characters
+     * @return Slot of the candidate in KEYWORD_INDEX
+     */
+    private static int keywordSlot(int first, int last, int length) {
+        return (first + 18 * last + length) & (KEYWORD_SLOTS - 1);
+    }
+
+    /**
+     * Find the only keyword an identifier can be, from its first character, last character and length
+     * @param first - First character
+     * @param last - Last character
+     * @param length - Number of characters
+     * @return Index of the keyword, -1 if the identifier cannot be a keyword
+     */
+    static int keywordCandidate(int first, int last, int length) {
+        if (length < KEYWORD_MIN_LENGTH || length > KEYWORD_MAX_LENGTH) {
+            return -1;
+        }
+        int index = KEYWORD_INDEX[keywordSlot(first, last, length)];
+        if (index == -1 || KEYWORDS[index].length() != length) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Get the text of a keyword
+     * @param index - Index of the keyword
+     * @return Text of the keyword
+     */
+    static String keywordText(int index) {
+        return KEYWORDS[index];
+    }
+
+    /**
+     * Get the token of a keyword
+     * @param index - Index of the keyword
+     * @return Token of the keyword
+     */
+    static Token keywordToken(int index) {
+        return KEYWORD_TOKENS[index];
+    }
+
+    /**
+     * Find the keyword matching the identifier being scanned
+     * @return Keyword token, or IDENTIFIER if the identifier is not a keyword
+     */
+    private Token keyword() {
+        int index = keywordCandidate(this.buffer[this.tokenStart], this.buffer[this.position - 1], this.position - this.tokenStart);
+        if (index == -1 || !regionEquals(KEYWORDS[index])) {
+            return Token.IDENTIFIER;
+        }
+        this.keywordIndex = index;
+        return KEYWORD_TOKENS[index];
+    }
+
+    /**
+     * Compare the characters of the token being scanned with a string
+     * @param text - String to compare with
+     * @return true if the token has the same characters as the string
+     */
+    private boolean regionEquals(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != this.buffer[this.tokenStart + i]) {
+                return false;
             }
-            // Skip newline
-            if (readNextChar() == -1) {
-                // Error while reading next character
-                return new Symbol(Token.EOF, null);
+        }
+        return true;
+    }
+
+    /**
+     * Find the operator or special symbol made of one or two characters
+     * @param first - First character of the symbol
+     * @param second - Second character of the symbol, or -1 for a single character symbol
+     * @return Token of the symbol, UNKNOWN if the characters are not a valid symbol
+     */
+    static Token specialSymbol(int first, int second) {
+        if (second != -1) {
+            if (second != '=') {
+                return Token.UNKNOWN;
             }
-            return getNextSymbol(); // Get next symbol
+            return switch (first) {
+                case '=' -> Token.SYMBOL_EQUAL;
+                case '!' -> Token.SYMBOL_NOT_EQUAL;
+                case '<' -> Token.SYMBOL_LESS_THAN_OR_EQUAL;
+                case '>' -> Token.SYMBOL_GREATER_THAN_OR_EQUAL;
+                default -> Token.UNKNOWN;
+            };
+        }
+        return switch (first) {
+            case '=' -> Token.SYMBOL_ASSIGN;
+            case '+' -> Token.SYMBOL_PLUS;
+            case '-' -> Token.SYMBOL_MINUS;
+            case '*' -> Token.SYMBOL_MULTIPLY;
+            case '/' -> Token.SYMBOL_DIVIDE;
+            case '%' -> Token.SYMBOL_MODULO;
+            case '<' -> Token.SYMBOL_LESS_THAN;
+            case '>' -> Token.SYMBOL_GREATER_THAN;
+            case '(' -> Token.SYMBOL_LEFT_PARENTHESIS;
+            case ')' -> Token.SYMBOL_RIGHT_PARENTHESIS;
+            case '{' -> Token.SYMBOL_LEFT_BRACE;
+            case '}' -> Token.SYMBOL_RIGHT_BRACE;
+            case '[' -> Token.SYMBOL_LEFT_BRACKET;
+            case ']' -> Token.SYMBOL_RIGHT_BRACKET;
+            case '.' -> Token.SYMBOL_DOT;
+            case ';' -> Token.SYMBOL_SEMICOLON;
+            case ',' -> Token.SYMBOL_COMMA;
+            default -> Token.UNKNOWN;
+        };
+    }
+
+    /**
+     * Scan the next token without building its lexeme
+     * The characters of the token are buffer[tokenStart, position)
+     * @return Type of the token
+     */
+    private Token scan() {
+        skipWhitespaceAndComments();
+        int c = peek();
+
+        // Check if end of input
+        if (c == -1) {
+            return Token.EOF;
         }
 
         // Check for identifiers, keywords and boolean values
-        if (currentChar == '_' || Character.isLetter(currentChar)) {
-            while (currentChar == '_' || Character.isLetter(currentChar) || Character.isDigit(currentChar)) {
-                // Add character to lexeme
-                lexemeBuilder.append((char) currentChar);
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
+        if (is(c, LETTER)) {
+            int hash = c;
+            this.position++;
+            while (is(c = peek(), LETTER | DIGIT)) {
+                hash = 31 * hash + c;
+                this.position++;
             }
-            // Check if lexeme is a keyword
-            String lexeme = lexemeBuilder.toString();
-            return switch (lexeme) {
-                case "const" -> new Symbol(Token.KEYWORD_CONST, lexeme);
-                case "record" -> new Symbol(Token.KEYWORD_RECORD, lexeme);
-                case "var" -> new Symbol(Token.KEYWORD_VAR, lexeme);
-                case "val" -> new Symbol(Token.KEYWORD_VAL, lexeme);
-                case "proc" -> new Symbol(Token.KEYWORD_PROC, lexeme);
-                case "for" -> new Symbol(Token.KEYWORD_FOR, lexeme);
-                case "to" -> new Symbol(Token.KEYWORD_TO, lexeme);
-                case "by" -> new Symbol(Token.KEYWORD_BY, lexeme);
-                case "while" -> new Symbol(Token.KEYWORD_WHILE, lexeme);
-                case "if" -> new Symbol(Token.KEYWORD_IF, lexeme);
-                case "else" -> new Symbol(Token.KEYWORD_ELSE, lexeme);
-                case "return" -> new Symbol(Token.KEYWORD_RETURN, lexeme);
-                case "and" -> new Symbol(Token.KEYWORD_AND, lexeme);
-                case "or" -> new Symbol(Token.KEYWORD_OR, lexeme);
-                case "true", "false" -> new Symbol(Token.BOOLEAN, lexeme);
-                case "void" -> new Symbol(Token.VOID, lexeme);
-                default -> new Symbol(Token.IDENTIFIER, lexeme);
-            };
+            this.identifierHash = hash ^ (hash >>> 16);
+            return keyword();
         }
 
         // Check for values
-        if (Character.isDigit(currentChar)) {
-            while (Character.isDigit(currentChar)) {
-                // Add character to lexeme
-                lexemeBuilder.append((char) currentChar);
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
+        if (is(c, DIGIT)) {
+            this.position++;
+            while (is(peek(), DIGIT)) {
+                this.position++;
             }
             // Check if lexeme is a real or integer
-            if (currentChar == '.') {
-                // Lexeme is a real
-                lexemeBuilder.append((char) currentChar);
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
-                while (Character.isDigit(currentChar)) {
-                    // Add character to lexeme
-                    lexemeBuilder.append((char) currentChar);
-                    if (readNextChar() == -1) {
-                        // Error while reading next character
-                        return new Symbol(Token.EOF, null);
-                    }
-                }
-                return new Symbol(Token.REAL, lexemeBuilder.toString());
-            } else {
-                // Lexeme is an integer
-                return new Symbol(Token.INTEGER, lexemeBuilder.toString());
+            if (peek() != '.') {
+                return Token.INTEGER;
+            }
+            this.position++;
+            while (is(peek(), DIGIT)) {
+                this.position++;
             }
+            return Token.REAL;
         }
 
-        // Check for strings
-        if (currentChar == '"') {
-            if (readNextChar() == -1) {
-                // Error while reading next character
-                return new Symbol(Token.EOF, null);
+        // Check for strings, the token includes the quotes
+        if (c == '"') {
+            this.position++;
+            while ((c = peek()) != '"' && c != -1) {
+                this.position++;
             }
-            while (currentChar != '"') {
-                // Add character to lexeme
-                lexemeBuilder.append((char) currentChar);
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
+            if (c == '"') {
+                this.position++;
             }
-            if (readNextChar() == -1) {
-                // Error while reading next character
-                return new Symbol(Token.EOF, null);
-            }
-            return new Symbol(Token.STRING, lexemeBuilder.toString());
+            return Token.STRING;
         }
 
         // Check for special symbols =+-*/%<>!(){}[].;,?
-        String specialSymbols = "=+-*/%<>!(){}[].;,?";
-        if (specialSymbols.contains(Character.toString((char) currentChar))) {
-            // Add character to lexeme
-            lexemeBuilder.append((char) currentChar);
+        if (is(c, SPECIAL)) {
+            this.position++;
             // Avoid duplicate symbols (otherwise i.e. "((" would be tagged as unknown symbol)
-            String duplicateSymbols = "(){}[]";
-            boolean canBeDuplicateSymbol = duplicateSymbols.contains(Character.toString((char) currentChar));
-            // Get next character
-            if (readNextChar() == -1) {
-                // Error while reading next character
-                return new Symbol(Token.EOF, null);
-            }
+            boolean canBeDuplicateSymbol = is(c, DUPLICATE);
             // Avoid comments without space (otherwise i.e. ";/" would be tagged as unknown symbol)
-            if (specialSymbols.contains(Character.toString((char) currentChar)) && !canBeDuplicateSymbol && currentChar != '/') {
-                // Add character to lexeme
-                lexemeBuilder.append((char) currentChar);
-                if (readNextChar() == -1) {
-                    // Error while reading next character
-                    return new Symbol(Token.EOF, null);
-                }
+            int next = peek();
+            if (is(next, SPECIAL) && !canBeDuplicateSymbol && next != '/') {
+                this.position++;
+                return specialSymbol(c, next);
             }
-            // Check if lexeme is a special symbol
-            String lexeme = lexemeBuilder.toString();
-            return switch (lexeme) {
-                case "=" -> new Symbol(Token.SYMBOL_ASSIGN, lexeme);
-                case "+" -> new Symbol(Token.SYMBOL_PLUS, lexeme);
-                case "-" -> new Symbol(Token.SYMBOL_MINUS, lexeme);
-                case "*" -> new Symbol(Token.SYMBOL_MULTIPLY, lexeme);
-                case "/" -> new Symbol(Token.SYMBOL_DIVIDE, lexeme);
-                case "%" -> new Symbol(Token.SYMBOL_MODULO, lexeme);
-                case "==" -> new Symbol(Token.SYMBOL_EQUAL, lexeme);
-                case "!=" -> new Symbol(Token.SYMBOL_NOT_EQUAL, lexeme);
-                case "<" -> new Symbol(Token.SYMBOL_LESS_THAN, lexeme);
-                case ">" -> new Symbol(Token.SYMBOL_GREATER_THAN, lexeme);
-                case "<=" -> new Symbol(Token.SYMBOL_LESS_THAN_OR_EQUAL, lexeme);
-                case ">=" -> new Symbol(Token.SYMBOL_GREATER_THAN_OR_EQUAL, lexeme);
-                case "(" -> new Symbol(Token.SYMBOL_LEFT_PARENTHESIS, lexeme);
-                case ")" -> new Symbol(Token.SYMBOL_RIGHT_PARENTHESIS, lexeme);
-                case "{" -> new Symbol(Token.SYMBOL_LEFT_BRACE, lexeme);
-                case "}" -> new Symbol(Token.SYMBOL_RIGHT_BRACE, lexeme);
-                case "[" -> new Symbol(Token.SYMBOL_LEFT_BRACKET, lexeme);
-                case "]" -> new Symbol(Token.SYMBOL_RIGHT_BRACKET, lexeme);
-                case "." -> new Symbol(Token.SYMBOL_DOT, lexeme);
-                case ";" -> new Symbol(Token.SYMBOL_SEMICOLON, lexeme);
-                case "," -> new Symbol(Token.SYMBOL_COMMA, lexeme);
-                default -> new Symbol(Token.UNKNOWN, lexeme);
-            };
+            return specialSymbol(c, -1);
         }
-        return new Symbol(Token.UNKNOWN, "Unknown symbol");
+        // Skip the unknown character so that the lexer always makes progress
+        this.position++;
+        return Token.UNKNOWN;
+    }
+
+    /**
+     * Get the lexeme of a token, as returned in symbols
+     * @param token - Type of the token
+     * @param text - Characters of the token
+     * @return Lexeme of the token
+     */
+    static String lexemeOf(Token token, CharSequence text) {
+        String fixed = FIXED_LEXEMES[token.ordinal()];
+        if (fixed != null) {
+            return fixed;
+        }
+        return switch (token) {
+            case EOF -> null;
+            case STRING -> {
+                // The lexeme does not include the quotes, the closing quote is missing at end of input
+                int end = text.length() > 1 && text.charAt(text.length() - 1) == '"' ? text.length() - 1 : text.length();
+                yield text.subSequence(1, end).toString();
+            }
+            case UNKNOWN -> is(text.charAt(0), SPECIAL) ? text.toString() : "Unknown symbol";
+            default -> text.toString();
+        };
+    }
+
+    /**
+     * Get next symbol from source file
+     * @return Next symbol from source file
+     */
+    public Symbol getNextSymbol() {
+        Token token = scan();
+        if (token == Token.IDENTIFIER) {
+            // Identifiers seen before are returned without allocating a new lexeme
+            Name name = cachedName(this.identifierHash);
+            if (name == null) {
+                name = internName(lexeme(this.tokenStart), this.identifierHash);
+            }
+            return new Symbol(Token.IDENTIFIER, name.getText(), name);
+        }
+        if (token == Token.EOF) {
+            return new Symbol(Token.EOF, null);
+        }
+        // Keywords and operators share their lexeme, only literals and unknown symbols build a new one
+        if (token == Token.BOOLEAN) {
+            return new Symbol(token, KEYWORDS[this.keywordIndex]);
+        }
+        String fixed = FIXED_LEXEMES[token.ordinal()];
+        if (fixed != null) {
+            return new Symbol(token, fixed);
+        }
+        return new Symbol(token, lexemeOf(token, CharBuffer.wrap(this.buffer, this.tokenStart, this.position - this.tokenStart)));
+    }
+
+    /**
+     * Lex a whole in-memory source into a packed token buffer, without creating a Symbol per token
+     * @param source - Source code
+     * @return Tokens of the source, ending with EOF
+     */
+    public static TokenBuffer tokenize(String source) {
+        Lexer lexer = new Lexer(source.toCharArray(), source.length(), false);
+        TokenBuffer tokens = new TokenBuffer(source, source.length() / 4 + 16);
+        Token token;
+        do {
+            token = lexer.scan();
+            tokens.add(token, lexer.tokenStart, lexer.position - lexer.tokenStart);
+        } while (token != Token.EOF);
+        return tokens;
+    }
+
+    /**
+     * Create a lexer scanning an in-memory source from an offset, tokens are read with scanToken
+     * @param input - Characters of the source
+     * @param length - Number of characters of the source, read as the end of input
+     * @param from - Offset where scanning starts, must not be inside a token
+     * @return Lexer positioned at the offset
+     */
+    static Lexer scanner(char[] input, int length, int from) {
+        Lexer lexer = new Lexer(input, length, false);
+        lexer.position = from;
+        return lexer;
+    }
+
+    /**
+     * Scan the next token without building its lexeme, its extent is given by tokenStart and tokenLength
+     * @return Type of the token
+     */
+    Token scanToken() {
+        return scan();
+    }
+
+    /**
+     * Get the offset of the last token scanned
+     * @return Offset of the first character of the token
+     */
+    int tokenStart() {
+        return this.bufferOffset + this.tokenStart;
+    }
+
+    /**
+     * Get the length of the last token scanned
+     * @return Number of characters of the token
+     */
+    int tokenLength() {
+        return this.position - this.tokenStart;
+    }
+
+    /**
+     * Scan the tokens of an in-memory source that start in a range, the range must not start inside a token
+     * @param input - Characters of the source
+     * @param length - Number of characters of the source, read as the end of input
+     * @param from - Offset where scanning starts
+     * @param to - Offset where scanning stops, tokens starting before it are scanned in full even if they end after it
+     * @param tokens - Buffer the tokens are appended to, EOF is not appended
+     * @return Offset of the first token that was not appended, length at end of input
+     */
+    static int scanRange(char[] input, int length, int from, int to, TokenBuffer tokens) {
+        Lexer lexer = scanner(input, length, from);
+        while (true) {
+            Token token = lexer.scan();
+            if (token == Token.EOF || lexer.tokenStart >= to) {
+                return lexer.tokenStart;
+            }
+            tokens.add(token, lexer.tokenStart, lexer.position - lexer.tokenStart);
+        }
+    }
+
+    /**
+     * Lex a source file into a packed token buffer
+     * The file is memory-mapped and lexed as bytes when it is pure ASCII, otherwise it is decoded as UTF-8 first
+     * @param path - Path of the source file
+     * @return Tokens of the source, ending with EOF
+     * @throws IOException if the file cannot be read
+     */
+    public static TokenBuffer tokenize(Path path) throws IOException {
+        return ByteLexer.tokenize(path);
+    }
+
+    /**
+     * Get the offset in the source of the first character of the last symbol returned
+     * @return Source offset of the last symbol
+     */
+    public int getTokenOffset() {
+        return this.bufferOffset + this.tokenStart;
     }
 }
@@ -0,0 +1,46 @@
+package compiler.Lexer;
+
+/**
+ * Interned identifier, there is a single Name instance per identifier text in a NameTable
+ * Names can therefore be compared by identity, and hashed by their id
+ */
+public final class Name {
+    private final int id; // Stable id of the name in its table
+    private final String text; // Canonical text of the name
+
+    /**
+     * Constructor for Name, only called by NameTable
+     * @param id - Id of the name
+     * @param text - Text of the name
+     */
+    Name(int id, String text) {
+        this.id = id;
+        this.text = text;
+    }
+
+    /**
+     * Get the id of the name
+     * @return id - Stable id of the name
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the text of the name
+     * @return text - Canonical text of the name
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.id;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+}
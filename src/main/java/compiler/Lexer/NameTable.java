@@ -0,0 +1,52 @@
+package compiler.Lexer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Table of interned identifiers, safe to share between lexers, parsers and analyzers running on different threads
+ */
+public final class NameTable {
+    private static final NameTable SHARED = new NameTable(); // Table shared by all compilations
+
+    private final ConcurrentHashMap<String, Name> names = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Get the table shared by all compilations
+     * @return Shared name table
+     */
+    public static NameTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Intern an identifier
+     * @param text - Text of the identifier
+     * @return Name - The unique name for this text
+     */
+    public Name intern(String text) {
+        Name name = this.names.get(text);
+        if (name != null) {
+            return name;
+        }
+        return this.names.computeIfAbsent(text, t -> new Name(this.nextId.getAndIncrement(), t));
+    }
+
+    /**
+     * Find an identifier without interning it
+     * @param text - Text of the identifier
+     * @return Name - The name for this text, or null if it was never interned
+     */
+    public Name find(String text) {
+        return this.names.get(text);
+    }
+
+    /**
+     * Get the number of interned names
+     * @return Number of names in the table
+     */
+    public int size() {
+        return this.names.size();
+    }
+}
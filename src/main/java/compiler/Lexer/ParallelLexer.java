@@ -0,0 +1,110 @@
+package compiler.Lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexer splitting a large in-memory source into chunks lexed in parallel
+ * Chunks are cut after a newline, where a new token always starts unless a string literal spans the cut
+ * The result is token for token identical to Lexer.tokenize
+ */
+public final class ParallelLexer {
+    private static final int MIN_CHUNK_SIZE = 1 << 18; // Smallest number of characters worth lexing in a separate task
+    private static final int CHUNKS_PER_THREAD = 4; // Chunks per worker thread, to balance uneven chunks
+
+    private ParallelLexer() {
+    }
+
+    /**
+     * Lex a source into a packed token buffer, on the common pool
+     * @param source - Source code
+     * @return Tokens of the source, ending with EOF
+     */
+    public static TokenBuffer tokenize(String source) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, source.length() / MIN_CHUNK_SIZE);
+        return tokenize(source, pool, chunks);
+    }
+
+    /**
+     * Lex a source into a packed token buffer
+     * @param source - Source code
+     * @param pool - Pool the chunks are lexed on
+     * @param chunkCount - Number of chunks to cut the source into
+     * @return Tokens of the source, ending with EOF
+     */
+    public static TokenBuffer tokenize(String source, ForkJoinPool pool, int chunkCount) {
+        if (chunkCount <= 1) {
+            return Lexer.tokenize(source);
+        }
+        char[] input = source.toCharArray();
+        int[] bounds = chunkBounds(input, chunkCount);
+
+        // Lex every chunk as if it started a new token and ended the input
+        List<ForkJoinTask<TokenBuffer>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            tasks.add(pool.submit(() -> {
+                TokenBuffer chunk = new TokenBuffer(source, (end - start) / 4 + 16);
+                Lexer.scanRange(input, end, start, end, chunk);
+                return chunk;
+            }));
+        }
+
+        // Concatenate the chunks in order, lexing again the parts that follow a string spanning a cut
+        TokenBuffer tokens = new TokenBuffer(source, input.length / 4 + 16);
+        int resume = 0; // Offset where the next token of the whole source starts
+        for (int i = 0; i < tasks.size(); i++) {
+            TokenBuffer chunk = tasks.get(i).join();
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            if (resume != start) {
+                // The previous chunk ended inside a string, the tokens of this chunk are not valid
+                if (resume < end) {
+                    resume = Lexer.scanRange(input, input.length, resume, end, tokens);
+                }
+                continue;
+            }
+            int count = chunk.size();
+            int last = count - 1;
+            if (last >= 0 && end < input.length && chunk.getToken(last) == Lexer.Token.STRING
+                    && chunk.getStart(last) + chunk.getLength(last) == end) {
+                // The last string is not closed in this chunk, lex it again over the whole source
+                tokens.addAll(chunk, 0, last);
+                resume = Lexer.scanRange(input, input.length, chunk.getStart(last), end, tokens);
+            } else {
+                tokens.addAll(chunk, 0, count);
+                resume = end;
+            }
+        }
+        tokens.add(Lexer.Token.EOF, input.length, 0);
+        return tokens;
+    }
+
+    /**
+     * Cut a source into chunks of about the same size, right after a newline
+     * @param input - Characters of the source
+     * @param chunkCount - Number of chunks wanted
+     * @return Offsets of the chunk starts, followed by the source length
+     */
+    private static int[] chunkBounds(char[] input, int chunkCount) {
+        int[] bounds = new int[chunkCount + 1];
+        int count = 1; // bounds[0] is 0
+        for (int i = 1; i < chunkCount; i++) {
+            int cut = Math.max((int) ((long) input.length * i / chunkCount), bounds[count - 1]);
+            while (cut < input.length && input[cut] != '\n') {
+                cut++;
+            }
+            cut++; // Start after the newline
+            if (cut < input.length && cut > bounds[count - 1]) {
+                bounds[count++] = cut;
+            }
+        }
+        bounds[count] = input.length;
+        return Arrays.copyOf(bounds, count + 1);
+    }
+}
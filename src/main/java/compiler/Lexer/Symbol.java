@@ -3,6 +3,7 @@ package compiler.Lexer;
 public class Symbol {
     private final Lexer.Token Token; // Type of symbol
     private final String lexeme; // Lexeme of symbol
+    private final Name name; // Interned name, for identifiers only
 
     /**
      * Constructor for Symbol
@@ -12,6 +13,19 @@ public class Symbol {
     public Symbol(Lexer.Token Token, String lexeme) {
         this.Token = Token; // Set symbol type
         this.lexeme = lexeme; // Set lexeme
+        this.name = null;
+    }
+
+    /**
+     * Constructor for an identifier Symbol
+     * @param Token - Type of symbol
+     * @param lexeme - Lexeme of symbol, the canonical text of the name
+     * @param name - Interned name of the identifier
+     */
+    public Symbol(Lexer.Token Token, String lexeme, Name name) {
+        this.Token = Token; // Set symbol type
+        this.lexeme = lexeme; // Set lexeme
+        this.name = name;
     }
 
     /**
@@ -29,4 +43,12 @@ public class Symbol {
     public String getLexeme() {
         return this.lexeme;
     }
+
+    /**
+     * Get the interned name of an identifier symbol
+     * @return name - Interned name, or null if the symbol is not an identifier
+     */
+    public Name getName() {
+        return this.name;
+    }
 }
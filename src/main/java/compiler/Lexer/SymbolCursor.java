@@ -0,0 +1,48 @@
+package compiler.Lexer;
+
+/**
+ * Token cursor reading symbols one at a time from a lexer
+ */
+public class SymbolCursor implements TokenCursor {
+    private final Lexer lexer; // Lexer producing the symbols
+    private Symbol current; // Current symbol
+    private int offset; // Offset of the current symbol
+
+    /**
+     * Constructor for SymbolCursor
+     * @param lexer - Lexer producing the symbols, positioned on its first symbol
+     */
+    public SymbolCursor(Lexer lexer) {
+        this.lexer = lexer;
+        this.current = lexer.currentSymbol;
+        this.offset = lexer.getTokenOffset();
+    }
+
+    @Override
+    public Lexer.Token token() {
+        return this.current.getToken();
+    }
+
+    @Override
+    public String lexeme() {
+        return this.current.getLexeme();
+    }
+
+    @Override
+    public Name name() {
+        return this.current.getName();
+    }
+
+    @Override
+    public int offset() {
+        return this.offset;
+    }
+
+    @Override
+    public void advance() {
+        if (this.current.getToken() != Lexer.Token.EOF) {
+            this.current = this.lexer.getNextSymbol();
+            this.offset = this.lexer.getTokenOffset();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package compiler.Lexer;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Packed token stream over an in-memory source
+ * Tokens are stored as parallel arrays of kind, start offset and length, lexemes are only built when asked for
+ * The name of an identifier is interned the first time it is asked for and kept with the token, so the parser's
+ * lookahead and the nodes built from a token do not intern its text again
+ * The free space of the arrays is a gap, at the end while tokens are appended, moved to the tokens an edit replaces
+ * when the buffer is kept up to date by an IncrementalLexer. Tokens after the gap store their offset from the end of
+ * the source, so the tokens after an edit move with the text without being rewritten
+ */
+public final class TokenBuffer {
+    private static final Lexer.Token[] TOKENS = Lexer.Token.values(); // Tokens indexed by ordinal
+
+    private final CharSequence source; // Source the offsets refer to
+    private int[] kinds; // Ordinal of the token type of each token
+    private int[] starts; // Offset of the first character of each token, from the end of the source after the gap
+    private int[] lengths; // Number of characters of each token
+    private Name[] names; // Interned name of each identifier token, null until it is first asked for
+    private int size; // Number of tokens
+    private int gap; // Index of the first token after the gap, equal to size while tokens are appended
+
+    /**
+     * Constructor for TokenBuffer
+     * @param source - Source the tokens are read from
+     * @param capacity - Initial number of tokens the buffer can hold
+     */
+    public TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.names = new Name[capacity];
+    }
+
+    /**
+     * Append a token
+     * @param token - Type of the token
+     * @param start - Offset of the first character of the token
+     * @param length - Number of characters of the token
+     */
+    public void add(Lexer.Token token, int start, int length) {
+        moveGap(this.size);
+        if (this.size == this.kinds.length) {
+            grow(Math.max(16, this.size * 2));
+        }
+        this.kinds[this.size] = token.ordinal();
+        this.starts[this.size] = start;
+        this.lengths[this.size] = length;
+        this.names[this.size] = null;
+        this.size++;
+        this.gap++;
+    }
+
+    /**
+     * Append tokens of another buffer
+     * @param other - Buffer to copy the tokens from, its offsets must refer to the same source
+     * @param from - Index of the first token to copy
+     * @param to - Index after the last token to copy
+     */
+    public void addAll(TokenBuffer other, int from, int to) {
+        addAll(other, from, to, 0);
+    }
+
+    /**
+     * Append tokens of another buffer, moving their offsets
+     * @param other - Buffer to copy the tokens from
+     * @param from - Index of the first token to copy
+     * @param to - Index after the last token to copy
+     * @param shift - Number of characters added to the offset of every token copied
+     */
+    public void addAll(TokenBuffer other, int from, int to, int shift) {
+        moveGap(this.size);
+        int count = to - from;
+        if (this.size + count > this.kinds.length) {
+            grow(Math.max(this.size + count, this.size * 2));
+        }
+        // Tokens after the gap of the other buffer are copied from their place in its arrays, with absolute offsets
+        int split = Math.max(from, Math.min(to, other.gap));
+        copy(other, from, this.size, split - from, 0);
+        copy(other, other.physical(split), this.size + split - from, to - split, other.source.length());
+        if (shift != 0) {
+            for (int i = this.size; i < this.size + count; i++) {
+                this.starts[i] += shift;
+            }
+        }
+        this.size += count;
+        this.gap += count;
+    }
+
+    /**
+     * Copy tokens of another buffer from their place in its arrays
+     * @param other - Buffer to copy the tokens from
+     * @param from - Index in the arrays of the other buffer of the first token to copy
+     * @param to - Index in the arrays of this buffer where it goes
+     * @param count - Number of tokens to copy
+     * @param base - Number of characters added to the offset stored for each token
+     */
+    private void copy(TokenBuffer other, int from, int to, int count, int base) {
+        System.arraycopy(other.kinds, from, this.kinds, to, count);
+        System.arraycopy(other.starts, from, this.starts, to, count);
+        System.arraycopy(other.lengths, from, this.lengths, to, count);
+        System.arraycopy(other.names, from, this.names, to, count);
+        if (base != 0) {
+            for (int i = to; i < to + count; i++) {
+                this.starts[i] += base;
+            }
+        }
+    }
+
+    /**
+     * Replace the tokens following the gap by the tokens of another buffer, as an IncrementalLexer does after an edit
+     * The source must already be edited, the new tokens are read with offsets in the edited source
+     * @param removed - Number of tokens after the gap to remove
+     * @param inserted - Buffer holding the new tokens, without gap
+     */
+    void replace(int removed, TokenBuffer inserted) {
+        int count = inserted.size();
+        // The removed tokens join the gap, which grows if the new tokens do not fit in it
+        this.size -= removed;
+        if (this.kinds.length - this.size < count) {
+            grow(Math.max(this.size + count, this.kinds.length * 2));
+        }
+        copy(inserted, 0, this.gap, count, 0);
+        this.size += count;
+        this.gap += count;
+    }
+
+    /**
+     * Move the gap before a token, the offsets of the tokens crossing it are converted with the current source length
+     * @param index - Index of the first token after the gap once it is moved
+     */
+    void moveGap(int index) {
+        if (index == this.gap) {
+            return;
+        }
+        int gapLength = this.kinds.length - this.size;
+        int length = this.source.length();
+        if (index < this.gap) {
+            int count = this.gap - index;
+            moveTokens(index, index + gapLength, count);
+            for (int i = index + gapLength; i < this.gap + gapLength; i++) {
+                this.starts[i] -= length;
+            }
+        } else {
+            int count = index - this.gap;
+            moveTokens(this.gap + gapLength, this.gap, count);
+            for (int i = this.gap; i < index; i++) {
+                this.starts[i] += length;
+            }
+        }
+        this.gap = index;
+    }
+
+    /**
+     * Move tokens in the arrays
+     * @param from - Index in the arrays of the first token to move
+     * @param to - Index in the arrays where it goes
+     * @param count - Number of tokens to move
+     */
+    private void moveTokens(int from, int to, int count) {
+        System.arraycopy(this.kinds, from, this.kinds, to, count);
+        System.arraycopy(this.starts, from, this.starts, to, count);
+        System.arraycopy(this.lengths, from, this.lengths, to, count);
+        System.arraycopy(this.names, from, this.names, to, count);
+    }
+
+    /**
+     * Grow the arrays, the tokens after the gap move to the end of the new arrays
+     * @param capacity - New number of tokens the buffer can hold
+     */
+    private void grow(int capacity) {
+        int after = this.size - this.gap;
+        int oldAfter = this.kinds.length - after;
+        int newAfter = capacity - after;
+        this.kinds = grown(this.kinds, capacity, oldAfter, newAfter, after);
+        this.starts = grown(this.starts, capacity, oldAfter, newAfter, after);
+        this.lengths = grown(this.lengths, capacity, oldAfter, newAfter, after);
+        Name[] names = Arrays.copyOf(this.names, capacity);
+        System.arraycopy(this.names, oldAfter, names, newAfter, after);
+        this.names = names;
+    }
+
+    /**
+     * Copy an array into a larger one, keeping the values after the gap at its end
+     * @param values - Values of the array
+     * @param capacity - Length of the new array
+     * @param oldAfter - Index of the first value after the gap in the old array
+     * @param newAfter - Index of the first value after the gap in the new array
+     * @param after - Number of values after the gap
+     * @return New array
+     */
+    private static int[] grown(int[] values, int capacity, int oldAfter, int newAfter, int after) {
+        int[] grown = Arrays.copyOf(values, capacity);
+        System.arraycopy(values, oldAfter, grown, newAfter, after);
+        return grown;
+    }
+
+    /**
+     * Get the index in the arrays of a token
+     * @param index - Index of the token
+     * @return Index of the token in the arrays, past the gap for the tokens after it
+     */
+    private int physical(int index) {
+        return index < this.gap ? index : index + this.kinds.length - this.size;
+    }
+
+    /**
+     * Get the number of tokens, including the final EOF
+     * @return Number of tokens
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the source the tokens are read from
+     * @return Source code
+     */
+    public CharSequence getSource() {
+        return this.source;
+    }
+
+    /**
+     * Get the type of a token
+     * @param index - Index of the token
+     * @return Token - Type of the token
+     */
+    public Lexer.Token getToken(int index) {
+        return TOKENS[this.kinds[physical(index)]];
+    }
+
+    /**
+     * Get the offset of the first character of a token
+     * @param index - Index of the token
+     * @return Offset of the token in the source
+     */
+    public int getStart(int index) {
+        if (index < this.gap) {
+            return this.starts[index];
+        }
+        return this.starts[physical(index)] + this.source.length();
+    }
+
+    /**
+     * Get the number of characters of a token
+     * @param index - Index of the token
+     * @return Length of the token in the source
+     */
+    public int getLength(int index) {
+        return this.lengths[physical(index)];
+    }
+
+    /**
+     * Get the lexeme of a token, built from the source
+     * @param index - Index of the token
+     * @return Lexeme of the token, as it would be returned in a Symbol
+     */
+    public String getLexeme(int index) {
+        int start = getStart(index);
+        return Lexer.lexemeOf(getToken(index), this.source.subSequence(start, start + getLength(index)));
+    }
+
+    /**
+     * Get the interned name of an identifier token
+     * The name is interned on the first call for the token and read back afterwards. Threads reading the same buffer
+     * may both intern it, they get the same Name
+     * @param index - Index of the token
+     * @return Name of the identifier, or null if the token is not an identifier
+     */
+    public Name getName(int index) {
+        int physical = physical(index);
+        Name name = this.names[physical];
+        if (name == null && this.kinds[physical] == Lexer.Token.IDENTIFIER.ordinal()) {
+            name = NameTable.shared().intern(getLexeme(index));
+            this.names[physical] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Get a token as a symbol, for callers using the Symbol API
+     * @param index - Index of the token
+     * @return Symbol - Symbol of the token
+     */
+    public Symbol getSymbol(int index) {
+        Name name = getName(index);
+        if (name != null) {
+            return new Symbol(Lexer.Token.IDENTIFIER, name.getText(), name);
+        }
+        return new Symbol(getToken(index), getLexeme(index));
+    }
+
+    /**
+     * Find the token starting at an offset, or the first token after it
+     * @param offset - Offset in the source
+     * @return Index of the first token starting at or after the offset, size() if there is none
+     */
+    public int indexAt(int offset) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getStart(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get a cursor positioned on the first token
+     * @return TokenCursor - Cursor over the tokens
+     */
+    public TokenCursor cursor() {
+        return cursor(0);
+    }
+
+    /**
+     * Get a cursor positioned on a token
+     * @param index - Index of the first token read by the cursor
+     * @return TokenCursor - Cursor over the tokens
+     */
+    public TokenCursor cursor(int index) {
+        Objects.checkIndex(index, this.size);
+        Cursor cursor = new Cursor();
+        cursor.index = index;
+        return cursor;
+    }
+
+    /**
+     * Cursor reading the tokens by index
+     */
+    private final class Cursor implements TokenCursor {
+        private int index; // Index of the current token
+
+        @Override
+        public Lexer.Token token() {
+            return getToken(this.index);
+        }
+
+        @Override
+        public String lexeme() {
+            return getLexeme(this.index);
+        }
+
+        @Override
+        public Name name() {
+            return getName(this.index);
+        }
+
+        @Override
+        public int offset() {
+            return getStart(this.index);
+        }
+
+        @Override
+        public void advance() {
+            if (this.index < size - 1) {
+                this.index++;
+            }
+        }
+    }
+}
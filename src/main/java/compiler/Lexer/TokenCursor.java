@@ -0,0 +1,35 @@
+package compiler.Lexer;
+
+/**
+ * Cursor over a stream of tokens, as consumed by the parser
+ */
+public interface TokenCursor {
+    /**
+     * Get the type of the current token
+     * @return Token - Type of the current token
+     */
+    Lexer.Token token();
+
+    /**
+     * Get the lexeme of the current token
+     * @return lexeme - Lexeme of the current token, null at end of file
+     */
+    String lexeme();
+
+    /**
+     * Get the interned name of the current token
+     * @return name - Interned name, or null if the current token is not an identifier
+     */
+    Name name();
+
+    /**
+     * Get the position of the current token
+     * @return offset - Offset in the source of the first character of the current token
+     */
+    int offset();
+
+    /**
+     * Move to the next token, the cursor stays on EOF once it is reached
+     */
+    void advance();
+}
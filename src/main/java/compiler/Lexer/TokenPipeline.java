@@ -0,0 +1,153 @@
+package compiler.Lexer;
+
+import java.io.Reader;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token cursor fed by a lexer running on its own thread, so that reading and scanning the source overlap with parsing
+ * Symbols go through a bounded single-producer single-consumer ring buffer, both sides publish their progress in batches
+ */
+public final class TokenPipeline implements TokenCursor, AutoCloseable {
+    private static final int CAPACITY = 1 << 12; // Number of slots in the ring (power of two)
+    private static final int BATCH = 64; // Number of tokens after which each side publishes its progress
+    private static final int SPINS = 100; // Busy waits before yielding the processor
+    private static final int YIELDS = 100; // Yields before parking the thread
+
+    private final Symbol[] symbols = new Symbol[CAPACITY]; // Ring of symbols
+    private final int[] offsets = new int[CAPACITY]; // Ring of symbol offsets
+    private final AtomicLong produced = new AtomicLong(); // Number of symbols published by the lexer
+    private final AtomicLong consumed = new AtomicLong(); // Number of symbols released by the parser
+    private volatile RuntimeException failure; // Error raised by the lexer thread
+    private volatile boolean closed; // Set when the parser stops reading
+
+    // Consumer side, only used by the parser thread
+    private long position; // Number of symbols advanced over
+    private long available; // Number of symbols known to be published
+    private Symbol current; // Current symbol
+
+    /**
+     * Constructor for TokenPipeline, starts lexing the input on a new thread
+     * @param input - Source file
+     */
+    public TokenPipeline(Reader input) {
+        Thread producer = new Thread(() -> produce(input), "lexer");
+        producer.setDaemon(true);
+        producer.start();
+        this.current = await(0);
+    }
+
+    /**
+     * Lex the whole input into the ring, run by the lexer thread
+     * @param input - Source file
+     */
+    private void produce(Reader input) {
+        try {
+            Lexer lexer = new Lexer(input);
+            Symbol symbol = lexer.currentSymbol;
+            long next = 0; // Number of symbols written
+            long released = 0; // Last known number of symbols released by the parser
+            while (true) {
+                if (next - released == CAPACITY) {
+                    // Ring full, publish what was written before waiting for the parser
+                    this.produced.lazySet(next);
+                    for (int waits = 0; (released = this.consumed.get()) + CAPACITY == next; waits++) {
+                        if (this.closed) {
+                            return;
+                        }
+                        backOff(waits);
+                    }
+                }
+                int slot = (int) next & (CAPACITY - 1);
+                this.symbols[slot] = symbol;
+                this.offsets[slot] = lexer.getTokenOffset();
+                next++;
+                if (symbol.getToken() == Lexer.Token.EOF) {
+                    this.produced.lazySet(next);
+                    return;
+                }
+                if (next % BATCH == 0) {
+                    this.produced.lazySet(next);
+                }
+                symbol = lexer.getNextSymbol();
+            }
+        } catch (RuntimeException e) {
+            this.failure = e;
+        }
+    }
+
+    /**
+     * Wait until a symbol is published
+     * @param index - Index of the symbol
+     * @return Symbol - Symbol at the index
+     */
+    private Symbol await(long index) {
+        for (int waits = 0; index >= this.available; waits++) {
+            this.available = this.produced.get();
+            if (index < this.available) {
+                break;
+            }
+            RuntimeException error = this.failure;
+            if (error != null) {
+                throw new RuntimeException("Lexer thread failed", error);
+            }
+            backOff(waits);
+        }
+        return this.symbols[(int) index & (CAPACITY - 1)];
+    }
+
+    /**
+     * Wait a little longer at each call, first spinning then yielding then parking
+     * @param waits - Number of waits so far
+     */
+    private static void backOff(int waits) {
+        if (waits < SPINS) {
+            Thread.onSpinWait();
+        } else if (waits < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    @Override
+    public Lexer.Token token() {
+        return this.current.getToken();
+    }
+
+    @Override
+    public String lexeme() {
+        return this.current.getLexeme();
+    }
+
+    @Override
+    public Name name() {
+        return this.current.getName();
+    }
+
+    @Override
+    public int offset() {
+        return this.offsets[(int) this.position & (CAPACITY - 1)];
+    }
+
+    @Override
+    public void advance() {
+        if (this.current.getToken() == Lexer.Token.EOF) {
+            return;
+        }
+        this.position++;
+        if (this.position % BATCH == 0) {
+            // Give the slots read so far back to the lexer
+            this.consumed.lazySet(this.position);
+        }
+        this.current = await(this.position);
+    }
+
+    /**
+     * Stop the lexer thread if the parser did not read up to EOF
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+}
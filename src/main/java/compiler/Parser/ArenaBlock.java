@@ -0,0 +1,48 @@
+package compiler.Parser;
+
+import compiler.Exceptions.SemanticException;
+
+import java.util.ArrayList;
+
+/**
+ * View of a block stored in an AstArena
+ * The statements are read from the arena each time they are asked for, so the view itself holds no nodes. Once a visitor
+ * walks the block, such as the semantic analysis, the statements it walked are kept, so the types it resolved on them
+ * are read by the code generation
+ */
+final class ArenaBlock extends Block {
+    private final AstArena arena; // Arena the block is stored in
+    private final int node; // Index of the block node in the arena
+    private ArrayList<Object> visited; // Statements walked by a visitor, null until the block is visited
+
+    /**
+     * Constructor for ArenaBlock
+     * @param arena - Arena the block is stored in
+     * @param node - Index of the block node in the arena
+     */
+    ArenaBlock(AstArena arena, int node) {
+        super(null);
+        this.arena = arena;
+        this.node = node;
+    }
+
+    @Override
+    public ArrayList<Object> getStatements() {
+        return this.visited != null ? this.visited : this.arena.statements(this.node);
+    }
+
+    @Override
+    public void accept(ASTVisitor visitor) throws SemanticException {
+        if (this.visited == null) {
+            this.visited = this.arena.statements(this.node);
+        }
+        super.accept(visitor);
+    }
+
+    @Override
+    public String toString() {
+        return "Block{" +
+                "statements=" + getStatements().toString() +
+                '}';
+    }
+}
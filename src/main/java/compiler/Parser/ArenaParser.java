@@ -0,0 +1,54 @@
+package compiler.Parser;
+
+import compiler.Lexer.TokenBuffer;
+
+/**
+ * Parser storing procedure bodies in an AstArena instead of keeping one object per node
+ * Each body is parsed as usual and then moved to the arena, so only the nodes of one body are alive at a time
+ * The program reads the same as a sequential parse, a syntax error is reported as the sequential parser does
+ */
+public final class ArenaParser {
+    private ArenaParser() {
+    }
+
+    /**
+     * Parse a program
+     * @param tokens - Tokens of the whole source
+     * @return Program - Parsed program whose procedure bodies are views into an arena
+     */
+    public static Program parse(TokenBuffer tokens) {
+        AstArena arena = new AstArena();
+        HeaderParser headers = new HeaderParser(tokens, arena);
+        try {
+            headers.parseProgram();
+        } catch (Parser.ParserException e) {
+            // Parse again in order, to report the first error of the source
+            return new Parser(tokens).getProgram();
+        }
+        arena.trim();
+        headers.getProgram().getPositions().trim();
+        return headers.getProgram();
+    }
+
+    /**
+     * Parser of the top-level declarations, moving each procedure body to the arena once it is parsed
+     */
+    private static final class HeaderParser extends BodySkippingParser {
+        private final AstArena arena; // Arena the bodies are stored in
+
+        /**
+         * Constructor for HeaderParser
+         * @param buffer - Tokens of the whole source
+         * @param arena - Arena the bodies are stored in
+         */
+        HeaderParser(TokenBuffer buffer, AstArena arena) {
+            super(buffer, buffer.cursor());
+            this.arena = arena;
+        }
+
+        @Override
+        Block deferBody(int open, int close) throws ParserException {
+            return this.arena.add(parseBody(getProgram(), this.buffer, open, close));
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package compiler.Parser;
 
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
+
 public class ArrayAccessExpr extends Expr {
     protected final String identifier; // Identifier of the array (i.e. 'a')
+    private final Name identifierName; // Interned identifier of the array, compared by identity
     protected final Expr index; // Index of the array (i.e. '0')
 
     public ArrayAccessExpr(Type type, Expr index) {
         // i.e. a[0]
-        super("ArrayAccessExpr");
+        super(Type.ARRAY_ACCESS);
         this.identifier = type.getName();
+        this.identifierName = NameTable.shared().intern(this.identifier);
         this.index = index;
     }
 
     public String getIdentifier() { return identifier; }
 
+    public Name getIdentifierName() { return identifierName; }
+
     public Expr getIndex() { return index; }
 
     public String toString() {
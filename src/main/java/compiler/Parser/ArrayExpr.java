@@ -10,7 +10,7 @@ public class ArrayExpr extends Expr {
     protected final ArrayList<Expr> content; // Content of the array
 
     public ArrayExpr(Type type, Expr size, ArrayList<Expr> content) {
-        super(type.getName() + "[]");
+        super(type.array());
         this.type = type;
         this.size = size;
         this.content = content;
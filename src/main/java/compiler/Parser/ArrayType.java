@@ -0,0 +1,26 @@
+package compiler.Parser;
+
+/**
+ * Type of the arrays of an element type, interned by Type
+ */
+public final class ArrayType extends Type {
+    private final Type element; // Type of the elements
+
+    /**
+     * Constructor for ArrayType, only called by Type
+     * @param name - Name of the type, the name of the element type followed by "[]"
+     * @param element - Type of the elements
+     */
+    ArrayType(String name, Type element) {
+        super(name, "[L" + element.getName() + ";");
+        this.element = element;
+    }
+
+    /**
+     * Get the type of the elements
+     * @return element - Type of the elements
+     */
+    public Type getElement() {
+        return element;
+    }
+}
@@ -1,14 +1,18 @@
 package compiler.Parser;
 
 import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
 
 public class AssignmentStmt extends Stmt {
     protected final String identifier;
+    private final Name identifierName; // Interned identifier of the variable, compared by identity
     protected final Expr value;
 
     public AssignmentStmt(String identifier, Expr value) {
         super(Lexer.Token.SYMBOL_ASSIGN);
         this.identifier = identifier;
+        this.identifierName = identifier == null ? null : NameTable.shared().intern(identifier);
         this.value = value;
     }
 
@@ -16,6 +20,12 @@ public class AssignmentStmt extends Stmt {
         return identifier;
     }
 
+    /**
+     * Get the interned identifier of the assigned variable
+     * @return Name - Name of the variable, the same instance as for every other use of the identifier
+     */
+    public Name getIdentifierName() { return identifierName; }
+
     public Expr getValue() {
         return value;
     }
@@ -0,0 +1,391 @@
+package compiler.Parser;
+
+import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact storage of statements and expressions in flat int arrays
+ * Each node is four ints: its kind and three operands, which are child node indices, token ordinals, values or ids of
+ * pooled names and strings. Lists of children, such as the statements of a block, are stored in a separate int array.
+ * Nodes are turned back into the usual AST objects when they are read, those objects are not kept by the arena.
+ * The kind int also holds the source position of the node, as its distance from the position of the outermost block, which
+ * every block node keeps, so read nodes get the position the parsed ones had.
+ */
+public final class AstArena {
+    private static final int NODE_SIZE = 4; // Number of ints of a node
+    private static final int NONE = -1; // Missing node, name or string
+    private static final int KIND_BITS = 5; // Number of low bits of the kind int holding the kind
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1; // Mask of the kind in the kind int
+
+    // Kinds of nodes
+    private static final int BLOCK = 0; // a: list of statements, b: position of the outermost block
+    private static final int CTRL_STRUCT = 1; // a: keyword ordinal, b: condition, c: body block
+    private static final int FOR = 2; // a: keyword ordinal, b: list of init, end, step and body
+    private static final int PROC_CALL = 3; // a: identifier string, b: list of arguments
+    private static final int ASSIGNMENT_STMT = 4; // a: identifier string, b: value
+    private static final int RETURN_STMT = 5; // a: value
+    private static final int CONST_DECL = 6; // a: identifier string, b: type string, c: value
+    private static final int VAR_DECL = 7; // a: identifier string, b: type string, c: value
+    private static final int VAL_DECL = 8; // a: identifier string, b: type string, c: value
+    private static final int INTEGER = 9; // a: value
+    private static final int REAL = 10; // a: high bits, b: low bits of the value
+    private static final int BOOLEAN = 11; // a: 1 if true
+    private static final int STRING = 12; // a: value string
+    private static final int IDENTIFIER = 13; // a: name
+    private static final int BINARY = 14; // a: left, b: right, c: operator ordinal
+    private static final int RECORD_ACCESS = 15; // a: record, b: field
+    private static final int ARRAY_ACCESS = 16; // a: identifier string, b: index
+    private static final int ARRAY = 17; // a: element type string, b: size, c: list of elements
+    private static final int RECORD = 18; // a: type string, b: list of entries
+    private static final int RECORD_ENTRY = 19; // a: identifier string, b: type string, c: value
+    private static final int EXPR = 20; // a: type string
+    private static final int OBJECT = 21; // a: index of a node the arena has no layout for, kept as an object
+
+    private static final Lexer.Token[] TOKENS = Lexer.Token.values(); // Tokens by ordinal
+
+    private int[] nodes = new int[NODE_SIZE * 256]; // Nodes, NODE_SIZE ints each
+    private int nodeEnd; // Number of ints of nodes used
+    private int[] lists = new int[256]; // Lists of nodes, each is its length followed by its nodes
+    private int listEnd; // Number of ints of lists used
+    private final ArrayList<String> strings = new ArrayList<>(); // Pooled strings, by id
+    private final ArrayList<Name> names = new ArrayList<>(); // Pooled names, by id
+    private final ArrayList<Object> objects = new ArrayList<>(); // Nodes without a layout, by index
+    private HashMap<String, Integer> stringIds = new HashMap<>(); // Id of each pooled string, null once trimmed
+    private HashMap<Name, Integer> nameIds = new HashMap<>(); // Id of each pooled name, null once trimmed
+    private int root; // Position of the outermost block being added
+
+    /**
+     * Store a block and everything it contains
+     * @param block - Block to store
+     * @return Block - View of the stored block, reading its statements from the arena
+     */
+    public Block add(Block block) {
+        this.root = block.getPosition();
+        return new ArenaBlock(this, addNode(block));
+    }
+
+    /**
+     * Release the memory only needed while nodes are added
+     * The arena cannot be added to afterwards, and is then safe to read from several threads
+     */
+    public void trim() {
+        this.nodes = Arrays.copyOf(this.nodes, this.nodeEnd);
+        this.lists = Arrays.copyOf(this.lists, this.listEnd);
+        this.strings.trimToSize();
+        this.names.trimToSize();
+        this.objects.trimToSize();
+        this.stringIds = null;
+        this.nameIds = null;
+    }
+
+    /**
+     * Get the number of nodes stored
+     * @return Number of nodes
+     */
+    public int size() {
+        return this.nodeEnd / NODE_SIZE;
+    }
+
+    /**
+     * Store a node and its children
+     * @param node - Statement, expression or block, may be null
+     * @return Index of the node, NONE for null
+     */
+    private int addNode(Object node) {
+        if (node == null) {
+            return NONE;
+        }
+        int index = addLayout(node);
+        this.nodes[index * NODE_SIZE] |= relativePosition(node) << KIND_BITS;
+        return index;
+    }
+
+    /**
+     * Get the position of a node relative to the outermost block being added
+     * The spans of a block are added together, after those of its nodes, so nodes have smaller positions than the block
+     * @param node - Node of the block
+     * @return Distance of its position from the one of the block plus one, 0 if it has none or is too far
+     */
+    private int relativePosition(Object node) {
+        int position = SourcePositions.positionOf(node);
+        int distance = this.root - position;
+        if (position < 0 || this.root < 0 || distance < 0 || distance >= 1 << (Integer.SIZE - KIND_BITS - 1)) {
+            return 0;
+        }
+        return distance + 1;
+    }
+
+    /**
+     * Store a node and its children in the layout of its kind
+     * @param node - Statement, expression or block
+     * @return Index of the node
+     */
+    private int addLayout(Object node) {
+        if (node instanceof Block block) {
+            return node(BLOCK, addList(block.getStatements()), this.root, 0);
+        }
+        if (node instanceof For forLoop) {
+            BinaryExpr condition = (BinaryExpr) forLoop.getCondition();
+            return node(FOR, forLoop.getName().ordinal(),
+                    addList(List.of(condition.getLeft(), condition.getRight(), forLoop.getStep(), forLoop.getBody())), 0);
+        }
+        if (node instanceof CtrlStruct ctrlStruct && ctrlStruct.getElseBody() == null) {
+            return node(CTRL_STRUCT, ctrlStruct.getName().ordinal(), addNode(ctrlStruct.getCondition()), addNode(ctrlStruct.getBody()));
+        }
+        if (node instanceof ProcCall procCall) {
+            return node(PROC_CALL, string(procCall.getIdentifier()), addList(procCall.getArgs()), 0);
+        }
+        if (node instanceof AssignmentStmt assignment) {
+            return node(ASSIGNMENT_STMT, string(assignment.getIdentifier()), addNode(assignment.getValue()), 0);
+        }
+        if (node instanceof ReturnStmt returnStmt) {
+            return node(RETURN_STMT, addNode(returnStmt.getValue()), 0, 0);
+        }
+        if (node.getClass() == ConstDecl.class || node.getClass() == VarDecl.class || node.getClass() == ValDecl.class) {
+            GeneralDecl decl = (GeneralDecl) node;
+            int kind = decl instanceof ConstDecl ? CONST_DECL : decl instanceof VarDecl ? VAR_DECL : VAL_DECL;
+            return node(kind, string(decl.getIdentifier()), typeName(decl.getType()), addNode(decl.getValue()));
+        }
+        if (node.getClass() == IntegerExpr.class) {
+            return node(INTEGER, ((IntegerExpr) node).getValue(), 0, 0);
+        }
+        if (node.getClass() == RealExpr.class) {
+            long bits = Double.doubleToRawLongBits(((RealExpr) node).getValue());
+            return node(REAL, (int) (bits >>> 32), (int) bits, 0);
+        }
+        if (node.getClass() == BooleanExpr.class) {
+            return node(BOOLEAN, ((BooleanExpr) node).getValue() ? 1 : 0, 0, 0);
+        }
+        if (node.getClass() == StringExpr.class) {
+            return node(STRING, string(((StringExpr) node).getValue()), 0, 0);
+        }
+        if (node.getClass() == IdentifierExpr.class) {
+            return node(IDENTIFIER, name(((IdentifierExpr) node).getName()), 0, 0);
+        }
+        if (node.getClass() == BinaryExpr.class) {
+            BinaryExpr binary = (BinaryExpr) node;
+            return node(BINARY, addNode(binary.getLeft()), addNode(binary.getRight()), binary.getOperator().ordinal());
+        }
+        if (node.getClass() == RecordAccess.class) {
+            RecordAccess access = (RecordAccess) node;
+            return node(RECORD_ACCESS, addNode(access.getIdentifier()), addNode(access.getField()), 0);
+        }
+        if (node.getClass() == ArrayAccessExpr.class) {
+            ArrayAccessExpr access = (ArrayAccessExpr) node;
+            return node(ARRAY_ACCESS, string(access.getIdentifier()), addNode(access.getIndex()), 0);
+        }
+        if (node.getClass() == ArrayExpr.class) {
+            ArrayExpr array = (ArrayExpr) node;
+            return node(ARRAY, typeName(array.type), addNode(array.getSize()), addList(array.getContent()));
+        }
+        if (node.getClass() == RecordExpr.class) {
+            RecordExpr record = (RecordExpr) node;
+            return node(RECORD, typeName(record.getType()), addList(record.getContent()), 0);
+        }
+        if (node.getClass() == RecordEntry.class) {
+            RecordEntry entry = (RecordEntry) node;
+            return node(RECORD_ENTRY, string(entry.getIdentifier()), typeName(entry.getType()), addNode(entry.getValue()));
+        }
+        if (node.getClass() == Expr.class) {
+            return node(EXPR, typeName(((Expr) node).getType()), 0, 0);
+        }
+        // Any other node is rare enough to be kept as it is
+        this.objects.add(node);
+        return node(OBJECT, this.objects.size() - 1, 0, 0);
+    }
+
+    /**
+     * Append a node
+     * @param kind - Kind of the node
+     * @param a - First operand
+     * @param b - Second operand
+     * @param c - Third operand
+     * @return Index of the node
+     */
+    private int node(int kind, int a, int b, int c) {
+        if (this.nodeEnd == this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, this.nodes.length * 2);
+        }
+        int index = this.nodeEnd;
+        this.nodes[index] = kind;
+        this.nodes[index + 1] = a;
+        this.nodes[index + 2] = b;
+        this.nodes[index + 3] = c;
+        this.nodeEnd += NODE_SIZE;
+        return index / NODE_SIZE;
+    }
+
+    /**
+     * Store a list of nodes, the nodes are stored before the list
+     * @param elements - Nodes of the list
+     * @return Index of the list
+     */
+    private int addList(List<?> elements) {
+        int[] indices = new int[elements.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = addNode(elements.get(i));
+        }
+        if (this.listEnd + indices.length + 1 > this.lists.length) {
+            this.lists = Arrays.copyOf(this.lists, Math.max(this.lists.length * 2, this.listEnd + indices.length + 1));
+        }
+        int list = this.listEnd;
+        this.lists[list] = indices.length;
+        System.arraycopy(indices, 0, this.lists, list + 1, indices.length);
+        this.listEnd += indices.length + 1;
+        return list;
+    }
+
+    /**
+     * Pool a string
+     * @param text - String, may be null
+     * @return Id of the string, NONE for null
+     */
+    private int string(String text) {
+        if (text == null) {
+            return NONE;
+        }
+        Integer id = this.stringIds.get(text);
+        if (id == null) {
+            id = this.strings.size();
+            this.strings.add(text);
+            this.stringIds.put(text, id);
+        }
+        return id;
+    }
+
+    /**
+     * Pool the name of a type
+     * @param type - Type, may be null
+     * @return Id of the name of the type, NONE for null
+     */
+    private int typeName(Type type) {
+        return type == null ? NONE : string(type.getName());
+    }
+
+    /**
+     * Pool an identifier
+     * @param name - Interned identifier, may be null
+     * @return Id of the name, NONE for null
+     */
+    private int name(Name name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer id = this.nameIds.get(name);
+        if (id == null) {
+            id = this.names.size();
+            this.names.add(name);
+            this.nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Read the statements of a stored block
+     * @param block - Index of the block node
+     * @return ArrayList<Object> - New statement objects, nested blocks are views into the arena
+     */
+    ArrayList<Object> statements(int block) {
+        return list(this.nodes[block * NODE_SIZE + 1], this.nodes[block * NODE_SIZE + 2]);
+    }
+
+    /**
+     * Read a stored list
+     * @param list - Index of the list
+     * @param root - Position of the outermost block of the list
+     * @return New list of the node objects
+     */
+    @SuppressWarnings("unchecked")
+    private <T> ArrayList<T> list(int list, int root) {
+        int length = this.lists[list];
+        ArrayList<T> elements = new ArrayList<>(length);
+        for (int i = 1; i <= length; i++) {
+            elements.add((T) read(this.lists[list + i], root));
+        }
+        return elements;
+    }
+
+    /**
+     * Read a stored node
+     * @param node - Index of the node, NONE for null
+     * @param root - Position of the outermost block of the node
+     * @return New node object
+     */
+    private Object read(int node, int root) {
+        if (node == NONE) {
+            return null;
+        }
+        int index = node * NODE_SIZE;
+        Object read = readLayout(this.nodes[index] & KIND_MASK, node, root);
+        int position = this.nodes[index] >>> KIND_BITS;
+        if (position != 0) {
+            SourcePositions.setPosition(read, root - (position - 1));
+        }
+        return read;
+    }
+
+    /**
+     * Read a stored node from the layout of its kind
+     * @param kind - Kind of the node
+     * @param node - Index of the node
+     * @param root - Position of the outermost block of the node
+     * @return New node object
+     */
+    private Object readLayout(int kind, int node, int root) {
+        int index = node * NODE_SIZE;
+        int a = this.nodes[index + 1];
+        int b = this.nodes[index + 2];
+        int c = this.nodes[index + 3];
+        return switch (kind) {
+            case BLOCK -> new ArenaBlock(this, node);
+            case CTRL_STRUCT -> new CtrlStruct(TOKENS[a], (Expr) read(b, root), (Block) read(c, root));
+            case FOR -> {
+                ArrayList<Object> parts = list(b, root);
+                yield new For(TOKENS[a], (Expr) parts.get(0), (Expr) parts.get(1), (Expr) parts.get(2), (Block) parts.get(3));
+            }
+            case PROC_CALL -> new ProcCall(string(a), list(b, root));
+            case ASSIGNMENT_STMT -> new AssignmentStmt(string(a), (Expr) read(b, root));
+            case RETURN_STMT -> new ReturnStmt((Expr) read(a, root));
+            case CONST_DECL -> new ConstDecl(type(b), string(a), (Expr) read(c, root));
+            case VAR_DECL -> new VarDecl(type(b), string(a), (Expr) read(c, root));
+            case VAL_DECL -> new ValDecl(type(b), string(a), (Expr) read(c, root));
+            case INTEGER -> new IntegerExpr(a);
+            case REAL -> new RealExpr(Double.longBitsToDouble(((long) a << 32) | (b & 0xFFFFFFFFL)));
+            case BOOLEAN -> new BooleanExpr(a == 1);
+            case STRING -> new StringExpr(string(a));
+            case IDENTIFIER -> new IdentifierExpr(a == NONE ? null : this.names.get(a));
+            case BINARY -> new BinaryExpr((Expr) read(a, root), (Expr) read(b, root), TOKENS[c]);
+            case RECORD_ACCESS -> new RecordAccess((Expr) read(a, root), (Expr) read(b, root));
+            case ARRAY_ACCESS -> new ArrayAccessExpr(type(a), (Expr) read(b, root));
+            case ARRAY -> new ArrayExpr(type(a), (Expr) read(b, root), list(c, root));
+            case RECORD -> new RecordExpr(string(a), list(b, root));
+            case RECORD_ENTRY -> new RecordEntry(string(a), string(b), (Expr) read(c, root));
+            case EXPR -> new Expr(string(a));
+            case OBJECT -> this.objects.get(a);
+            default -> throw new IllegalStateException("Unknown node kind " + kind);
+        };
+    }
+
+    /**
+     * Get a pooled string
+     * @param id - Id of the string, NONE for null
+     * @return String, or null
+     */
+    private String string(int id) {
+        return id == NONE ? null : this.strings.get(id);
+    }
+
+    /**
+     * Make a type from a pooled name
+     * @param id - Id of the name of the type, NONE for null
+     * @return Type, or null
+     */
+    private Type type(int id) {
+        return id == NONE ? null : Type.of(this.strings.get(id));
+    }
+}
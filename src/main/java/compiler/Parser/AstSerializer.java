@@ -0,0 +1,655 @@
+package compiler.Parser;
+
+import compiler.Lexer.Lexer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Binary form of a program, written once and read back without lexing or parsing the source again
+ * The bytes are a header, a table of every string of the program, then the declarations. Nodes are written depth first
+ * as a varint kind followed by their fields: varints for ints, ordinals and string ids, 8 bytes for reals.
+ * The low bit of the kind tells whether the node has a source span. The spans come last, in a section prefixed by its
+ * length: the number of spans of each top-level declaration, then each span as the distance of its start from the start
+ * of the span before it and its length, then the distance between each line start and the one before it. Spans are
+ * written in the order of their nodes, depth first, so most of these varints take one byte. Reading a program only keeps
+ * the section, which is decoded the first time the spans of the program are used.
+ * Reading only needs a ByteBuffer, so a memory-mapped file can be read in place.
+ */
+public final class AstSerializer {
+    private static final int MAGIC = 0x41535400; // "AST" followed by the format version
+    static final int FORMAT_VERSION = 3; // Version of the binary form, part of the cache key of ParseCache
+
+    // Kinds of nodes
+    private static final int NULL = 0;
+    private static final int BLOCK = 1; // statements
+    private static final int CTRL_STRUCT = 2; // keyword, condition, body, else body
+    private static final int FOR = 3; // keyword, init, end, step, body
+    private static final int PROC_CALL = 4; // identifier, arguments
+    private static final int ASSIGNMENT_STMT = 5; // identifier, value
+    private static final int RETURN_STMT = 6; // value
+    private static final int STMT = 7; // keyword
+    private static final int LEFT = 8; // keyword, identifier
+    private static final int ARRAY_ACCESS = 9; // keyword, identifier, index
+    private static final int CONST_DECL = 10; // type, identifier, value, span
+    private static final int VAR_DECL = 11; // type, identifier, value, span
+    private static final int VAL_DECL = 12; // type, identifier, value, span
+    private static final int ASSIGNMENT = 13; // type, identifier, value, span
+    private static final int ARRAY_ASSIGNMENT = 14; // type, identifier, index, value, span
+    private static final int RECORD_DECL = 15; // identifier, fields, span
+    private static final int PROC_DECL = 16; // identifier, parameters, return type, body, span
+    private static final int INTEGER = 17; // value
+    private static final int REAL = 18; // value
+    private static final int BOOLEAN = 19; // value
+    private static final int STRING = 20; // value
+    private static final int IDENTIFIER = 21; // name
+    private static final int BINARY = 22; // left, right, operator
+    private static final int RECORD_ACCESS = 23; // record, field
+    private static final int ARRAY_ACCESS_EXPR = 24; // identifier, index
+    private static final int ARRAY = 25; // element type, size, elements
+    private static final int RECORD = 26; // type, entries
+    private static final int RECORD_ENTRY = 27; // identifier, type, value
+    private static final int EXPR = 28; // type
+    private static final int PARAM = 29; // name, type, only in the parameters of a procedure
+
+    private static final Lexer.Token[] TOKENS = Lexer.Token.values(); // Tokens by ordinal
+
+    private AstSerializer() {
+    }
+
+    /**
+     * Write a program
+     * @param program - Program to write
+     * @return Binary form of the program
+     */
+    public static byte[] serialize(Program program) {
+        Writer nodes = new Writer(program.getPositions());
+        nodes.declarations(program.getProcDecls());
+        nodes.declarations(program.getRecordDecls());
+        nodes.declarations(program.getGlobalDecls());
+        nodes.positions();
+
+        Writer output = new Writer(null);
+        output.fixedInt(MAGIC | FORMAT_VERSION);
+        output.varint(nodes.strings.size());
+        for (String string : nodes.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.varint(bytes.length);
+            output.bytes(bytes, bytes.length);
+        }
+        output.bytes(nodes.buffer, nodes.size);
+        return Arrays.copyOf(output.buffer, output.size);
+    }
+
+    /**
+     * Read a program written by serialize
+     * @param input - Binary form of the program, from its position on
+     * @return Program - Program read
+     * @throws IllegalArgumentException - If the input is not a program of this format version
+     */
+    public static Program deserialize(ByteBuffer input) {
+        try {
+            if (input.getInt() != (MAGIC | FORMAT_VERSION)) {
+                throw new IllegalArgumentException("Not a serialized program of format version " + FORMAT_VERSION);
+            }
+            Reader reader = new Reader(input);
+            String[] strings = new String[reader.varint()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[reader.varint()];
+                input.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            reader.strings = strings;
+            ArrayList<ProcDecl> procDecls = reader.list();
+            ArrayList<RecordDecl> recordDecls = reader.list();
+            ArrayList<GeneralDecl> globalDecls = reader.list();
+            Program program = new Program(procDecls, recordDecls, globalDecls);
+            int length = reader.varint();
+            ByteBuffer positions = input.slice(input.position(), length);
+            input.position(input.position() + length);
+            if (new Reader(positions.duplicate()).varint() != reader.positions) {
+                throw new IllegalArgumentException("Source spans do not match the nodes of the serialized program");
+            }
+            program.setSerializedPositions(positions);
+            return program;
+        } catch (BufferUnderflowException | ClassCastException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or corrupted serialized program", e);
+        }
+    }
+
+    /**
+     * Read the spans section of a serialized program
+     * @param input - Section written by Writer.positions, without its length
+     * @param positions - Empty table the spans and the line starts are added to
+     * @throws IllegalArgumentException - If the section is truncated or corrupted
+     */
+    static void readPositions(ByteBuffer input, SourcePositions positions) {
+        try {
+            Reader reader = new Reader(input);
+            int size = reader.varint();
+            int[] segmentSizes = new int[reader.count(1)];
+            int largest = 0;
+            for (int i = 0; i < segmentSizes.length; i++) {
+                // Each span takes at least 2 bytes
+                segmentSizes[i] = reader.count(2);
+                largest = Math.max(largest, segmentSizes[i]);
+            }
+            int[] starts = new int[largest];
+            int[] ends = new int[largest];
+            int start = 0;
+            for (int segmentSize : segmentSizes) {
+                for (int i = 0; i < segmentSize; i++) {
+                    start += reader.signed();
+                    starts[i] = start;
+                    ends[i] = start + reader.varint();
+                }
+                positions.addSegment(starts, ends, segmentSize);
+            }
+            if (positions.size() != size) {
+                throw new IllegalArgumentException("Source spans do not match the nodes of the serialized program");
+            }
+            // No line starts are written as 0, the first line start is always 0 and is not written
+            int lineCount = reader.varint();
+            if (lineCount < 0 || lineCount - 1 > input.remaining()) {
+                throw new IllegalArgumentException("Count larger than the rest of the input");
+            }
+            if (lineCount > 0) {
+                int[] lineStarts = new int[lineCount];
+                for (int i = 1; i < lineCount; i++) {
+                    lineStarts[i] = lineStarts[i - 1] + reader.varint();
+                }
+                positions.setLineStarts(lineStarts);
+            }
+            positions.trim();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated or corrupted source spans", e);
+        }
+    }
+
+    /**
+     * Growable byte output of the nodes, collecting the strings they use
+     */
+    private static final class Writer {
+        private byte[] buffer = new byte[1 << 12]; // Bytes written
+        private int size; // Number of bytes written
+        private final ArrayList<String> strings = new ArrayList<>(); // Strings used, by id
+        private final HashMap<String, Integer> stringIds = new HashMap<>(); // Id of each string used
+        private final SourcePositions positions; // Spans of the nodes written, null when no node is written
+        private final Writer spans; // Spans of the nodes written, in the order they are written, null when no node is written
+        private int spanCount; // Number of spans written
+        private int previousStart; // Start of the last span written
+        private int[] segmentSizes = new int[1 << 6]; // Number of spans of each top-level declaration having any
+        private int segmentCount; // Number of top-level declarations having spans
+        private int segmentFirst; // Number of spans written before the top-level declaration being written
+        private int previousDeclStart; // Start of the last declaration written
+
+        /**
+         * Constructor for Writer
+         * @param positions - Spans of the nodes to write
+         */
+        Writer(SourcePositions positions) {
+            this.positions = positions;
+            this.spans = positions == null ? null : new Writer(null);
+        }
+
+        /**
+         * Make room for more bytes
+         * @param count - Number of bytes about to be written
+         */
+        private void reserve(int count) {
+            if (this.size + count > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + count));
+            }
+        }
+
+        void bytes(byte[] bytes, int length) {
+            reserve(length);
+            System.arraycopy(bytes, 0, this.buffer, this.size, length);
+            this.size += length;
+        }
+
+        void fixedInt(int value) {
+            reserve(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                this.buffer[this.size++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Write an unsigned int in 7-bit groups, low group first
+         * @param value - Value to write
+         */
+        void varint(int value) {
+            reserve(5);
+            while ((value & ~0x7F) != 0) {
+                this.buffer[this.size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.buffer[this.size++] = (byte) value;
+        }
+
+        /**
+         * Write a signed int, small negative values stay short
+         * @param value - Value to write
+         */
+        void signed(int value) {
+            varint((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * Write a string as its id in the string table, 0 for null
+         * @param string - String, may be null
+         */
+        void string(String string) {
+            if (string == null) {
+                varint(0);
+                return;
+            }
+            Integer id = this.stringIds.get(string);
+            if (id == null) {
+                id = this.strings.size();
+                this.strings.add(string);
+                this.stringIds.put(string, id);
+            }
+            varint(id + 1);
+        }
+
+        void type(Type type) {
+            string(type == null ? null : type.getName());
+        }
+
+        void token(Lexer.Token token) {
+            varint(token.ordinal());
+        }
+
+        /**
+         * Write the span of a declaration, its start from the start of the last declaration written and its length
+         * @param decl - Declaration
+         */
+        void span(GeneralDecl decl) {
+            signed(decl.getStart() - this.previousDeclStart);
+            signed(decl.getEnd() - decl.getStart());
+            this.previousDeclStart = decl.getStart();
+        }
+
+        /**
+         * Write the kind of a node, with a low bit telling whether its span follows in the table
+         * @param kind - Kind of the node
+         * @param node - Node about to be written
+         */
+        void kind(int kind, Object node) {
+            int position = SourcePositions.positionOf(node);
+            if (position < 0) {
+                varint(kind << 1);
+                return;
+            }
+            varint(kind << 1 | 1);
+            int start = this.positions.getStart(position);
+            this.spans.signed(start - this.previousStart);
+            this.spans.varint(this.positions.getEnd(position) - start);
+            this.previousStart = start;
+            this.spanCount++;
+        }
+
+        /**
+         * End the segment of the spans of a top-level declaration, as a parser commits them
+         */
+        void segment() {
+            if (this.spanCount == this.segmentFirst) {
+                return;
+            }
+            if (this.segmentCount == this.segmentSizes.length) {
+                this.segmentSizes = Arrays.copyOf(this.segmentSizes, this.segmentCount * 2);
+            }
+            this.segmentSizes[this.segmentCount++] = this.spanCount - this.segmentFirst;
+            this.segmentFirst = this.spanCount;
+        }
+
+        /**
+         * Write the section of the spans of the nodes written, with the line starts of the source
+         */
+        void positions() {
+            Writer section = new Writer(null);
+            section.varint(this.spanCount);
+            section.varint(this.segmentCount);
+            for (int i = 0; i < this.segmentCount; i++) {
+                section.varint(this.segmentSizes[i]);
+            }
+            section.bytes(this.spans.buffer, this.spans.size);
+            int[] lineStarts = this.positions.getLineStarts();
+            if (lineStarts == null) {
+                section.varint(0);
+            } else {
+                section.varint(lineStarts.length);
+                for (int i = 1; i < lineStarts.length; i++) {
+                    section.varint(lineStarts[i] - lineStarts[i - 1]);
+                }
+            }
+            varint(section.size);
+            bytes(section.buffer, section.size);
+        }
+
+        void list(List<?> nodes) {
+            varint(nodes.size());
+            for (Object node : nodes) {
+                node(node);
+            }
+        }
+
+        /**
+         * Write top-level declarations, read back as a list
+         * @param decls - Declarations to write
+         */
+        void declarations(List<? extends GeneralDecl> decls) {
+            varint(decls.size());
+            for (GeneralDecl decl : decls) {
+                node(decl);
+                // Each top-level declaration has a segment of its own in the table, as after a parse
+                segment();
+            }
+        }
+
+        /**
+         * Write a node and its children
+         * @param node - Node, may be null
+         * @throws IllegalArgumentException - If the node is of a class the format has no kind for
+         */
+        void node(Object node) {
+            if (node == null) {
+                kind(NULL, node);
+            } else if (node instanceof Block block) {
+                kind(BLOCK, node);
+                list(block.getStatements());
+            } else if (node instanceof For forLoop) {
+                BinaryExpr condition = (BinaryExpr) forLoop.getCondition();
+                kind(FOR, node);
+                token(forLoop.getName());
+                node(condition.getLeft());
+                node(condition.getRight());
+                node(forLoop.getStep());
+                node(forLoop.getBody());
+            } else if (node instanceof CtrlStruct ctrlStruct) {
+                kind(CTRL_STRUCT, node);
+                token(ctrlStruct.getName());
+                node(ctrlStruct.getCondition());
+                node(ctrlStruct.getBody());
+                node(ctrlStruct.getElseBody());
+            } else if (node instanceof ProcCall procCall) {
+                kind(PROC_CALL, node);
+                string(procCall.getIdentifier());
+                list(procCall.getArgs());
+            } else if (node instanceof AssignmentStmt assignment) {
+                kind(ASSIGNMENT_STMT, node);
+                string(assignment.getIdentifier());
+                node(assignment.getValue());
+            } else if (node instanceof ReturnStmt returnStmt) {
+                kind(RETURN_STMT, node);
+                node(returnStmt.getValue());
+            } else if (node instanceof ArrayAccess access) {
+                kind(ARRAY_ACCESS, node);
+                token(access.getName());
+                string(access.getIdentifier());
+                node(access.getIndex());
+            } else if (node instanceof Left left) {
+                kind(LEFT, node);
+                token(left.getName());
+                string(left.getIdentifier());
+            } else if (node.getClass() == Stmt.class) {
+                kind(STMT, node);
+                token(((Stmt) node).getName());
+            } else if (node instanceof ProcDecl procDecl) {
+                kind(PROC_DECL, node);
+                string(procDecl.getIdentifier());
+                varint(procDecl.getParams().size());
+                for (Param param : procDecl.getParams()) {
+                    kind(PARAM, param);
+                    string(param.getName());
+                    type(param.getType());
+                }
+                type(procDecl.returnType);
+                node(procDecl.getBody());
+                span(procDecl);
+            } else if (node instanceof RecordDecl recordDecl) {
+                kind(RECORD_DECL, node);
+                string(recordDecl.getName());
+                list(recordDecl.getFields());
+                span(recordDecl);
+            } else if (node instanceof ArrayAssignment assignment) {
+                kind(ARRAY_ASSIGNMENT, node);
+                type(assignment.getType());
+                string(assignment.getIdentifier());
+                node(assignment.getIndex());
+                node(assignment.getValue());
+                span(assignment);
+            } else if (node instanceof GeneralDecl decl && (node.getClass() == ConstDecl.class || node.getClass() == VarDecl.class
+                    || node.getClass() == ValDecl.class || node.getClass() == Assignment.class)) {
+                kind(decl instanceof ConstDecl ? CONST_DECL : decl instanceof VarDecl ? VAR_DECL
+                        : decl instanceof ValDecl ? VAL_DECL : ASSIGNMENT, node);
+                type(decl.getType());
+                string(decl.getIdentifier());
+                node(decl.getValue());
+                span(decl);
+            } else if (node.getClass() == IntegerExpr.class) {
+                kind(INTEGER, node);
+                signed(((IntegerExpr) node).getValue());
+            } else if (node.getClass() == RealExpr.class) {
+                kind(REAL, node);
+                long bits = Double.doubleToRawLongBits(((RealExpr) node).getValue());
+                fixedInt((int) (bits >>> 32));
+                fixedInt((int) bits);
+            } else if (node.getClass() == BooleanExpr.class) {
+                kind(BOOLEAN, node);
+                varint(((BooleanExpr) node).getValue() ? 1 : 0);
+            } else if (node.getClass() == StringExpr.class) {
+                kind(STRING, node);
+                string(((StringExpr) node).getValue());
+            } else if (node.getClass() == IdentifierExpr.class) {
+                kind(IDENTIFIER, node);
+                string(((IdentifierExpr) node).getIdentifier());
+            } else if (node.getClass() == BinaryExpr.class) {
+                BinaryExpr binary = (BinaryExpr) node;
+                kind(BINARY, node);
+                node(binary.getLeft());
+                node(binary.getRight());
+                token(binary.getOperator());
+            } else if (node.getClass() == RecordAccess.class) {
+                RecordAccess access = (RecordAccess) node;
+                kind(RECORD_ACCESS, node);
+                node(access.getIdentifier());
+                node(access.getField());
+            } else if (node.getClass() == ArrayAccessExpr.class) {
+                ArrayAccessExpr access = (ArrayAccessExpr) node;
+                kind(ARRAY_ACCESS_EXPR, node);
+                string(access.getIdentifier());
+                node(access.getIndex());
+            } else if (node.getClass() == ArrayExpr.class) {
+                ArrayExpr array = (ArrayExpr) node;
+                kind(ARRAY, node);
+                type(array.type);
+                node(array.getSize());
+                list(array.getContent());
+            } else if (node.getClass() == RecordExpr.class) {
+                RecordExpr record = (RecordExpr) node;
+                kind(RECORD, node);
+                type(record.getType());
+                list(record.getContent());
+            } else if (node.getClass() == RecordEntry.class) {
+                RecordEntry entry = (RecordEntry) node;
+                kind(RECORD_ENTRY, node);
+                string(entry.getIdentifier());
+                type(entry.getType());
+                node(entry.getValue());
+            } else if (node.getClass() == Expr.class) {
+                kind(EXPR, node);
+                type(((Expr) node).getType());
+            } else {
+                throw new IllegalArgumentException("Cannot serialize " + node.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Reader of the nodes from a buffer
+     */
+    private static final class Reader {
+        private final ByteBuffer input; // Bytes of the nodes
+        private String[] strings; // String table, by id
+        private int positions; // Number of nodes read with a span, the next one gets this position
+        private int position; // Position of the span of the node whose kind was read last, -1 if it has none
+        private int previousDeclStart; // Start of the last declaration read
+
+        /**
+         * Constructor for Reader
+         * @param input - Bytes of the nodes
+         */
+        Reader(ByteBuffer input) {
+            this.input = input;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = this.input.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                if (shift >= 28) {
+                    throw new IllegalArgumentException("Malformed varint");
+                }
+            }
+        }
+
+        /**
+         * Read a number of items still to be read
+         * @param bytes - Smallest number of bytes of an item
+         * @return Number of items
+         * @throws IllegalArgumentException - If the items cannot fit in the rest of the input
+         */
+        int count(int bytes) {
+            int count = varint();
+            if (count < 0 || count > this.input.remaining() / bytes) {
+                throw new IllegalArgumentException("Count larger than the rest of the input");
+            }
+            return count;
+        }
+
+        int signed() {
+            int value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String string() {
+            int id = varint();
+            return id == 0 ? null : this.strings[id - 1];
+        }
+
+        Type type() {
+            String name = string();
+            return name == null ? null : Type.of(name);
+        }
+
+        Lexer.Token token() {
+            return TOKENS[varint()];
+        }
+
+        <T extends GeneralDecl> T span(T decl) {
+            int start = this.previousDeclStart + signed();
+            decl.setSpan(start, start + signed());
+            this.previousDeclStart = start;
+            return decl;
+        }
+
+        /**
+         * Read the kind of a node
+         * @return Kind of the node
+         */
+        int kind() {
+            int kind = varint();
+            this.position = (kind & 1) == 0 ? -1 : this.positions++;
+            return kind >>> 1;
+        }
+
+        /**
+         * Give a node read the position of its span in the table
+         * @param node - Node just read
+         * @param position - Position read with its kind, -1 if it has none
+         * @return The node
+         */
+        static <T> T position(T node, int position) {
+            if (position >= 0) {
+                SourcePositions.setPosition(node, position);
+            }
+            return node;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> ArrayList<T> list() {
+            int size = varint();
+            ArrayList<T> nodes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                nodes.add((T) node());
+            }
+            return nodes;
+        }
+
+        /**
+         * Read a node and its children
+         * @return Node, or null
+         */
+        Object node() {
+            int kind = kind();
+            int position = this.position;
+            Object node = switch (kind) {
+                case NULL -> null;
+                case BLOCK -> new Block(list());
+                case CTRL_STRUCT -> new CtrlStruct(token(), (Expr) node(), (Block) node(), (Block) node());
+                case FOR -> new For(token(), (Expr) node(), (Expr) node(), (Expr) node(), (Block) node());
+                case PROC_CALL -> new ProcCall(string(), list());
+                case ASSIGNMENT_STMT -> new AssignmentStmt(string(), (Expr) node());
+                case RETURN_STMT -> new ReturnStmt((Expr) node());
+                case STMT -> new Stmt(token());
+                case LEFT -> new Left(token(), string());
+                case ARRAY_ACCESS -> new ArrayAccess(token(), string(), (Expr) node());
+                case CONST_DECL -> span(new ConstDecl(type(), string(), (Expr) node()));
+                case VAR_DECL -> span(new VarDecl(type(), string(), (Expr) node()));
+                case VAL_DECL -> span(new ValDecl(type(), string(), (Expr) node()));
+                case ASSIGNMENT -> span(new Assignment(type(), string(), (Expr) node()));
+                case ARRAY_ASSIGNMENT -> span(new ArrayAssignment(type(), string(), (Expr) node(), (Expr) node()));
+                case RECORD_DECL -> span(new RecordDecl(string(), list()));
+                case PROC_DECL -> {
+                    String identifier = string();
+                    int count = varint();
+                    ArrayList<Param> params = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        if (kind() != PARAM) {
+                            throw new IllegalArgumentException("Expected a parameter of procedure " + identifier);
+                        }
+                        int paramPosition = this.position;
+                        params.add(position(new Param(string(), type()), paramPosition));
+                    }
+                    yield span(new ProcDecl(identifier, params, type(), (Block) node()));
+                }
+                case INTEGER -> new IntegerExpr(signed());
+                case REAL -> new RealExpr(Double.longBitsToDouble(this.input.getLong()));
+                case BOOLEAN -> new BooleanExpr(varint() == 1);
+                case STRING -> new StringExpr(string());
+                case IDENTIFIER -> new IdentifierExpr(string());
+                case BINARY -> new BinaryExpr((Expr) node(), (Expr) node(), token());
+                case RECORD_ACCESS -> new RecordAccess((Expr) node(), (Expr) node());
+                case ARRAY_ACCESS_EXPR -> new ArrayAccessExpr(type(), (Expr) node());
+                case ARRAY -> new ArrayExpr(type(), (Expr) node(), list());
+                case RECORD -> new RecordExpr(string(), list());
+                case RECORD_ENTRY -> new RecordEntry(string(), string(), (Expr) node());
+                case EXPR -> new Expr(string());
+                default -> throw new IllegalArgumentException("Unknown node kind " + kind);
+            };
+            return position(node, position);
+        }
+    }
+}
@@ -7,9 +7,10 @@ public class BinaryExpr extends Expr {
     protected final Expr left; // Left expression
     protected final Expr right; // Right expression
     protected final Lexer.Token operator; // Operator
+    private int resolvedRun; // Analysis run that resolved the type, 0 if none did
 
     public BinaryExpr(Expr left, Expr right, Lexer.Token operator) {
-        super("BinaryExpr");
+        super(Type.BINARY);
         this.left = left;
         this.right = right;
         this.operator = operator;
@@ -27,6 +28,27 @@ public class BinaryExpr extends Expr {
         return operator;
     }
 
+    /**
+     * Get the type of the value of the expression if it was resolved by an analysis run
+     * The nodes of a program edited incrementally are analysed again by a later run, which must not trust the types
+     * resolved before the edit
+     * @param run - Analysis run asking for the type
+     * @return Type of the value, null if the expression was not analysed by this run
+     */
+    public Type getResolvedType(int run) {
+        return resolvedRun == run ? getResolvedType() : null;
+    }
+
+    /**
+     * Set the type of the value of the expression, resolved by an analysis run
+     * @param resolvedType - Type of the value
+     * @param run - Analysis run resolving the type
+     */
+    public void setResolvedType(Type resolvedType, int run) {
+        setResolvedType(resolvedType);
+        this.resolvedRun = run;
+    }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
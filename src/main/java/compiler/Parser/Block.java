@@ -6,6 +6,7 @@ import java.util.ArrayList;
 
 public class Block {
     protected final ArrayList<Object> statements;
+    private int position = -1; // Index of the source span of the node in the SourcePositions of its program
     public Block(ArrayList<Object> statements) {
         this.statements = statements;
     }
@@ -14,10 +15,8 @@ public class Block {
         return statements;
     }
     public void accept(ASTVisitor visitor) throws SemanticException {
+        // The visitor walks the statements itself, in the scope of the block
         visitor.visit(this);
-        for (Object stmt : statements) {
-            ((ASTNode) stmt).accept(visitor);
-        }
     }
 
     public String toString() {
@@ -25,4 +24,12 @@ public class Block {
                 "statements=" + statements.toString() +
                 '}';
     }
+
+    /**
+     * Get the index of the source span of the node
+     * @return Index in the SourcePositions of the program, -1 if the node was not parsed from a source
+     */
+    public int getPosition() { return position; }
+
+    void setPosition(int position) { this.position = position; }
 }
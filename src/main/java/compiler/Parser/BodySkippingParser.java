@@ -0,0 +1,84 @@
+package compiler.Parser;
+
+import compiler.Lexer.TokenBuffer;
+import compiler.Lexer.TokenCursor;
+
+import java.util.ArrayList;
+
+import static compiler.Lexer.Lexer.Token.*;
+
+/**
+ * Parser of the top-level declarations that skips procedure bodies by matching their braces
+ * Subclasses decide what a skipped body becomes, the tokens of a body are parsed later by a parser of their own
+ */
+abstract class BodySkippingParser extends Parser {
+    protected final TokenBuffer buffer; // Tokens of the whole source
+    private final TokenCursor cursor; // Cursor the parser reads, moved over skipped bodies
+
+    /**
+     * Constructor for BodySkippingParser
+     * @param buffer - Tokens of the whole source
+     * @param cursor - Cursor over the buffer, on the first token
+     */
+    BodySkippingParser(TokenBuffer buffer, TokenCursor cursor) {
+        super(cursor, new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()), false);
+        this.buffer = buffer;
+        this.cursor = cursor;
+        getProgram().getPositions().setSource(buffer.getSource());
+    }
+
+    /**
+     * Skip a procedure body by matching its braces
+     * @return Block - Body, as made by deferBody
+     */
+    @Override
+    final Block parseProcBody() throws ParserException {
+        if (this.cursor.token() != SYMBOL_LEFT_BRACE) {
+            throw new ParserException("Expected " + SYMBOL_LEFT_BRACE + " but got " + this.cursor.token(), this.cursor.offset());
+        }
+        int start = this.cursor.offset();
+        int open = this.buffer.indexAt(start);
+        int close = open;
+        int depth = 0;
+        do {
+            switch (this.cursor.token()) {
+                case SYMBOL_LEFT_BRACE -> depth++;
+                case SYMBOL_RIGHT_BRACE -> depth--;
+                case EOF -> throw new ParserException("Expected " + SYMBOL_RIGHT_BRACE + " but got " + EOF, this.cursor.offset());
+            }
+            this.cursor.advance();
+            close++;
+        } while (depth > 0);
+        return at(deferBody(open, close - 1), start);
+    }
+
+    /**
+     * Make the block of a skipped procedure body
+     * @param open - Index of the '{' starting the body
+     * @param close - Index of the matching '}'
+     * @return Block - Body of the procedure
+     */
+    abstract Block deferBody(int open, int close) throws ParserException;
+
+    /**
+     * Parse a procedure body skipped by a BodySkippingParser
+     * The spans of its nodes are added to the program as one segment
+     * @param program - Program of the procedure
+     * @param tokens - Tokens of the whole source
+     * @param open - Index of the '{' starting the body
+     * @param close - Index of the matching '}'
+     * @return Block - Body of the procedure
+     * @throws ParserException - If the body is not a block ending on its matching brace
+     */
+    static Block parseBody(Program program, TokenBuffer tokens, int open, int close) throws ParserException {
+        TokenCursor cursor = tokens.cursor(open);
+        Parser parser = new Parser(cursor, program, false);
+        Block block = parser.parseBlock();
+        if (tokens.indexAt(cursor.offset()) != close + 1) {
+            // Only possible if the body is not correct, as statements only use braces for blocks
+            throw new ParserException("Expected the end of the procedure body but got " + cursor.token(), cursor.offset());
+        }
+        parser.commitSpans();
+        return block;
+    }
+}
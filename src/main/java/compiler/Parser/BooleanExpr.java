@@ -4,7 +4,7 @@ public class BooleanExpr extends Expr {
     public final boolean value; // Value of the boolean
 
     public BooleanExpr(boolean value) {
-        super("bool");
+        super(Type.BOOL);
         this.value = value;
     }
 
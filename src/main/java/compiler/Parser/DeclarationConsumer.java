@@ -0,0 +1,16 @@
+package compiler.Parser;
+
+import compiler.Exceptions.SemanticException;
+
+/**
+ * Receiver of the top-level declarations of a streamed parse, each one as soon as it is parsed
+ */
+@FunctionalInterface
+public interface DeclarationConsumer {
+    /**
+     * Handle a top-level declaration, the parser does not keep it afterwards
+     * @param declaration - Declaration just parsed, its spans are in the SourcePositions of the parse until the next one
+     * @throws SemanticException - If the declaration is not correct, which stops the parse
+     */
+    void accept(GeneralDecl declaration) throws SemanticException;
+}
@@ -3,9 +3,17 @@ import compiler.Exceptions.SemanticException;
 
 public class Expr implements ASTNode{
     protected Type type; // Type of expression
+    private Type resolvedType; // Type of the value found by the semantic analysis, null until the node is analysed
+    private int position = -1; // Index of the source span of the node in the SourcePositions of its program
 
     public Expr(String typeName) {
-        this.type = new Type(typeName);
+        this(Type.of(typeName));
+    }
+
+    public Expr(Type type) {
+        this.type = type;
+        // Literals are typed by the parser, only placeholder types have no descriptor
+        this.resolvedType = type.getDescriptor() == null ? null : type;
     }
 
     public String toString() {
@@ -16,8 +24,26 @@ public class Expr implements ASTNode{
         return type;
     }
 
+    /**
+     * Get the type of the value of the expression, computed once by the semantic analysis
+     * @return Type of the value, null if the expression is not a literal and was not analysed
+     */
+    public Type getResolvedType() {
+        return resolvedType;
+    }
+
+    public void setResolvedType(Type resolvedType) { this.resolvedType = resolvedType; }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
     }
+
+    /**
+     * Get the index of the source span of the node
+     * @return Index in the SourcePositions of the program, -1 if the node was not parsed from a source
+     */
+    public int getPosition() { return position; }
+
+    void setPosition(int position) { this.position = position; }
 }
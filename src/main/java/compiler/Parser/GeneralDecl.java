@@ -2,16 +2,23 @@ package compiler.Parser;
 
 import compiler.Exceptions.SemanticException;
 import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
 
 public abstract class GeneralDecl implements ASTNode {
     public final Lexer.Token name; // Const, Record, Var, Proc
     protected Type type; // Type of the variable
     protected String identifier; // Identifier of the variable
+    private final Name identifierName; // Interned identifier of the variable, compared by identity
     protected Expr value; // Value of the variable
+    private int start = -1; // Offset of the first character of a top-level declaration, -1 if unknown
+    private int end = -1; // Offset of the token after a top-level declaration, -1 if unknown
+    private int position = -1; // Index of the source span of the node in the SourcePositions of its program
 
     public GeneralDecl(Lexer.Token name, Type type, String identifier, Expr value) {
         this.name = name;
         this.identifier = identifier;
+        this.identifierName = identifier == null ? null : NameTable.shared().intern(identifier);
         this.type = type;
         this.value = value;
     }
@@ -29,10 +36,47 @@ public abstract class GeneralDecl implements ASTNode {
         return identifier;
     }
 
+    /**
+     * Get the interned identifier of the declaration
+     * @return Name - Name of the identifier, the same instance as for every other use of the identifier
+     */
+    public Name getIdentifierName() { return identifierName; }
+
     public Type getType() { return type; }
 
     public Expr getValue() { return value; }
 
+    /**
+     * Get the source offset where a top-level declaration starts
+     * @return Offset of its first token, -1 if the declaration is not at top level
+     */
+    public int getStart() { return start; }
+
+    /**
+     * Get the source offset where a top-level declaration ends
+     * The span runs up to the next token, which the parser looked at to end the declaration
+     * @return Offset of the token after the declaration, -1 if the declaration is not at top level
+     */
+    public int getEnd() { return end; }
+
+    /**
+     * Set the source span of a top-level declaration
+     * @param start - Offset of its first token
+     * @param end - Offset of the token after it
+     */
+    void setSpan(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the index of the source span of the node
+     * @return Index in the SourcePositions of the program, -1 if the node was not parsed from a source
+     */
+    public int getPosition() { return position; }
+
+    void setPosition(int position) { this.position = position; }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
@@ -1,20 +1,32 @@
 package compiler.Parser;
 
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
+
 public class IdentifierExpr extends Expr {
-    protected final String identifier; // Identifier of the variable
+    protected final Name name; // Interned identifier of the variable
+
+    public IdentifierExpr(Name name) {
+        super(Type.IDENTIFIER);
+        this.name = name;
+    }
 
     public IdentifierExpr(String identifier) {
-        super("identifier");
-        this.identifier = identifier;
+        this(identifier == null ? null : NameTable.shared().intern(identifier));
     }
 
     public String getIdentifier() {
-        return identifier;
+        return name == null ? null : name.getText();
     }
 
-    public void setType(Type newType) { type = newType; }
+    public Name getName() { return name; }
+
+    public void setType(Type newType) {
+        type = newType;
+        setResolvedType(newType);
+    }
 
     public String toString() {
-        return "{" + identifier + '}';
+        return "{" + name + '}';
     }
 }
@@ -0,0 +1,240 @@
+package compiler.Parser;
+
+import compiler.Lexer.IncrementalLexer;
+import compiler.Lexer.TokenBuffer;
+import compiler.Lexer.TokenCursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+import static compiler.Lexer.Lexer.Token.EOF;
+
+/**
+ * Parser keeping the program of a source up to date while the source is edited
+ * An edit only reparses the top-level declarations whose tokens it changed, the other declarations are kept as they are
+ */
+public class IncrementalParser {
+    private final IncrementalLexer lexer; // Tokens of the current source
+    private Program program; // Program of the current source
+    private List<Parser.ParserException> diagnostics; // Syntax errors of the current source
+    private final ArrayList<GeneralDecl> decls = new ArrayList<>(); // Top-level declarations of the program, in source order
+
+    /**
+     * Constructor for IncrementalParser
+     * @param source - Initial source code
+     */
+    public IncrementalParser(String source) {
+        this.lexer = new IncrementalLexer(source);
+        parseAll();
+    }
+
+    /**
+     * Get the current source
+     * @return Source code
+     */
+    public String getSource() {
+        return this.lexer.getSource();
+    }
+
+    /**
+     * Get the program of the current source, updated in place by each edit
+     * @return Program - Parsed program
+     */
+    public Program getProgram() {
+        return this.program;
+    }
+
+    /**
+     * Get the syntax errors of the current source
+     * @return List<ParserException> - Syntax errors in source order, empty if the source is correct
+     */
+    public List<Parser.ParserException> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    /**
+     * Parse the whole source again
+     */
+    private void parseAll() {
+        Parser parser = new Parser(this.lexer.getTokens().cursor(), true);
+        this.program = parser.getProgram();
+        this.program.getPositions().setSource(this.lexer.getTokens().getSource());
+        this.diagnostics = parser.getDiagnostics();
+        this.decls.clear();
+        this.decls.addAll(this.program.getContent());
+        this.decls.sort(Comparator.comparingInt(GeneralDecl::getStart));
+    }
+
+    /**
+     * Replace a range of the source and reparse the top-level declarations it affects
+     * A source with syntax errors, before or after the edit, is parsed again as a whole
+     * @param offset - Offset of the first character replaced
+     * @param removedLength - Number of characters removed
+     * @param insertedText - Text inserted in their place
+     * @return Number of top-level declarations parsed again
+     */
+    public int edit(int offset, int removedLength, String insertedText) {
+        IncrementalLexer.Change change = this.lexer.edit(offset, removedLength, insertedText);
+        if (!this.diagnostics.isEmpty()) {
+            parseAll();
+            return this.decls.size();
+        }
+        // The tokens are edited in place, the old tokens are found from the change
+        TokenBuffer tokens = this.lexer.getTokens();
+        int shift = change.getShift(); // Move of the characters after the edit
+        int tokenShift = change.getInserted() - change.getRemoved(); // Move of the tokens after the edit
+        int first = change.getFirst();
+        int changedEnd = first + change.getRemoved(); // Index of the first old token after the ones replaced
+
+        // The parser reads one token past a declaration, so a declaration is affected if that token was replaced
+        int affected = firstDeclEndingAtOrAfter(change.getStart());
+        int restart = first;
+        if (affected < this.decls.size()) {
+            // Tokens before the first one replaced are unchanged, a declaration starting later restarts at the first one
+            restart = Math.min(restart, tokens.indexAt(this.decls.get(affected).getStart()));
+        }
+
+        // Parse declarations until the parser reaches the first token of an old declaration after the edit
+        SourcePositions positions = this.program.getPositions();
+        int oldSpans = positions.size(); // Spans added from here on are already in the edited source
+        TokenCursor cursor = tokens.cursor(restart);
+        Parser parser = new Parser(cursor, this.program, false);
+        ArrayList<GeneralDecl> added = new ArrayList<>();
+        int kept = affected; // First old declaration that can still be kept
+        try {
+            while (true) {
+                int position = tokens.indexAt(cursor.offset());
+                while (kept < this.decls.size() && (startIndex(change, kept) < changedEnd || startIndex(change, kept) + tokenShift < position)) {
+                    kept++;
+                }
+                if (kept < this.decls.size() && startIndex(change, kept) + tokenShift == position) {
+                    // Same tokens from here on, so the rest of the old declarations are still valid
+                    break;
+                }
+                if (cursor.token() == EOF) {
+                    break;
+                }
+                GeneralDecl decl = parser.parseDeclaration();
+                if (decl != null) {
+                    added.add(decl);
+                }
+            }
+        } catch (Parser.ParserException e) {
+            parseAll();
+            return this.decls.size();
+        }
+
+        // Splice the new declarations in place of the affected ones
+        List<GeneralDecl> removed = this.decls.subList(affected, kept);
+        this.program.splice(removed, added, this.decls.subList(kept, this.decls.size()), shift);
+        if (!assignmentsUpToDate(removed, added)) {
+            parseAll();
+            return this.decls.size();
+        }
+        removed.clear();
+        this.decls.addAll(affected, added);
+        // The spans of the removed declarations stay in the table, no node refers to them anymore
+        positions.shift(oldSpans, offset + removedLength, shift);
+        positions.editSource(offset, removedLength, insertedText);
+        return added.size();
+    }
+
+    /**
+     * Find the first top-level declaration whose span ends at or after an offset
+     * @param offset - Offset in the old source
+     * @return Index of the declaration, or the number of declarations if every span ends before the offset
+     */
+    private int firstDeclEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = this.decls.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.decls.get(middle).getEnd() < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the index the first token of an old declaration had before the edit
+     * Tokens before the replaced ones kept their index, those after them moved by the change in the number of tokens
+     * @param change - Tokens replaced by the edit
+     * @param decl - Index of the declaration, its span is still in the old source
+     * @return Index of its first token in the old tokens, the first replaced one for a declaration starting among them
+     */
+    private int startIndex(IncrementalLexer.Change change, int decl) {
+        int start = this.decls.get(decl).getStart();
+        TokenBuffer tokens = this.lexer.getTokens();
+        if (start < change.getStart()) {
+            return tokens.indexAt(start);
+        } else if (start >= change.getEnd()) {
+            return tokens.indexAt(start + change.getShift()) - change.getInserted() + change.getRemoved();
+        }
+        return change.getFirst();
+    }
+
+    /**
+     * Check that global assignments still have the type the parser would give them
+     * The parser types an assignment with the first global declaration of its identifier, which an edit elsewhere can change
+     * @param removed - Declarations removed by the edit
+     * @param added - Declarations added by the edit
+     * @return true if every assignment to an identifier declared by the edited declarations has the type of a full parse
+     */
+    private boolean assignmentsUpToDate(List<GeneralDecl> removed, List<GeneralDecl> added) {
+        List<String> removedSignatures = globalSignatures(removed);
+        List<String> addedSignatures = globalSignatures(added);
+        if (removedSignatures.equals(addedSignatures)) {
+            // Same kinds of declarations of the same identifiers with the same types, so every lookup gives the same type
+            return true;
+        }
+        HashSet<String> identifiers = new HashSet<>();
+        for (List<GeneralDecl> changed : List.of(removed, added)) {
+            for (GeneralDecl decl : changed) {
+                if (!(decl instanceof ProcDecl) && !(decl instanceof RecordDecl)) {
+                    identifiers.add(decl.getIdentifier());
+                }
+            }
+        }
+        for (GeneralDecl decl : this.program.getGlobalDecls()) {
+            if (decl instanceof Assignment && identifiers.contains(decl.getIdentifier())) {
+                // Only declarations before the assignment are visible to it, the first one is visible if any is
+                GeneralDecl declaration = this.program.getGlobalDecl(decl.getIdentifier());
+                Type expected = declaration == decl ? null : declaration.getType();
+                if (!Objects.equals(typeName(expected), typeName(decl.getType()))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Describe the global declarations among top-level declarations by their kind, identifier and type
+     * @param decls - Top-level declarations
+     * @return List of kind, identifier and type name of each global declaration, in order
+     */
+    private static List<String> globalSignatures(List<GeneralDecl> decls) {
+        ArrayList<String> signatures = new ArrayList<>();
+        for (GeneralDecl decl : decls) {
+            if (!(decl instanceof ProcDecl) && !(decl instanceof RecordDecl)) {
+                signatures.add(decl.name + " " + decl.getIdentifier() + " " + typeName(decl.getType()));
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * Get the name of a type that may be missing
+     * @param type - Type, or null
+     * @return Name of the type, or null
+     */
+    private static String typeName(Type type) {
+        return type == null ? null : type.getName();
+    }
+}
@@ -0,0 +1,74 @@
+package compiler.Parser;
+
+import compiler.Exceptions.SemanticException;
+import compiler.Lexer.TokenBuffer;
+
+import java.util.ArrayList;
+
+/**
+ * Procedure body kept as a range of tokens until its statements are first asked for
+ */
+final class LazyBlock extends Block {
+    private Program program; // Program the spans of the body are added to, null once the body is parsed
+    private TokenBuffer tokens; // Tokens of the whole source, null once the body is parsed
+    private final int open; // Index of the '{' starting the body
+    private final int close; // Index of the matching '}'
+
+    /**
+     * Constructor for LazyBlock
+     * @param program - Program of the procedure
+     * @param tokens - Tokens of the whole source
+     * @param open - Index of the '{' starting the body
+     * @param close - Index of the matching '}'
+     */
+    LazyBlock(Program program, TokenBuffer tokens, int open, int close) {
+        super(new ArrayList<>());
+        this.program = program;
+        this.tokens = tokens;
+        this.open = open;
+        this.close = close;
+    }
+
+    /**
+     * Check whether the body was parsed
+     * @return true if the statements of the body are built
+     */
+    synchronized boolean isMaterialized() {
+        return this.tokens == null;
+    }
+
+    /**
+     * Parse the body the first time it is needed
+     * A syntax error in the body is reported as the constructor of Parser reports it
+     */
+    private synchronized void materialize() {
+        if (this.tokens == null) {
+            return;
+        }
+        try {
+            this.statements.addAll(BodySkippingParser.parseBody(this.program, this.tokens, this.open, this.close).getStatements());
+        } catch (Parser.ParserException e) {
+            throw new RuntimeException(e);
+        }
+        this.tokens = null; // The tokens are no longer needed once the body is built
+        this.program = null;
+    }
+
+    @Override
+    public ArrayList<Object> getStatements() {
+        materialize();
+        return this.statements;
+    }
+
+    @Override
+    public void accept(ASTVisitor visitor) throws SemanticException {
+        materialize();
+        super.accept(visitor);
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
+}
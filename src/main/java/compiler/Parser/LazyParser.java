@@ -0,0 +1,47 @@
+package compiler.Parser;
+
+import compiler.Lexer.TokenBuffer;
+
+/**
+ * Parser reading only the top-level declarations, procedure bodies are parsed the first time they are used
+ * A body is found by matching its braces, so a procedure that is never analysed nor compiled costs a brace scan only
+ * A syntax error in a body is reported when the body is first used instead of when the program is parsed
+ */
+public final class LazyParser {
+    private LazyParser() {
+    }
+
+    /**
+     * Parse the top-level declarations of a program
+     * @param tokens - Tokens of the whole source, kept until every body is parsed
+     * @return Program - Parsed program whose procedure bodies are parsed on demand
+     */
+    public static Program parse(TokenBuffer tokens) {
+        HeaderParser headers = new HeaderParser(tokens);
+        try {
+            headers.parseProgram();
+        } catch (Parser.ParserException e) {
+            throw new RuntimeException(e);
+        }
+        headers.getProgram().getPositions().trim();
+        return headers.getProgram();
+    }
+
+    /**
+     * Parser of the top-level declarations, keeping the procedure bodies it skips as token ranges
+     */
+    private static final class HeaderParser extends BodySkippingParser {
+        /**
+         * Constructor for HeaderParser
+         * @param buffer - Tokens of the whole source
+         */
+        HeaderParser(TokenBuffer buffer) {
+            super(buffer, buffer.cursor());
+        }
+
+        @Override
+        Block deferBody(int open, int close) {
+            return new LazyBlock(getProgram(), this.buffer, open, close);
+        }
+    }
+}
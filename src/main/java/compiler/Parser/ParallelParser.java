@@ -0,0 +1,155 @@
+package compiler.Parser;
+
+import compiler.Lexer.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parser reading the top-level declarations in order and parsing procedure bodies in parallel
+ * A body is found by matching its braces, which needs no parsing, and is then parsed by its own parser on a pool worker
+ * The result is the same program as a sequential parse, and a syntax error is reported as the sequential parser does
+ */
+public final class ParallelParser {
+    private static final int MIN_BATCH_TOKENS = 1 << 12; // Smallest number of body tokens worth parsing in a separate task
+
+    private ParallelParser() {
+    }
+
+    /**
+     * Parse a program on the common pool
+     * @param tokens - Tokens of the whole source
+     * @return Program - Parsed program
+     */
+    public static Program parse(TokenBuffer tokens) {
+        return parse(tokens, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse a program
+     * @param tokens - Tokens of the whole source
+     * @param pool - Pool the procedure bodies are parsed on
+     * @return Program - Parsed program
+     */
+    public static Program parse(TokenBuffer tokens, ForkJoinPool pool) {
+        HeaderParser headers = new HeaderParser(tokens, pool);
+        boolean parsed;
+        try {
+            headers.parseProgram();
+            headers.submitBatch();
+            parsed = true;
+            for (ForkJoinTask<Boolean> task : headers.tasks) {
+                parsed &= task.join();
+            }
+        } catch (Parser.ParserException e) {
+            for (ForkJoinTask<Boolean> task : headers.tasks) {
+                task.cancel(false);
+            }
+            parsed = false;
+        }
+        if (!parsed) {
+            // Parse again in order, to report the first error of the source
+            return new Parser(tokens).getProgram();
+        }
+        headers.getProgram().getPositions().trim();
+        return headers.getProgram();
+    }
+
+    /**
+     * Body of a procedure waiting to be parsed
+     */
+    private static final class Body {
+        private final int open; // Index of the '{' starting the body
+        private final int close; // Index of the matching '}'
+        private final ArrayList<Object> statements; // Statements of the body, filled in once it is parsed
+
+        /**
+         * Constructor for Body
+         * @param open - Index of the '{' starting the body
+         * @param close - Index of the matching '}'
+         * @param statements - List the statements are added to
+         */
+        Body(int open, int close, ArrayList<Object> statements) {
+            this.open = open;
+            this.close = close;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Parser of the top-level declarations, handing the procedure bodies it skips to the pool in batches
+     */
+    private static final class HeaderParser extends BodySkippingParser {
+        private final ForkJoinPool pool; // Pool the bodies are parsed on
+        private final List<ForkJoinTask<Boolean>> tasks = new ArrayList<>(); // Submitted batches, true when parsed
+        private ArrayList<Body> batch = new ArrayList<>(); // Bodies not submitted yet
+        private int batchTokens; // Number of tokens of the bodies not submitted yet
+
+        /**
+         * Constructor for HeaderParser
+         * @param buffer - Tokens of the whole source
+         * @param pool - Pool the bodies are parsed on
+         */
+        HeaderParser(TokenBuffer buffer, ForkJoinPool pool) {
+            super(buffer, buffer.cursor());
+            this.pool = pool;
+        }
+
+        /**
+         * Queue a skipped body to be parsed on the pool
+         * @param open - Index of the '{' starting the body
+         * @param close - Index of the matching '}'
+         * @return Block - Body, empty until its batch is parsed
+         */
+        @Override
+        Block deferBody(int open, int close) {
+            Body body = new Body(open, close, new ArrayList<>());
+            this.batch.add(body);
+            this.batchTokens += close - open + 1;
+            if (this.batchTokens >= MIN_BATCH_TOKENS) {
+                submitBatch();
+            }
+            return new Block(body.statements);
+        }
+
+        /**
+         * Submit the bodies skipped since the last batch to the pool
+         */
+        void submitBatch() {
+            if (this.batch.isEmpty()) {
+                return;
+            }
+            List<Body> bodies = this.batch;
+            TokenBuffer tokens = this.buffer;
+            Program program = getProgram();
+            this.tasks.add(this.pool.submit(() -> parseBodies(program, tokens, bodies)));
+            this.batch = new ArrayList<>();
+            this.batchTokens = 0;
+        }
+
+        /**
+         * Parse procedure bodies, each with its own parser
+         * @param program - Program the spans of the bodies are added to
+         * @param tokens - Tokens of the whole source
+         * @param bodies - Bodies to parse
+         * @return true if every body was parsed up to its closing brace, false on a syntax error
+         */
+        private static boolean parseBodies(Program program, TokenBuffer tokens, List<Body> bodies) {
+            ArrayList<ArrayList<Object>> parsed = new ArrayList<>(bodies.size());
+            for (Body body : bodies) {
+                try {
+                    parsed.add(parseBody(program, tokens, body.open, body.close).getStatements());
+                } catch (ParserException e) {
+                    return false;
+                }
+            }
+            // Only fill the bodies once they are all correct, joining the task publishes them
+            for (int i = 0; i < bodies.size(); i++) {
+                bodies.get(i).statements.addAll(parsed.get(i));
+            }
+            return true;
+        }
+    }
+}
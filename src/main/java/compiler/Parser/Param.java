@@ -1,13 +1,18 @@
 package compiler.Parser;
 
 import compiler.Exceptions.SemanticException;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
 
 public class Param implements ASTNode {
     protected final String name;
+    private final Name identifierName; // Interned name of the parameter, compared by identity
     protected final Type type;
+    private int position = -1; // Index of the source span of the node in the SourcePositions of its program
 
     public Param(String name, Type type) {
         this.name = name;
+        this.identifierName = name == null ? null : NameTable.shared().intern(name);
         this.type = type;
     }
 
@@ -22,6 +27,12 @@ public class Param implements ASTNode {
         return name;
     }
 
+    /**
+     * Get the interned name of the parameter
+     * @return Name - Name of the parameter, the same instance as for every other use of the identifier
+     */
+    public Name getIdentifierName() { return identifierName; }
+
     public Type getType() {
         return type;
     }
@@ -29,4 +40,12 @@ public class Param implements ASTNode {
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
     }
+
+    /**
+     * Get the index of the source span of the node
+     * @return Index in the SourcePositions of the program, -1 if the node was not parsed from a source
+     */
+    public int getPosition() { return position; }
+
+    void setPosition(int position) { this.position = position; }
 }
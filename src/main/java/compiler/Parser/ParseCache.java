@@ -0,0 +1,83 @@
+package compiler.Parser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Directory of serialized programs, keyed by a hash of their source and of the compiler version
+ * A source that was already parsed is read back from its file instead of being lexed and parsed again
+ */
+public final class ParseCache {
+    private static final String COMPILER_VERSION = "1"; // Changed whenever the parser builds a different program for a source
+    private final Path directory; // Directory of the cached programs
+
+    /**
+     * Constructor for ParseCache
+     * @param directory - Directory of the cached programs, created when the first program is stored
+     */
+    public ParseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the cached program of a source
+     * @param source - Source code
+     * @return Program - Program of the source, or null if it is not cached or its file cannot be read
+     */
+    public Program get(String source) {
+        Path file = this.directory.resolve(key(source));
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return AstSerializer.deserialize(bytes);
+        } catch (IOException | IllegalArgumentException e) {
+            // A file that cannot be read is a miss, it is replaced when the program is stored again
+            return null;
+        }
+    }
+
+    /**
+     * Store the program of a source
+     * @param source - Source code
+     * @param program - Program parsed from the source
+     * @throws IOException - If the program cannot be written
+     */
+    public void put(String source, Program program) throws IOException {
+        Files.createDirectories(this.directory);
+        Path file = this.directory.resolve(key(source));
+        // Write a temporary file first, so a concurrent reader never maps a partial program
+        Path temporary = Files.createTempFile(this.directory, "program", ".tmp");
+        try {
+            Files.write(temporary, AstSerializer.serialize(program));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Get the file name of the program of a source
+     * @param source - Source code
+     * @return Hex SHA-256 of the compiler version, the format version and the source
+     */
+    static String key(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((COMPILER_VERSION + "/" + AstSerializer.FORMAT_VERSION + "/").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
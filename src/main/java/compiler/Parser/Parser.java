@@ -1,23 +1,46 @@
 package compiler.Parser;
 
+import compiler.Exceptions.SemanticException;
 import compiler.Lexer.Lexer;
-import compiler.Lexer.Symbol;
+import compiler.Lexer.Name;
+import compiler.Lexer.SymbolCursor;
+import compiler.Lexer.TokenBuffer;
+import compiler.Lexer.TokenCursor;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 
 import static compiler.Lexer.Lexer.Token.*;
 
 public class Parser {
-    private final Lexer lexer; // Lexer for the parser
-    private Symbol lookahead; // Lookahead symbol
+    private final TokenCursor tokens; // Tokens for the parser, the current token is the lookahead
 
     private final Program program; // Parsed program, as a list of record declarations, a list of variable declarations, and a list of procedures declarations
 
+    private final boolean recovering; // Whether syntax errors are collected instead of stopping the parse
+    private final ArrayList<ParserException> diagnostics = new ArrayList<>(); // Syntax errors found so far, in source order
+    private final SourcePositions.Batch spans; // Source spans of the nodes of the declaration being parsed
+
     public static class ParserException extends Exception {
+        private final int offset; // Source offset of the token where the error was found, -1 if unknown
+
         public ParserException(String message) {
+            this(message, -1);
+        }
+
+        public ParserException(String message, int offset) {
             super(message);
+            this.offset = offset;
+        }
+
+        /**
+         * Get the source offset of the token where the error was found
+         * @return Offset in the source, -1 if unknown
+         */
+        public int getOffset() {
+            return offset;
         }
     }
 
@@ -26,14 +49,64 @@ public class Parser {
      * @param lexer - Lexer for the parser
      */
     public Parser(Lexer lexer) {
-        this.lexer = lexer;
-        this.lookahead = lexer.currentSymbol;
-        this.program = new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        this(new SymbolCursor(lexer));
+    }
+
+    /**
+     * Constructor for Parser reading a packed token buffer
+     * @param tokens - Tokens of the whole source
+     */
+    public Parser(TokenBuffer tokens) {
+        this(tokens.cursor());
+        this.program.getPositions().setSource(tokens.getSource());
+    }
+
+    /**
+     * Constructor for Parser, stops at the first syntax error
+     * @param tokens - Cursor over the tokens to parse
+     */
+    public Parser(TokenCursor tokens) {
+        this(tokens, false);
+        if (!this.diagnostics.isEmpty()) {
+            throw new RuntimeException(this.diagnostics.get(0));
+        }
+    }
+
+    /**
+     * Constructor for Parser
+     * When recovering, the parser skips to the next statement or declaration after a syntax error and keeps going,
+     * so that every error of the source is found in one pass and the program holds what could be parsed
+     * @param tokens - Cursor over the tokens to parse
+     * @param recovering - true to collect every syntax error in getDiagnostics(), false to stop at the first one, which is then the only diagnostic
+     */
+    public Parser(TokenCursor tokens, boolean recovering) {
+        this(tokens, new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()), recovering);
+        parseAll();
+    }
+
+    /**
+     * Constructor for Parser, without parsing anything yet
+     * @param tokens - Cursor over the tokens to parse
+     * @param program - Program the declarations are added to, and where assignments look up their global
+     * @param recovering - Whether syntax errors are collected instead of stopping the parse
+     */
+    Parser(TokenCursor tokens, Program program, boolean recovering) {
+        this.tokens = tokens;
+        this.recovering = recovering;
+        this.program = program;
+        this.spans = program.getPositions().batch();
+    }
+
+    /**
+     * Parses the whole program, a syntax error the parser does not recover from is added to the diagnostics
+     */
+    void parseAll() {
         try {
             parseProgram();
         } catch (ParserException e) {
-            throw new RuntimeException(e);
+            this.diagnostics.add(e);
         }
+        this.program.getPositions().trim();
     }
 
     /**
@@ -41,14 +114,25 @@ public class Parser {
      * @param token - Token to match
      * @throws ParserException - If the token doesn't match
      */
-    private Symbol match(Lexer.Token token) throws ParserException {
-        if (lookahead.getToken() != token) {
-            throw new ParserException("Expected " + token + " but got " + lookahead.getToken());
-        } else {
-            Symbol matchingSymbol = lookahead;
-            this.lookahead = lexer.getNextSymbol();
-            return matchingSymbol;
+    private void match(Lexer.Token token) throws ParserException {
+        if (tokens.token() != token) {
+            throw new ParserException("Expected " + token + " but got " + tokens.token());
         }
+        tokens.advance();
+    }
+
+    /**
+     * Matches an identifier with the lookahead symbol
+     * @return Name - Interned name of the identifier
+     * @throws ParserException - If the lookahead is not an identifier
+     */
+    private Name matchIdentifier() throws ParserException {
+        if (tokens.token() != IDENTIFIER) {
+            throw new ParserException("Expected " + IDENTIFIER + " but got " + tokens.token());
+        }
+        Name name = tokens.name();
+        tokens.advance();
+        return name;
     }
 
     /**
@@ -56,18 +140,151 @@ public class Parser {
      * A program consists of a list of record declarations, a list of variable declarations, and a list of procedures declarations
      */
     public void parseProgram() throws ParserException {
-        while (lookahead.getToken() != EOF) {
-            switch (lookahead.getToken()) {
-                case KEYWORD_RECORD -> this.program.add(parseRecordDecl());
-                case KEYWORD_CONST, KEYWORD_VAR, KEYWORD_VAL -> this.program.add(parseGeneralDecl());
-                case IDENTIFIER -> this.program.add(parseAssignment());
-                case KEYWORD_PROC -> this.program.add(parseProcDecl());
-                case SYMBOL_SEMICOLON -> match(SYMBOL_SEMICOLON);
-                default -> throw new ParserException("Expected a declaration but got " + lookahead.getToken());
+        while (tokens.token() != EOF) {
+            int start = tokens.offset();
+            try {
+                GeneralDecl decl = parseDeclaration();
+                if (decl != null) {
+                    this.program.add(decl);
+                }
+            } catch (ParserException e) {
+                recover(e, start, false);
+            }
+        }
+    }
+
+    /**
+     * Parses a program one top-level declaration at a time, handing each to a consumer instead of keeping it
+     * Only the type of each global declaration is kept, for the assignments after it, so the memory used is bounded by
+     * the largest declaration rather than by the source
+     * @param tokens - Cursor over the tokens to parse
+     * @param consumer - Receives each declaration, in source order
+     * @throws ParserException - At the first syntax error, the declarations before it were already handed over
+     * @throws SemanticException - If the consumer rejects a declaration
+     */
+    public static void stream(TokenCursor tokens, DeclarationConsumer consumer) throws ParserException, SemanticException {
+        Parser parser = new Parser(tokens, new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()), false);
+        SourcePositions positions = parser.program.getPositions();
+        while (tokens.token() != EOF) {
+            GeneralDecl decl = parser.parseDeclaration();
+            if (decl != null) {
+                consumer.accept(decl);
+                parser.program.addSignature(decl);
             }
+            // The spans of a declaration are only needed while it is handled
+            positions.clear();
         }
     }
 
+    /**
+     * Parses a top-level declaration and records its source span
+     * Grammar: Declaration -> RecordDecl | GeneralDecl | Assignment | ProcDecl | ";"
+     * @return GeneralDecl - Declaration, or null for a lone ';'
+     */
+    GeneralDecl parseDeclaration() throws ParserException {
+        int start = tokens.offset();
+        GeneralDecl decl = switch (tokens.token()) {
+            case KEYWORD_RECORD -> parseRecordDecl();
+            case KEYWORD_CONST, KEYWORD_VAR, KEYWORD_VAL -> parseGeneralDecl();
+            case IDENTIFIER -> parseAssignment();
+            case KEYWORD_PROC -> parseProcDecl();
+            case SYMBOL_SEMICOLON -> {
+                match(SYMBOL_SEMICOLON);
+                yield null;
+            }
+            default -> throw new ParserException("Expected a declaration but got " + tokens.token());
+        };
+        if (decl != null) {
+            decl.setSpan(start, tokens.offset());
+            at(decl, start);
+        }
+        // The spans of a declaration are added together, so they share a segment of the table
+        spans.commit();
+        return decl;
+    }
+
+    /**
+     * Record the source span of a node, from its first token up to the lookahead
+     * @param node - Node just parsed
+     * @param start - Offset of its first token
+     * @return The node
+     */
+    <T> T at(T node, int start) {
+        return spans.add(node, start, tokens.offset());
+    }
+
+    /**
+     * Add the spans recorded since the last declaration to the table of the program
+     */
+    void commitSpans() {
+        spans.commit();
+    }
+
+    /**
+     * Record a syntax error and skip the tokens up to the next point where parsing can resume
+     * @param error - Syntax error
+     * @param start - Offset of the first token of the statement or declaration that failed
+     * @param inBlock - true if the error is in a statement of a block, false if it is in a top-level declaration
+     * @throws ParserException - The error itself, if the parser does not recover from errors
+     */
+    void recover(ParserException error, int start, boolean inBlock) throws ParserException {
+        if (!recovering) {
+            throw error;
+        }
+        // The token where the error was found is still the lookahead
+        diagnostics.add(new ParserException(error.getMessage(), tokens.offset()));
+        synchronize(inBlock);
+        if (tokens.offset() == start && tokens.token() != EOF) {
+            // Nothing was consumed, skip the offending token so that the same error is not found again
+            tokens.advance();
+        }
+    }
+
+    /**
+     * Panic mode, skip tokens until the end of the current statement or the start of the next declaration
+     * Stops after a ';' or after the '}' closing a block opened while skipping, and before a declaration keyword
+     * In a block, also stops before the '}' closing the block, which belongs to the enclosing statement
+     * @param inBlock - true if the error is in a statement of a block
+     */
+    private void synchronize(boolean inBlock) {
+        int depth = 0; // Number of blocks opened while skipping
+        while (tokens.token() != EOF) {
+            switch (tokens.token()) {
+                case SYMBOL_LEFT_BRACE -> depth++;
+                case SYMBOL_RIGHT_BRACE -> {
+                    if (depth == 0 && inBlock) {
+                        return;
+                    }
+                    depth = Math.max(depth - 1, 0);
+                    if (depth == 0) {
+                        tokens.advance();
+                        return;
+                    }
+                }
+                case SYMBOL_SEMICOLON -> {
+                    if (depth == 0) {
+                        tokens.advance();
+                        return;
+                    }
+                }
+                case KEYWORD_RECORD, KEYWORD_PROC, KEYWORD_VAR, KEYWORD_VAL, KEYWORD_CONST -> {
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+            }
+            tokens.advance();
+        }
+    }
+
+    /**
+     * Get the syntax errors found by a recovering parser
+     * @return List<ParserException> - Syntax errors in source order, empty if the source is correct
+     */
+    public List<ParserException> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
     /**
      * Parses a record declaration
      * Grammar: RecordDecl -> record Identifier { RecordFields } ;
@@ -75,11 +292,11 @@ public class Parser {
      */
     private RecordDecl parseRecordDecl() throws ParserException {
         match(KEYWORD_RECORD);
-        Symbol identifier = match(IDENTIFIER);
+        Name identifier = matchIdentifier();
         match(SYMBOL_LEFT_BRACE);
         ArrayList<RecordEntry> recordFields = parseRecordFields();
         match(SYMBOL_RIGHT_BRACE);
-        return new RecordDecl(identifier.getLexeme(), recordFields);
+        return new RecordDecl(identifier.getText(), recordFields);
     }
 
     /**
@@ -89,14 +306,16 @@ public class Parser {
      */
     private ArrayList<RecordEntry> parseRecordFields() throws ParserException {
         ArrayList<RecordEntry> recordFields = new ArrayList<>();
-        String identifier = match(IDENTIFIER).getLexeme();
+        int start = tokens.offset();
+        String identifier = matchIdentifier().getText();
         Type type = parseType();
-        recordFields.add(new RecordEntry(identifier, type.getName(), null));
+        recordFields.add(at(new RecordEntry(identifier, type.getName(), null), start));
         match(SYMBOL_SEMICOLON);
-        while (lookahead.getToken() != SYMBOL_RIGHT_BRACE) {
-            identifier = match(IDENTIFIER).getLexeme();
+        while (tokens.token() != SYMBOL_RIGHT_BRACE) {
+            start = tokens.offset();
+            identifier = matchIdentifier().getText();
             type = parseType();
-            recordFields.add(new RecordEntry(identifier, type.getName(), null));
+            recordFields.add(at(new RecordEntry(identifier, type.getName(), null), start));
             match(SYMBOL_SEMICOLON);
         }
         return recordFields;
@@ -107,17 +326,17 @@ public class Parser {
      * Grammar : Type -> "int" | "real" | "bool" | "string" | "void" | identifier
      */
     private Type parseType() throws ParserException {
-        if (lookahead.getToken() == VOID) {
+        if (tokens.token() == VOID) {
             match(VOID);
-            return new Type("void");
+            return Type.VOID;
         }
-        Symbol identifier = match(IDENTIFIER);
-        if (lookahead.getToken() == SYMBOL_LEFT_BRACKET) {
+        Name identifier = matchIdentifier();
+        if (tokens.token() == SYMBOL_LEFT_BRACKET) {
             match(SYMBOL_LEFT_BRACKET);
             match(SYMBOL_RIGHT_BRACKET);
-            return new Type(identifier.getLexeme() + "[]");
+            return Type.of(identifier.getText()).array();
         }
-        return new Type(identifier.getLexeme());
+        return Type.of(identifier.getText());
     }
 
     /**
@@ -126,50 +345,25 @@ public class Parser {
      * @return GeneralDecl - General declaration
      */
     private GeneralDecl parseGeneralDecl() throws ParserException {
-        Lexer.Token name = lookahead.getToken();
+        Lexer.Token name = tokens.token();
         match(name);
-        String identifier = match(IDENTIFIER).getLexeme();
+        String identifier = matchIdentifier().getText();
         Type type = parseType();
         // If the next symbol is a semicolon, it is a declaration without assignment
-        if (lookahead.getToken() == SYMBOL_SEMICOLON) {
+        if (tokens.token() == SYMBOL_SEMICOLON) {
             match(SYMBOL_SEMICOLON);
             return switch (name) {
                 case KEYWORD_CONST -> new ConstDecl(type, identifier, null);
                 case KEYWORD_VAR -> new VarDecl(type, identifier, null);
                 case KEYWORD_VAL -> new ValDecl(type, identifier, null);
-                default -> throw new ParserException("Expected a declaration but got " + lookahead.getToken());
+                default -> throw new ParserException("Expected a declaration but got " + tokens.token());
             };
         }
 
         // Otherwise, it is a declaration with assignment
         match(SYMBOL_ASSIGN);
-        Expr value;
-        if (lookahead.getToken() == IDENTIFIER){
-            // Array, record declaration or expression involving an identifier
-            String n = type.getName();
-            boolean isArray = n.contains("[]");
-            String arrayType = isArray ? n.substring(0, n.length() - 2) : n;
-            // If it is not an array, and the first letter is uppercase, it is a record declaration
-            if (!isArray && Character.isUpperCase(arrayType.charAt(0))) {
-                // Record declaration
-                match(IDENTIFIER);
-                value = parseRecordAssignment(n);
-            } else if (isArray) {
-                // In the case of an array declaration, the value between parenthesis is the length of the array
-                match(IDENTIFIER);
-                match(SYMBOL_LEFT_BRACKET);
-                match(SYMBOL_RIGHT_BRACKET);
-                match(SYMBOL_LEFT_PARENTHESIS);
-                Expr initialCapacity = parseExpr(null);
-                value = new ArrayExpr(new Type(arrayType), initialCapacity, new ArrayList<>());
-                match(SYMBOL_RIGHT_PARENTHESIS);
-            } else {
-                // Expression involving an identifier
-                value = parseExpr(new IdentifierExpr(n));
-            }
-        } else {
-            value = parseExpr(null);
-        }
+        // Record constructions and array creations starting with an identifier are parsed as expressions
+        Expr value = parseExpr();
         return switch (name) {
             case KEYWORD_CONST -> new ConstDecl(type, identifier, value);
             case KEYWORD_VAR -> new VarDecl(type, identifier, value);
@@ -183,27 +377,22 @@ public class Parser {
      * @return GeneralDecl - Assignment declaration object
      */
     private GeneralDecl parseAssignment() throws ParserException {
-        String identifier = match(IDENTIFIER).getLexeme();
-        Type type = null;
-        for (GeneralDecl decl : program.getGlobalDecls()) {
-            if (decl.getIdentifier().equals(identifier)) {
-                type = decl.getType();
-                break;
-            }
-            // Note : if no declaration is found, the type is null
-        }
+        String identifier = matchIdentifier().getText();
+        GeneralDecl decl = program.getGlobalDecl(identifier);
+        // Note : if no declaration is found, the type is null
+        Type type = decl == null ? null : decl.getType();
         if (type != null && type.getName().contains("[]")) {
             // Array assignment
             match(SYMBOL_LEFT_BRACKET);
-            Expr index = parseExpr(null);
+            Expr index = parseExpr();
             match(SYMBOL_RIGHT_BRACKET);
             match(SYMBOL_ASSIGN);
-            Expr value = parseExpr(null);
+            Expr value = parseExpr();
             return new ArrayAssignment(type, identifier, index, value);
         } else {
             // Simple assignment
             match(SYMBOL_ASSIGN);
-            Expr value = parseExpr(null);
+            Expr value = parseExpr();
             return new Assignment(type, identifier, value);
         }
     }
@@ -215,15 +404,23 @@ public class Parser {
      */
     private ProcDecl parseProcDecl() throws ParserException {
         match(KEYWORD_PROC);
-        String identifier = match(IDENTIFIER).getLexeme();
+        String identifier = matchIdentifier().getText();
         match(SYMBOL_LEFT_PARENTHESIS);
         ArrayList<Param> params = parseParams();
         match(SYMBOL_RIGHT_PARENTHESIS);
         Type type = parseType();
-        Block block = parseBlock();
+        Block block = parseProcBody();
         return new ProcDecl(identifier, params, type, block);
     }
 
+    /**
+     * Parses the body of a procedure, overridden by parsers that parse bodies separately
+     * @return Block - Body of the procedure
+     */
+    Block parseProcBody() throws ParserException {
+        return parseBlock();
+    }
+
     /**
      * Parses parameters
      * Grammar: Params -> e | Param MoreParams
@@ -231,9 +428,9 @@ public class Parser {
      */
     private ArrayList<Param> parseParams() throws ParserException {
         ArrayList<Param> params = new ArrayList<>();
-        if (lookahead.getToken() != SYMBOL_RIGHT_PARENTHESIS) {
+        if (tokens.token() != SYMBOL_RIGHT_PARENTHESIS) {
             params.add(parseParam());
-            while(lookahead.getToken() == SYMBOL_COMMA) {
+            while(tokens.token() == SYMBOL_COMMA) {
                 match(SYMBOL_COMMA);
                 params.add(parseParam());
             }
@@ -247,10 +444,11 @@ public class Parser {
      * @return Param - Parameter object
      */
     private Param parseParam() throws ParserException {
-        String name = lookahead.getLexeme();
+        int start = tokens.offset();
+        String name = tokens.lexeme();
         match(IDENTIFIER);
         Type type = parseType();
-        return new Param(name, type);
+        return at(new Param(name, type), start);
     }
 
 
@@ -259,11 +457,12 @@ public class Parser {
      * Grammar: Block -> "{" Stmts "}"
      * @return Block - Block object
      */
-    private Block parseBlock() throws ParserException {
+    Block parseBlock() throws ParserException {
+        int start = tokens.offset();
         match(SYMBOL_LEFT_BRACE);
         ArrayList<Object> statements = parseStmts();
         match(SYMBOL_RIGHT_BRACE);
-        return new Block(statements);
+        return at(new Block(statements), start);
     }
 
 
@@ -274,11 +473,18 @@ public class Parser {
      */
     private ArrayList<Object> parseStmts() throws ParserException {
         ArrayList<Object> statements = new ArrayList<>();
-        while(lookahead.getToken() != SYMBOL_RIGHT_BRACE) {
-            if (lookahead.getToken() == SYMBOL_SEMICOLON) {
+        // A block cut short by the end of the source or by the next declaration is left to fail on its missing '}'
+        while(tokens.token() != SYMBOL_RIGHT_BRACE && tokens.token() != EOF
+                && tokens.token() != KEYWORD_RECORD && tokens.token() != KEYWORD_PROC) {
+            if (tokens.token() == SYMBOL_SEMICOLON) {
                 match(SYMBOL_SEMICOLON);
             } else {
-                statements.add(parseStmt());
+                int start = tokens.offset();
+                try {
+                    statements.add(parseStmt());
+                } catch (ParserException e) {
+                    recover(e, start, true);
+                }
             }
         }
         return statements;
@@ -290,33 +496,34 @@ public class Parser {
      * @return Stmt - Statement object
      */
     private Object parseStmt() throws ParserException {
-        switch (lookahead.getToken()) {
+        int start = tokens.offset();
+        switch (tokens.token()) {
             case KEYWORD_IF -> {
-                return parseIf();
+                return at(parseIf(), start);
             }
             case KEYWORD_ELSE -> {
-                return parseElse();
+                return at(parseElse(), start);
             }
             case KEYWORD_WHILE -> {
-                return parseWhile();
+                return at(parseWhile(), start);
             }
             case KEYWORD_FOR -> {
-                return parseFor();
+                return at(parseFor(), start);
             }
             case IDENTIFIER -> {
-                return parseProcCall();
+                return at(parseProcCall(), start);
             }
             case KEYWORD_VAR, KEYWORD_VAL, KEYWORD_CONST -> {
-                return parseGeneralDecl();
+                return at(parseGeneralDecl(), start);
             }
             case KEYWORD_RETURN -> {
-                return parseReturn();
+                return at(parseReturn(), start);
             }
             case SYMBOL_SEMICOLON -> {
                 match(SYMBOL_SEMICOLON);
                 return parseStmt();
             }
-            default -> throw new ParserException("Expected a statement but got " + lookahead.getToken());
+            default -> throw new ParserException("Expected a statement but got " + tokens.token());
         }
     }
 
@@ -328,7 +535,7 @@ public class Parser {
     private Stmt parseIf() throws ParserException {
         match(KEYWORD_IF);
         match(SYMBOL_LEFT_PARENTHESIS);
-        Expr condition = parseExpr(null);
+        Expr condition = parseExpr();
         match(SYMBOL_RIGHT_PARENTHESIS);
         Block body = parseBlock();
         return new CtrlStruct(KEYWORD_IF, condition, body);
@@ -342,7 +549,7 @@ public class Parser {
     private Stmt parseElse() throws ParserException {
         match(KEYWORD_ELSE);
         match(SYMBOL_LEFT_PARENTHESIS);
-        Expr condition = parseExpr(null);
+        Expr condition = parseExpr();
         match(SYMBOL_RIGHT_PARENTHESIS);
         Block body = parseBlock();
         return new CtrlStruct(KEYWORD_ELSE, condition, body);
@@ -356,7 +563,7 @@ public class Parser {
     private Stmt parseWhile() throws ParserException {
         match(KEYWORD_WHILE);
         match(SYMBOL_LEFT_PARENTHESIS);
-        Expr condition = parseExpr(null);
+        Expr condition = parseExpr();
         match(SYMBOL_RIGHT_PARENTHESIS);
         Block body = parseBlock();
         return new CtrlStruct(KEYWORD_WHILE, condition, body);
@@ -369,11 +576,11 @@ public class Parser {
      */
     private Stmt parseFor() throws ParserException {
         match(KEYWORD_FOR);
-        Expr init = parseExpr(null);
+        Expr init = parseExpr();
         match(KEYWORD_TO);
-        Expr end = parseExpr(null);
+        Expr end = parseExpr();
         match(KEYWORD_BY);
-        Expr step = parseExpr(null);
+        Expr step = parseExpr();
         match(SYMBOL_RIGHT_PARENTHESIS);
         Block body = parseBlock();
         return new For(KEYWORD_FOR, init, end, step, body);
@@ -385,239 +592,193 @@ public class Parser {
      * @return Stmt - Procedure call object
      */
     private Stmt parseProcCall() throws ParserException {
-        String identifier = lookahead.getLexeme();
+        String identifier = tokens.lexeme();
         match(IDENTIFIER);
-        if (lookahead.getToken() == SYMBOL_LEFT_PARENTHESIS) {
+        if (tokens.token() == SYMBOL_LEFT_PARENTHESIS) {
             ArrayList<Expr> arguments = processBrackets(SYMBOL_LEFT_PARENTHESIS, SYMBOL_RIGHT_PARENTHESIS);
             match(SYMBOL_SEMICOLON);
             return new ProcCall(identifier, arguments);
         } else {
             match(SYMBOL_ASSIGN);
-            Expr expr = parseExpr(null);
+            Expr expr = parseExpr();
             match(SYMBOL_SEMICOLON);
             return new AssignmentStmt(identifier, expr);
         }
     }
 
+    /**
+     * Binding power of each binary operator, indexed by token ordinal, 0 for tokens that are not binary operators
+     * Levels follow code_example.lang, from the loosest: and/or, comparisons, additive, multiplicative
+     */
+    private static final int[] BINDING_POWERS = new int[Lexer.Token.values().length];
+
+    static {
+        for (Lexer.Token token : EnumSet.of(KEYWORD_AND, KEYWORD_OR)) {
+            BINDING_POWERS[token.ordinal()] = 1;
+        }
+        for (Lexer.Token token : EnumSet.of(SYMBOL_EQUAL, SYMBOL_NOT_EQUAL, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN,
+                SYMBOL_LESS_THAN_OR_EQUAL, SYMBOL_GREATER_THAN_OR_EQUAL)) {
+            BINDING_POWERS[token.ordinal()] = 2;
+        }
+        for (Lexer.Token token : EnumSet.of(SYMBOL_PLUS, SYMBOL_MINUS)) {
+            BINDING_POWERS[token.ordinal()] = 3;
+        }
+        for (Lexer.Token token : EnumSet.of(SYMBOL_MULTIPLY, SYMBOL_DIVIDE, SYMBOL_MODULO)) {
+            BINDING_POWERS[token.ordinal()] = 4;
+        }
+    }
+
     /**
      * Parses an expression
-     * Grammar: Expr -> "(" Expr ")"
-     *              | "-" Expr
-     *              | "not" Expr
-     *              | Expr ("*" | "/" | "%") Expr
+     * Grammar: Expr -> Expr ("and" | "or") Expr
+     *              | Expr ("==" | "<>" | "<" | ">" | "<=" | ">=") Expr
      *              | Expr ("+" | "-") Expr
-     *              | Expr ("<" | ">" | "<=" | ">=") Expr
-     *              | Expr ("==" | "<>") Expr
-     *              | Expr ("and" | "or") Expr
-     *              | Integer
-     *              | Real
-     *              | Boolean
-     *              | Strg
-     *              | Array
-     *              | Record
-     *              | identifier
-     * @param prec - Precedent expression
+     *              | Expr ("*" | "/" | "%") Expr
+     *              | "-" Expr
+     *              | Postfix
+     * Operators are listed from the loosest to the tightest, operators of the same level are left-associative
+     * @return Expr - Expression object
+     */
+    Expr parseExpr() throws ParserException {
+        return parseBinary(1);
+    }
+
+    /**
+     * Parses a chain of binary operators by precedence climbing
+     * Operators of the same level are folded in a loop, so a long chain only recurses once per precedence level
+     * @param minPower - Lowest binding power of the operators this call may consume
+     * @return Expr - Expression object
+     */
+    private Expr parseBinary(int minPower) throws ParserException {
+        int start = tokens.offset();
+        Expr left = parseUnary();
+        int power;
+        while ((power = BINDING_POWERS[tokens.token().ordinal()]) >= minPower) {
+            Lexer.Token operator = tokens.token();
+            match(operator);
+            // Left-associative, so the right operand only takes operators binding tighter than this one
+            Expr right = parseBinary(power + 1);
+            left = at(new BinaryExpr(left, right, operator), start);
+        }
+        return left;
+    }
+
+    /**
+     * Parses an expression with optional unary minus signs
+     * Grammar: Unary -> "-" Unary | Postfix
+     * The sign applies to the operand right after it, which gives the same value as the level of binary minus
+     * while keeping a / -b * c grouped as (a / -b) * c
+     * A negated literal is folded into the literal, any other operand is subtracted from zero
+     * @return Expr - Expression object
+     */
+    private Expr parseUnary() throws ParserException {
+        if (tokens.token() != SYMBOL_MINUS) {
+            return parsePostfix();
+        }
+        int start = tokens.offset();
+        match(SYMBOL_MINUS);
+        Expr operand = parseUnary();
+        if (operand instanceof IntegerExpr) {
+            return at(new IntegerExpr(-((IntegerExpr) operand).getValue()), start);
+        }
+        if (operand instanceof RealExpr) {
+            return at(new RealExpr(-((RealExpr) operand).getValue()), start);
+        }
+        // The zero has no token of its own, it spans the whole negation
+        return at(new BinaryExpr(at(new IntegerExpr(0), start), operand, SYMBOL_MINUS), start);
+    }
+
+    /**
+     * Parses a primary expression followed by record field accesses
+     * Grammar: Postfix -> Primary | Postfix "." identifier
      * @return Expr - Expression object
      */
-    private Expr parseExpr(Expr prec) throws ParserException {
-        ArrayList<Lexer.Token> operators = new ArrayList<>(Arrays.asList(SYMBOL_MINUS, SYMBOL_PLUS, SYMBOL_MULTIPLY,
-                SYMBOL_DIVIDE, SYMBOL_MODULO, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN, SYMBOL_LESS_THAN_OR_EQUAL,
-                SYMBOL_GREATER_THAN_OR_EQUAL, SYMBOL_EQUAL, SYMBOL_NOT_EQUAL, KEYWORD_AND, KEYWORD_OR));
-        switch (lookahead.getToken()) {
+    private Expr parsePostfix() throws ParserException {
+        int start = tokens.offset();
+        Expr expr = parsePrimary();
+        while (tokens.token() == SYMBOL_DOT) {
+            match(SYMBOL_DOT);
+            int field = tokens.offset();
+            IdentifierExpr identifier = at(new IdentifierExpr(matchIdentifier()), field);
+            expr = at(new RecordAccess(expr, identifier), start);
+        }
+        return expr;
+    }
+
+    /**
+     * Parses a primary expression
+     * Grammar: Primary -> "(" Expr ")"
+     *                 | Integer
+     *                 | Real
+     *                 | Boolean
+     *                 | Strg
+     *                 | Array
+     *                 | identifier "(" Exprs ")"
+     *                 | identifier "[" "]" "(" Expr ")"
+     *                 | identifier "[" Expr "]"
+     *                 | identifier
+     * @return Expr - Expression object
+     */
+    private Expr parsePrimary() throws ParserException {
+        int start = tokens.offset();
+        switch (tokens.token()) {
             case SYMBOL_LEFT_PARENTHESIS -> {
                 match(SYMBOL_LEFT_PARENTHESIS);
-                Expr expr = parseExpr(null);
-                List<Lexer.Token> op = List.of(SYMBOL_MINUS, SYMBOL_PLUS, SYMBOL_MULTIPLY, SYMBOL_DIVIDE, SYMBOL_MODULO, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN, SYMBOL_LESS_THAN_OR_EQUAL, SYMBOL_GREATER_THAN_OR_EQUAL, SYMBOL_EQUAL);
-                if (lookahead.getToken() == SYMBOL_RIGHT_PARENTHESIS) {
-                    match(SYMBOL_RIGHT_PARENTHESIS);
-                } else if (op.contains(lookahead.getToken())) {
-                    Lexer.Token operator = lookahead.getToken();
-                    match(operator);
-                    expr = parseExpr(new BinaryExpr(expr, null, operator));
-                }
-                if (operators.contains(lookahead.getToken())) {
-                    expr = parseExpr(expr);
-                    if (lookahead.getToken() == SYMBOL_RIGHT_PARENTHESIS) {
-                        match(SYMBOL_RIGHT_PARENTHESIS);
-                    }
-                }
+                Expr expr = parseExpr();
+                match(SYMBOL_RIGHT_PARENTHESIS);
                 return expr;
             }
-            case SYMBOL_MINUS, SYMBOL_PLUS, SYMBOL_MULTIPLY, SYMBOL_DIVIDE, SYMBOL_MODULO, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN, SYMBOL_LESS_THAN_OR_EQUAL, SYMBOL_GREATER_THAN_OR_EQUAL, SYMBOL_EQUAL, KEYWORD_AND, KEYWORD_OR -> {
-                Lexer.Token operator = lookahead.getToken();
-                match(operator);
-                if (prec != null) {
-                    return parseExpr(new BinaryExpr(prec, null, operator));
-                } else {
-                    return parseExpr(prec);
-                }
-            }
             case INTEGER -> {
-                int value = Integer.parseInt(lookahead.getLexeme());
+                int value = Integer.parseInt(tokens.lexeme());
                 match(INTEGER);
-                if (prec != null) {
-                    if (prec instanceof BinaryExpr) {
-                        return parseExpr(new BinaryExpr(((BinaryExpr) prec).getLeft(), new IntegerExpr(value), ((BinaryExpr) prec).getOperator()));
-                    } else {
-                        return parseExpr(new BinaryExpr(prec, new IntegerExpr(value), lookahead.getToken()));
-                    }
-                } else if (lookahead.getToken() == SYMBOL_SEMICOLON || lookahead.getToken() == SYMBOL_RIGHT_PARENTHESIS){
-                    return new IntegerExpr(value);
-                } else if (operators.contains(lookahead.getToken())) {
-                    Lexer.Token operator = lookahead.getToken();
-                    match(operator);
-                    return parseExpr(new BinaryExpr(new IntegerExpr(value), null, operator));
-                } else {
-                    return parseExpr(new IntegerExpr(value));
-                }
+                return at(new IntegerExpr(value), start);
             }
             case REAL -> {
-                double value = Double.parseDouble(lookahead.getLexeme());
+                double value = Double.parseDouble(tokens.lexeme());
                 match(REAL);
-                if (prec != null) {
-                    if (prec instanceof BinaryExpr) {
-                        return parseExpr(new BinaryExpr(((BinaryExpr) prec).getLeft(), new RealExpr(value), ((BinaryExpr) prec).getOperator()));
-                    } else {
-                        return parseExpr(new BinaryExpr(prec, new RealExpr(value), lookahead.getToken()));
-                    }
-                } else if (lookahead.getToken() == SYMBOL_SEMICOLON){
-                    return new RealExpr(value);
-                } else if (operators.contains(lookahead.getToken())) {
-                    Lexer.Token operator = lookahead.getToken();
-                    match(operator);
-                    return parseExpr(new BinaryExpr(new RealExpr(value), null, operator));
-                } else {
-                    return parseExpr(new RealExpr(value));
-                }
+                return at(new RealExpr(value), start);
             }
             case BOOLEAN -> {
-                boolean value = Boolean.parseBoolean(lookahead.getLexeme());
+                boolean value = Boolean.parseBoolean(tokens.lexeme());
                 match(BOOLEAN);
-                if (prec != null) {
-                    if (prec instanceof BinaryExpr) {
-                        return parseExpr(new BinaryExpr(((BinaryExpr) prec).getLeft(), new BooleanExpr(value), ((BinaryExpr) prec).getOperator()));
-                    } else {
-                        return parseExpr(new BinaryExpr(prec, new BooleanExpr(value), lookahead.getToken()));
-                    }
-                } else if (lookahead.getToken() == SYMBOL_SEMICOLON){
-                    return new BooleanExpr(value);
-                } else if (operators.contains(lookahead.getToken())) {
-                    Lexer.Token operator = lookahead.getToken();
-                    match(operator);
-                    return parseExpr(new BinaryExpr(new BooleanExpr(value), null, operator));
-                } else {
-                    return parseExpr(new BooleanExpr(value));
-                }
+                return at(new BooleanExpr(value), start);
             }
             case STRING -> {
-                String value = lookahead.getLexeme();
+                String value = tokens.lexeme();
                 match(STRING);
-                if (prec != null) {
-                    if (prec instanceof BinaryExpr) {
-                        return parseExpr(new BinaryExpr(((BinaryExpr) prec).getLeft(), new StringExpr(value), ((BinaryExpr) prec).getOperator()));
-                    } else {
-                        return parseExpr(new BinaryExpr(prec, new StringExpr(value), lookahead.getToken()));
-                    }
-                } else if (lookahead.getToken() == SYMBOL_SEMICOLON){
-                    return new StringExpr(value);
-                } else if (operators.contains(lookahead.getToken())) {
-                    Lexer.Token operator = lookahead.getToken();
-                    match(operator);
-                    return parseExpr(new BinaryExpr(new StringExpr(value), null, operator));
-                } else {
-                    return parseExpr(new StringExpr(value));
-                }
+                return at(new StringExpr(value), start);
             }
             case SYMBOL_LEFT_BRACKET -> {
                 return parseArray(null);
             }
             case IDENTIFIER -> {
-                Symbol id = match(IDENTIFIER);
-                switch (lookahead.getToken()) {
-                    case SYMBOL_MINUS, SYMBOL_PLUS, SYMBOL_MULTIPLY, SYMBOL_DIVIDE, SYMBOL_MODULO, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN, SYMBOL_LESS_THAN_OR_EQUAL, SYMBOL_GREATER_THAN_OR_EQUAL, SYMBOL_EQUAL, KEYWORD_AND, KEYWORD_OR -> {
-                        return parseExpr(new IdentifierExpr(id.getLexeme()));
-                    }
-                    case SYMBOL_SEMICOLON -> {
-                        if (prec != null) {
-                            return parseExpr(new BinaryExpr(((BinaryExpr) prec).getLeft(), new IdentifierExpr(id.getLexeme()), ((BinaryExpr) prec).getOperator()));
-                        } else {
-                            return new IdentifierExpr(id.getLexeme());
-                        }
-                    }
-                    case SYMBOL_LEFT_PARENTHESIS -> {
-                        // Record declaration TODO: could be a function call
-                        return parseRecordAssignment(id.getLexeme());
-                    }
+                Name id = matchIdentifier();
+                if (tokens.token() == SYMBOL_LEFT_PARENTHESIS) {
+                    // Record declaration TODO: could be a function call
+                    return parseRecordAssignment(id.getText(), start);
                 }
-                if (lookahead.getToken() == SYMBOL_SEMICOLON) {
-                    return new IdentifierExpr(id.getLexeme());
-                } else if (prec != null) {
-                    Lexer.Token operator = lookahead.getToken();
-                    if (operators.contains(operator)) {
-                        match(operator);
-                        Expr right = parseExpr(new IdentifierExpr(lookahead.getLexeme()));
-                        return parseExpr(new BinaryExpr(prec, right, operator));
-                    } else {
-                        if (operator == SYMBOL_LEFT_BRACKET) {
-                            match(SYMBOL_LEFT_BRACKET);
-                            if (lookahead.getToken() == SYMBOL_RIGHT_BRACKET) {
-                                // Array declaration
-                                match(SYMBOL_RIGHT_BRACKET);
-                                match(SYMBOL_LEFT_PARENTHESIS);
-                                Expr initialCapacity = parseExpr(null);
-                                Expr right = parseExpr(new ArrayExpr(new Type(id.getLexeme()), initialCapacity, new ArrayList<>()));
-                                return parseExpr(new BinaryExpr(prec, right, operator));
-                            } else {
-                                // Array access
-                                Expr index = parseExpr(null);
-                                match(SYMBOL_RIGHT_BRACKET);
-                                Expr right = parseExpr(new ArrayAccessExpr(new Type(id.getLexeme()), index));
-                                return parseExpr(new BinaryExpr(prec, right, operator));
-                            }
-                        }
-                    }
-                } else if (lookahead.getToken() == SYMBOL_LEFT_BRACKET) {
-                    // Either an array declaration or an array access
-                    // In the case of an array declaration, the value between parenthesis is the length of the array
-                    // and in the case of an array access, the value between brackets is the index of the array
-                    match(SYMBOL_LEFT_BRACKET);
-                    if (lookahead.getToken() == SYMBOL_RIGHT_BRACKET) {
-                        // Array declaration
-                        match(SYMBOL_RIGHT_BRACKET);
-                        match(SYMBOL_LEFT_PARENTHESIS);
-                        Expr initialCapacity = parseExpr(null);
-                        return parseExpr(new ArrayExpr(new Type(id.getLexeme()), initialCapacity, new ArrayList<>()));
-                    } else {
-                        // Array access
-                        Expr index = parseExpr(null);
-                        match(SYMBOL_RIGHT_BRACKET);
-                        return parseExpr(new ArrayAccessExpr(new Type(id.getLexeme()), index));
-                    }
-                } else {
-                    return parseExpr(new IdentifierExpr(lookahead.getLexeme()));
+                if (tokens.token() != SYMBOL_LEFT_BRACKET) {
+                    return at(new IdentifierExpr(id), start);
                 }
-            }
-            case SYMBOL_RIGHT_PARENTHESIS -> {
-                match(SYMBOL_RIGHT_PARENTHESIS);
-                return prec;
-            }
-            case SYMBOL_SEMICOLON, SYMBOL_COMMA, SYMBOL_RIGHT_BRACKET -> {
-                return prec;
-            }
-            case SYMBOL_DOT -> {
-                match(SYMBOL_DOT);
-                String identifier = match(IDENTIFIER).getLexeme();
-                Lexer.Token operator = lookahead.getToken();
-                if (operators.contains(operator)) {
-                    match(operator);
-                    Expr right = parseExpr(null);
-                    return parseExpr(new BinaryExpr(new RecordAccess(prec, new IdentifierExpr(identifier)), right, operator));
+                // Either an array declaration or an array access
+                // In the case of an array declaration, the value between parenthesis is the length of the array
+                // and in the case of an array access, the value between brackets is the index of the array
+                match(SYMBOL_LEFT_BRACKET);
+                if (tokens.token() == SYMBOL_RIGHT_BRACKET) {
+                    // Array declaration
+                    match(SYMBOL_RIGHT_BRACKET);
+                    match(SYMBOL_LEFT_PARENTHESIS);
+                    Expr initialCapacity = parseExpr();
+                    match(SYMBOL_RIGHT_PARENTHESIS);
+                    return at(new ArrayExpr(Type.of(id.getText()), initialCapacity, new ArrayList<>()), start);
                 }
-                return parseExpr(new RecordAccess(prec, new IdentifierExpr(identifier)));
+                // Array access
+                Expr index = parseExpr();
+                match(SYMBOL_RIGHT_BRACKET);
+                return at(new ArrayAccessExpr(Type.of(id.getText()), index), start);
             }
-            default -> throw new ParserException("Expected an expression but got " + lookahead.getToken());
+            default -> throw new ParserException("Expected an expression but got " + tokens.token());
         }
-        return prec;
     }
 
     /**
@@ -626,28 +787,33 @@ public class Parser {
      * @return Expr - Array object
      */
     private Expr parseArray(Type type) throws ParserException {
+        int start = tokens.offset();
         if (type == null) {
             match(SYMBOL_LEFT_BRACKET);
             type = parseType();
             match(SYMBOL_RIGHT_BRACKET);
         }
         ArrayList<Expr> elements = processBrackets(SYMBOL_LEFT_BRACKET, SYMBOL_RIGHT_BRACKET);
-        return new ArrayExpr(type, new Expr("int"), elements);
+        // The length of a literal array has no token of its own, it spans the whole array
+        Expr length = new Expr(Type.INT);
+        return at(new ArrayExpr(type, at(length, start), elements), start);
     }
 
+    /**
+     * Parses a comma separated list of expressions between brackets
+     * Grammar: Exprs -> e | Expr ("," Expr)*
+     * @param symbolLeftBracket - Opening bracket
+     * @param symbolRightBracket - Closing bracket
+     * @return ArrayList<Expr> - List of expressions
+     */
     private ArrayList<Expr> processBrackets(Lexer.Token symbolLeftBracket, Lexer.Token symbolRightBracket) throws ParserException {
         match(symbolLeftBracket);
         ArrayList<Expr> elements = new ArrayList<>();
-        while (lookahead.getToken() != symbolRightBracket) {
-            if (lookahead.getToken() == INTEGER) {
-                // Array access (e.g. a[0])
-                elements.add(new IntegerExpr(Integer.parseInt(lookahead.getLexeme())));
-                match(INTEGER);
-            } else {
-                elements.add(parseExpr(null));
-                if (lookahead.getToken() == SYMBOL_COMMA) {
-                    match(SYMBOL_COMMA);
-                }
+        if (tokens.token() != symbolRightBracket) {
+            elements.add(parseExpr());
+            while (tokens.token() == SYMBOL_COMMA) {
+                match(SYMBOL_COMMA);
+                elements.add(parseExpr());
             }
         }
         match(symbolRightBracket);
@@ -657,23 +823,25 @@ public class Parser {
     /**
      * Parses a record
      * Grammar: Record -> record "(" Fields ")"
+     * @param record - Name of the record
+     * @param start - Offset of the name of the record
      * @return Expr - Record object
      */
-    private Expr parseRecordAssignment(String record) throws ParserException {
+    private Expr parseRecordAssignment(String record, int start) throws ParserException {
         match(SYMBOL_LEFT_PARENTHESIS);
         RecordExpr newRecord = new RecordExpr(record, new ArrayList<>());
         int i = 0;
-        while(lookahead.getToken() != SYMBOL_RIGHT_PARENTHESIS && lookahead.getToken() != SYMBOL_SEMICOLON) {
+        while(tokens.token() != SYMBOL_RIGHT_PARENTHESIS && tokens.token() != SYMBOL_SEMICOLON) {
             newRecord.content.add(parseRecordEntry(i));
-            if (lookahead.getToken() == SYMBOL_COMMA) {
+            if (tokens.token() == SYMBOL_COMMA) {
                 match(SYMBOL_COMMA);
             }
             i++;
         }
-        if (lookahead.getToken() == SYMBOL_RIGHT_PARENTHESIS) {
+        if (tokens.token() == SYMBOL_RIGHT_PARENTHESIS) {
             match(SYMBOL_RIGHT_PARENTHESIS);
         }
-        return newRecord;
+        return at(newRecord, start);
     }
 
     /**
@@ -682,8 +850,9 @@ public class Parser {
      */
     private RecordEntry parseRecordEntry(int index) throws ParserException {
         // Create a new record with the correct fields
-        Expr content = parseExpr(null);
-        return new RecordEntry(Integer.toString(index), content.getType().getName(), content);
+        int start = tokens.offset();
+        Expr content = parseExpr();
+        return at(new RecordEntry(Integer.toString(index), content.getType().getName(), content), start);
     }
 
     /**
@@ -708,8 +877,8 @@ public class Parser {
      */
     private Stmt parseReturn() throws ParserException {
         match(KEYWORD_RETURN);
-        Expr value = parseExpr(null);
-        if (lookahead.getToken() == SYMBOL_SEMICOLON) {
+        Expr value = parseExpr();
+        if (tokens.token() == SYMBOL_SEMICOLON) {
             // Consume the semicolon if it was not consumed by the parseExpr method
             match(SYMBOL_SEMICOLON);
         }
@@ -1,17 +1,21 @@
 package compiler.Parser;
 
 import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
 
 import java.util.ArrayList;
 
 public class ProcCall extends Stmt {
     // Grammar : ProcCall -> identifier ( Exprs )
     protected final String identifier;
+    private final Name identifierName; // Interned identifier of the procedure, compared by identity
     protected final ArrayList<Expr> args;
 
     public ProcCall(String identifier, ArrayList<Expr> args) {
         super(Lexer.Token.KEYWORD_PROC);
         this.identifier = identifier;
+        this.identifierName = identifier == null ? null : NameTable.shared().intern(identifier);
         this.args = args;
     }
 
@@ -19,6 +23,12 @@ public class ProcCall extends Stmt {
         return identifier;
     }
 
+    /**
+     * Get the interned identifier of the called procedure
+     * @return Name - Name of the procedure, the same instance as for every other use of the identifier
+     */
+    public Name getIdentifierName() { return identifierName; }
+
     public ArrayList<Expr> getArgs() {
         return args;
     }
@@ -38,10 +38,7 @@ public class ProcDecl extends GeneralDecl {
 
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
+        // The visitor walks the parameters and the body itself, in the scope of the procedure
         visitor.visit(this);
-        for (Param param : params) {
-            param.accept(visitor);
-        }
-        body.accept(visitor);
     }
 }
\ No newline at end of file
@@ -2,36 +2,286 @@ package compiler.Parser;
 
 import compiler.Exceptions.SemanticException;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 public class Program {
     // Grammar : program -> procDecl* constDecl* recordDecl* globalDecl*
     private final ArrayList<ProcDecl> procDecls;
     private final ArrayList<RecordDecl> recordDecls;
     private final ArrayList<GeneralDecl> globalDecls;
+    private final HashMap<String, GeneralDecl> globalIndex = new HashMap<>(); // First global declaration of each identifier
+    private List<GeneralDecl> content; // Cached view of all declarations, null when a declaration was added since it was built
+    private final SourcePositions positions = new SourcePositions(); // Source spans of the parsed nodes
+    private volatile ByteBuffer serializedPositions; // Spans section of a deserialized program, null once it is decoded
+
     public Program(ArrayList<ProcDecl> procDeclDecls, ArrayList<RecordDecl> recordDecl, ArrayList<GeneralDecl> globalDecls) {
         this.procDecls = procDeclDecls;
         this.recordDecls = recordDecl;
         this.globalDecls = globalDecls;
+        for (GeneralDecl globalDecl : globalDecls) {
+            globalIndex.putIfAbsent(globalDecl.getIdentifier(), globalDecl);
+        }
     }
-    public ArrayList<GeneralDecl> getContent() {
-        ArrayList<GeneralDecl> content = new ArrayList<>();
-        content.addAll(procDecls);
-        content.addAll(recordDecls);
-        content.addAll(globalDecls);
+
+    /**
+     * Get all the declarations, procedures first, then records, then global declarations, each in source order
+     * The list is built once and shared until the next declaration is added
+     * @return List<GeneralDecl> - Unmodifiable list of the declarations
+     */
+    public List<GeneralDecl> getContent() {
+        if (content == null) {
+            ArrayList<GeneralDecl> all = new ArrayList<>(procDecls.size() + recordDecls.size() + globalDecls.size());
+            all.addAll(procDecls);
+            all.addAll(recordDecls);
+            all.addAll(globalDecls);
+            content = Collections.unmodifiableList(all);
+        }
         return content;
     }
 
-    public ArrayList<GeneralDecl> getGlobalDecls() { return globalDecls; }
+    /**
+     * Get all the declarations in source order, the order in which they are compiled
+     * Each kind of declaration is already in source order, so the three lists are merged by start offset. A program
+     * parsed without source spans keeps the order of getContent
+     * @return List<GeneralDecl> - Declarations in source order
+     */
+    public List<GeneralDecl> getSourceOrder() {
+        List<GeneralDecl> all = getContent();
+        for (GeneralDecl decl : all) {
+            if (decl.getStart() < 0) {
+                return all;
+            }
+        }
+        ArrayList<GeneralDecl> ordered = new ArrayList<>(all.size());
+        int proc = 0;
+        int record = 0;
+        int global = 0;
+        while (ordered.size() < all.size()) {
+            GeneralDecl next = null;
+            if (proc < procDecls.size()) {
+                next = procDecls.get(proc);
+            }
+            if (record < recordDecls.size() && (next == null || recordDecls.get(record).getStart() < next.getStart())) {
+                next = recordDecls.get(record);
+            }
+            if (global < globalDecls.size() && (next == null || globalDecls.get(global).getStart() < next.getStart())) {
+                next = globalDecls.get(global);
+            }
+            if (next instanceof ProcDecl) {
+                proc++;
+            } else if (next instanceof RecordDecl) {
+                record++;
+            } else {
+                global++;
+            }
+            ordered.add(next);
+        }
+        return Collections.unmodifiableList(ordered);
+    }
+
+    public List<ProcDecl> getProcDecls() { return Collections.unmodifiableList(procDecls); }
+
+    public List<RecordDecl> getRecordDecls() { return Collections.unmodifiableList(recordDecls); }
+
+    public List<GeneralDecl> getGlobalDecls() { return Collections.unmodifiableList(globalDecls); }
+
+    /**
+     * Get the source spans of the nodes of the program, indexed by the position of each node
+     * The spans of a deserialized program are decoded by the first call
+     * @return SourcePositions - Table of the spans, empty if the program was not parsed from a source
+     * @throws IllegalArgumentException - If the spans of a deserialized program are corrupted
+     */
+    public SourcePositions getPositions() {
+        if (serializedPositions != null) {
+            readPositions();
+        }
+        return positions;
+    }
+
+    /**
+     * Decode the spans section of a deserialized program, once even if several threads ask for its spans
+     */
+    private synchronized void readPositions() {
+        if (serializedPositions != null) {
+            try {
+                AstSerializer.readPositions(serializedPositions.duplicate(), positions);
+            } catch (IllegalArgumentException e) {
+                // Drop the spans read so far, the next call fails the same way
+                positions.clear();
+                throw e;
+            }
+            serializedPositions = null;
+        }
+    }
+
+    /**
+     * Keep the spans section of a deserialized program, to decode it when its spans are first used
+     * @param section - Spans section written by AstSerializer
+     */
+    void setSerializedPositions(ByteBuffer section) { serializedPositions = section; }
+
+    /**
+     * Find the first global declaration or assignment of an identifier
+     * @param identifier - Identifier to look up
+     * @return GeneralDecl - Declaration, or null if the identifier has no global declaration
+     */
+    public GeneralDecl getGlobalDecl(String identifier) {
+        return globalIndex.get(identifier);
+    }
 
     public void add(ProcDecl procDecl) {
         procDecls.add(procDecl);
+        content = null;
     }
 
-    public void add(RecordDecl recordDecl) { recordDecls.add(recordDecl); }
+    public void add(RecordDecl recordDecl) {
+        recordDecls.add(recordDecl);
+        content = null;
+    }
 
     public void add(GeneralDecl globalDecl) {
-        globalDecls.add(globalDecl);
+        if (globalDecl instanceof ProcDecl procDecl) {
+            add(procDecl);
+        } else if (globalDecl instanceof RecordDecl recordDecl) {
+            add(recordDecl);
+        } else {
+            globalDecls.add(globalDecl);
+            globalIndex.putIfAbsent(globalDecl.getIdentifier(), globalDecl);
+            content = null;
+        }
+    }
+
+    /**
+     * Remember the type of a global declaration without keeping the declaration, for a program that is streamed
+     * The type is all the parser needs to parse the assignments after it
+     * @param decl - Top-level declaration handed over by the parser
+     */
+    void addSignature(GeneralDecl decl) {
+        if (isGlobal(decl) && !globalIndex.containsKey(decl.getIdentifier())) {
+            globalIndex.put(decl.getIdentifier(), new VarDecl(decl.getType(), decl.getIdentifier(), null));
+        }
+    }
+
+    /**
+     * Replace consecutive top-level declarations by others, keeping each list in source order
+     * @param removed - Declarations to remove, consecutive in the source
+     * @param added - Declarations to insert in their place, in source order, with spans in the edited source
+     * @param moved - Declarations after the edit, their spans are moved to the edited source
+     * @param shift - Number of characters added by the edit, negative if it removed characters
+     */
+    void splice(List<GeneralDecl> removed, List<GeneralDecl> added, List<GeneralDecl> moved, int shift) {
+        // Identifiers whose first global declaration goes away
+        HashSet<String> unindexed = new HashSet<>();
+        for (GeneralDecl decl : removed) {
+            if (isGlobal(decl) && globalIndex.get(decl.getIdentifier()) == decl) {
+                globalIndex.remove(decl.getIdentifier());
+                unindexed.add(decl.getIdentifier());
+            }
+        }
+        removeRange(procDecls, removed);
+        removeRange(recordDecls, removed);
+        int region = removeRange(globalDecls, removed); // Where the removed global declarations were
+
+        // Spans of the declarations before the edit do not change, so the lists stay sorted
+        for (GeneralDecl decl : moved) {
+            decl.setSpan(decl.getStart() + shift, decl.getEnd() + shift);
+        }
+        for (GeneralDecl decl : added) {
+            if (decl instanceof ProcDecl procDecl) {
+                procDecls.add(insertionPoint(procDecls, decl), procDecl);
+            } else if (decl instanceof RecordDecl recordDecl) {
+                recordDecls.add(insertionPoint(recordDecls, decl), recordDecl);
+            } else {
+                globalDecls.add(insertionPoint(globalDecls, decl), decl);
+                // An identifier without an indexed declaration is only declared after the edit, if at all
+                GeneralDecl first = globalIndex.get(decl.getIdentifier());
+                if (first == null || first.getStart() > decl.getStart()) {
+                    globalIndex.put(decl.getIdentifier(), decl);
+                }
+                unindexed.remove(decl.getIdentifier());
+            }
+        }
+        // The first declaration of an identifier that lost it, if there is one, is after the edit
+        for (String identifier : unindexed) {
+            for (int i = region; i < globalDecls.size(); i++) {
+                if (globalDecls.get(i).getIdentifier().equals(identifier)) {
+                    globalIndex.put(identifier, globalDecls.get(i));
+                    break;
+                }
+            }
+        }
+        content = null;
+    }
+
+    /**
+     * Check whether a declaration is in the global declarations
+     * @param decl - Top-level declaration
+     * @return true unless the declaration is a procedure or a record
+     */
+    private static boolean isGlobal(GeneralDecl decl) {
+        return !(decl instanceof ProcDecl) && !(decl instanceof RecordDecl);
+    }
+
+    /**
+     * Remove the declarations of a list that are among the removed ones, they are consecutive in the list
+     * @param decls - List of declarations of one kind, sorted by start offset
+     * @param removed - Declarations to remove
+     * @return Index where the declarations were, -1 if none of them was in the list
+     */
+    private static int removeRange(ArrayList<? extends GeneralDecl> decls, List<GeneralDecl> removed) {
+        int first = -1;
+        int end = -1;
+        for (GeneralDecl decl : removed) {
+            if (first == -1) {
+                int index = indexOf(decls, decl);
+                if (index < decls.size()) {
+                    first = index;
+                    end = index + 1;
+                }
+            } else if (end < decls.size() && decls.get(end) == decl) {
+                end++;
+            }
+        }
+        if (first != -1) {
+            decls.subList(first, end).clear();
+        }
+        return first;
+    }
+
+    /**
+     * Find a declaration in a list by identity
+     * @param decls - List of declarations
+     * @param decl - Declaration to find
+     * @return Index of the declaration, or the size of the list if it is not in it
+     */
+    private static int indexOf(List<? extends GeneralDecl> decls, GeneralDecl decl) {
+        int index = insertionPoint(decls, decl);
+        return index < decls.size() && decls.get(index) == decl ? index : decls.size();
+    }
+
+    /**
+     * Find where a declaration goes in a list sorted by source offset
+     * @param decls - List of declarations sorted by start offset
+     * @param decl - Declaration to place
+     * @return Index of the first declaration of the list starting at or after the declaration
+     */
+    private static int insertionPoint(List<? extends GeneralDecl> decls, GeneralDecl decl) {
+        int low = 0;
+        int high = decls.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (decls.get(middle).getStart() < decl.getStart()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     public void accept(ASTVisitor visitor) throws SemanticException {
@@ -46,4 +296,4 @@ public class Program {
                 ", globalDecls=" + globalDecls +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -5,9 +5,11 @@ import compiler.Exceptions.SemanticException;
 public class RecordAccess extends Expr {
     protected final Expr identifier; // Identifier of the record (i.e. 'a', 'p[0]')
     protected final Expr field; // Field of the record (i.e. 'x', 'y')
+    private RecordLayout layout; // Layout of the accessed record, set by the semantic analysis
+    private int fieldIndex = -1; // Index of the field in the layout
 
     public RecordAccess(Expr identifier, Expr field) {
-        super("RecordAccess");
+        super(Type.RECORD_ACCESS);
         // i.e. a.x, p[0].y
         this.identifier = identifier;
         this.field = field;
@@ -17,6 +19,22 @@ public class RecordAccess extends Expr {
 
     public Expr getField() { return field; }
 
+    public RecordLayout getLayout() { return layout; }
+
+    public int getFieldIndex() { return fieldIndex; }
+
+    /**
+     * Resolve the accessed field, typing the access with the type of the field
+     * @param layout - Layout of the accessed record
+     * @param fieldIndex - Index of the field in the layout
+     */
+    public void resolve(RecordLayout layout, int fieldIndex) {
+        this.layout = layout;
+        this.fieldIndex = fieldIndex;
+        this.type = layout.getFieldType(fieldIndex);
+        setResolvedType(this.type);
+    }
+
     public String toString() {
         return identifier + "." + field;
     }
@@ -1,5 +1,6 @@
 package compiler.Parser;
 
+import compiler.Exceptions.DuplicateFieldException;
 import compiler.Exceptions.SemanticException;
 import compiler.Lexer.Lexer;
 
@@ -8,6 +9,7 @@ import java.util.ArrayList;
 public class RecordDecl extends GeneralDecl{
     protected final String name;
     protected final ArrayList<RecordEntry> fields;
+    private RecordLayout layout; // Layout of the fields, built on first use
 
     public RecordDecl(String identifier, ArrayList<RecordEntry> fields) {
         super(Lexer.Token.KEYWORD_RECORD, null, identifier, null);
@@ -19,6 +21,18 @@ public class RecordDecl extends GeneralDecl{
 
     public ArrayList<RecordEntry> getFields() { return fields; }
 
+    /**
+     * Get the layout of the record, built once from its fields
+     * @return RecordLayout - Layout of the record
+     * @throws DuplicateFieldException - If two fields have the same name
+     */
+    public RecordLayout getLayout() throws DuplicateFieldException {
+        if (layout == null) {
+            layout = new RecordLayout(name, fields);
+        }
+        return layout;
+    }
+
     public String toString() {
         return "RecordDecl{" +
                 "name=" + name +
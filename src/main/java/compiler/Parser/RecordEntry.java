@@ -6,9 +6,9 @@ public class RecordEntry extends Expr {
     protected Expr value;
 
     public RecordEntry(String identifier, String type, Expr value) {
-        super("RecordEntry");
+        super(Type.RECORD_ENTRY);
         this.identifier = identifier;
-        this.type = new Type(type);
+        this.type = Type.of(type);
         this.value = value;
     }
 
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 
 public class RecordExpr extends Expr {
     protected final ArrayList<RecordEntry> content; // Content of the record
+    private RecordLayout layout; // Layout of the record type, set by the semantic analysis
 
     public RecordExpr(String type, ArrayList<RecordEntry> content) {
         super(type);
@@ -15,6 +16,10 @@ public class RecordExpr extends Expr {
         return content;
     }
 
+    public RecordLayout getLayout() { return layout; }
+
+    public void setLayout(RecordLayout layout) { this.layout = layout; }
+
     @Override
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
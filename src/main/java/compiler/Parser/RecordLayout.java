@@ -0,0 +1,118 @@
+package compiler.Parser;
+
+import compiler.Exceptions.DuplicateFieldException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Layout of a record, built once from its declaration
+ * Fields are numbered in declaration order, which is also the order of the entries of a record construction, of the
+ * fields of the generated class and of the parameters of its constructor
+ */
+public final class RecordLayout {
+    private final String name; // Name of the record, also the internal name of its generated class
+    private final String[] fieldNames; // Name of each field
+    private final Type[] fieldTypes; // Type of each field
+    private final String[] descriptors; // JVM descriptor of each field
+    private final HashMap<String, Integer> indexes; // Index of each field by name
+    private final String constructorDescriptor; // Descriptor of the constructor taking every field in order
+
+    /**
+     * Constructor for RecordLayout
+     * @param name - Name of the record
+     * @param fields - Fields of the record, in declaration order
+     * @throws DuplicateFieldException - If two fields have the same name
+     */
+    public RecordLayout(String name, ArrayList<RecordEntry> fields) throws DuplicateFieldException {
+        int count = fields.size();
+        this.name = name;
+        this.fieldNames = new String[count];
+        this.fieldTypes = new Type[count];
+        this.descriptors = new String[count];
+        this.indexes = new HashMap<>(count * 2);
+        StringBuilder constructor = new StringBuilder("(");
+        boolean generable = true; // Whether every field type has a descriptor
+        for (int i = 0; i < count; i++) {
+            RecordEntry field = fields.get(i);
+            if (this.indexes.putIfAbsent(field.getIdentifier(), i) != null) {
+                throw new DuplicateFieldException("Duplicate field name in record " + name + ": " + field.getIdentifier());
+            }
+            this.fieldNames[i] = field.getIdentifier();
+            this.fieldTypes[i] = field.getType();
+            this.descriptors[i] = field.getType().getDescriptor();
+            generable &= this.descriptors[i] != null;
+            constructor.append(this.descriptors[i]);
+        }
+        this.constructorDescriptor = generable ? constructor.append(")V").toString() : null;
+    }
+
+    /**
+     * Get the name of the record
+     * @return name - Name of the record
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the internal name of the class generated for the record
+     * @return String - Internal name of the class
+     */
+    public String getInternalName() {
+        return name;
+    }
+
+    /**
+     * Get the number of fields of the record
+     * @return int - Number of fields
+     */
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    /**
+     * Get the index of a field
+     * @param field - Name of the field
+     * @return int - Index of the field, or -1 if the record has no such field
+     */
+    public int indexOf(String field) {
+        Integer index = indexes.get(field);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Get the name of a field
+     * @param index - Index of the field
+     * @return String - Name of the field
+     */
+    public String getFieldName(int index) {
+        return fieldNames[index];
+    }
+
+    /**
+     * Get the type of a field
+     * @param index - Index of the field
+     * @return Type - Type of the field
+     */
+    public Type getFieldType(int index) {
+        return fieldTypes[index];
+    }
+
+    /**
+     * Get the JVM descriptor of a field
+     * @param index - Index of the field
+     * @return String - Descriptor of the field, null if its type has none
+     */
+    public String getFieldDescriptor(int index) {
+        return descriptors[index];
+    }
+
+    /**
+     * Get the descriptor of the constructor of the generated class, taking every field in order
+     * @return String - Method descriptor of the constructor, null if a field type has no descriptor
+     */
+    public String getConstructorDescriptor() {
+        return constructorDescriptor;
+    }
+}
@@ -0,0 +1,17 @@
+package compiler.Parser;
+
+/**
+ * Type of the values of a record, interned by Type
+ * Records are all generated as instances of one runtime class, so every record type has the same descriptor
+ */
+public final class RecordType extends Type {
+    public static final String DESCRIPTOR = "Lcompiler/CodeGenerator/Record;"; // Descriptor of every record
+
+    /**
+     * Constructor for RecordType, only called by Type
+     * @param name - Name of the record
+     */
+    RecordType(String name) {
+        super(name, DESCRIPTOR);
+    }
+}
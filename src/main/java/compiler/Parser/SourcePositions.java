@@ -0,0 +1,408 @@
+package compiler.Parser;
+
+import java.util.Arrays;
+
+/**
+ * Source spans of the nodes of a program, and the line starts of its source
+ * A node holds the index of its span in this table. The span starts at the first token of the node and ends at the
+ * token after it, as the spans of top-level declarations do.
+ * Spans are added in segments, one per top-level declaration or procedure body. A span is stored in 3 bytes, as the
+ * distance of its start from the first offset of its segment and its length. The rare spans too far from their segment or
+ * too long are kept whole in an overflow table.
+ */
+public final class SourcePositions {
+    private static final int NO_DELTA = Character.MAX_VALUE; // Delta of a span kept in the overflow table
+    private static final int NO_LENGTH = 0xFF; // Length of a span kept in the overflow table
+
+    private char[] deltas = new char[1 << 10]; // Start of each span minus the base of its segment
+    private byte[] lengths = new byte[1 << 10]; // Length of each span, unsigned
+    private int size; // Number of spans
+    private int[] segmentFirsts = new int[1 << 6]; // Index of the first span of each segment, increasing
+    private int[] segmentBases = new int[1 << 6]; // Smallest start of the spans of each segment
+    private int segmentCount; // Number of segments
+    private int[] overflowIndices = new int[1 << 4]; // Index of each span kept whole, increasing
+    private int[] overflowStarts = new int[1 << 4]; // Start of each span kept whole
+    private int[] overflowEnds = new int[1 << 4]; // End of each span kept whole
+    private int overflowCount; // Number of spans kept whole
+    private int[] lineStarts; // Offset of the first character of each line, null if the source is unknown
+    private int lineCount; // Number of lines
+
+    /**
+     * Get the number of spans
+     * @return Number of spans added, including those of nodes no longer in the program
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the start of a span
+     * @param index - Index of the span, as held by its node
+     * @return Offset of the first character of the node
+     */
+    public synchronized int getStart(int index) {
+        int overflow = overflowOf(index);
+        if (overflow >= 0) {
+            return this.overflowStarts[overflow];
+        }
+        return segmentBase(index) + this.deltas[index];
+    }
+
+    /**
+     * Get the end of a span
+     * @param index - Index of the span, as held by its node
+     * @return Offset of the token after the node
+     */
+    public synchronized int getEnd(int index) {
+        int overflow = overflowOf(index);
+        if (overflow >= 0) {
+            return this.overflowEnds[overflow];
+        }
+        return segmentBase(index) + this.deltas[index] + (this.lengths[index] & 0xFF);
+    }
+
+    /**
+     * Get the line of an offset
+     * @param offset - Offset in the source
+     * @return Line of the offset, from 1, or -1 if the source of the program is unknown
+     */
+    public synchronized int getLine(int offset) {
+        if (this.lineStarts == null) {
+            return -1;
+        }
+        return lineIndex(offset) + 1;
+    }
+
+    /**
+     * Get the column of an offset
+     * @param offset - Offset in the source
+     * @return Column of the offset in its line, from 1, or -1 if the source of the program is unknown
+     */
+    public synchronized int getColumn(int offset) {
+        if (this.lineStarts == null) {
+            return -1;
+        }
+        return offset - this.lineStarts[lineIndex(offset)] + 1;
+    }
+
+    /**
+     * Find the line of an offset
+     * @param offset - Offset in the source
+     * @return Index of the last line starting at or before the offset
+     */
+    private int lineIndex(int offset) {
+        int index = Arrays.binarySearch(this.lineStarts, 0, this.lineCount, offset);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    /**
+     * Find the segment of a span and get its base
+     * @param index - Index of the span
+     * @return Base of the segment holding the span
+     */
+    private int segmentBase(int index) {
+        int segment = Arrays.binarySearch(this.segmentFirsts, 0, this.segmentCount, index);
+        return this.segmentBases[segment >= 0 ? segment : -segment - 2];
+    }
+
+    /**
+     * Find a span in the overflow table
+     * @param index - Index of the span
+     * @return Index of the span in the overflow table, -1 if it is stored packed
+     */
+    private int overflowOf(int index) {
+        if (this.deltas[index] != NO_DELTA && (this.lengths[index] & 0xFF) != NO_LENGTH) {
+            return -1;
+        }
+        return Arrays.binarySearch(this.overflowIndices, 0, this.overflowCount, index);
+    }
+
+    /**
+     * Compute the line starts of the source of the program
+     * @param source - Source code
+     */
+    synchronized void setSource(CharSequence source) {
+        int[] starts = new int[1 << 10];
+        int count = 1;
+        for (int i = 0, length = source.length(); i < length; i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        this.lineStarts = Arrays.copyOf(starts, count);
+        this.lineCount = count;
+    }
+
+    /**
+     * Set the line starts of the source of the program
+     * @param starts - Offset of the first character of each line, starting with 0
+     */
+    synchronized void setLineStarts(int[] starts) {
+        this.lineStarts = starts;
+        this.lineCount = starts.length;
+    }
+
+    /**
+     * Get the line starts of the source of the program
+     * @return Offset of the first character of each line, or null if the source is unknown
+     */
+    synchronized int[] getLineStarts() {
+        return this.lineStarts == null ? null : Arrays.copyOf(this.lineStarts, this.lineCount);
+    }
+
+    /**
+     * Update the line starts for an edit of the source
+     * @param offset - Offset of the first character replaced
+     * @param removedLength - Number of characters removed
+     * @param insertedText - Text inserted in their place
+     */
+    synchronized void editSource(int offset, int removedLength, CharSequence insertedText) {
+        if (this.lineStarts == null) {
+            return;
+        }
+        // Lines starting up to the edit are kept, those starting in the removed text are gone, the others move
+        int kept = lineIndex(offset) + 1;
+        int moved = kept;
+        while (moved < this.lineCount && this.lineStarts[moved] <= offset + removedLength) {
+            moved++;
+        }
+        int inserted = 0;
+        for (int i = 0; i < insertedText.length(); i++) {
+            if (insertedText.charAt(i) == '\n') {
+                inserted++;
+            }
+        }
+        int[] starts = new int[kept + inserted + this.lineCount - moved];
+        System.arraycopy(this.lineStarts, 0, starts, 0, kept);
+        int line = kept;
+        for (int i = 0; i < insertedText.length(); i++) {
+            if (insertedText.charAt(i) == '\n') {
+                starts[line++] = offset + i + 1;
+            }
+        }
+        int shift = insertedText.length() - removedLength;
+        for (int i = moved; i < this.lineCount; i++) {
+            starts[line++] = this.lineStarts[i] + shift;
+        }
+        this.lineStarts = starts;
+        this.lineCount = starts.length;
+    }
+
+    /**
+     * Move the spans of the nodes after an edit
+     * A segment is moved as a whole, by its base, so the cost depends on the number of declarations only
+     * @param limit - Number of spans added before the edit, later spans are already in the edited source
+     * @param from - Offset of the first character after the edit in the source before it, segments starting there or later move
+     * @param shift - Number of characters the text after the edit moved by
+     */
+    synchronized void shift(int limit, int from, int shift) {
+        for (int segment = 0; segment < this.segmentCount && this.segmentFirsts[segment] < limit; segment++) {
+            if (this.segmentBases[segment] >= from) {
+                this.segmentBases[segment] += shift;
+            }
+        }
+        for (int i = 0; i < this.overflowCount && this.overflowIndices[i] < limit; i++) {
+            if (this.overflowStarts[i] >= from) {
+                this.overflowStarts[i] += shift;
+                this.overflowEnds[i] += shift;
+            }
+        }
+    }
+
+    /**
+     * Forget every span, the nodes holding one must no longer be used with the table
+     * The room of the table and the line starts are kept
+     */
+    synchronized void clear() {
+        this.size = 0;
+        this.segmentCount = 0;
+        this.overflowCount = 0;
+    }
+
+    /**
+     * Release the room kept for more spans, once a program is parsed
+     */
+    synchronized void trim() {
+        this.deltas = Arrays.copyOf(this.deltas, this.size);
+        this.lengths = Arrays.copyOf(this.lengths, this.size);
+        this.segmentFirsts = Arrays.copyOf(this.segmentFirsts, this.segmentCount);
+        this.segmentBases = Arrays.copyOf(this.segmentBases, this.segmentCount);
+        this.overflowIndices = Arrays.copyOf(this.overflowIndices, this.overflowCount);
+        this.overflowStarts = Arrays.copyOf(this.overflowStarts, this.overflowCount);
+        this.overflowEnds = Arrays.copyOf(this.overflowEnds, this.overflowCount);
+    }
+
+    /**
+     * Start collecting the spans of a parser
+     * @return Batch - Spans waiting to be added as one segment
+     */
+    Batch batch() {
+        return new Batch(this);
+    }
+
+    /**
+     * Add the spans of a batch as one segment and give their nodes their index
+     * @param batch - Spans to add
+     */
+    private synchronized void add(Batch batch) {
+        int first = addSegment(batch.starts, batch.ends, batch.size);
+        for (int i = 0; i < batch.size; i++) {
+            setPosition(batch.nodes[i], first + i);
+        }
+    }
+
+    /**
+     * Add spans as one segment
+     * @param starts - Start of each span
+     * @param ends - End of each span
+     * @param count - Number of spans
+     * @return Index of the first span added, the others follow it
+     */
+    synchronized int addSegment(int[] starts, int[] ends, int count) {
+        int base = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            base = Math.min(base, starts[i]);
+        }
+        if (this.segmentCount == this.segmentFirsts.length) {
+            int capacity = Math.max(1 << 6, this.segmentCount * 2);
+            this.segmentFirsts = Arrays.copyOf(this.segmentFirsts, capacity);
+            this.segmentBases = Arrays.copyOf(this.segmentBases, capacity);
+        }
+        int first = this.size;
+        this.segmentFirsts[this.segmentCount] = first;
+        this.segmentBases[this.segmentCount] = base;
+        this.segmentCount++;
+        if (this.size + count > this.deltas.length) {
+            int capacity = Math.max(this.deltas.length * 2, this.size + count);
+            this.deltas = Arrays.copyOf(this.deltas, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            int index = this.size++;
+            int delta = starts[i] - base;
+            int length = ends[i] - starts[i];
+            if (delta < NO_DELTA && length >= 0 && length < NO_LENGTH) {
+                this.deltas[index] = (char) delta;
+                this.lengths[index] = (byte) length;
+            } else {
+                this.deltas[index] = (char) NO_DELTA;
+                this.lengths[index] = (byte) NO_LENGTH;
+                addOverflow(index, starts[i], ends[i]);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Keep a span whole
+     * @param index - Index of the span, larger than the index of any span kept whole so far
+     * @param start - Start of the span
+     * @param end - End of the span
+     */
+    private void addOverflow(int index, int start, int end) {
+        if (this.overflowCount == this.overflowIndices.length) {
+            int capacity = Math.max(1 << 4, this.overflowCount * 2);
+            this.overflowIndices = Arrays.copyOf(this.overflowIndices, capacity);
+            this.overflowStarts = Arrays.copyOf(this.overflowStarts, capacity);
+            this.overflowEnds = Arrays.copyOf(this.overflowEnds, capacity);
+        }
+        this.overflowIndices[this.overflowCount] = index;
+        this.overflowStarts[this.overflowCount] = start;
+        this.overflowEnds[this.overflowCount] = end;
+        this.overflowCount++;
+    }
+
+    /**
+     * Get the index of the span of a node
+     * @param node - Node of the AST
+     * @return Index of its span, -1 if the node has none
+     */
+    static int positionOf(Object node) {
+        if (node instanceof Expr expr) {
+            return expr.getPosition();
+        } else if (node instanceof Stmt stmt) {
+            return stmt.getPosition();
+        } else if (node instanceof GeneralDecl decl) {
+            return decl.getPosition();
+        } else if (node instanceof Block block) {
+            return block.getPosition();
+        } else if (node instanceof Param param) {
+            return param.getPosition();
+        }
+        return -1;
+    }
+
+    /**
+     * Set the index of the span of a node
+     * @param node - Node of the AST
+     * @param index - Index of its span
+     */
+    static void setPosition(Object node, int index) {
+        if (node instanceof Expr expr) {
+            expr.setPosition(index);
+        } else if (node instanceof Stmt stmt) {
+            stmt.setPosition(index);
+        } else if (node instanceof GeneralDecl decl) {
+            decl.setPosition(index);
+        } else if (node instanceof Block block) {
+            block.setPosition(index);
+        } else if (node instanceof Param param) {
+            param.setPosition(index);
+        }
+    }
+
+    /**
+     * Spans of the nodes built by one parser, added to the table together
+     * Nodes only get the index of their span once the batch is committed, so parsers on several threads can share a table
+     */
+    static final class Batch {
+        private final SourcePositions positions; // Table the spans are added to
+        private Object[] nodes = new Object[1 << 6]; // Node of each span
+        private int[] starts = new int[1 << 6]; // Start of each span
+        private int[] ends = new int[1 << 6]; // End of each span
+        private int size; // Number of spans waiting
+
+        /**
+         * Constructor for Batch
+         * @param positions - Table the spans are added to
+         */
+        private Batch(SourcePositions positions) {
+            this.positions = positions;
+        }
+
+        /**
+         * Record the span of a node
+         * @param node - Node of the AST
+         * @param start - Offset of its first token
+         * @param end - Offset of the token after it
+         * @return The node
+         */
+        <T> T add(T node, int start, int end) {
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+                this.starts = Arrays.copyOf(this.starts, this.size * 2);
+                this.ends = Arrays.copyOf(this.ends, this.size * 2);
+            }
+            this.nodes[this.size] = node;
+            this.starts[this.size] = start;
+            this.ends[this.size] = end;
+            this.size++;
+            return node;
+        }
+
+        /**
+         * Add the recorded spans to the table as one segment
+         */
+        void commit() {
+            if (this.size == 0) {
+                return;
+            }
+            this.positions.add(this);
+            Arrays.fill(this.nodes, 0, this.size, null);
+            this.size = 0;
+        }
+    }
+}
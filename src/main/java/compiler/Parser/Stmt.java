@@ -5,6 +5,7 @@ import compiler.Lexer.Lexer;
 
 public class Stmt implements ASTNode{
     protected final Lexer.Token name;
+    private int position = -1; // Index of the source span of the node in the SourcePositions of its program
     public Stmt(Lexer.Token name) {
         this.name = name;
     }
@@ -22,6 +23,12 @@ public class Stmt implements ASTNode{
     public void accept(ASTVisitor visitor) throws SemanticException {
         visitor.visit(this);
     }
-}
 
+    /**
+     * Get the index of the source span of the node
+     * @return Index in the SourcePositions of the program, -1 if the node was not parsed from a source
+     */
+    public int getPosition() { return position; }
 
+    void setPosition(int position) { this.position = position; }
+}
@@ -0,0 +1,347 @@
+package compiler.Parser;
+
+import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.TokenBuffer;
+import compiler.Lexer.TokenCursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static compiler.Lexer.Lexer.Token.*;
+import static compiler.Parser.ParseTables.*;
+
+/**
+ * Parser driven by the LL(1) tables generated from Grammar.txt
+ * Top-level declarations are parsed as by Parser, the blocks and expressions they hold by a loop over an explicit parse
+ * stack instead of recursive calls, so nesting is bounded by the heap instead of the thread stack
+ * It builds the same nodes with the same spans as Parser, and finds the same syntax errors
+ */
+public class TableParser extends Parser {
+    private static final int END_STATEMENT = -1; // Parse stack marker below the symbols of a statement
+
+    private final TokenCursor tokens; // Tokens for the parser, the current token is the lookahead
+
+    // Parse stack: symbols left to parse, each with the offset where the production holding it started
+    private int[] symbols = new int[64];
+    private int[] symbolStarts = new int[64];
+    private int symbolCount;
+
+    // Value stack: kept tokens and nodes built by the actions, each with the offset where it started
+    private Object[] values = new Object[64];
+    private int[] valueStarts = new int[64];
+    private int valueCount;
+
+    // Statements being parsed, 3 entries each: size of the parse stack and of the value stack, offset of the statement
+    private int[] statements = new int[48];
+    private int statementCount;
+
+    /**
+     * Constructor for TableParser reading a packed token buffer, stops at the first syntax error
+     * @param tokens - Tokens of the whole source
+     */
+    public TableParser(TokenBuffer tokens) {
+        this(tokens.cursor(), false);
+        getProgram().getPositions().setSource(tokens.getSource());
+        if (!getDiagnostics().isEmpty()) {
+            throw new RuntimeException(getDiagnostics().get(0));
+        }
+    }
+
+    /**
+     * Constructor for TableParser
+     * @param tokens - Cursor over the tokens to parse
+     * @param recovering - true to collect every syntax error in getDiagnostics(), false to stop at the first one, which is then the only diagnostic
+     */
+    public TableParser(TokenCursor tokens, boolean recovering) {
+        super(tokens, new Program(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()), recovering);
+        this.tokens = tokens;
+        parseAll();
+    }
+
+    @Override
+    Block parseBlock() throws ParserException {
+        return (Block) parse(BLOCK);
+    }
+
+    @Override
+    Expr parseExpr() throws ParserException {
+        return (Expr) parse(EXPR);
+    }
+
+    /**
+     * Parse a nonterminal of the grammar
+     * A statement that fails in a block is skipped when recovering, as Parser does
+     * @param nonterminal - Nonterminal to parse
+     * @return Node built for it
+     * @throws ParserException - At the first syntax error the parser does not recover from
+     */
+    private Object parse(int nonterminal) throws ParserException {
+        Arrays.fill(this.values, 0, this.valueCount, null);
+        this.symbolCount = 0;
+        this.valueCount = 0;
+        this.statementCount = 0;
+        pushSymbol(nonterminal << KIND_BITS | NONTERMINAL, this.tokens.offset());
+        while (true) {
+            try {
+                run();
+                break;
+            } catch (ParserException e) {
+                if (this.statementCount == 0) {
+                    throw e;
+                }
+                int statement = --this.statementCount * 3;
+                recover(e, this.statements[statement + 2], true);
+                // Resume with the statements after the one that failed
+                this.symbolCount = this.statements[statement];
+                Arrays.fill(this.values, this.statements[statement + 1], this.valueCount, null);
+                this.valueCount = this.statements[statement + 1];
+            }
+        }
+        return pop();
+    }
+
+    /**
+     * Pop and parse symbols until the parse stack is empty
+     * @throws ParserException - If the lookahead is not expected
+     */
+    private void run() throws ParserException {
+        while (this.symbolCount > 0) {
+            int symbol = this.symbols[--this.symbolCount];
+            int start = this.symbolStarts[this.symbolCount];
+            if (symbol == END_STATEMENT) {
+                this.statementCount--;
+                continue;
+            }
+            int index = symbol >> KIND_BITS;
+            switch (symbol & KIND_MASK) {
+                case TERMINAL -> {
+                    match(TERMINALS[index]);
+                    this.tokens.advance();
+                }
+                case KEPT -> {
+                    Lexer.Token token = TERMINALS[index];
+                    match(token);
+                    push(value(token), this.tokens.offset());
+                    this.tokens.advance();
+                }
+                case NONTERMINAL -> expand(index);
+                case ACTION -> reduce(index, start);
+                default -> throw new ParserException("Expected " + MESSAGES[index] + " but got " + this.tokens.token());
+            }
+        }
+    }
+
+    /**
+     * Check that the lookahead is a token
+     * @param token - Expected token
+     * @throws ParserException - If the lookahead is another token
+     */
+    private void match(Lexer.Token token) throws ParserException {
+        if (this.tokens.token() != token) {
+            throw new ParserException("Expected " + token + " but got " + this.tokens.token());
+        }
+    }
+
+    /**
+     * Value of a kept token for the actions
+     * @param token - Lookahead token
+     * @return Name of an identifier, text of a literal, or the token itself
+     */
+    private Object value(Lexer.Token token) {
+        return switch (token) {
+            case IDENTIFIER -> this.tokens.name();
+            case INTEGER, REAL, BOOLEAN, STRING -> this.tokens.lexeme();
+            default -> token;
+        };
+    }
+
+    /**
+     * Replace a nonterminal by the production the table chooses for the lookahead
+     * @param nonterminal - Nonterminal popped from the parse stack
+     */
+    private void expand(int nonterminal) {
+        int start = this.tokens.offset();
+        if (nonterminal == STMT) {
+            if (this.statementCount * 3 == this.statements.length) {
+                this.statements = Arrays.copyOf(this.statements, this.statements.length * 2);
+            }
+            int statement = this.statementCount++ * 3;
+            this.statements[statement] = this.symbolCount;
+            this.statements[statement + 1] = this.valueCount;
+            this.statements[statement + 2] = start;
+            pushSymbol(END_STATEMENT, start);
+        }
+        int production = TABLE[nonterminal * COLUMN_COUNT + COLUMNS[this.tokens.token().ordinal()]];
+        int from = OFFSETS[production];
+        int length = OFFSETS[production + 1] - from;
+        if (this.symbolCount + length > this.symbols.length) {
+            int capacity = Math.max(this.symbolCount + length, this.symbols.length * 2);
+            this.symbols = Arrays.copyOf(this.symbols, capacity);
+            this.symbolStarts = Arrays.copyOf(this.symbolStarts, capacity);
+        }
+        // The productions are stored reversed, so the first symbol ends on top of the stack
+        System.arraycopy(PRODUCTIONS, from, this.symbols, this.symbolCount, length);
+        Arrays.fill(this.symbolStarts, this.symbolCount, this.symbolCount + length, start);
+        this.symbolCount += length;
+    }
+
+    /**
+     * Run a semantic action, replacing the values of the symbols before it by the node they make
+     * @param action - Action popped from the parse stack
+     * @param start - Offset where the production holding the action started
+     */
+    @SuppressWarnings("unchecked")
+    private void reduce(int action, int start) {
+        switch (action) {
+            case ACTION_LIST -> push(new ArrayList<>(), start);
+            case ACTION_ADD -> {
+                Object element = pop();
+                ((List<Object>) this.values[this.valueCount - 1]).add(element);
+            }
+            case ACTION_BLOCK -> push(at(new Block((ArrayList<Object>) pop()), start), start);
+            case ACTION_IF, ACTION_ELSE, ACTION_WHILE -> {
+                Block body = (Block) pop();
+                Expr condition = (Expr) pop();
+                Lexer.Token name = action == ACTION_IF ? KEYWORD_IF : action == ACTION_ELSE ? KEYWORD_ELSE : KEYWORD_WHILE;
+                push(at(new CtrlStruct(name, condition, body), start), start);
+            }
+            case ACTION_FOR -> {
+                Block body = (Block) pop();
+                Expr step = (Expr) pop();
+                Expr end = (Expr) pop();
+                Expr init = (Expr) pop();
+                push(at(new For(KEYWORD_FOR, init, end, step, body), start), start);
+            }
+            case ACTION_RETURN -> push(at(new ReturnStmt((Expr) pop()), start), start);
+            case ACTION_DECLARATION -> {
+                Expr value = (Expr) pop();
+                Type type = (Type) pop();
+                String identifier = ((Name) pop()).getText();
+                GeneralDecl decl = switch ((Lexer.Token) pop()) {
+                    case KEYWORD_CONST -> new ConstDecl(type, identifier, value);
+                    case KEYWORD_VAR -> new VarDecl(type, identifier, value);
+                    default -> new ValDecl(type, identifier, value);
+                };
+                push(at(decl, start), start);
+            }
+            case ACTION_NONE -> push(null, start);
+            case ACTION_CALL, ACTION_ASSIGN -> {
+                Object operand = pop();
+                // The statement starts at its name, before the production of the call or assignment
+                int nameStart = this.valueStarts[this.valueCount - 1];
+                String identifier = ((Name) pop()).getText();
+                Stmt stmt = action == ACTION_CALL
+                        ? new ProcCall(identifier, (ArrayList<Expr>) operand)
+                        : new AssignmentStmt(identifier, (Expr) operand);
+                push(at(stmt, nameStart), nameStart);
+            }
+            case ACTION_VOID -> push(Type.VOID, start);
+            case ACTION_ARRAYTYPE -> push(Type.of(((Name) pop()).getText()).array(), start);
+            case ACTION_TYPE -> push(Type.of(((Name) pop()).getText()), start);
+            case ACTION_BINARY -> {
+                Expr right = (Expr) pop();
+                Lexer.Token operator = (Lexer.Token) pop();
+                // The operation starts with its left operand
+                int leftStart = this.valueStarts[this.valueCount - 1];
+                Expr left = (Expr) pop();
+                push(at(new BinaryExpr(left, right, operator), leftStart), leftStart);
+            }
+            case ACTION_NEGATE -> {
+                Expr operand = (Expr) pop();
+                if (operand instanceof IntegerExpr) {
+                    push(at(new IntegerExpr(-((IntegerExpr) operand).getValue()), start), start);
+                } else if (operand instanceof RealExpr) {
+                    push(at(new RealExpr(-((RealExpr) operand).getValue()), start), start);
+                } else {
+                    // The zero has no token of its own, it spans the whole negation
+                    push(at(new BinaryExpr(at(new IntegerExpr(0), start), operand, SYMBOL_MINUS), start), start);
+                }
+            }
+            case ACTION_FIELD -> {
+                int fieldStart = this.valueStarts[this.valueCount - 1];
+                IdentifierExpr field = at(new IdentifierExpr((Name) pop()), fieldStart);
+                int recordStart = this.valueStarts[this.valueCount - 1];
+                push(at(new RecordAccess((Expr) pop(), field), recordStart), recordStart);
+            }
+            // The parentheses are not a node, but an operation on the expression starts at the '('
+            case ACTION_GROUP -> push(pop(), start);
+            case ACTION_INTEGER -> push(at(new IntegerExpr(Integer.parseInt((String) pop())), start), start);
+            case ACTION_REAL -> push(at(new RealExpr(Double.parseDouble((String) pop())), start), start);
+            case ACTION_BOOLEAN -> push(at(new BooleanExpr(Boolean.parseBoolean((String) pop())), start), start);
+            case ACTION_STRING -> push(at(new StringExpr((String) pop()), start), start);
+            case ACTION_ARRAY -> {
+                ArrayList<Expr> elements = (ArrayList<Expr>) pop();
+                Type type = (Type) pop();
+                // The length of a literal array has no token of its own, it spans the whole array
+                Expr length = new Expr(Type.INT);
+                push(at(new ArrayExpr(type, at(length, start), elements), start), start);
+            }
+            // The nodes made of a name start at the name, before the production that follows it
+            case ACTION_IDENTIFIER -> {
+                int nameStart = this.valueStarts[this.valueCount - 1];
+                push(at(new IdentifierExpr((Name) pop()), nameStart), nameStart);
+            }
+            case ACTION_NEWARRAY, ACTION_INDEX -> {
+                Expr operand = (Expr) pop();
+                int nameStart = this.valueStarts[this.valueCount - 1];
+                Type type = Type.of(((Name) pop()).getText());
+                Expr expr = action == ACTION_NEWARRAY
+                        ? new ArrayExpr(type, operand, new ArrayList<>())
+                        : new ArrayAccessExpr(type, operand);
+                push(at(expr, nameStart), nameStart);
+            }
+            case ACTION_RECORD -> {
+                ArrayList<RecordEntry> content = (ArrayList<RecordEntry>) pop();
+                int nameStart = this.valueStarts[this.valueCount - 1];
+                push(at(new RecordExpr(((Name) pop()).getText(), content), nameStart), nameStart);
+            }
+            case ACTION_ENTRY -> {
+                int entryStart = this.valueStarts[this.valueCount - 1];
+                Expr content = (Expr) pop();
+                List<RecordEntry> entries = (List<RecordEntry>) this.values[this.valueCount - 1];
+                entries.add(at(new RecordEntry(Integer.toString(entries.size()), content.getType().getName(), content), entryStart));
+            }
+            default -> throw new IllegalStateException("Unknown action " + action);
+        }
+    }
+
+    /**
+     * Push a symbol on the parse stack
+     * @param symbol - Symbol, as stored in the tables
+     * @param start - Offset where the production holding it started
+     */
+    private void pushSymbol(int symbol, int start) {
+        if (this.symbolCount == this.symbols.length) {
+            this.symbols = Arrays.copyOf(this.symbols, this.symbolCount * 2);
+            this.symbolStarts = Arrays.copyOf(this.symbolStarts, this.symbolCount * 2);
+        }
+        this.symbols[this.symbolCount] = symbol;
+        this.symbolStarts[this.symbolCount++] = start;
+    }
+
+    /**
+     * Push a value on the value stack
+     * @param value - Kept token or node
+     * @param start - Offset where it started
+     */
+    private void push(Object value, int start) {
+        if (this.valueCount == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.valueCount * 2);
+            this.valueStarts = Arrays.copyOf(this.valueStarts, this.valueCount * 2);
+        }
+        this.values[this.valueCount] = value;
+        this.valueStarts[this.valueCount++] = start;
+    }
+
+    /**
+     * Pop the value on top of the value stack
+     * @return Value
+     */
+    private Object pop() {
+        Object value = this.values[--this.valueCount];
+        this.values[this.valueCount] = null;
+        return value;
+    }
+}
@@ -1,16 +1,97 @@
 package compiler.Parser;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type of the language, interned so that there is a single Type instance per name and types compare by identity
+ * The base types are constants, "T[]" is an ArrayType and a name starting with an upper case letter a RecordType
+ * Expressions not yet typed by the semantic analysis hold a placeholder type named after their kind, without descriptor
+ */
 public class Type {
+    private static final ConcurrentHashMap<String, Type> TYPES = new ConcurrentHashMap<>(); // Interned types by name
+
+    public static final Type INT = base("int", "I");
+    public static final Type REAL = base("real", "F");
+    public static final Type BOOL = base("bool", "B");
+    public static final Type STRING = base("string", "Ljava/lang/String;");
+    public static final Type VOID = base("void", "V");
+
+    // Placeholder types of the expressions typed by the semantic analysis, named after the kind of node
+    public static final Type BINARY = base("BinaryExpr", null);
+    public static final Type IDENTIFIER = base("identifier", null);
+    public static final Type ARRAY_ACCESS = base("ArrayAccessExpr", null);
+    public static final Type RECORD_ACCESS = base("RecordAccess", null);
+    public static final Type RECORD_ENTRY = base("RecordEntry", null);
+
     private final String name;
+    private final String descriptor; // JVM descriptor of a value of the type, null for a placeholder
+    private volatile ArrayType array; // Type of the arrays of this type, made on first use
 
-    public Type(String name) {
+    /**
+     * Constructor for Type, only called when interning a new name
+     * @param name - Name of the type
+     * @param descriptor - JVM descriptor, null for a placeholder
+     */
+    Type(String name, String descriptor) {
         this.name = name;
+        this.descriptor = descriptor;
     }
+
+    /**
+     * Intern a base or placeholder type
+     * @param name - Name of the type
+     * @param descriptor - JVM descriptor, null for a placeholder
+     * @return Type
+     */
+    private static Type base(String name, String descriptor) {
+        Type type = new Type(name, descriptor);
+        TYPES.put(name, type);
+        return type;
+    }
+
+    /**
+     * Get the type of a name
+     * @param name - Name of the type as written in the source, or of a placeholder
+     * @return Type - The unique type for this name
+     */
+    public static Type of(String name) {
+        Type type = TYPES.get(name);
+        if (type != null) {
+            return type;
+        }
+        if (name.endsWith("[]")) {
+            return of(name.substring(0, name.length() - 2)).array();
+        }
+        return TYPES.computeIfAbsent(name, n -> !n.isEmpty() && Character.isUpperCase(n.charAt(0))
+                ? new RecordType(n) : new Type(n, null));
+    }
+
+    /**
+     * Get the type of the arrays of this type
+     * @return ArrayType - The unique array type with these elements
+     */
+    public ArrayType array() {
+        ArrayType array = this.array;
+        if (array == null) {
+            array = (ArrayType) TYPES.computeIfAbsent(this.name + "[]", n -> new ArrayType(n, this));
+            this.array = array;
+        }
+        return array;
+    }
+
     public String getName() {
         return name;
     }
 
+    /**
+     * Get the JVM descriptor of a value of the type
+     * @return Descriptor, or null for a placeholder type
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
     public String toString() {
         return name;
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,67 @@
 package compiler.SemanticAnalyser;
 
 import compiler.Exceptions.*;
+import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
 import compiler.Parser.*;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SemanticAnalyzer implements ASTVisitor {
 
-    // To perform semantic analysis, we need to check for duplicate field names. We can do this by keeping track of this with a hashset
-    HashMap<String, Type> symbolTable;
+    // Procedures provided by the runtime, their arguments are checked but not their signature
+    private static final Set<String> BUILTINS = Set.of("not", "chr", "len", "floor", "readInt", "readReal",
+            "readString", "writeInt", "writeReal", "write", "writeln");
+    private static final int MIN_BATCH_CHARACTERS = 1 << 14; // Smallest source size of bodies worth a separate task
+    private static final int UNKNOWN_BODY_CHARACTERS = 1 << 6; // Size assumed for a body parsed without source span
+    private static final AtomicInteger RUNS = new AtomicInteger(); // Number of analyzers created, to number their runs
+
+    // Types of the names visible from the node being analysed: globals, then the parameters and locals of each
+    // enclosing procedure and block. Keys are interned names, so lookups hash the name id and compare by identity
+    SymbolTable symbolTable;
+    HashMap<Type, RecordLayout> records; // Layout of each record type, for its fields, types are interned so keys compare by identity
+    HashMap<Name, ProcDecl> procedures; // Declaration of each procedure, for its parameters
+    private final ForkJoinPool pool; // Pool the procedure bodies of a program are checked on
+    private final int run; // Number of the analysis run, only the types resolved by this run are trusted
+    private ProcDecl procedure; // Procedure whose body is being checked, null outside of a body
+    private boolean returns; // Whether the body being checked contains a return statement
 
     /*
-     * Constructor for SemanticAnalyzer
+     * Constructor for SemanticAnalyzer, checking procedure bodies on the common pool
      */
     public SemanticAnalyzer(){
-        symbolTable = new HashMap<>();
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for SemanticAnalyzer
+     * @param pool: Pool the procedure bodies of a program are checked on
+     */
+    public SemanticAnalyzer(ForkJoinPool pool){
+        symbolTable = new SymbolTable(16);
+        records = new HashMap<>();
+        procedures = new HashMap<>();
+        this.pool = pool;
+        run = RUNS.incrementAndGet();
+    }
+
+    /**
+     * Constructor for an analyzer of procedure bodies, over the global declarations collected by another analyzer
+     * The records, procedures and global scope are shared and only read, each body gets scopes of its own
+     * @param globals: Analyzer that collected the global declarations
+     */
+    private SemanticAnalyzer(SemanticAnalyzer globals){
+        symbolTable = globals.symbolTable.fork();
+        records = globals.records;
+        procedures = globals.procedures;
+        pool = globals.pool;
+        run = globals.run;
     }
 
     /**
@@ -30,40 +74,123 @@ public class SemanticAnalyzer implements ASTVisitor {
     public void visit(RecordDecl recordDecl) throws DuplicateRecordTypeException, DuplicateFieldException {
         // Perform semantic analysis for RecordDecl
         String recordTypeName = recordDecl.getName();
-        if (symbolTable.containsKey(recordTypeName)){
+        Name name = recordDecl.getIdentifierName();
+        if (symbolTable.isDeclaredInScope(name)){
             throw new DuplicateRecordTypeException("Duplicate record type name: " + recordTypeName);
         }
-        symbolTable.put(recordTypeName, new Type("Record"));
-        for (int i = 0; i < recordDecl.getFields().size(); i++) {
-            RecordEntry e = recordDecl.getFields().get(i);
-            // Check for duplicate field names
-            if (recordDecl.getFields().stream().filter(x -> x.getIdentifier().equals(e.getIdentifier())).count() > 1) {
-                throw new DuplicateFieldException("Duplicate field name in record " + recordTypeName + ": "
-                        + e.getIdentifier());
-            }
-            String fieldName = recordTypeName + "." + e.getIdentifier() + "." + i; // Stored as recordType.fieldName.index
-            symbolTable.put(fieldName, e.getType());
-        }
+        // Building the layout indexes the fields by name, which rejects duplicate field names
+        RecordLayout layout = recordDecl.getLayout();
+        Type recordType = Type.of(recordTypeName);
+        symbolTable.declare(name, recordType);
+        records.put(recordType, layout);
+    }
+
+    /**
+     * Get the layout of a record type
+     * @param type: Type to look up
+     * @return RecordLayout: Layout of the record, or null if the type is not a declared record
+     */
+    private RecordLayout layoutOf(Type type) {
+        return records.get(type);
     }
 
     /**
      * Perform semantic analysis for Program nodes
+     * The global declarations are collected first, in order: records, procedure signatures, then constants, globals
+     * and statements, so a body sees every global whatever their order in the source. The bodies only read the global
+     * declarations, they are then checked in parallel
      * @param program: Program node to visit
-     * @throws SemanticException: If duplicates are found
+     * @throws SemanticException: At the first error of the global declarations, else at the first error of the bodies
+     * in source order, with the errors of the following bodies as suppressed exceptions
      */
     @Override
     public void visit(Program program) throws SemanticException {
+        ArrayList<ProcDecl> procs = new ArrayList<>();
+        for (GeneralDecl decl : program.getContent()) {
+            if (decl instanceof RecordDecl) {
+                decl.accept(this);
+            }
+        }
+        for (GeneralDecl decl : program.getContent()) {
+            if (decl instanceof ProcDecl procDecl) {
+                declareProcedure(procDecl);
+                procs.add(procDecl);
+            }
+        }
         for (Object obj : program.getContent()) {
+            if (obj instanceof RecordDecl || obj instanceof ProcDecl) {
+                continue;
+            }
             if (obj instanceof GeneralDecl) {
                 ((GeneralDecl) obj).accept(this);
-            } else if (obj instanceof RecordDecl) {
-                ((RecordDecl) obj).accept(this);
             } else if (obj instanceof Stmt) {
                 ((Stmt) obj).accept(this);
             } else {
                 throw new RuntimeException("Unexpected object in program content : " + obj);
             }
         }
+        checkBodies(procs);
+    }
+
+    /**
+     * Check procedure bodies on the pool, in batches of similar source size
+     * The last batch is checked on the calling thread, so a small program is checked without any task
+     * @param procs: Procedures to check, in source order
+     * @throws SemanticException: At the first error in source order, the other errors are suppressed exceptions
+     */
+    private void checkBodies(List<ProcDecl> procs) throws SemanticException {
+        SemanticException[] errors = new SemanticException[procs.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        int from = 0;
+        int characters = 0;
+        for (int i = 0; i < procs.size(); i++) {
+            ProcDecl procDecl = procs.get(i);
+            characters += procDecl.getStart() >= 0 ? procDecl.getEnd() - procDecl.getStart() : UNKNOWN_BODY_CHARACTERS;
+            if (characters >= MIN_BATCH_CHARACTERS && i + 1 < procs.size()) {
+                int batchFrom = from;
+                int batchTo = i + 1;
+                tasks.add(pool.submit(() -> new SemanticAnalyzer(this).checkBodies(procs, batchFrom, batchTo, errors)));
+                from = batchTo;
+                characters = 0;
+            }
+        }
+        new SemanticAnalyzer(this).checkBodies(procs, from, procs.size(), errors);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        // Each batch only wrote the errors of its procedures, joining the tasks makes them visible here
+        SemanticException first = null;
+        for (SemanticException error : errors) {
+            if (error == null) {
+                continue;
+            }
+            if (first == null) {
+                first = error;
+            } else {
+                first.addSuppressed(error);
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    /**
+     * Check a batch of procedure bodies, going on after an error so every body is checked
+     * @param procs: Procedures of the program, in source order
+     * @param from: Index of the first procedure of the batch
+     * @param to: Index after the last procedure of the batch
+     * @param errors: Error of each procedure, set for those of the batch that are not correct
+     */
+    private void checkBodies(List<ProcDecl> procs, int from, int to, SemanticException[] errors) {
+        for (int i = from; i < to; i++) {
+            try {
+                checkBody(procs.get(i));
+            } catch (SemanticException e) {
+                errors[i] = e;
+            }
+        }
     }
 
     /**
@@ -96,74 +223,31 @@ public class SemanticAnalyzer implements ASTVisitor {
      */
     public void visit(GeneralDecl decl, String declExpr) throws SemanticException {
         String declName = decl.getIdentifier();
-        String declType = decl.getType().getName();
-        if (declType.equals("BinaryExpr")){
-            declType = visit((BinaryExpr) decl.getValue());
-        }
-        if (decl.getValue() == null){
+        Type declType = decl.getType();
+        // Only a local variable may be declared without initializer, it holds the default value of its type
+        if (decl.getValue() == null && (procedure == null || !(decl instanceof VarDecl))){
             throw new UninitializedVariableException("Variable " + declName + " not initialized.");
         }
-        String valueType = decl.getValue().getType().getName();
-        if (valueType.equals("BinaryExpr")){
-            valueType = visit((BinaryExpr) decl.getValue());
-        }
-        // Check if variable name is already in symbol table
-        if (symbolTable.containsKey(declName)){
+        Type valueType = decl.getValue() == null ? declType : typeOf(decl.getValue());
+        // Check if variable name is already declared in this scope, it may shadow a name of an enclosing scope
+        Name name = decl.getIdentifierName();
+        if (symbolTable.isDeclaredInScope(name)){
             throw new DuplicateVariableNameException("Duplicate " + declExpr + " name : " + declName);
         }
-        // Check if variable type is valid
-        if (declType.equals("BinaryExpr")) {
-            // Check if variable type matches value type, if it is an identifier, check if the identifier type matches the variable type
-            if (valueType.equals("IdentifierExpr")) {
-                String identifierType = symbolTable.get(decl.getValue().toString()).toString();
-                if (!declType.equals(identifierType)) {
-                    throw new SemanticException("Variable " + declName + " type does not match value type. Found " +
-                            identifierType + " expected " + declType + ".");
-                }
-            } else if (valueType.equals("BinaryExpr")){
-                // Check that every member of the binary expression is of the same type
-                if (!declType.equals(visit((BinaryExpr) decl.getValue()))){
-                    throw new SemanticException("Variable " + declName + " type does not match value type. Found " +
-                            valueType + " expected " + declType + ".");
-                }
-            } else if (!decl.getType().getName().contains(valueType)){
-                throw new SemanticException("Variable " + declName + " type does not match value type. Found " +
-                        valueType + " expected " + declType + ".");
-            }
-        } else if (!declType.equals(valueType)){
+        // Check if variable type matches value type, types are interned so they compare by identity
+        if (declType != valueType){
             throw new SemanticException("Variable " + declName + " type does not match value type. Found " +
                     valueType + " expected " + declType + ".");
         }
         // Check if the variable is a record, if so, check the records fields
-        if (symbolTable.containsKey(declType)){
-            String recordType = declType;
-            RecordExpr recordExpr = (RecordExpr) decl.getValue();
-            // Sort the fields of the record by their identifier
-            ArrayList<RecordEntry> sortedRecord = recordExpr.getContent();
-            sortedRecord.sort(Comparator.comparing(RecordEntry::getIdentifier));
-
-            List<String> list = new ArrayList<>(symbolTable.keySet().stream().filter(x -> x.contains(recordType)).toList());
-            list.remove(recordType); // Remove the record type itself
-            for (int i = 0; i < list.size(); i++){
-                String field = list.get(i);
-                // Correct field type
-                declType = symbolTable.get(field).getName();
-                // Field index (recordType.fieldName.index)
-                int index = Integer.parseInt(field.substring(field.lastIndexOf(".") + 1));
-                // Value type
-                valueType = sortedRecord.get(index).getType().getName();
-                if (!declType.equals(valueType)) {
-                    throw new SemanticException("Field " + field.substring(0, field.lastIndexOf(".")) +
-                            " type does not match value type for '" + declName + "'. Found " + valueType + " expected "
-                            + declType + ".");
-                }
-            }
+        if (decl.getValue() instanceof RecordExpr recordExpr){
+            visit(recordExpr, declName);
         }
-        // If the variable is an array declaration, add the size to the type string
-        if (decl.getValue() instanceof ArrayExpr declArray){
-            symbolTable.put(declName,  new Type(declType + declArray.getSize()));
+        // If the variable is a new array of constant length, keep the length to check constant indexes against it
+        if (decl.getValue() instanceof ArrayExpr declArray && declArray.getSize() instanceof IntegerExpr length){
+            symbolTable.declare(name, declType, length.getValue());
         } else {
-            symbolTable.put(declName, decl.getType());
+            symbolTable.declare(name, declType);
         }
     }
 
@@ -205,47 +289,51 @@ public class SemanticAnalyzer implements ASTVisitor {
      */
     @Override
     public void visit(ProcDecl procDecl) throws SemanticException {
+        declareProcedure(procDecl);
+        checkBody(procDecl);
+    }
+
+    /**
+     * Check the signature of a procedure and declare it
+     * Only the header is read, so a body that is parsed lazily is left alone until it is checked
+     * @param procDecl: ProcDecl node to declare
+     * @throws SemanticException: If the procedure name is already declared
+     */
+    private void declareProcedure(ProcDecl procDecl) throws SemanticException {
         // Check if procedure name is already in symbol table
-        String procName = procDecl.getIdentifier();
-        if (symbolTable.containsKey(procName)){
+        Name procName = procDecl.getIdentifierName();
+        if (symbolTable.isDeclaredInScope(procName)){
             throw new DuplicateProcedureNameException("Duplicate procedure name: " + procName);
         }
+        symbolTable.declare(procName, procDecl.getType());
+        procedures.put(procName, procDecl);
+    }
 
-        // Check if procedure has a return type, if so, check if there is a return statement in the body
-        boolean containsReturn = false;
-        if (procDecl.getType() != null || procDecl.getType().getName().equals("void")) {
-            ReturnStmt returnStmt = new ReturnStmt(null);
-            for (Object stmt : procDecl.getBody().getStatements()) {
-                if (stmt instanceof ReturnStmt) {
-                    containsReturn = true;
-                    returnStmt = (ReturnStmt) stmt;
-                    break;
-                }
-            }
-            if (!containsReturn){
-                throw new ReturnTypeMismatchException("Procedure " + procName + " has a return type, but does not contain a return statement.");
-            } else {
-                // Check if return type matches the type of the return statement
-                String procType = procDecl.getType().getName();
-                String returnType = returnStmt.getValue().getType().getName();
-                if (!procType.equals(returnType)) {
-                    throw new ReturnTypeMismatchException("Procedure " + procName + " return type does not match return statement type. Found " +
-                            returnType + " expected " + procType + ".");
-                }
-            }
-        } else {
-            // If procedure has no return type, check if there is a return statement in the body
-            for (Object stmt : procDecl.getBody().getStatements()) {
-                if (stmt instanceof ReturnStmt) {
-                    containsReturn = true;
-                    break;
-                }
-            }
-            if (containsReturn){
-                throw new ReturnTypeMismatchException("Procedure " + procName + " has no return type, but contains a return statement.");
+    /**
+     * Check the parameters and body of a procedure against the declarations visible from it
+     * Each return statement is checked against the return type when it is visited, once its value is typed
+     * @param procDecl: ProcDecl node to check
+     * @throws SemanticException: If the parameters or the body are not correct
+     */
+    private void checkBody(ProcDecl procDecl) throws SemanticException {
+        procedure = procDecl;
+        returns = false;
+        // The parameters are in a scope of their own around the body, so the body may shadow them
+        symbolTable.enter(procDecl.getParams().size());
+        try {
+            for (Param param : procDecl.getParams()) {
+                param.accept(this);
             }
+            procDecl.getBody().accept(this);
+        } finally {
+            symbolTable.leave();
+            procedure = null;
+        }
+        // A procedure with a return type must return a value
+        if (procDecl.getType() != Type.VOID && !returns) {
+            throw new ReturnTypeMismatchException("Procedure " + procDecl.getIdentifier() +
+                    " has a return type, but does not contain a return statement.");
         }
-        symbolTable.put(procName, procDecl.getType());
     }
 
     /**
@@ -255,11 +343,11 @@ public class SemanticAnalyzer implements ASTVisitor {
      */
     @Override
     public void visit(Param param) throws SemanticException {
-        String paramName = param.getName();
-        if (symbolTable.containsKey(paramName)){
+        Name paramName = param.getIdentifierName();
+        if (symbolTable.isDeclaredInScope(paramName)){
             throw new DuplicateParameterNameException("Duplicate parameter name: " + paramName);
         }
-        symbolTable.put(paramName, param.getType());
+        symbolTable.declare(paramName, param.getType());
     }
 
     /**
@@ -277,92 +365,88 @@ public class SemanticAnalyzer implements ASTVisitor {
             visit((ProcCall) stmt);
         } else if (stmt instanceof ReturnStmt) {
             visit((ReturnStmt) stmt);
+        } else if (stmt instanceof AssignmentStmt) {
+            visit((AssignmentStmt) stmt);
+        }
+    }
+
+    /**
+     * Perform semantic analysis for assignment statements of procedure bodies, the value must have the type of the variable
+     * @param assignStmt: AssignmentStmt node to visit
+     * @throws SemanticException: If the variable is not declared or the value does not match its type
+     */
+    public void visit(AssignmentStmt assignStmt) throws SemanticException {
+        Name identifier = assignStmt.getIdentifierName();
+        Type varType = symbolTable.lookup(identifier);
+        if (varType == null){
+            throw new UndefinedIdentifierException("Undeclared identifier: " + identifier);
+        }
+        Expr assignValue = assignStmt.getValue();
+        assignValue.accept(this);
+        Type assignType = typeOf(assignValue);
+        if (varType != assignType) {
+            throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
+                    assignType + " expected " + varType + ".");
         }
     }
 
+    /**
+     * Perform semantic analysis for assignments, the value must have the type of the variable
+     * @param assignStmt: Assignment node to visit
+     * @throws SemanticException: If the variable is not declared or the value does not match its type
+     */
     public void visit(Assignment assignStmt) throws SemanticException {
-        // Perform semantic analysis for assignment statements here.
-        // (e.g., checking for uninitialized variables, type compatibility, etc.)
-        //String varName = assignStmt.getLeft();
-        String identifier = assignStmt.getIdentifier();
-        if (!symbolTable.containsKey(identifier)){
+        Name identifier = assignStmt.getIdentifierName();
+        Type varType = symbolTable.lookup(identifier);
+        if (varType == null){
             throw new SemanticException("Variable " + identifier + " is not initialized.");
         }
-        String varType = symbolTable.get(identifier).toString();
         Expr assignValue = assignStmt.getValue();
-        if (assignValue instanceof BinaryExpr binary) {
-            String rightType = binary.getRight().getType().toString();
-            String leftType = binary.getLeft().getType().toString();
-            if (!varType.equals(rightType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        rightType + " expected " + varType + ".");
-            } else if (!varType.equals(leftType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        leftType + " expected " + varType + ".");
-            }
-        } else if (assignValue instanceof IdentifierExpr) {
-            String assignType = assignValue.getType().toString();
-            if (!varType.equals(assignType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        assignType + " expected " + varType + ".");
-            }
-        } else {
-            String assignType = assignValue.getType().toString();
-            if (!varType.equals(assignType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        assignType + " expected " + varType + ".");
-            }
+        assignValue.accept(this);
+        Type assignType = typeOf(assignValue);
+        if (varType != assignType) {
+            throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
+                    assignType + " expected " + varType + ".");
         }
     }
 
+    /**
+     * Perform semantic analysis for array element assignments, the value must have the type of the elements
+     * @param assignStmt: ArrayAssignment node to visit
+     * @throws SemanticException: If the array is not declared, the index is not a valid int or the value does not
+     * match the type of the elements
+     */
     public void visit(ArrayAssignment assignStmt) throws SemanticException {
-        // Perform semantic analysis for array assignment here.
-        // (e.g., checking for proper index types, bounds, etc.)
-        String identifier = assignStmt.getIdentifier();
-        if (!symbolTable.containsKey(identifier)){
+        Name identifier = assignStmt.getIdentifierName();
+        Type varType = symbolTable.lookup(identifier);
+        if (varType == null){
             throw new SemanticException("Variable " + identifier + " is not initialized.");
         }
-        String varType = symbolTable.get(identifier).toString();
-        String size = varType.substring(varType.indexOf(":") + 1, varType.indexOf("}"));
+        if (!(varType instanceof ArrayType arrayType)) {
+            throw new SemanticException("Invalid array access: " + identifier + " is not an array.");
+        }
         Expr index = assignStmt.getIndex();
         Expr assignValue = assignStmt.getValue();
 
         // Ensure the index expression is an integer type
-        Type indexExprType = index.getType();
-        if (!indexExprType.getName().equals("int")) {
+        index.accept(this);
+        Type indexExprType = typeOf(index);
+        if (indexExprType != Type.INT) {
             throw new SemanticException("Invalid array access: Index expression type should be int, found " + indexExprType);
         }
 
-        String indexType = index.toString();
-        String indexValue = indexType.substring(indexType.indexOf(":") + 1, indexType.indexOf("}"));
-        // Ensure that the index is within the bounds of the array
-        if (Integer.parseInt(indexValue) > Integer.parseInt(size)) {
-            throw new SemanticException("Invalid array access: Index " + size + " out of bounds.");
+        // Ensure that a constant index is within the bounds of an array of constant length
+        int length = symbolTable.lookupLength(identifier);
+        if (length >= 0 && index instanceof IntegerExpr constant && (constant.getValue() < 0 || constant.getValue() >= length)) {
+            throw new SemanticException("Invalid array access: Index " + constant.getValue() + " out of bounds.");
         }
-        
+
         // Ensure that the type of the value being assigned matches the type of the array
-        if (assignValue instanceof BinaryExpr binary) {
-            String rightType = binary.getRight().getType().toString();
-            String leftType = binary.getLeft().getType().toString();
-            if (!varType.equals(rightType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        rightType + " expected " + varType + ".");
-            } else if (!varType.equals(leftType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        leftType + " expected " + varType + ".");
-            }
-        } else if (assignValue instanceof IdentifierExpr) {
-            String assignType = assignValue.getType().toString();
-            if (!varType.equals(assignType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        assignType + " expected " + varType + ".");
-            }
-        } else {
-            String assignType = assignValue.getType().toString();
-            if (!varType.equals(assignType)) {
-                throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
-                        assignType + " expected " + varType + ".");
-            }
+        assignValue.accept(this);
+        Type assignType = typeOf(assignValue);
+        if (arrayType.getElement() != assignType) {
+            throw new SemanticException("Variable " + identifier + " type does not match value type. Found " +
+                    assignType + " expected " + arrayType.getElement() + ".");
         }
     }
 
@@ -375,24 +459,45 @@ public class SemanticAnalyzer implements ASTVisitor {
         arrayAccess.getIndex().accept(this);
 
         // Ensure the array expression is an array type
-        if (!arrayExprType.getName().endsWith("[]")) {
+        if (!(arrayExprType instanceof ArrayType)) {
             throw new SemanticException("Invalid array access: " + arrayExprType + " is not an array type.");
         }
 
         // Ensure the index expression is an integer type
-        Type indexExprType = arrayAccess.getIndex().getType();
-        if (!indexExprType.getName().equals("int")) {
+        Type indexExprType = typeOf(arrayAccess.getIndex());
+        if (indexExprType != Type.INT) {
             throw new SemanticException("Invalid array access: Index expression type should be int, found " + indexExprType);
         }
     }
 
+    /**
+     * Perform semantic analysis for return statements, checking the value against the return type of the procedure
+     * @param returnStmt: ReturnStmt node to visit
+     * @throws SemanticException: If the value is not correct or does not match the return type
+     */
     public void visit(ReturnStmt returnStmt) throws SemanticException {
-        // Perform semantic analysis for return statements here.
-        // (e.g., checking for correct return type, scope, etc.)
         Expr returnValue = returnStmt.getValue();
         if (returnValue != null) {
             returnValue.accept(this);
         }
+        if (procedure == null) {
+            return;
+        }
+        returns = true;
+        String procName = procedure.getIdentifier();
+        Type procType = procedure.getType();
+        if (procType == Type.VOID) {
+            if (returnValue != null) {
+                throw new ReturnTypeMismatchException("Procedure " + procName + " has no return type, but contains a return statement.");
+            }
+            return;
+        }
+        // Check if return type matches the type of the return statement
+        Type returnType = returnValue == null ? Type.VOID : typeOf(returnValue);
+        if (procType != returnType) {
+            throw new ReturnTypeMismatchException("Procedure " + procName + " return type does not match return statement type. Found " +
+                    returnType + " expected " + procType + ".");
+        }
     }
 
     public void visit(CtrlStruct ifStmt) throws SemanticException {
@@ -403,10 +508,10 @@ public class SemanticAnalyzer implements ASTVisitor {
         Expr condition = ifStmt.getCondition();
         condition.accept(this);
 
-        // Ensure the condition expression is of type boolean
-        Type conditionType = condition.getType();
-        if(!conditionType.getName().equals("boolean")) {
-            throw new SemanticException("Invalid if condition: expected boolean, found " + conditionType);
+        // Ensure the condition expression is of type bool, a comparison or a logical operation gives one
+        Type conditionType = typeOf(condition);
+        if(conditionType != Type.BOOL) {
+            throw new SemanticException("Invalid if condition: expected bool, found " + conditionType);
         }
 
         // Analyze th then block
@@ -444,23 +549,23 @@ public class SemanticAnalyzer implements ASTVisitor {
 
         // Check if the procedure exists
         String identifier = callStmt.getIdentifier();
-        if(!symbolTable.containsKey(identifier)){
+        Name name = callStmt.getIdentifierName();
+        ProcDecl procDecl = procedures.get(name);
+        if (procDecl == null && !BUILTINS.contains(identifier)) {
+            if (symbolTable.lookup(name) != null) {
+                throw new SemanticException("Invalid procedure call: " + identifier + " is not a procedure.");
+            }
             throw new SemanticException("Undefined procedure: " + identifier);
         }
-        Object procDeclObj = symbolTable.get(identifier); // changed to object type
-
-        // Ensure the object has a "ProcDecl" type
-        if(!(procDeclObj instanceof ProcDecl)) {
-            throw new SemanticException("Invalid procedure call: " + identifier + " is not a procedure.");
-        }
-
-        ProcDecl procDecl = (ProcDecl) procDeclObj;
 
         // Analyze the procedure arguments
         ArrayList<Expr> arguments = callStmt.getArgs();
         for (Expr arg : arguments) {
             arg.accept(this);
         }
+        if (procDecl == null) {
+            return;
+        }
 
         // Check the types and number of the arguments against the procedure declaration
         ArrayList<Param> expectedParams = procDecl.getParams();
@@ -474,8 +579,8 @@ public class SemanticAnalyzer implements ASTVisitor {
         // Check the types of arguments
         for (int i = 0; i < arguments.size(); i++) {
             Type expectedType = expectedParams.get(i).getType();
-            Type actualType = arguments.get(i).getType();
-            if (!expectedType.equals(actualType)) {
+            Type actualType = typeOf(arguments.get(i));
+            if (expectedType != actualType) {
                 throw new SemanticException("Type mismatch for argument " + (i + 1) + " of procedure " + identifier +
                         ": Expected " + expectedType + ", found " + actualType);
             }
@@ -498,15 +603,14 @@ public class SemanticAnalyzer implements ASTVisitor {
             visit((BooleanExpr) expr);
         } else if (expr instanceof IdentifierExpr) {
             visit((IdentifierExpr) expr);
-        } else if (expr instanceof IntegerExpr) {
-            visit((IntegerExpr) expr);
-        } else if (expr instanceof RealExpr) {
-            visit((RealExpr) expr);
         } else if (expr instanceof RecordExpr) {
             visit((RecordExpr) expr);
-        } else if (expr instanceof StringExpr) {
-            visit((StringExpr) expr);
+        } else if (expr instanceof RecordAccess) {
+            visit((RecordAccess) expr);
+        } else if (expr instanceof ArrayAccessExpr) {
+            visit((ArrayAccessExpr) expr);
         }
+        // Integer, real and string literals have nothing to check
     }
     public void visit(ArrayExpr arrayExpr) throws SemanticException {
         // Perform semantic analysis for array expressions here.
@@ -518,75 +622,177 @@ public class SemanticAnalyzer implements ASTVisitor {
         // Ensure that all elements of the array are of the expected type
         Type expectedType = arrayExpr.getType();
         for (Expr e : arrayExpr.getContent()) {
-            if (!e.getType().equals(expectedType)) {
-                throw new SemanticException("Array element type mismatch: Expected " + expectedType + ", found " + e.getType());
+            Type elementType = typeOf(e);
+            if (elementType != expectedType) {
+                throw new SemanticException("Array element type mismatch: Expected " + expectedType + ", found " + elementType);
             }
         }
     }
 
     /**
      * Return the expression type of binary expression, or throw an exception if the expression is invalid
+     * The type is stored on the node, so the expression and each operation in it are only checked once however many
+     * times they are visited: by the declaration or statement using them, then by the walk of their operands. A type
+     * stored by another run, before the program was edited, is checked again
      * @param binaryExpr: BinaryExpr node to visit
-     * @return String: Type of the expression
+     * @return Type: Type of the expression
      */
-    public String visit(BinaryExpr binaryExpr) throws SemanticException {
+    public Type visit(BinaryExpr binaryExpr) throws SemanticException {
+        Type resolved = binaryExpr.getResolvedType(run);
+        if (resolved != null) {
+            return resolved;
+        }
         // Perform semantic analysis for binary expressions
-
-        // Identify the type of the left hand side of the expression
-        String leftType = binaryExpr.getLeft().getType().getName();
-        if (leftType.equals("BinaryExpr")) {
-            leftType = visit((BinaryExpr) binaryExpr.getLeft());
+        Type leftType = typeOf(binaryExpr.getLeft());
+        Type rightType = typeOf(binaryExpr.getRight());
+        boolean numeric = (leftType == Type.INT || leftType == Type.REAL) && (rightType == Type.INT || rightType == Type.REAL);
+
+        // Logical operators take bools, comparisons take two numbers or, for equality, two values of the same type,
+        // both give a bool
+        Lexer.Token operator = binaryExpr.getOperator();
+        if (isBoolean(operator)) {
+            boolean valid = switch (operator) {
+                case KEYWORD_AND, KEYWORD_OR -> leftType == Type.BOOL && rightType == Type.BOOL;
+                case SYMBOL_EQUAL, SYMBOL_NOT_EQUAL -> numeric || leftType == rightType;
+                default -> numeric;
+            };
+            if (!valid) {
+                throw new SemanticException("Invalid operands for " + operator + ". Found " + leftType + " and " + rightType + ".");
+            }
+            resolved = Type.BOOL;
+        } else if (leftType != rightType) {
+            // If the types are not the same, check if they are both integers or reals
+            if ((leftType == Type.INT && rightType == Type.REAL) || (leftType == Type.REAL && rightType == Type.INT)) {
+                // If one side is an integer and the other a real, the expression is a valid real
+                resolved = Type.REAL;
+            } else {
+                throw new UndefinedIdentifierException("Type mismatch. Found " + leftType + " and " + rightType + ".");
+            }
+        } else {
+            resolved = leftType;
         }
+        binaryExpr.setResolvedType(resolved, run);
+        return resolved;
+    }
 
-        if (leftType.equals("identifier")) {
-            try {
-                leftType = symbolTable.get(((IdentifierExpr) binaryExpr.getLeft()).getIdentifier()).getName();
-            } catch (NullPointerException e) {
-                throw new UndefinedIdentifierException("Undeclared identifier: " + ((IdentifierExpr) binaryExpr.getLeft()).getIdentifier());
+    /**
+     * Get the type of an expression
+     * @param expr: Expression, or operand of a binary expression
+     * @return Type: Type of the operation for a binary expression, of the field for a record access, of the element for
+     * an array access, of the declaration for an identifier, of the node otherwise
+     * @throws SemanticException: If an identifier is not declared, or an operation or a field access is invalid
+     */
+    private Type typeOf(Expr expr) throws SemanticException {
+        if (expr instanceof BinaryExpr binary) {
+            return visit(binary);
+        } else if (expr instanceof RecordAccess access) {
+            return visit(access);
+        } else if (expr instanceof ArrayAccessExpr access) {
+            return visit(access);
+        } else if (expr instanceof IdentifierExpr identifier) {
+            Type type = symbolTable.lookup(identifier.getName());
+            if (type == null) {
+                throw new UndefinedIdentifierException("Undeclared identifier: " + identifier.getIdentifier());
             }
+            identifier.setResolvedType(type);
+            return type;
         }
+        return expr.getType();
+    }
 
-        // Identify the type of the right hand side of the expression
-        String rightType = binaryExpr.getRight().getType().getName();
-        if (rightType.equals("BinaryExpr")) {
-            rightType = visit((BinaryExpr) binaryExpr.getRight());
+    /**
+     * Type an element read from an array with the element type of the array
+     * @param arrayAccess: ArrayAccessExpr node to visit
+     * @return Type: Type of the elements of the array
+     * @throws SemanticException: If the array is not declared, is not an array, or the index is not an int
+     */
+    public Type visit(ArrayAccessExpr arrayAccess) throws SemanticException {
+        Name identifier = arrayAccess.getIdentifierName();
+        Type arrayType = symbolTable.lookup(identifier);
+        if (arrayType == null) {
+            throw new UndefinedIdentifierException("Undeclared identifier: " + identifier);
         }
-
-        if (rightType.equals("identifier")) {
-            try {
-                rightType = symbolTable.get(((IdentifierExpr) binaryExpr.getRight()).getIdentifier()).getName();
-            } catch (NullPointerException e) {
-                throw new UndefinedIdentifierException("Undeclared identifier: " + ((IdentifierExpr) binaryExpr.getRight()).getIdentifier());
-            }
+        if (!(arrayType instanceof ArrayType array)) {
+            throw new SemanticException("Invalid array access: " + identifier + " is not an array.");
         }
-
-        // Check if the two types are the same
-        if (!leftType.equals(rightType)) {
-            // If the types are not the same, check if they are both integers or reals
-            if (leftType.equals("int") && rightType.equals("real")) {
-                // If the left type is integer and the right type is real, the expression is valid
-                return "real";
-            } else if (leftType.equals("real") && rightType.equals("int")) {
-                // If the left type is real and the right type is integer, the expression is valid
-                return "real";
-            }
-            throw new UndefinedIdentifierException("Type mismatch. Found " + leftType + " and " + rightType + ".");
+        Type indexType = typeOf(arrayAccess.getIndex());
+        if (indexType != Type.INT) {
+            throw new SemanticException("Invalid array access: Index expression type should be int, found " + indexType);
         }
-        return leftType;
+        arrayAccess.setResolvedType(array.getElement());
+        return array.getElement();
     }
 
     public void visit(IdentifierExpr identifierExpr) throws SemanticException {
         // Check if the identifier is declared
-        String identifier = identifierExpr.getIdentifier();
-        if(!symbolTable.containsKey(identifier)) {
+        Name identifier = identifierExpr.getName();
+        Type type = symbolTable.lookup(identifier);
+        if(type == null) {
             throw new SemanticException("Undeclared identifier: " + identifier);
         }
-        // Get the type of the identifier from the symbol table
-        identifierExpr.setType(symbolTable.get(identifier));
+        // Keep the type of the identifier from the innermost scope declaring it, the parsed type stays a placeholder
+        identifierExpr.setResolvedType(type);
     }
 
     public void visit(RecordExpr recordExpr) throws  SemanticException {
-        // Placeholder
+        visit(recordExpr, recordExpr.getType().getName());
+    }
+
+    /**
+     * Check the values of a record construction against the fields of the record, in declaration order
+     * @param recordExpr: RecordExpr node to visit
+     * @param declName: Name of the declaration initialised by the record, for the error messages
+     * @throws SemanticException: If the record is not declared or a value does not match its field
+     */
+    public void visit(RecordExpr recordExpr, String declName) throws SemanticException {
+        RecordLayout layout = layoutOf(recordExpr.getType());
+        if (layout == null) {
+            throw new SemanticException("Undefined record type: " + recordExpr.getType());
+        }
+        ArrayList<RecordEntry> entries = recordExpr.getContent();
+        if (entries.size() != layout.getFieldCount()) {
+            throw new SemanticException("Record " + layout.getName() + " expects " + layout.getFieldCount() +
+                    " values for '" + declName + "', found " + entries.size() + ".");
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            Expr value = entries.get(i).getValue();
+            if (value instanceof RecordExpr nested) {
+                visit(nested, declName);
+            }
+            Type fieldType = layout.getFieldType(i);
+            Type entryType = typeOf(value);
+            if (fieldType != entryType) {
+                throw new SemanticException("Field " + layout.getName() + "." + layout.getFieldName(i) +
+                        " type does not match value type for '" + declName + "'. Found " + entryType + " expected "
+                        + fieldType + ".");
+            }
+        }
+        recordExpr.setLayout(layout);
+    }
+
+    /**
+     * Resolve the field of a record access to its index in the layout of the record
+     * @param recordAccess: RecordAccess node to visit
+     * @return Type: Type of the field, or the placeholder type of the node if the type of the record is not known
+     * @throws SemanticException: If the accessed value is not a record or the record has no such field
+     */
+    public Type visit(RecordAccess recordAccess) throws SemanticException {
+        Type recordType = typeOf(recordAccess.getIdentifier());
+        RecordLayout layout = layoutOf(recordType);
+        if (layout == null) {
+            if (recordType.getDescriptor() != null) {
+                throw new SemanticException("Invalid field access: " + recordAccess.getIdentifier() + " is not a record.");
+            }
+            // The type of the accessed value is not known, the access stays untyped
+            return recordAccess.getType();
+        }
+        String field = ((IdentifierExpr) recordAccess.getField()).getIdentifier();
+        int index = layout.indexOf(field);
+        if (index < 0) {
+            throw new UndefinedIdentifierException("Undefined field " + field + " in record " + layout.getName() + ".");
+        }
+        recordAccess.resolve(layout, index);
+        return layout.getFieldType(index);
     }
 
     /**
@@ -596,8 +802,8 @@ public class SemanticAnalyzer implements ASTVisitor {
      */
     public void visit(BooleanExpr booleanExpr) throws  SemanticException {
         // Check that the boolean expression is valid
-        if (!booleanExpr.getType().getName().equals("bool")) {
-            throw new SemanticException("Invalid boolean expression: Expected bool, found " + booleanExpr.getType().getName());
+        if (booleanExpr.getType() != Type.BOOL) {
+            throw new SemanticException("Invalid boolean expression: Expected bool, found " + booleanExpr.getType());
         }
     }
     /**
@@ -606,11 +812,30 @@ public class SemanticAnalyzer implements ASTVisitor {
      */
     @Override
     public void visit(Block block) throws SemanticException {
-        // Analyze each statement in the block
-        for (Object stmt : block.getStatements()) {
-            ((ASTNode) stmt).accept(this);
+        // Analyze each statement in the block, in a scope holding at most one declaration per statement
+        ArrayList<Object> statements = block.getStatements();
+        symbolTable.enter(statements.size());
+        try {
+            for (Object stmt : statements) {
+                ((ASTNode) stmt).accept(this);
+            }
+        } finally {
+            symbolTable.leave();
         }
     }
+
+    /**
+     * Check if an operator gives a bool
+     * @param operator: Operator of a binary expression
+     * @return boolean: True for comparisons and logical operators
+     */
+    private static boolean isBoolean(Lexer.Token operator) {
+        return switch (operator) {
+            case SYMBOL_EQUAL, SYMBOL_NOT_EQUAL, SYMBOL_LESS_THAN, SYMBOL_GREATER_THAN, SYMBOL_LESS_THAN_OR_EQUAL,
+                    SYMBOL_GREATER_THAN_OR_EQUAL, KEYWORD_AND, KEYWORD_OR -> true;
+            default -> false;
+        };
+    }
 }
 
 
@@ -0,0 +1,227 @@
+package compiler.SemanticAnalyser;
+
+import compiler.Lexer.Name;
+import compiler.Parser.Type;
+
+import java.util.Arrays;
+
+/**
+ * Symbol table of nested lexical scopes
+ * Each scope is an open-addressing map from interned names to types, linked to the scope enclosing it, so entering and
+ * leaving a scope is O(1) and a name declared in a scope shadows the same name in the scopes around it
+ */
+public final class SymbolTable {
+    private static final int MIN_CAPACITY = 4; // Smallest number of slots of a scope that holds declarations
+
+    /**
+     * Scope of the table, its slots are only allocated at its first declaration
+     */
+    private static final class Scope {
+        final Scope parent; // Enclosing scope, null for the global scope
+        final int expected; // Number of declarations the scope is expected to hold
+        Name[] names; // Slots of the names, null while the scope is empty
+        Type[] types; // Type of the name in each slot
+        int[] lengths; // Length of the array named in each slot, null while no array of known length is declared
+        int size; // Number of names in the scope
+
+        Scope(Scope parent, int expected) {
+            this.parent = parent;
+            this.expected = expected;
+        }
+    }
+
+    private Scope current; // Innermost scope
+    private int depth; // Number of scopes entered around the outermost scope
+
+    /**
+     * Constructor for SymbolTable
+     * @param declarations - Number of declarations expected in the global scope
+     */
+    public SymbolTable(int declarations) {
+        this.current = new Scope(null, declarations);
+    }
+
+    /**
+     * Constructor for a table over the scopes of another one
+     * @param shared - Innermost scope of the other table, the outermost scope of this one
+     */
+    private SymbolTable(Scope shared) {
+        this.current = shared;
+    }
+
+    /**
+     * Make a table over the scopes of this one, to analyse a procedure body on another thread
+     * Lookups only read the scopes, so tables over the same scopes may be used concurrently as long as nothing is
+     * declared in the shared scopes: each table declares in the scopes it enters, which are its own
+     * @return SymbolTable - Table whose outermost scope is the innermost scope of this one
+     */
+    public SymbolTable fork() {
+        return new SymbolTable(this.current);
+    }
+
+    /**
+     * Enter a new innermost scope
+     * @param declarations - Number of declarations expected in the scope, at most the number of statements of its block
+     */
+    public void enter(int declarations) {
+        this.current = new Scope(this.current, declarations);
+        this.depth++;
+    }
+
+    /**
+     * Leave the innermost scope, dropping its declarations
+     */
+    public void leave() {
+        if (this.depth == 0) {
+            throw new IllegalStateException("Cannot leave the outermost scope");
+        }
+        this.current = this.current.parent;
+        this.depth--;
+    }
+
+    /**
+     * Get the number of scopes entered around the outermost scope
+     * @return 0 in the outermost scope
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Declare a name in the innermost scope
+     * @param name - Name to declare
+     * @param type - Type of the name
+     */
+    public void declare(Name name, Type type) {
+        declare(name, type, -1);
+    }
+
+    /**
+     * Declare an array of known length in the innermost scope
+     * @param name - Name to declare
+     * @param type - Type of the name
+     * @param length - Length of the array, -1 if it is not known
+     */
+    public void declare(Name name, Type type, int length) {
+        Scope scope = this.current;
+        if (scope.names == null) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < scope.expected * 2) {
+                capacity <<= 1;
+            }
+            scope.names = new Name[capacity];
+            scope.types = new Type[capacity];
+        } else if ((scope.size + 1) * 2 > scope.names.length) {
+            grow(scope);
+        }
+        int slot = slot(scope.names, name);
+        if (scope.names[slot] == null) {
+            scope.names[slot] = name;
+            scope.size++;
+        }
+        scope.types[slot] = type;
+        if (length >= 0 && scope.lengths == null) {
+            scope.lengths = new int[scope.names.length];
+            Arrays.fill(scope.lengths, -1);
+        }
+        if (scope.lengths != null) {
+            scope.lengths[slot] = length;
+        }
+    }
+
+    /**
+     * Check if a name is declared in the innermost scope, ignoring the scopes around it
+     * @param name - Name to look up
+     * @return true if the innermost scope declares the name
+     */
+    public boolean isDeclaredInScope(Name name) {
+        return find(this.current, name) != null;
+    }
+
+    /**
+     * Get the type of a name from the innermost scope declaring it
+     * @param name - Name to look up
+     * @return Type of the name, or null if no scope declares it
+     */
+    public Type lookup(Name name) {
+        for (Scope scope = this.current; scope != null; scope = scope.parent) {
+            Type type = find(scope, name);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the length of an array from the innermost scope declaring its name
+     * @param name - Name to look up
+     * @return Length of the array, -1 if no scope declares the name or its length is not known
+     */
+    public int lookupLength(Name name) {
+        for (Scope scope = this.current; scope != null; scope = scope.parent) {
+            if (scope.names != null) {
+                int slot = slot(scope.names, name);
+                if (scope.names[slot] != null) {
+                    return scope.lengths == null ? -1 : scope.lengths[slot];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the type of a name in a scope
+     * @param scope - Scope to look in
+     * @param name - Name to look up
+     * @return Type of the name, or null if the scope does not declare it
+     */
+    private static Type find(Scope scope, Name name) {
+        if (scope.names == null) {
+            return null;
+        }
+        int slot = slot(scope.names, name);
+        return scope.names[slot] == null ? null : scope.types[slot];
+    }
+
+    /**
+     * Find the slot of a name, probing linearly from its hash
+     * @param names - Slots of a scope, at least one of them empty
+     * @param name - Name to look for
+     * @return Slot holding the name, or the empty slot where it would be
+     */
+    private static int slot(Name[] names, Name name) {
+        int mask = names.length - 1;
+        int hash = name.getId() * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (names[slot] != null && names[slot] != name) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Double the slots of a scope that holds more declarations than expected
+     * @param scope - Scope to grow
+     */
+    private static void grow(Scope scope) {
+        Name[] names = scope.names;
+        Type[] types = scope.types;
+        int[] lengths = scope.lengths;
+        scope.names = new Name[names.length * 2];
+        scope.types = new Type[names.length * 2];
+        if (lengths != null) {
+            scope.lengths = new int[names.length * 2];
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                int slot = slot(scope.names, names[i]);
+                scope.names[slot] = names[i];
+                scope.types[slot] = types[i];
+                if (lengths != null) {
+                    scope.lengths[slot] = lengths[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import compiler.Lexer.Lexer;
+import compiler.Parser.ArenaParser;
+import compiler.Parser.Parser;
+import compiler.Parser.Program;
+
+import java.util.function.Function;
+
+/**
+ * Memory benchmark for the AST, run with "gradle astMemoryBenchmark"
+ * The input is a generated program of procedures of the requested size (in MB, first argument), and the heap kept by
+ * its parsed program is reported in bytes per byte of source
+ */
+public class AstMemoryBenchmark {
+    /**
+     * Build the benchmark input
+     * @param megabytes - Approximate size of the input
+     * @return Benchmark input
+     */
+    static String generatedProgram(int megabytes) {
+        StringBuilder input = new StringBuilder(megabytes * 1024 * 1024 + 1024);
+        input.append("record Point { x int; y int; }\n");
+        for (int i = 0; input.length() < megabytes * 1024 * 1024; i++) {
+            input.append("var g").append(i).append(" int = ").append(i).append(";\n");
+            input.append("proc f").append(i).append("(a int, p Point) int {\n")
+                    .append("    var b int = a * ").append(i).append(" + p.x - (g").append(i).append(" % 7);\n")
+                    .append("    var r real = 1.5 * b;\n")
+                    .append("    while (b > 0 and r < 100.0) {\n")
+                    .append("        if (b % 2 == 0) { b = b - 1; }\n")
+                    .append("        write(b, \"step\");\n")
+                    .append("        r = r + b * 2;\n")
+                    .append("    }\n")
+                    .append("    return b + g").append(i).append(";\n}\n");
+        }
+        return input.toString();
+    }
+
+    /**
+     * Get the heap in use once garbage is collected
+     * @return Bytes of live objects, approximately
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Measure and print the heap kept by the program of a parser
+     * @param name - Name of the parser
+     * @param input - Source to parse
+     * @param parser - Parses the whole source
+     */
+    static void measure(String name, String input, Function<String, Program> parser) {
+        long before = usedHeap();
+        Program program = parser.apply(input);
+        long after = usedHeap();
+        long bytes = after - before;
+        System.out.printf("%-12s %12d bytes %8.1f bytes/source byte %8d declarations%n", name, bytes,
+                (double) bytes / input.length(), program.getContent().size());
+    }
+
+    public static void main(String[] args) {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String input = generatedProgram(megabytes);
+        System.out.println("Input: " + input.length() + " characters");
+        measure("objects", input, s -> new Parser(Lexer.tokenize(s)).getProgram());
+        measure("arena", input, s -> ArenaParser.parse(Lexer.tokenize(s)));
+    }
+}
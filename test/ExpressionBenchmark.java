@@ -0,0 +1,80 @@
+import compiler.CodeGenerator.ExpressionCodeGenerator;
+import compiler.Exceptions.SemanticException;
+import compiler.Lexer.Lexer;
+import compiler.Parser.Parser;
+import compiler.Parser.ProcCall;
+import compiler.Parser.ProcDecl;
+import compiler.Parser.Program;
+import compiler.SemanticAnalyser.SemanticAnalyzer;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.Arrays;
+
+/**
+ * Regression benchmark for the analysis of long expressions, run with "gradle expressionBenchmark"
+ * The input is a procedure writing a single expression of int and real terms, the largest having as many terms as the
+ * first argument. The analysis walks every operation of the argument, and types each of them once, so the time per
+ * term must stay flat as the terms double
+ */
+public class ExpressionBenchmark {
+    private static final int WARMUP = 3; // Number of runs before measuring
+    private static final int RUNS = 7; // Number of measured runs
+
+    /**
+     * Build the benchmark input
+     * @param terms - Number of terms of the expression
+     * @return Benchmark input
+     */
+    static String expressionProgram(int terms) {
+        StringBuilder input = new StringBuilder("proc f(a int) int {\nwriteReal(1");
+        for (int t = 1; t < terms; t++) {
+            input.append(t % 3 == 0 ? " * " : " + ").append(t % 2 == 0 ? Integer.toString(t) : t + ".5");
+        }
+        return input.append(");\nreturn 0;\n}\n").toString();
+    }
+
+    /**
+     * Measure the semantic analysis and the code generation of an input, each run on a newly parsed program since the
+     * analysis stores the types on the nodes
+     * @param input - Benchmark input
+     * @param terms - Number of terms of the expression
+     */
+    static void measure(String input, int terms) throws SemanticException {
+        long[] analysis = new long[RUNS];
+        long[] generation = new long[RUNS];
+        for (int i = -WARMUP; i < RUNS; i++) {
+            Program program = new Parser(Lexer.tokenize(input)).getProgram();
+            long start = System.nanoTime();
+            program.accept(new SemanticAnalyzer());
+            long analysed = System.nanoTime();
+            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Expression", null, "java/lang/Object", null);
+            MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "value", "()F", null, null);
+            mv.visitCode();
+            ProcCall call = (ProcCall) ((ProcDecl) program.getContent().get(0)).getBody().getStatements().get(0);
+            ExpressionCodeGenerator.castExpr(call.getArgs().get(0)).generateCode(mv);
+            mv.visitInsn(Opcodes.FRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+            writer.toByteArray();
+            long generated = System.nanoTime();
+            if (i >= 0) {
+                analysis[i] = analysed - start;
+                generation[i] = generated - analysed;
+            }
+        }
+        Arrays.sort(analysis);
+        Arrays.sort(generation);
+        System.out.printf("%6d terms: analysis %8.3f ms best %8.1f ns/term, code generation %8.3f ms best%n", terms,
+                analysis[0] / 1e6, (double) analysis[0] / terms, generation[0] / 1e6);
+    }
+
+    public static void main(String[] args) throws SemanticException {
+        int terms = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        for (int size = terms / 8; size <= terms; size *= 2) {
+            measure(expressionProgram(size), size);
+        }
+    }
+}
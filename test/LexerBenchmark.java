@@ -0,0 +1,122 @@
+import compiler.Lexer.DfaLexer;
+import compiler.Lexer.Lexer;
+import compiler.Lexer.ParallelLexer;
+import compiler.Lexer.Symbol;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static compiler.Lexer.Lexer.Token.EOF;
+
+/**
+ * Throughput benchmark for the lexer, run with "gradle lexerBenchmark"
+ * The input is "code_example.lang" repeated until it reaches the requested size (in MB, first argument)
+ */
+public class LexerBenchmark {
+    private static final int WARMUP = 3; // Number of runs before measuring
+    private static final int RUNS = 5; // Number of measured runs
+
+    /**
+     * Build the benchmark input by repeating the example file
+     * @param megabytes - Approximate size of the input
+     * @return Benchmark input
+     */
+    static String scaledExample(int megabytes) throws IOException {
+        String example = Files.readString(Path.of("code_example.lang"));
+        StringBuilder input = new StringBuilder(megabytes * 1024 * 1024 + example.length());
+        while (input.length() < megabytes * 1024 * 1024) {
+            input.append(example).append('\n');
+        }
+        return input.toString();
+    }
+
+    /**
+     * Lex the whole input
+     * @param lexer - Lexer to drain
+     * @return Number of symbols read
+     */
+    static int drain(Lexer lexer) {
+        int count = 1;
+        Symbol symbol = lexer.currentSymbol;
+        while (symbol.getToken() != EOF) {
+            symbol = lexer.getNextSymbol();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Lex the whole input with the DFA lexer
+     * @param lexer - Lexer to drain
+     * @return Number of symbols read
+     */
+    static int drain(DfaLexer lexer) {
+        int count = 1;
+        Symbol symbol = lexer.currentSymbol;
+        while (symbol.getToken() != EOF) {
+            symbol = lexer.getNextSymbol();
+            count++;
+        }
+        return count;
+    }
+
+    interface LexerRun {
+        int lex(String input); // Returns the number of tokens read
+    }
+
+    /**
+     * Measure and print the throughput of a lexer mode
+     * @param name - Name of the mode
+     * @param input - Input to lex
+     * @param run - Lexes the whole input
+     */
+    static void measure(String name, String input, LexerRun run) {
+        int tokens = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            tokens = run.lex(input);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.lex(input);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double seconds = best / 1e9;
+        System.out.printf("%-16s %10d tokens %8.1f ms %8.1f MB/s%n", name, tokens, seconds * 1000,
+                input.length() / (1024.0 * 1024.0) / seconds);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String input = scaledExample(megabytes);
+        System.out.println("Input: " + input.length() + " characters");
+        measure("reader", input, s -> drain(new Lexer(new StringReader(s))));
+        measure("in-memory", input, s -> drain(new Lexer(s)));
+        measure("token-buffer", input, s -> Lexer.tokenize(s).size());
+        measure("dfa", input, s -> drain(new DfaLexer(s)));
+        measure("dfa-buffer", input, s -> DfaLexer.tokenize(s).size());
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            int chunks = threads * 4;
+            measure("parallel-" + threads, input, s -> ParallelLexer.tokenize(s, pool, chunks).size());
+            pool.shutdown();
+        }
+        Path file = Files.createTempFile("benchmark", ".lang");
+        try {
+            Files.writeString(file, input);
+            measure("mapped-file", input, s -> {
+                try {
+                    return Lexer.tokenize(file).size();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import compiler.Lexer.Lexer;
+import compiler.Parser.ParseCache;
+import compiler.Parser.Parser;
+import compiler.Parser.Program;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Load time benchmark for the parse cache, run with "gradle parseCacheBenchmark"
+ * The input is the generated program of AstMemoryBenchmark (in MB, first argument), parsed from its source and read back
+ * from the cache
+ */
+public class ParseCacheBenchmark {
+    private static final int WARMUP = 3; // Number of runs before measuring
+    private static final int RUNS = 5; // Number of measured runs
+
+    /**
+     * Measure and print the time to get the program of a source
+     * @param name - Name of the mode
+     * @param input - Source of the program
+     * @param load - Gets the program of the source
+     */
+    static void measure(String name, String input, Function<String, Program> load) {
+        int declarations = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            declarations = load.apply(input).getContent().size();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            load.apply(input);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-12s %8d declarations %8.1f ms%n", name, declarations, best / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String input = AstMemoryBenchmark.generatedProgram(megabytes);
+        System.out.println("Input: " + input.length() + " characters");
+        Path directory = Files.createTempDirectory("parse-cache");
+        try {
+            ParseCache cache = new ParseCache(directory);
+            cache.put(input, new Parser(Lexer.tokenize(input)).getProgram());
+            measure("cold-parse", input, s -> new Parser(Lexer.tokenize(s)).getProgram());
+            measure("cache-hit", input, cache::get);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
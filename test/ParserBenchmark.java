@@ -0,0 +1,53 @@
+import compiler.Lexer.Lexer;
+import compiler.Lexer.TokenBuffer;
+import compiler.Parser.Parser;
+import compiler.Parser.TableParser;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Throughput benchmark for the parsers, run with "gradle parserBenchmark"
+ * The inputs are "code_example.lang" repeated and a generated program of procedures, of the requested size (in MB,
+ * first argument), lexed once so that only parsing is measured
+ */
+public class ParserBenchmark {
+    private static final int WARMUP = 3; // Number of runs before measuring
+    private static final int RUNS = 7; // Number of measured runs
+
+    /**
+     * Measure and print the throughput of a parser, best and median of the runs
+     * @param name - Name of the parser and input
+     * @param tokens - Tokens of the input
+     * @param parse - Parses the whole input
+     */
+    static void measure(String name, TokenBuffer tokens, Function<TokenBuffer, Parser> parse) {
+        for (int i = 0; i < WARMUP; i++) {
+            parse.apply(tokens);
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Parser parser = parse.apply(tokens);
+            times[i] = System.nanoTime() - start;
+            if (!parser.getDiagnostics().isEmpty()) {
+                throw new IllegalStateException(parser.getDiagnostics().get(0));
+            }
+        }
+        Arrays.sort(times);
+        double megabytes = tokens.getSource().length() / (1024.0 * 1024.0);
+        System.out.printf("%-24s %10d tokens %8.1f ms best %8.1f ms median %8.1f MB/s%n", name, tokens.size(),
+                times[0] / 1e6, times[RUNS / 2] / 1e6, megabytes / (times[0] / 1e9));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        TokenBuffer example = Lexer.tokenize(LexerBenchmark.scaledExample(megabytes));
+        TokenBuffer generated = Lexer.tokenize(AstMemoryBenchmark.generatedProgram(megabytes));
+        measure("descent-example", example, tokens -> new Parser(tokens.cursor(), false));
+        measure("table-example", example, tokens -> new TableParser(tokens.cursor(), false));
+        measure("descent-generated", generated, tokens -> new Parser(tokens.cursor(), false));
+        measure("table-generated", generated, tokens -> new TableParser(tokens.cursor(), false));
+    }
+}
@@ -0,0 +1,170 @@
+import compiler.Exceptions.SemanticException;
+import compiler.Lexer.Lexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
+import compiler.Parser.Parser;
+import compiler.Parser.Program;
+import compiler.Parser.Type;
+import compiler.SemanticAnalyser.SemanticAnalyzer;
+import compiler.SemanticAnalyser.SymbolTable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Benchmark for the scoped symbol table, run with "gradle scopeBenchmark"
+ * The input is a generated program of procedures nesting blocks deeply (first argument) with many locals per block
+ * (second argument), each local shadowing the one of the enclosing block. The semantic analysis of the program is
+ * timed, then the same scope operations on SymbolTable and on a stack of HashMaps
+ */
+public class ScopeBenchmark {
+    private static final int PROCEDURES = 2000; // Number of procedures of the input
+    private static final int WARMUP = 3; // Number of runs before measuring
+    private static final int RUNS = 7; // Number of measured runs
+    private static int found; // Names found by the replays, so their lookups are not optimised away
+
+    /**
+     * Build the benchmark input
+     * @param depth - Number of nested blocks in each procedure
+     * @param locals - Number of locals declared in each block
+     * @return Benchmark input
+     */
+    static String nestedProgram(int depth, int locals) {
+        StringBuilder input = new StringBuilder();
+        for (int p = 0; p < PROCEDURES; p++) {
+            input.append("proc f").append(p).append("(a int) int {\n");
+            for (int d = 0; d < depth; d++) {
+                for (int l = 0; l < locals; l++) {
+                    // Each local reads the parameter, found in the outermost scope, and the local it shadows
+                    input.append("var v").append(l).append(" int = a + ").append(d == 0 ? "1" : "v" + l).append(";\n");
+                }
+                input.append("while (a > ").append(d).append(") {\n");
+            }
+            input.append("a = a - 1;\n");
+            input.append("}\n".repeat(depth));
+            input.append("return 0;\n}\n");
+        }
+        return input.toString();
+    }
+
+    /**
+     * Measure and print the time of an operation, best and median of the runs
+     * @param name - Name of the operation
+     * @param declarations - Number of declarations made by the operation
+     * @param operation - Operation to time
+     */
+    static void measure(String name, long declarations, Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-16s %8.2f ms best %8.2f ms median %8.1f ns/declaration%n", name, times[0] / 1e6,
+                times[RUNS / 2] / 1e6, (double) times[0] / declarations);
+    }
+
+    /**
+     * Replay the scopes of the input on a SymbolTable
+     * @param depth - Number of nested blocks in each procedure
+     * @param locals - Names of the locals declared in each block
+     * @param parameter - Name of the parameter
+     * @param type - Type of every name
+     * @return Number of names found
+     */
+    static int symbolTable(int depth, Name[] locals, Name parameter, Type type) {
+        SymbolTable table = new SymbolTable(PROCEDURES);
+        int found = 0;
+        for (int p = 0; p < PROCEDURES; p++) {
+            table.enter(1);
+            table.declare(parameter, type);
+            for (int d = 0; d < depth; d++) {
+                table.enter(locals.length + 1);
+                for (Name local : locals) {
+                    found += table.lookup(parameter) != null && (d == 0 || table.lookup(local) != null) ? 1 : 0;
+                    table.declare(local, type);
+                }
+            }
+            for (int d = 0; d <= depth; d++) {
+                table.leave();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Replay the scopes of the input on a stack of HashMaps, searched from the innermost
+     * @param depth - Number of nested blocks in each procedure
+     * @param locals - Names of the locals declared in each block
+     * @param parameter - Name of the parameter
+     * @param type - Type of every name
+     * @return Number of names found
+     */
+    static int hashMaps(int depth, Name[] locals, Name parameter, Type type) {
+        ArrayDeque<HashMap<Name, Type>> scopes = new ArrayDeque<>();
+        scopes.push(new HashMap<>());
+        int found = 0;
+        for (int p = 0; p < PROCEDURES; p++) {
+            scopes.push(new HashMap<>());
+            scopes.peek().put(parameter, type);
+            for (int d = 0; d < depth; d++) {
+                scopes.push(new HashMap<>());
+                for (Name local : locals) {
+                    found += lookup(scopes, parameter) != null && (d == 0 || lookup(scopes, local) != null) ? 1 : 0;
+                    scopes.peek().put(local, type);
+                }
+            }
+            for (int d = 0; d <= depth; d++) {
+                scopes.pop();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Look a name up in a stack of HashMaps
+     * @param scopes - Scopes, the innermost first
+     * @param name - Name to look up
+     * @return Type of the name, or null if no scope declares it
+     */
+    static Type lookup(ArrayDeque<HashMap<Name, Type>> scopes, Name name) {
+        for (HashMap<Name, Type> scope : scopes) {
+            Type type = scope.get(name);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws SemanticException {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int locals = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        String input = nestedProgram(depth, locals);
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+        long declarations = (long) PROCEDURES * (depth * locals + 1);
+        System.out.println("Input: " + input.length() + " characters, " + declarations + " declarations");
+        measure("analysis", declarations, () -> {
+            try {
+                program.accept(new SemanticAnalyzer());
+            } catch (SemanticException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        NameTable names = NameTable.shared();
+        Name[] localNames = new Name[locals];
+        for (int l = 0; l < locals; l++) {
+            localNames[l] = names.intern("v" + l);
+        }
+        Name parameter = names.intern("a");
+        Type type = Type.INT;
+        measure("symbol-table", declarations, () -> found += symbolTable(depth, localNames, parameter, type));
+        measure("hash-maps", declarations, () -> found += hashMaps(depth, localNames, parameter, type));
+    }
+}
@@ -0,0 +1,104 @@
+import compiler.Compiler;
+import compiler.Exceptions.SemanticException;
+import compiler.Parser.Parser;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestCompiler {
+
+    /**
+     * Compile a source file parsed whole, then streamed one declaration at a time, and check both give the same class
+     * @param path - Source file
+     * @param className - Name of the generated class
+     */
+    private static void assertSameClass(Path path, String className) throws Parser.ParserException, SemanticException {
+        Compiler compiler = new Compiler();
+        byte[] batch = compiler.compileProgram(compiler.parseFile(path), className);
+        byte[] streamed = compiler.compileFile(path, className);
+        assertArrayEquals(batch, streamed);
+    }
+
+    /**
+     * Test the example file gives the same class when it is streamed
+     */
+    @Test
+    public void testStreamedExample() {
+        try {
+            assertSameClass(Path.of("code_example.lang"), "code_example");
+        } catch (Parser.ParserException | SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    /**
+     * Test the basic examples give the same class when they are streamed
+     */
+    @Test
+    public void testStreamedBasicExamples() throws IOException {
+        String[] inputs = {"var x int = 2; var y int = ((3 + 4) * 5); var z real = x + 2.0;", "var x int = 2; x = (3 + 4);",
+                "//This is a comment\nvar x int = 2;\nvar y int = 3;\nvar z int = x + y;"};
+        for (int i = 0; i < inputs.length; i++) {
+            Path path = Files.createTempFile("Example_" + (i + 1), ".lang");
+            try {
+                Files.writeString(path, inputs[i]);
+                assertSameClass(path, "Example_" + (i + 1));
+            } catch (Parser.ParserException | SemanticException e) {
+                // Should not crash here
+                e.printStackTrace();
+                fail();
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Test the float arithmetic of a procedure body stored in an arena is generated with the types found by the analysis
+     */
+    @Test
+    public void testCompactRealArithmetic() throws IOException {
+        Path path = Files.createTempFile("Compact", ".lang");
+        try {
+            Files.writeString(path, "var r real = 0.0;\nproc f(a real, b int) real {\n    r = a * b + 1.5;\n    return r;\n}\n");
+            Compiler compiler = new Compiler();
+            compiler.setCompact(true);
+            byte[] bytecode = compiler.compileProgram(compiler.parseFile(path), "Compact");
+            // Collect the instructions without operand of the class
+            Set<Integer> opcodes = new HashSet<>();
+            new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        @Override
+                        public void visitInsn(int opcode) {
+                            opcodes.add(opcode);
+                        }
+                    };
+                }
+            }, 0);
+            assertTrue(opcodes.contains(Opcodes.FMUL));
+            assertTrue(opcodes.contains(Opcodes.FADD));
+            assertFalse(opcodes.contains(Opcodes.IMUL));
+            assertFalse(opcodes.contains(Opcodes.IADD));
+        } catch (Parser.ParserException | SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -1,7 +1,21 @@
+import compiler.Lexer.DfaLexer;
+import compiler.Lexer.IncrementalLexer;
+import compiler.Lexer.Name;
+import compiler.Lexer.NameTable;
+import compiler.Lexer.ParallelLexer;
+import compiler.Lexer.TokenBuffer;
 import compiler.Lexer.Symbol;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
 import compiler.Lexer.Lexer;
 
 import static compiler.Lexer.Lexer.Token.*;
@@ -87,4 +101,264 @@ public class TestLexer {
             index++;
         }
     }
+
+    /**
+     * Test that a long comment header does not overflow the stack
+     */
+    @Test
+    public void testLongCommentHeader() {
+        String input = "// comment\n".repeat(200000) + "var x int = 2;";
+        Lexer lexer = new Lexer(new StringReader(input));
+        assertEquals(lexer.currentSymbol.getLexeme(), "var");
+    }
+
+    /**
+     * Test that the in-memory lexer returns the same symbols as the reader based lexer
+     */
+    @Test
+    public void testInMemoryInput() {
+        String input = "var x int = 2;//This should not appear\n var y int = ((3 + 4) * 5); val s string = \"a b\";";
+        Lexer readerLexer = new Lexer(new StringReader(input));
+        Lexer memoryLexer = new Lexer(input);
+        Symbol expected = readerLexer.currentSymbol;
+        Symbol symbol = memoryLexer.currentSymbol;
+        while (expected.getToken() != EOF) {
+            assertEquals(expected.getToken(), symbol.getToken());
+            assertEquals(expected.getLexeme(), symbol.getLexeme());
+            expected = readerLexer.getNextSymbol();
+            symbol = memoryLexer.getNextSymbol();
+        }
+        assertEquals(EOF, symbol.getToken());
+    }
+
+    /**
+     * Test that identifiers are interned to the same name, even across lexers
+     */
+    @Test
+    public void testInternedIdentifiers() {
+        Lexer first = new Lexer(new StringReader("counter = counter + 1;"));
+        Lexer second = new Lexer("var counter int = 0;");
+        Name name = first.currentSymbol.getName();
+        assertNotNull(name);
+        first.getNextSymbol(); // "="
+        assertSame(name, first.getNextSymbol().getName());
+        assertSame(name, second.getNextSymbol().getName());
+        assertSame(name, NameTable.shared().intern("counter"));
+        assertNull(second.currentSymbol.getName()); // Keywords are not interned
+    }
+
+    /**
+     * Test that interning from several threads returns a single name per identifier
+     */
+    @Test
+    public void testConcurrentInterning() throws InterruptedException {
+        NameTable table = new NameTable();
+        ConcurrentHashMap<String, Name> seen = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    Name name = table.intern("id" + i);
+                    assertSame(seen.computeIfAbsent(name.getText(), k -> name), name);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10000, table.size());
+    }
+
+    /**
+     * Test that the packed token buffer holds the same tokens as the symbol lexer
+     */
+    @Test
+    public void testTokenBuffer() {
+        String input = "var x int = 2;//This should not appear\n var y int = ((3 + 4) * 5); val s string = \"a b\"; x = -1.5;";
+        Lexer lexer = new Lexer(input);
+        TokenBuffer buffer = Lexer.tokenize(input);
+        int i = 0;
+        for (Symbol symbol = lexer.currentSymbol; symbol.getToken() != EOF; symbol = lexer.getNextSymbol(), i++) {
+            assertEquals(symbol.getToken(), buffer.getToken(i));
+            assertEquals(symbol.getLexeme(), buffer.getLexeme(i));
+            assertSame(symbol.getName(), buffer.getName(i));
+        }
+        assertEquals(EOF, buffer.getToken(i));
+        assertEquals(i + 1, buffer.size());
+    }
+
+    /**
+     * Test that keywords are recognised and that identifiers close to a keyword are not
+     */
+    @Test
+    public void testKeywordsAndIdentifiers() {
+        String input = "const record var val proc for to by while if else return and or true false void "
+                + "vars va iff fo retur truex tr voi r\u00e9cord \u00e9l\u00e8ve";
+        Lexer lexer = new Lexer(new StringReader(input));
+        Lexer.Token[] expected = {KEYWORD_CONST, KEYWORD_RECORD, KEYWORD_VAR, KEYWORD_VAL, KEYWORD_PROC, KEYWORD_FOR,
+                KEYWORD_TO, KEYWORD_BY, KEYWORD_WHILE, KEYWORD_IF, KEYWORD_ELSE, KEYWORD_RETURN, KEYWORD_AND, KEYWORD_OR,
+                BOOLEAN, BOOLEAN, VOID};
+        String[] words = input.split(" ");
+        Symbol symbol = lexer.currentSymbol;
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(i < expected.length ? expected[i] : IDENTIFIER, symbol.getToken());
+            assertEquals(words[i], symbol.getLexeme());
+            symbol = lexer.getNextSymbol();
+        }
+        assertEquals(EOF, symbol.getToken());
+    }
+
+    /**
+     * Test that lexing a memory-mapped file gives the same tokens as lexing its characters
+     */
+    @Test
+    public void testMappedFile() throws IOException {
+        String[] inputs = {
+                "var x int = 2;//This should not appear\n var y int = ((3 + 4) * 5); val s string = \"a b\"; x = -1.5;",
+                Files.readString(Path.of("code_example.lang")),
+                "        var identifier_with_digits_0123456789 int = 12345678901;\n//comment at the end",
+                "var caf\u00e9 string = \"cr\u00e8me\"; // non-ASCII source",
+                "x = \"unterminated"
+        };
+        for (String input : inputs) {
+            Path file = Files.createTempFile("lexer", ".lang");
+            try {
+                Files.writeString(file, input);
+                TokenBuffer expected = Lexer.tokenize(input);
+                TokenBuffer tokens = Lexer.tokenize(file);
+                assertEquals(expected.size(), tokens.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.getToken(i), tokens.getToken(i));
+                    assertEquals(expected.getStart(i), tokens.getStart(i));
+                    assertEquals(expected.getLexeme(i), tokens.getLexeme(i));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Test that the parallel lexer gives the same tokens as the lexer, including strings spanning chunk cuts
+     */
+    @Test
+    public void testParallelLexer() throws IOException {
+        String input = Files.readString(Path.of("code_example.lang"))
+                + "val s string = \"a string\n\nspanning\nlines\";\n//comment \"\nvar x int = 1;\nx = \"unterminated\n\n";
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TokenBuffer expected = Lexer.tokenize(input);
+            for (int chunks = 1; chunks <= 64; chunks++) {
+                TokenBuffer tokens = ParallelLexer.tokenize(input, pool, chunks);
+                assertEquals(expected.size(), tokens.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.getToken(i), tokens.getToken(i));
+                    assertEquals(expected.getStart(i), tokens.getStart(i));
+                    assertEquals(expected.getLength(i), tokens.getLength(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that edits only relex the tokens around them and give the same tokens as lexing the edited source
+     */
+    @Test
+    public void testIncrementalLexer() {
+        String input = "var x int = 2;\nvar y int = x + 3;\n//comment\nval s string = \"a b\";\nvar z int = y;";
+        IncrementalLexer lexer = new IncrementalLexer(input);
+
+        // Renaming y in its declaration only replaces that identifier
+        IncrementalLexer.Change change = lexer.edit(input.indexOf("y int"), 1, "count");
+        assertEquals(7, change.getFirst());
+        assertEquals(1, change.getRemoved());
+        assertEquals(1, change.getInserted());
+        assertEquals("count", lexer.getTokens().getLexeme(7));
+
+        // Opening a string swallows the rest of the source
+        lexer.edit(lexer.getSource().indexOf("val"), 0, "\"");
+        // Closing it again
+        lexer.edit(lexer.getSource().indexOf("val") - 1, 1, "");
+        // Commenting out a line
+        lexer.edit(lexer.getSource().indexOf("var z"), 0, "/");
+
+        TokenBuffer expected = Lexer.tokenize(lexer.getSource());
+        TokenBuffer tokens = lexer.getTokens();
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getToken(i), tokens.getToken(i));
+            assertEquals(expected.getStart(i), tokens.getStart(i));
+            assertEquals(expected.getLength(i), tokens.getLength(i));
+        }
+    }
+
+    /**
+     * Test that edits far apart, before and after each other, keep the tokens in place and up to date
+     */
+    @Test
+    public void testIncrementalLexerEditsInPlace() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            input.append("var x").append(i).append(" int = ").append(i).append(" + 2;\n");
+        }
+        IncrementalLexer lexer = new IncrementalLexer(input.toString());
+        TokenBuffer tokens = lexer.getTokens();
+        // Each edit opens a string and a comment, the next one removes them
+        for (int offset : new int[] {4000, 10, 2500, 2501, 0, input.length()}) {
+            lexer.edit(offset, 0, "\"string\"//");
+            lexer.edit(offset, 10, "");
+        }
+        assertEquals(input.toString(), lexer.getSource());
+        lexer.edit(lexer.getSource().indexOf("x150"), 4, "renamed");
+        assertSame(tokens, lexer.getTokens());
+
+        TokenBuffer expected = Lexer.tokenize(lexer.getSource());
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getToken(i), tokens.getToken(i));
+            assertEquals(expected.getStart(i), tokens.getStart(i));
+            assertEquals(expected.getLexeme(i), tokens.getLexeme(i));
+        }
+    }
+
+    /**
+     * Test that the DFA lexer gives the same symbols as the lexer on a valid program
+     */
+    @Test
+    public void testDfaLexer() throws IOException {
+        String input = Files.readString(Path.of("code_example.lang"));
+        Lexer lexer = new Lexer(input);
+        DfaLexer dfaLexer = new DfaLexer(input);
+        Symbol expected = lexer.currentSymbol;
+        Symbol symbol = dfaLexer.currentSymbol;
+        while (expected.getToken() != EOF) {
+            assertEquals(expected.getToken(), symbol.getToken());
+            assertEquals(expected.getLexeme(), symbol.getLexeme());
+            assertSame(expected.getName(), symbol.getName());
+            assertEquals(lexer.getTokenOffset(), dfaLexer.getTokenOffset());
+            expected = lexer.getNextSymbol();
+            symbol = dfaLexer.getNextSymbol();
+        }
+        assertEquals(EOF, symbol.getToken());
+    }
+
+    /**
+     * Test that the DFA lexer splits operators by longest match
+     */
+    @Test
+    public void testDfaLexerOperators() {
+        DfaLexer lexer = new DfaLexer("x=-1 / y // comment\n<=>!=!;;");
+        Lexer.Token[] expected = {IDENTIFIER, SYMBOL_ASSIGN, SYMBOL_MINUS, INTEGER, SYMBOL_DIVIDE, IDENTIFIER,
+                SYMBOL_LESS_THAN_OR_EQUAL, SYMBOL_GREATER_THAN, SYMBOL_NOT_EQUAL, UNKNOWN, SYMBOL_SEMICOLON,
+                SYMBOL_SEMICOLON, EOF};
+        Symbol symbol = lexer.currentSymbol;
+        for (Lexer.Token token : expected) {
+            assertEquals(token, symbol.getToken());
+            symbol = lexer.getNextSymbol();
+        }
+    }
 }
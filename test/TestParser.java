@@ -1,10 +1,39 @@
+import compiler.Exceptions.SemanticException;
 import compiler.Lexer.Lexer;
+import compiler.Lexer.TokenPipeline;
+import compiler.Parser.ArenaParser;
+import compiler.Parser.ArrayType;
+import compiler.Parser.AssignmentStmt;
+import compiler.Parser.AstSerializer;
+import compiler.Parser.BinaryExpr;
+import compiler.Parser.Block;
+import compiler.Parser.CtrlStruct;
+import compiler.Parser.Expr;
+import compiler.Parser.GeneralDecl;
+import compiler.Parser.IncrementalParser;
+import compiler.Parser.IntegerExpr;
+import compiler.Parser.LazyParser;
+import compiler.Parser.ParallelParser;
+import compiler.Parser.ParseCache;
 import compiler.Parser.Parser;
+import compiler.Parser.ProcDecl;
 import compiler.Parser.Program;
+import compiler.Parser.RecordType;
+import compiler.Parser.ReturnStmt;
+import compiler.Parser.SourcePositions;
+import compiler.Parser.TableParser;
+import compiler.Parser.Type;
 import compiler.Parser.VarDecl;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -128,4 +157,454 @@ public class TestParser {
         assertEquals(program.getContent().get(2).getClass().getSimpleName(), "VarDecl");
         assertEquals(((VarDecl) program.getContent().get(2)).getValue().getType().getName(), "BinaryExpr");
     }
+
+    /**
+     * Test that parsing from a token buffer gives the same program as parsing from the lexer
+     */
+    @Test
+    public void testTokenBufferParse() {
+        String input = "//This is a comment\nvar x int = 2;\nvar y int = 3;\nvar z int = x + y;\nx = 2 + 3;";
+        Program expected = new Parser(new Lexer(new StringReader(input))).getProgram();
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+        assertEquals(expected.toString(), program.toString());
+        assertEquals(expected.getContent().toString(), program.getContent().toString());
+    }
+
+    /**
+     * Test that parsing from the lexer thread gives the same program, on an input larger than the token ring
+     */
+    @Test
+    public void testPipelinedParse() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("var x").append(i).append(" int = (").append(i).append(" + y) * 2;\n");
+        }
+        Program expected = new Parser(new Lexer(new StringReader(input.toString()))).getProgram();
+        try (TokenPipeline tokens = new TokenPipeline(new StringReader(input.toString()))) {
+            Program program = new Parser(tokens).getProgram();
+            assertEquals(expected.toString(), program.toString());
+            assertEquals(expected.getContent().toString(), program.getContent().toString());
+        }
+    }
+
+    /**
+     * Test operator precedence and left associativity of expressions
+     */
+    @Test
+    public void testExpressionPrecedence() {
+        String input = "var x int = 1 + 2 * 3 - 4 % 5;\nvar y bool = a < b + 1 and c == d or e;\nvar z int = -p.x * (q[1] - -2) % r;";
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+        assertEquals("{{{int:1}SYMBOL_PLUS{{int:2}SYMBOL_MULTIPLY{int:3}}}SYMBOL_MINUS{{int:4}SYMBOL_MODULO{int:5}}}",
+                ((VarDecl) program.getContent().get(0)).getValue().toString());
+        assertEquals("{{{{a}SYMBOL_LESS_THAN{{b}SYMBOL_PLUS{int:1}}}KEYWORD_AND{{c}SYMBOL_EQUAL{d}}}KEYWORD_OR{e}}",
+                ((VarDecl) program.getContent().get(1)).getValue().toString());
+        assertEquals("{{{{int:0}SYMBOL_MINUS{p}.{x}}SYMBOL_MULTIPLY{q[{int:1}]SYMBOL_MINUS{int:-2}}}SYMBOL_MODULO{r}}",
+                ((VarDecl) program.getContent().get(2)).getValue().toString());
+    }
+
+    /**
+     * Test that a very long chain of operators is parsed without overflowing the stack
+     */
+    @Test
+    public void testLongExpression() {
+        int terms = 10000;
+        StringBuilder input = new StringBuilder("var x int = a0");
+        for (int i = 1; i < terms; i++) {
+            input.append(i % 2 == 0 ? " + a" : " - a").append(i);
+        }
+        input.append(";");
+        Program program = new Parser(Lexer.tokenize(input.toString())).getProgram();
+        Expr expr = ((VarDecl) program.getContent().get(0)).getValue();
+        int depth = 0;
+        while (expr instanceof BinaryExpr) {
+            // Left associative, so the chain grows on the left and every right operand is a single term
+            assertEquals("{a" + (terms - 1 - depth) + "}", ((BinaryExpr) expr).getRight().toString());
+            expr = ((BinaryExpr) expr).getLeft();
+            depth++;
+        }
+        assertEquals(terms - 1, depth);
+        assertEquals("{a0}", expr.toString());
+    }
+
+    /**
+     * Test that global declarations are found through the program index, with many globals
+     */
+    @Test(timeout = 10000)
+    public void testManyGlobals() {
+        int globals = 100000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < globals; i++) {
+            input.append("var g").append(i).append(i % 2 == 0 ? " int = 0;\n" : " int[] = int[](1);\n");
+        }
+        for (int i = 0; i < globals; i++) {
+            // Each assignment looks up the type of its global to know whether it is an array assignment
+            input.append("g").append(i).append(i % 2 == 0 ? " = 1;\n" : "[0] = 1;\n");
+        }
+        Program program = new Parser(Lexer.tokenize(input.toString())).getProgram();
+        List<GeneralDecl> content = program.getContent();
+        assertEquals(2 * globals, content.size());
+        assertSame(content, program.getContent());
+        assertSame(content.get(7), program.getGlobalDecl("g7"));
+        assertEquals("ArrayAssignment", content.get(globals + 7).getClass().getSimpleName());
+        assertEquals("Assignment", content.get(globals + 8).getClass().getSimpleName());
+        assertNull(program.getGlobalDecl("g" + globals));
+        assertThrows(UnsupportedOperationException.class, () -> content.add(content.get(0)));
+    }
+
+    /**
+     * Test that a recovering parser reports every syntax error and keeps the declarations around them
+     */
+    @Test
+    public void testErrorRecovery() {
+        String input = "var x int = 2;\n" +
+                "var y = 3;\n" +
+                "proc f(a int) int {\n" +
+                "    var b int = a * ;\n" +
+                "    if (a > ) { return 1; }\n" +
+                "    return b;\n" +
+                "}\n" +
+                "record Point { x int; y int; }\n" +
+                "var z int = (1 + 2;\n" +
+                "val w int = 4;";
+        Parser parser = new Parser(Lexer.tokenize(input).cursor(), true);
+        List<Parser.ParserException> diagnostics = parser.getDiagnostics();
+        assertEquals(4, diagnostics.size());
+        assertEquals(input.indexOf("= 3"), diagnostics.get(0).getOffset());
+        assertEquals(input.indexOf(";\n    if"), diagnostics.get(1).getOffset());
+        assertEquals(input.indexOf(") {"), diagnostics.get(2).getOffset());
+        assertEquals(input.indexOf(";\nval"), diagnostics.get(3).getOffset());
+
+        // The procedure keeps the statement after the errors, the other correct declarations are all there
+        Program program = parser.getProgram();
+        assertEquals("[f, Point, x, w]", program.getContent().stream().map(decl -> decl.getIdentifier()).toList().toString());
+        assertEquals("Block{statements=[ReturnStmt{value={b}}]}", ((ProcDecl) program.getContent().get(0)).getBody().toString());
+
+        // Without recovery the first error stops the parse
+        assertThrows(RuntimeException.class, () -> new Parser(Lexer.tokenize(input)));
+        assertEquals(0, new Parser(Lexer.tokenize("var x int = 2;").cursor(), true).getDiagnostics().size());
+    }
+
+    /**
+     * Test that edits only reparse the declarations they touch, and give the program of a full parse
+     */
+    @Test
+    public void testIncrementalParse() {
+        StringBuilder input = new StringBuilder("record Point { x int; y int; }\n");
+        for (int i = 0; i < 100; i++) {
+            input.append("var g").append(i).append(" int = ").append(i).append(" * 2;\n");
+            input.append("proc f").append(i).append("(a int) int { return a + g").append(i).append("; }\n");
+        }
+        IncrementalParser parser = new IncrementalParser(input.toString());
+        List<GeneralDecl> before = new ArrayList<>(parser.getProgram().getContent());
+
+        // Change the value of a global, only that declaration is parsed again
+        String source = parser.getSource();
+        int offset = source.indexOf("var g50 int = 50") + "var g50 int = ".length();
+        assertEquals(1, parser.edit(offset, 2, "(1 + 2)"));
+        assertIncrementalParse(parser);
+        List<GeneralDecl> after = parser.getProgram().getContent();
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            GeneralDecl decl = after.get(i);
+            assertEquals(!decl.getIdentifier().equals("g50"), before.get(i) == decl);
+        }
+
+        // Split a procedure in two, then join two declarations by removing the text between them
+        source = parser.getSource();
+        offset = source.indexOf("return a + g10;") + "return a + g10;".length();
+        assertEquals(2, parser.edit(offset, 0, " }\nproc h() int { return 1;"));
+        assertIncrementalParse(parser);
+        source = parser.getSource();
+        offset = source.indexOf("20 * 2;\nproc f20");
+        assertEquals(1, parser.edit(offset, source.indexOf("var g21 int = ") + "var g21 int = ".length() - offset, "20 * "));
+        assertIncrementalParse(parser);
+
+        // Retype a global, the assignments typed with it must follow
+        parser = new IncrementalParser("var a int[] = int[](2);\nvar b int = 1;\na[0] = 3;\n");
+        parser.edit(parser.getSource().indexOf("int[] ="), 5, "int");
+        source = parser.getSource();
+        parser.edit(source.indexOf("[0]"), 3, "");
+        assertIncrementalParse(parser);
+        assertEquals("Assignment", parser.getProgram().getContent().get(2).getClass().getSimpleName());
+
+        // A syntax error is reported, and fixing it gives the program back
+        parser.edit(0, 3, "vax");
+        assertEquals(1, parser.getDiagnostics().size());
+        parser.edit(0, 3, "var");
+        assertEquals(0, parser.getDiagnostics().size());
+        assertIncrementalParse(parser);
+    }
+
+    /**
+     * Check that an incremental parser has the program and spans a full parse of its source gives
+     * @param parser - Incremental parser
+     */
+    private static void assertIncrementalParse(IncrementalParser parser) {
+        Program expected = new Parser(Lexer.tokenize(parser.getSource())).getProgram();
+        Program program = parser.getProgram();
+        assertEquals(expected.getContent().toString(), program.getContent().toString());
+        for (int i = 0; i < expected.getContent().size(); i++) {
+            assertEquals(expected.getContent().get(i).getStart(), program.getContent().get(i).getStart());
+            assertEquals(expected.getContent().get(i).getEnd(), program.getContent().get(i).getEnd());
+        }
+    }
+
+    /**
+     * Test that parsing procedure bodies in parallel gives the program of a sequential parse
+     */
+    @Test
+    public void testParallelParse() {
+        StringBuilder input = new StringBuilder("record Point { x int; y int; }\n");
+        for (int i = 0; i < 2000; i++) {
+            input.append("var g").append(i).append(" int = ").append(i).append(";\n");
+            input.append("proc f").append(i).append("(a int) int {\n")
+                    .append("    var b int = a * ").append(i).append(";\n")
+                    .append("    while (b > 0) { if (b % 2 == 0) { b = b - 1; } write(b); }\n")
+                    .append("    return b + g").append(i).append(";\n}\n");
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Program expected = new Parser(Lexer.tokenize(input.toString())).getProgram();
+            Program program = ParallelParser.parse(Lexer.tokenize(input.toString()), pool);
+            assertEquals(expected.getContent().toString(), program.getContent().toString());
+
+            // A syntax error in a body is the error of the sequential parser
+            String broken = input.toString().replace("return b + g1500;", "return b + ;");
+            RuntimeException expectedError = assertThrows(RuntimeException.class, () -> new Parser(Lexer.tokenize(broken)));
+            RuntimeException error = assertThrows(RuntimeException.class, () -> ParallelParser.parse(Lexer.tokenize(broken), pool));
+            assertEquals(expectedError.getMessage(), error.getMessage());
+            assertThrows(RuntimeException.class, () -> ParallelParser.parse(Lexer.tokenize("proc f() void { { }"), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLazyParse() {
+        String input = "record Point { x int; y int; }\n"
+                + "var g int = 1;\n"
+                + "proc f(a int) int { var b int = a * 2; while (b > 0) { b = b - 1; } return b + g; }\n"
+                + "proc unused() void { write(; }\n"
+                + "proc main() void { f(g); }\n";
+        // The broken body is skipped, so the declarations parse
+        Program program = LazyParser.parse(Lexer.tokenize(input));
+        ProcDecl f = (ProcDecl) program.getContent().stream().filter(decl -> decl.getIdentifier().equals("f")).findFirst().orElseThrow();
+        ProcDecl unused = (ProcDecl) program.getContent().stream().filter(decl -> decl.getIdentifier().equals("unused")).findFirst().orElseThrow();
+
+        // A body is the body of the sequential parser once used
+        Program expected = new Parser(Lexer.tokenize(input.replace("write(;", "write(1);"))).getProgram();
+        ProcDecl expectedF = (ProcDecl) expected.getContent().stream().filter(decl -> decl.getIdentifier().equals("f")).findFirst().orElseThrow();
+        assertEquals(expectedF.getBody().getStatements().toString(), f.getBody().getStatements().toString());
+
+        // A syntax error in a body is reported when the body is used
+        assertThrows(RuntimeException.class, () -> unused.getBody().getStatements());
+        assertThrows(RuntimeException.class, () -> LazyParser.parse(Lexer.tokenize("proc f() void { { }")));
+    }
+
+    @Test
+    public void testArenaParse() {
+        String input = "record Point { x int; y int; }\n"
+                + "var g int = 1;\n"
+                + "proc f(a int, p Point) real {\n"
+                + "    var b int = -a * (2 + g) % 3;\n"
+                + "    val s string = \"text\";\n"
+                + "    const c real = 1.5;\n"
+                + "    var q Point = Point(1, b);\n"
+                + "    var t int[] = int[](5);\n"
+                + "    var u int[] = [int][1, 2, 3];\n"
+                + "    while (b > 0 and true) { if (b == p.x) { b = b - t[1]; } write(b, s); }\n"
+                + "    for 0 to 10 by 1) { b = b + 1; }\n"
+                + "    return c;\n"
+                + "}\n";
+        Program expected = new Parser(Lexer.tokenize(input)).getProgram();
+        Program program = ArenaParser.parse(Lexer.tokenize(input));
+        assertEquals(expected.getContent().toString(), program.getContent().toString());
+
+        // A syntax error in a body is the error of the sequential parser
+        String broken = input.replace("return c;", "return ;");
+        RuntimeException expectedError = assertThrows(RuntimeException.class, () -> new Parser(Lexer.tokenize(broken)));
+        RuntimeException error = assertThrows(RuntimeException.class, () -> ArenaParser.parse(Lexer.tokenize(broken)));
+        assertEquals(expectedError.getMessage(), error.getMessage());
+    }
+
+    @Test
+    public void testSerializeProgram() throws IOException {
+        String input = Files.readString(Path.of("code_example.lang"));
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+        byte[] bytes = AstSerializer.serialize(program);
+        Program read = AstSerializer.deserialize(ByteBuffer.wrap(bytes));
+        assertEquals(program.toString(), read.toString());
+        // Writing the program read gives the same bytes, so no field was lost
+        assertArrayEquals(bytes, AstSerializer.serialize(read));
+        assertEquals(program.getContent().get(0).getStart(), read.getContent().get(0).getStart());
+
+        // The bodies of other parsers are written as plain blocks
+        assertArrayEquals(bytes, AstSerializer.serialize(ArenaParser.parse(Lexer.tokenize(input))));
+
+        // The spans are only decoded when they are first used, a corrupted span fails then and every time after
+        byte[] corrupted = bytes.clone();
+        corrupted[corrupted.length - 1] = (byte) 0x80;
+        Program lazy = AstSerializer.deserialize(ByteBuffer.wrap(corrupted));
+        assertEquals(program.toString(), lazy.toString());
+        assertThrows(IllegalArgumentException.class, lazy::getPositions);
+        assertThrows(IllegalArgumentException.class, lazy::getPositions);
+
+        assertThrows(IllegalArgumentException.class, () -> AstSerializer.deserialize(ByteBuffer.wrap(bytes, 0, bytes.length / 2)));
+    }
+
+    @Test
+    public void testParseCache() throws IOException {
+        Path directory = Files.createTempDirectory("parse-cache");
+        try {
+            ParseCache cache = new ParseCache(directory);
+            String input = "var x int = 2; proc f(a int) int { return a * x; }";
+            assertNull(cache.get(input));
+            Program program = new Parser(Lexer.tokenize(input)).getProgram();
+            cache.put(input, program);
+            assertEquals(program.toString(), cache.get(input).toString());
+            // Another source is another entry
+            assertNull(cache.get(input + " "));
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Get the source text of a node, without the blanks before the next token
+     * @param source - Source code
+     * @param program - Program of the node
+     * @param position - Position of the node
+     * @return Text of the span of the node
+     */
+    private static String spanText(String source, Program program, int position) {
+        SourcePositions positions = program.getPositions();
+        return source.substring(positions.getStart(position), positions.getEnd(position)).strip();
+    }
+
+    @Test
+    public void testSourcePositions() {
+        String input = "var g int = 1;\n"
+                + "proc f(a int) int {\n"
+                + "    var b int = a + g * 2;\n"
+                + "    return -b;\n"
+                + "}\n";
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+        ProcDecl f = program.getProcDecls().get(0);
+        GeneralDecl b = (GeneralDecl) f.getBody().getStatements().get(0);
+        ReturnStmt ret = (ReturnStmt) f.getBody().getStatements().get(1);
+        assertEquals("var g int = 1", spanText(input, program, program.getGlobalDecls().get(0).getPosition()));
+        assertEquals("a int", spanText(input, program, f.getParams().get(0).getPosition()));
+        assertEquals("var b int = a + g * 2", spanText(input, program, b.getPosition()));
+        assertEquals("a + g * 2", spanText(input, program, b.getValue().getPosition()));
+        assertEquals("g * 2", spanText(input, program, ((BinaryExpr) b.getValue()).getRight().getPosition()));
+        assertEquals("-b", spanText(input, program, ret.getValue().getPosition()));
+        int start = program.getPositions().getStart(ret.getPosition());
+        assertEquals(4, program.getPositions().getLine(start));
+        assertEquals(5, program.getPositions().getColumn(start));
+
+        // Other parsers and the serialized program give the same spans
+        for (Program other : List.of(ArenaParser.parse(Lexer.tokenize(input)), LazyParser.parse(Lexer.tokenize(input)),
+                ParallelParser.parse(Lexer.tokenize(input)), AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(program))))) {
+            ReturnStmt otherRet = (ReturnStmt) other.getProcDecls().get(0).getBody().getStatements().get(1);
+            assertEquals("-b", spanText(input, other, otherRet.getValue().getPosition()));
+            assertEquals(4, other.getPositions().getLine(other.getPositions().getStart(otherRet.getPosition())));
+        }
+
+        // Nodes kept by an incremental edit move with their text
+        IncrementalParser parser = new IncrementalParser(input);
+        parser.edit(0, 0, "var h int = 2;\n");
+        Program edited = parser.getProgram();
+        ReturnStmt moved = (ReturnStmt) edited.getProcDecls().get(0).getBody().getStatements().get(1);
+        assertEquals("-b", spanText(parser.getSource(), edited, moved.getValue().getPosition()));
+        assertEquals(5, edited.getPositions().getLine(edited.getPositions().getStart(moved.getPosition())));
+        assertEquals("var h int = 2", spanText(parser.getSource(), edited, edited.getGlobalDecls().get(0).getPosition()));
+    }
+
+    @Test
+    public void testStreamParse() throws Parser.ParserException, SemanticException {
+        String input = "var g int = 1;\n" +
+                "proc f(a int) int { return a; }\n" +
+                "record R { x int; }\n" +
+                "g = 2;\n" +
+                "var h float = 1.5;\n";
+        Program program = new Parser(Lexer.tokenize(input)).getProgram();
+
+        // Declarations are handed over in source order, each as the sequential parse builds it
+        List<GeneralDecl> streamed = new ArrayList<>();
+        Parser.stream(Lexer.tokenize(input).cursor(), streamed::add);
+        assertEquals(5, streamed.size());
+        assertEquals(program.getGlobalDecls().get(0).toString(), streamed.get(0).toString());
+        assertEquals(program.getProcDecls().get(0).toString(), streamed.get(1).toString());
+        assertEquals(program.getRecordDecls().get(0).toString(), streamed.get(2).toString());
+        assertEquals(program.getGlobalDecls().get(1).toString(), streamed.get(3).toString());
+        assertEquals(program.getGlobalDecls().get(2).toString(), streamed.get(4).toString());
+        // The assignment takes its type from the declaration streamed before it
+        assertEquals("int", streamed.get(3).getType().toString());
+
+        // A declaration rejected by the consumer stops the stream
+        List<GeneralDecl> accepted = new ArrayList<>();
+        assertThrows(SemanticException.class, () -> Parser.stream(Lexer.tokenize(input).cursor(), decl -> {
+            if (decl instanceof ProcDecl) {
+                throw new SemanticException("rejected");
+            }
+            accepted.add(decl);
+        }));
+        assertEquals(1, accepted.size());
+    }
+
+    @Test
+    public void testTableParser() throws IOException {
+        // The same nodes with the same spans as the recursive descent parser
+        String input = Files.readString(Path.of("code_example.lang"));
+        byte[] expected = AstSerializer.serialize(new Parser(Lexer.tokenize(input)).getProgram());
+        assertArrayEquals(expected, AstSerializer.serialize(new TableParser(Lexer.tokenize(input)).getProgram()));
+
+        // The same syntax errors, and the same statements skipped when recovering
+        String broken = "proc f(a int) int { var b int = (a + ; b = a.; return b; }\nvar c int = 1 + ;\nproc g() void { x = 1 }";
+        Parser parser = new Parser(Lexer.tokenize(broken).cursor(), true);
+        TableParser tableParser = new TableParser(Lexer.tokenize(broken).cursor(), true);
+        assertEquals(parser.getProgram().toString(), tableParser.getProgram().toString());
+        assertEquals(parser.getDiagnostics().size(), tableParser.getDiagnostics().size());
+        for (int i = 0; i < parser.getDiagnostics().size(); i++) {
+            assertEquals(parser.getDiagnostics().get(i).getMessage(), tableParser.getDiagnostics().get(i).getMessage());
+            assertEquals(parser.getDiagnostics().get(i).getOffset(), tableParser.getDiagnostics().get(i).getOffset());
+        }
+
+        // Nesting does not use the thread stack
+        int depth = 100000;
+        String nested = "var x int = " + "(".repeat(depth) + "- 1" + ")".repeat(depth) + ";\n"
+                + "proc f() void { " + "if (true) { ".repeat(depth) + "x = 2;" + " }".repeat(depth) + " }";
+        Program program = new TableParser(Lexer.tokenize(nested)).getProgram();
+        assertEquals(-1, ((IntegerExpr) program.getGlobalDecls().get(0).getValue()).getValue());
+        Block block = program.getProcDecls().get(0).getBody();
+        for (int i = 0; i < depth; i++) {
+            block = ((CtrlStruct) block.getStatements().get(0)).getBody();
+        }
+        assertEquals("x", ((AssignmentStmt) block.getStatements().get(0)).getIdentifier());
+    }
+
+    /**
+     * Types of the same name are a single instance, parsed or made by name
+     */
+    @Test
+    public void testTypeInterning() {
+        Program program = new Parser(new Lexer(new StringReader("var c int[] = int[](5); var p Point = Point(1, 2);"))).getProgram();
+        Type arrayType = ((VarDecl) program.getContent().get(0)).getType();
+        assertSame(Type.INT.array(), arrayType);
+        assertSame(arrayType, Type.of("int[]"));
+        assertSame(arrayType, ((VarDecl) program.getContent().get(0)).getValue().getType());
+        assertSame(Type.INT, ((ArrayType) arrayType).getElement());
+        assertSame(Type.INT, Type.of("int"));
+        Type recordType = ((VarDecl) program.getContent().get(1)).getType();
+        assertTrue(recordType instanceof RecordType);
+        assertSame(recordType, Type.of("Point"));
+        assertEquals("I", Type.INT.getDescriptor());
+        assertEquals(RecordType.DESCRIPTOR, recordType.getDescriptor());
+        assertNull(Type.of("BinaryExpr").getDescriptor());
+    }
 }
@@ -5,6 +5,7 @@ import compiler.SemanticAnalyser.*;
 import org.junit.Test;
 
 import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -184,4 +185,313 @@ public class TestSemanticAnalyser {
             program.accept(semanticAnalyser);
         });
     }
+
+    /**
+     * Test locals shadowing names of enclosing scopes, and the same local declared in sibling blocks
+     */
+    @Test
+    public void testShadowing() {
+        String input = "var a int = 1; proc f(a int) int { var b int = a + 1; while (b > 0) { var b int = a + 2; } "
+                + "if (a > 1) { var c int = b + 1; } else (a > 0) { var c int = b + 2; } return 0; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    /**
+     * Test using a local after the block declaring it
+     */
+    @Test
+    public void testLocalOutOfScope() {
+        String input = "proc f(a int) int { while (a > 0) { var c int = a + 1; } var d int = c + 1; return 0; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        assertThrows(SemanticException.class, () -> {
+            program.accept(semanticAnalyser);
+        });
+    }
+
+    /**
+     * Test declaring a local twice in the same block
+     */
+    @Test
+    public void testDuplicateLocal() {
+        String input = "proc f(a int) int { var b int = a + 1; var b int = a + 2; return 0; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        assertThrows(SemanticException.class, () -> {
+            program.accept(semanticAnalyser);
+        });
+    }
+
+    /**
+     * Test the fields of a record construction and access against the layout of the record
+     */
+    @Test
+    public void testRecordLayout() {
+        String input = "record Point { x int; y real; } var p Point = Point(1, 2.5); var b real = p.y;";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        RecordAccess access = (RecordAccess) program.getContent().get(2).getValue();
+        assertEquals(1, access.getFieldIndex());
+        assertSame(Type.REAL, access.getType());
+        assertSame(access.getLayout(), ((RecordExpr) program.getContent().get(1).getValue()).getLayout());
+    }
+
+    /**
+     * Test a record declaring a field twice, and a value that does not match its field
+     */
+    @Test
+    public void testRecordFields() {
+        for (String input : new String[] {"record Point { x int; x real; }",
+                "record Point { x int; y real; } var p Point = Point(1.5, 2.5);",
+                "record Point { x int; y real; } var p Point = Point(1, 2.5); var b int = p.z;"}) {
+            StringReader reader = new StringReader(input);
+            Lexer lexer = new Lexer(reader);
+            Program program = new Parser(lexer).getProgram();
+            SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+            assertThrows(SemanticException.class, () -> {
+                program.accept(semanticAnalyser);
+            });
+        }
+    }
+
+    /**
+     * Test a procedure body using a global and a procedure declared after it
+     */
+    @Test
+    public void testForwardReference() {
+        String input = "proc f(a int) int { var b int = a + g; h(b); return 0; } var g int = 1; proc h(c int) int { return 0; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    /**
+     * Test the errors of bodies checked in parallel, reported in source order
+     */
+    @Test
+    public void testParallelBodies() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            // Procedures 100 and 900 use an undeclared name, in batches checked on different tasks
+            String operand = i == 100 || i == 900 ? "z" + i : "a";
+            input.append("proc f").append(i).append("(a int) int { var b int = ").append(operand)
+                    .append(" + 1; while (b > 0) { b = b - 1; } return 0; }\n");
+        }
+        StringReader reader = new StringReader(input.toString());
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SemanticException e = assertThrows(SemanticException.class, () -> {
+                program.accept(new SemanticAnalyzer(pool));
+            });
+            assertEquals("Undeclared identifier: z100", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("Undeclared identifier: z900", e.getSuppressed()[0].getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test the types resolved on the nodes of an expression
+     */
+    @Test
+    public void testResolvedTypes() {
+        String input = "proc f(a int) int { writeReal(a * 2 + 1.5); return 0; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        ProcCall call = (ProcCall) ((ProcDecl) program.getContent().get(0)).getBody().getStatements().get(0);
+        BinaryExpr sum = (BinaryExpr) call.getArgs().get(0);
+        BinaryExpr product = (BinaryExpr) sum.getLeft();
+        assertSame(Type.REAL, sum.getResolvedType());
+        assertSame(Type.INT, product.getResolvedType());
+        assertSame(Type.INT, product.getLeft().getResolvedType());
+        assertSame(Type.REAL, sum.getRight().getResolvedType());
+    }
+
+    /**
+     * Test a void procedure without return statement, and procedures whose return does not match their type
+     */
+    @Test
+    public void testReturnStatements() {
+        String input = "proc f(a int) void { var b int = a + 1; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        for (String wrong : new String[] {"proc f(a int) bool { return a; }", "proc f(a int) int { var b int = a; }",
+                "proc f(a int) void { return a; }", "proc f(a int) int { while (a > 0) { return 1.5; } return a; }"}) {
+            Program wrongProgram = new Parser(new Lexer(new StringReader(wrong))).getProgram();
+            assertThrows(SemanticException.class, () -> {
+                wrongProgram.accept(new SemanticAnalyzer());
+            });
+        }
+    }
+
+    /**
+     * Test returns and assignments of binary expressions, checked against their resolved type
+     */
+    @Test
+    public void testBinaryValues() {
+        String input = "var y int = 1; var x int = 0; var z int[] = int[](3); z[2] = x * y;\n" +
+                "proc square(v int) int { return v*v; }\n" +
+                "proc main() void { x = y + 1; }";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        for (String wrong : new String[] {"proc square(v int) bool { return v*v; }", "var y int = 1; var x bool = false; x = y + 1;",
+                "var y int = 1; var x int[] = int[](3); x[0] = y + 1.5;", "var x int[] = int[](3); x[3] = 1;"}) {
+            Program wrongProgram = new Parser(new Lexer(new StringReader(wrong))).getProgram();
+            assertThrows(SemanticException.class, () -> {
+                wrongProgram.accept(new SemanticAnalyzer());
+            });
+        }
+    }
+
+    /**
+     * Test comparisons and logical operations giving a bool, and identifiers typed from their declaration
+     */
+    @Test
+    public void testBooleanOperations() {
+        String input = "var x int = 2; var y real = 1.5; var b bool = x < 3; var c bool = b and x == 2 or y >= x; var d int = x;";
+        StringReader reader = new StringReader(input);
+        Lexer lexer = new Lexer(reader);
+        Program program = new Parser(lexer).getProgram();
+        SemanticAnalyzer semanticAnalyser = new SemanticAnalyzer();
+        try {
+            program.accept(semanticAnalyser);
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        BinaryExpr comparison = (BinaryExpr) program.getContent().get(2).getValue();
+        assertSame(Type.BOOL, comparison.getResolvedType());
+        assertSame(Type.INT, comparison.getLeft().getResolvedType());
+        assertSame(Type.INT, program.getContent().get(4).getValue().getResolvedType());
+        for (String wrong : new String[] {"var x int = 2; var b int = x < 3;", "var x int = 2; var b bool = x and true;",
+                "var x int = 2; var b bool = x == \"2\";", "var x int = 2; var d bool = x;"}) {
+            Program wrongProgram = new Parser(new Lexer(new StringReader(wrong))).getProgram();
+            assertThrows(SemanticException.class, () -> {
+                wrongProgram.accept(new SemanticAnalyzer());
+            });
+        }
+    }
+
+    /**
+     * Test the analysis looks names up by the interned names of the nodes, without interning any name itself
+     */
+    @Test
+    public void testInternedNames() {
+        String input = "record Pair { a int; b int; } var p Pair = Pair(1, 2); var n int = p.a;\n" +
+                "proc f(q int) int { var r int = q + n; r = r * 2; return r; }";
+        Program program = new Parser(new Lexer(new StringReader(input))).getProgram();
+        int interned = NameTable.shared().size();
+        try {
+            program.accept(new SemanticAnalyzer());
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        assertEquals(interned, NameTable.shared().size());
+        GeneralDecl global = program.getGlobalDecls().get(1);
+        assertSame(NameTable.shared().find("n"), global.getIdentifierName());
+    }
+
+    /**
+     * Test the types resolved by an analysis are not trusted by the analysis of an edited program reusing the nodes
+     */
+    @Test
+    public void testReanalyseEditedProgram() {
+        IncrementalParser parser = new IncrementalParser("var x int = 1;\nproc f() int {\n    return x + 1;\n}\n");
+        try {
+            parser.getProgram().accept(new SemanticAnalyzer());
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        // The body of f is not parsed again, its sum keeps the type of the first analysis
+        parser.edit(0, "var x int = 1".length(), "var x string = \"a\"");
+        SemanticException error = assertThrows(SemanticException.class, () -> parser.getProgram().accept(new SemanticAnalyzer()));
+        assertEquals("Type mismatch. Found string and int.", error.getMessage());
+    }
+
+    /**
+     * Test the assignments of a procedure body are typed, and checked against the type of their variable
+     */
+    @Test
+    public void testBodyAssignment() {
+        Program program = new Parser(new Lexer(new StringReader("var r real = 0.0;\nproc f(a int) int { r = a * 1.5; return a; }"))).getProgram();
+        try {
+            program.accept(new SemanticAnalyzer());
+        } catch (SemanticException e) {
+            // Should not crash here
+            e.printStackTrace();
+            fail();
+        }
+        AssignmentStmt assignment = (AssignmentStmt) program.getProcDecls().get(0).getBody().getStatements().get(0);
+        assertSame(Type.REAL, assignment.getValue().getResolvedType());
+
+        Program wrong = new Parser(new Lexer(new StringReader("var n int = 0;\nproc f(a int) int { n = a * 1.5; return a; }"))).getProgram();
+        SemanticException error = assertThrows(SemanticException.class, () -> wrong.accept(new SemanticAnalyzer()));
+        assertEquals("Variable n type does not match value type. Found real expected int.", error.getMessage());
+    }
 }
@@ -0,0 +1,583 @@
+package compiler.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build-time generator compiling the token specification into the tables of compiler.Lexer.DfaLexer
+ * Rules are compiled into an NFA, characters are grouped into equivalence classes, and the NFA is turned into a
+ * minimized DFA over those classes
+ * Usage: LexerGenerator <specification> <output directory>
+ */
+public class LexerGenerator {
+    // Alphabet: ASCII characters, then one symbol for each kind of non-ASCII character
+    static final int NON_ASCII_LETTER = 128;
+    static final int NON_ASCII_DIGIT = 129;
+    static final int NON_ASCII_WHITESPACE = 130;
+    static final int NON_ASCII_OTHER = 131;
+    static final int ALPHABET = 132;
+
+    static final String SKIP = "SKIP"; // Rule name for the text between tokens
+
+    /**
+     * Rule of the specification
+     */
+    static final class Rule {
+        final String token; // Token name, or SKIP
+        final String regex; // Regular expression
+        final int line; // Line of the rule in the specification
+
+        Rule(String token, String regex, int line) {
+            this.token = token;
+            this.regex = regex;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Nondeterministic automaton built from the rules, states are indices
+     */
+    static final class Nfa {
+        final List<List<Integer>> epsilon = new ArrayList<>(); // Epsilon transitions of each state
+        final List<List<BitSet>> edgeSets = new ArrayList<>(); // Symbols of each labelled transition
+        final List<List<Integer>> edgeTargets = new ArrayList<>(); // Target of each labelled transition
+        final Map<Integer, Integer> accepting = new HashMap<>(); // Rule accepted by each final state
+
+        int newState() {
+            this.epsilon.add(new ArrayList<>());
+            this.edgeSets.add(new ArrayList<>());
+            this.edgeTargets.add(new ArrayList<>());
+            return this.epsilon.size() - 1;
+        }
+
+        int size() {
+            return this.epsilon.size();
+        }
+    }
+
+    /**
+     * Fragment of the NFA with a single entry and a single exit
+     */
+    record Fragment(int start, int end) {
+    }
+
+    /**
+     * Recursive descent parser for the regular expression of one rule, building its NFA fragment
+     */
+    static final class RegexParser {
+        private final String regex; // Expression being parsed
+        private final Nfa nfa; // Automaton receiving the states
+        private int position; // Index of the next character of the expression
+
+        RegexParser(String regex, Nfa nfa) {
+            this.regex = regex;
+            this.nfa = nfa;
+        }
+
+        Fragment parse() {
+            Fragment fragment = alternation();
+            if (this.position != this.regex.length()) {
+                throw error("Unexpected '" + this.regex.charAt(this.position) + "'");
+            }
+            return fragment;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at index " + this.position + " of " + this.regex);
+        }
+
+        private boolean more() {
+            return this.position < this.regex.length();
+        }
+
+        private char peek() {
+            return this.regex.charAt(this.position);
+        }
+
+        // Alternation -> Concatenation ("|" Concatenation)*
+        private Fragment alternation() {
+            Fragment first = concatenation();
+            if (!more() || peek() != '|') {
+                return first;
+            }
+            int start = this.nfa.newState();
+            int end = this.nfa.newState();
+            link(start, first, end);
+            while (more() && peek() == '|') {
+                this.position++;
+                link(start, concatenation(), end);
+            }
+            return new Fragment(start, end);
+        }
+
+        private void link(int start, Fragment fragment, int end) {
+            this.nfa.epsilon.get(start).add(fragment.start());
+            this.nfa.epsilon.get(fragment.end()).add(end);
+        }
+
+        // Concatenation -> Repetition*
+        private Fragment concatenation() {
+            int start = this.nfa.newState();
+            int end = start;
+            while (more() && peek() != '|' && peek() != ')') {
+                Fragment next = repetition();
+                this.nfa.epsilon.get(end).add(next.start());
+                end = next.end();
+            }
+            return new Fragment(start, end);
+        }
+
+        // Repetition -> Atom ("*" | "+" | "?")*
+        private Fragment repetition() {
+            Fragment atom = atom();
+            while (more() && (peek() == '*' || peek() == '+' || peek() == '?')) {
+                char operator = this.regex.charAt(this.position++);
+                int start = this.nfa.newState();
+                int end = this.nfa.newState();
+                this.nfa.epsilon.get(start).add(atom.start());
+                this.nfa.epsilon.get(atom.end()).add(end);
+                if (operator != '+') {
+                    this.nfa.epsilon.get(start).add(end); // Zero occurrence
+                }
+                if (operator != '?') {
+                    this.nfa.epsilon.get(atom.end()).add(atom.start()); // More occurrences
+                }
+                atom = new Fragment(start, end);
+            }
+            return atom;
+        }
+
+        // Atom -> "(" Alternation ")" | "[" Class "]" | "." | Escape | Character
+        private Fragment atom() {
+            char c = this.regex.charAt(this.position++);
+            BitSet symbols;
+            switch (c) {
+                case '(' -> {
+                    Fragment group = alternation();
+                    if (!more() || peek() != ')') {
+                        throw error("Missing ')'");
+                    }
+                    this.position++;
+                    return group;
+                }
+                case '[' -> symbols = characterClass();
+                case '.' -> {
+                    symbols = new BitSet(ALPHABET);
+                    symbols.set(0, ALPHABET);
+                    symbols.clear('\n');
+                }
+                case '\\' -> symbols = escape();
+                case '*', '+', '?', ')', '|' -> throw error("Unexpected '" + c + "'");
+                default -> {
+                    symbols = new BitSet(ALPHABET);
+                    symbols.set(c);
+                }
+            }
+            int start = this.nfa.newState();
+            int end = this.nfa.newState();
+            this.nfa.edgeSets.get(start).add(symbols);
+            this.nfa.edgeTargets.get(start).add(end);
+            return new Fragment(start, end);
+        }
+
+        // Class -> "^"? (Item ("-" Item)?)* "]"
+        private BitSet characterClass() {
+            BitSet symbols = new BitSet(ALPHABET);
+            boolean negated = more() && peek() == '^';
+            if (negated) {
+                this.position++;
+            }
+            while (true) {
+                if (!more()) {
+                    throw error("Missing ']'");
+                }
+                char c = this.regex.charAt(this.position++);
+                if (c == ']') {
+                    break;
+                }
+                BitSet item;
+                if (c == '\\') {
+                    item = escape();
+                } else {
+                    item = new BitSet(ALPHABET);
+                    item.set(c);
+                }
+                if (more() && peek() == '-' && this.position + 1 < this.regex.length() && this.regex.charAt(this.position + 1) != ']') {
+                    this.position++;
+                    char last = this.regex.charAt(this.position++);
+                    BitSet end = last == '\\' ? escape() : null;
+                    int from = item.nextSetBit(0);
+                    int to = end == null ? last : end.nextSetBit(0);
+                    if (item.cardinality() != 1 || (end != null && end.cardinality() != 1) || to < from || to >= 128) {
+                        throw error("Invalid range");
+                    }
+                    symbols.set(from, to + 1);
+                } else {
+                    symbols.or(item);
+                }
+            }
+            if (negated) {
+                symbols.flip(0, ALPHABET);
+            }
+            return symbols;
+        }
+
+        // Escape -> "\" (n | t | r | f | v | xHH | U | D | S | character)
+        private BitSet escape() {
+            if (!more()) {
+                throw error("Incomplete escape");
+            }
+            char c = this.regex.charAt(this.position++);
+            BitSet symbols = new BitSet(ALPHABET);
+            switch (c) {
+                case 'n' -> symbols.set('\n');
+                case 't' -> symbols.set('\t');
+                case 'r' -> symbols.set('\r');
+                case 'f' -> symbols.set('\f');
+                case 'v' -> symbols.set(0x0B);
+                case 'x' -> {
+                    if (this.position + 2 > this.regex.length()) {
+                        throw error("Incomplete escape");
+                    }
+                    symbols.set(Integer.parseInt(this.regex.substring(this.position, this.position + 2), 16));
+                    this.position += 2;
+                }
+                case 'U' -> symbols.set(NON_ASCII_LETTER);
+                case 'D' -> symbols.set(NON_ASCII_DIGIT);
+                case 'S' -> symbols.set(NON_ASCII_WHITESPACE);
+                default -> symbols.set(c);
+            }
+            return symbols;
+        }
+    }
+
+    /**
+     * Read the rules of a specification
+     * @param lines - Lines of the specification
+     * @return Rules in order of priority
+     */
+    static List<Rule> parseSpecification(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected a token name and a regular expression");
+            }
+            rules.add(new Rule(parts[0], parts[1], i + 1));
+        }
+        return rules;
+    }
+
+    /**
+     * Build the NFA of all the rules, state 0 is the start state
+     * @param rules - Rules in order of priority
+     * @return NFA accepting the rules
+     */
+    static Nfa buildNfa(List<Rule> rules) {
+        Nfa nfa = new Nfa();
+        int start = nfa.newState();
+        for (int i = 0; i < rules.size(); i++) {
+            Fragment fragment;
+            try {
+                fragment = new RegexParser(rules.get(i).regex, nfa).parse();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + rules.get(i).line + ": " + e.getMessage(), e);
+            }
+            nfa.epsilon.get(start).add(fragment.start());
+            nfa.accepting.put(fragment.end(), i);
+        }
+        return nfa;
+    }
+
+    /**
+     * Group the symbols that no transition tells apart
+     * @param nfa - Automaton
+     * @return Class of each symbol of the alphabet, classes are numbered in order of first symbol
+     */
+    static int[] equivalenceClasses(Nfa nfa) {
+        int[] classes = new int[ALPHABET]; // All symbols start in class 0
+        int classCount = 1;
+        for (List<BitSet> sets : nfa.edgeSets) {
+            for (BitSet set : sets) {
+                // Split every class into the symbols inside and outside the set
+                Map<Integer, Integer> split = new HashMap<>();
+                for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                    if (set.get(symbol)) {
+                        int original = classes[symbol];
+                        Integer replacement = split.get(original);
+                        if (replacement == null) {
+                            replacement = classCount++;
+                            split.put(original, replacement);
+                        }
+                        classes[symbol] = replacement;
+                    }
+                }
+                classCount = renumber(classes);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Renumber the classes densely, in order of first symbol
+     * @param classes - Class of each symbol, renumbered in place
+     * @return Number of classes
+     */
+    private static int renumber(int[] classes) {
+        Map<Integer, Integer> numbers = new HashMap<>();
+        for (int symbol = 0; symbol < classes.length; symbol++) {
+            Integer number = numbers.get(classes[symbol]);
+            if (number == null) {
+                number = numbers.size();
+                numbers.put(classes[symbol], number);
+            }
+            classes[symbol] = number;
+        }
+        return numbers.size();
+    }
+
+    /**
+     * Deterministic automaton over symbol classes
+     */
+    static final class Dfa {
+        final int classCount; // Number of symbol classes
+        final List<int[]> transitions = new ArrayList<>(); // Target of each state for each class
+        final List<Integer> accepting = new ArrayList<>(); // Rule accepted by each state, -1 if none
+
+        Dfa(int classCount) {
+            this.classCount = classCount;
+        }
+
+        int size() {
+            return this.transitions.size();
+        }
+    }
+
+    /**
+     * Compute the epsilon closure of a set of NFA states
+     * @param nfa - Automaton
+     * @param states - States, completed in place
+     */
+    private static void closure(Nfa nfa, BitSet states) {
+        int[] stack = states.stream().toArray();
+        int top = stack.length;
+        stack = Arrays.copyOf(stack, nfa.size());
+        while (top > 0) {
+            int state = stack[--top];
+            for (int target : nfa.epsilon.get(state)) {
+                if (!states.get(target)) {
+                    states.set(target);
+                    stack[top++] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * Subset construction, DFA state 0 is the dead state and state 1 the start state
+     * @param nfa - Automaton
+     * @param classes - Class of each symbol
+     * @param classCount - Number of classes
+     * @return DFA equivalent to the NFA
+     */
+    static Dfa determinize(Nfa nfa, int[] classes, int classCount) {
+        // One representative symbol per class
+        int[] representatives = new int[classCount];
+        for (int symbol = ALPHABET - 1; symbol >= 0; symbol--) {
+            representatives[classes[symbol]] = symbol;
+        }
+        Dfa dfa = new Dfa(classCount);
+        Map<BitSet, Integer> numbers = new HashMap<>();
+        List<BitSet> subsets = new ArrayList<>();
+        BitSet dead = new BitSet();
+        BitSet start = new BitSet();
+        start.set(0);
+        closure(nfa, start);
+        for (BitSet subset : List.of(dead, start)) {
+            numbers.put(subset, subsets.size());
+            subsets.add(subset);
+        }
+        for (int index = 0; index < subsets.size(); index++) {
+            BitSet subset = subsets.get(index);
+            int[] row = new int[classCount];
+            for (int c = 0; c < classCount; c++) {
+                BitSet next = new BitSet();
+                for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+                    List<BitSet> sets = nfa.edgeSets.get(state);
+                    for (int edge = 0; edge < sets.size(); edge++) {
+                        if (sets.get(edge).get(representatives[c])) {
+                            next.set(nfa.edgeTargets.get(state).get(edge));
+                        }
+                    }
+                }
+                closure(nfa, next);
+                Integer number = numbers.get(next);
+                if (number == null) {
+                    number = subsets.size();
+                    numbers.put(next, number);
+                    subsets.add(next);
+                }
+                row[c] = number;
+            }
+            int rule = -1;
+            for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+                Integer accepted = nfa.accepting.get(state);
+                if (accepted != null && (rule == -1 || accepted < rule)) {
+                    rule = accepted;
+                }
+            }
+            dfa.transitions.add(row);
+            dfa.accepting.add(rule);
+        }
+        return dfa;
+    }
+
+    /**
+     * Merge equivalent states by partition refinement, the dead state stays 0 and the start state 1
+     * @param dfa - Automaton to minimize
+     * @return Minimal automaton
+     */
+    static Dfa minimize(Dfa dfa) {
+        // Start with one block per accepted rule, the dead state alone
+        int[] blocks = new int[dfa.size()];
+        for (int state = 0; state < dfa.size(); state++) {
+            blocks[state] = state == 0 ? 0 : dfa.accepting.get(state) + 2;
+        }
+        int blockCount = renumber(blocks);
+        while (true) {
+            // Split blocks whose states go to different blocks
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[dfa.size()];
+            for (int state = 0; state < dfa.size(); state++) {
+                List<Integer> signature = new ArrayList<>();
+                signature.add(state == 0 ? -1 : blocks[state]);
+                for (int target : dfa.transitions.get(state)) {
+                    signature.add(blocks[target]);
+                }
+                Integer block = signatures.get(signature);
+                if (block == null) {
+                    block = signatures.size();
+                    signatures.put(signature, block);
+                }
+                refined[state] = block;
+            }
+            blocks = refined;
+            if (signatures.size() == blockCount) {
+                break;
+            }
+            blockCount = signatures.size();
+        }
+        // Renumber so that the dead state is 0 and the start state is 1
+        int[] numbers = new int[blockCount];
+        Arrays.fill(numbers, -1);
+        numbers[blocks[0]] = 0;
+        numbers[blocks[1]] = 1;
+        int next = 2;
+        for (int state = 0; state < dfa.size(); state++) {
+            if (numbers[blocks[state]] == -1) {
+                numbers[blocks[state]] = next++;
+            }
+        }
+        Dfa minimal = new Dfa(dfa.classCount);
+        for (int i = 0; i < blockCount; i++) {
+            minimal.transitions.add(null);
+            minimal.accepting.add(-1);
+        }
+        for (int state = 0; state < dfa.size(); state++) {
+            int number = numbers[blocks[state]];
+            if (minimal.transitions.get(number) == null) {
+                int[] row = new int[dfa.classCount];
+                for (int c = 0; c < row.length; c++) {
+                    row[c] = numbers[blocks[dfa.transitions.get(state)[c]]];
+                }
+                minimal.transitions.set(number, row);
+                minimal.accepting.set(number, dfa.accepting.get(state));
+            }
+        }
+        return minimal;
+    }
+
+    /**
+     * Write the Java source of the tables
+     * @param rules - Rules of the specification
+     * @param classes - Class of each symbol
+     * @param dfa - Minimal automaton
+     * @return Source of compiler.Lexer.DfaTables
+     */
+    static String generate(List<Rule> rules, int[] classes, Dfa dfa) {
+        StringBuilder out = new StringBuilder();
+        out.append("package compiler.Lexer;\n\n");
+        out.append("/**\n * Transition tables of DfaLexer, generated from Tokens.txt by compiler.tools.LexerGenerator, do not edit\n */\n");
+        out.append("final class DfaTables {\n");
+        int classBits = 32 - Integer.numberOfLeadingZeros(dfa.classCount - 1); // Rows are padded to a power of two
+        out.append("    static final int CLASS_COUNT = ").append(dfa.classCount).append("; // Number of character classes\n");
+        out.append("    static final int CLASS_BITS = ").append(classBits).append("; // A row of the transition table has 1 << CLASS_BITS entries\n");
+        out.append("    static final int STATE_COUNT = ").append(dfa.size()).append("; // Number of states, 0 is the dead state\n");
+        out.append("    static final int START = 1 << CLASS_BITS; // Row of the start state\n\n");
+        out.append("    // Class of each ASCII character, then of non-ASCII letters, digits, whitespace and other characters\n");
+        out.append("    static final byte[] CLASSES = {");
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            out.append(symbol % 32 == 0 ? "\n            " : " ").append(classes[symbol]).append(symbol < ALPHABET - 1 ? "," : "");
+        }
+        out.append("\n    };\n\n");
+        out.append("    // Row of the next state, at index row + class, a state is numbered row >> CLASS_BITS\n");
+        out.append("    static final short[] TRANSITIONS = {");
+        for (int state = 0; state < dfa.size(); state++) {
+            out.append("\n            ");
+            int[] row = dfa.transitions.get(state);
+            for (int c = 0; c < 1 << classBits; c++) {
+                int target = c < row.length ? row[c] << classBits : 0;
+                boolean last = state == dfa.size() - 1 && c == (1 << classBits) - 1;
+                out.append(target).append(last ? "" : ",").append(c < (1 << classBits) - 1 ? " " : "");
+            }
+        }
+        out.append("\n    };\n\n");
+        out.append("    // Rule accepted in each state, -1 if the state does not accept\n");
+        out.append("    static final byte[] ACCEPT = {");
+        for (int state = 0; state < dfa.size(); state++) {
+            out.append(state % 32 == 0 ? "\n            " : " ").append(dfa.accepting.get(state)).append(state < dfa.size() - 1 ? "," : "");
+        }
+        out.append("\n    };\n\n");
+        out.append("    // Token of each rule, null for the text between tokens\n");
+        out.append("    static final Lexer.Token[] RULE_TOKENS = {");
+        for (int i = 0; i < rules.size(); i++) {
+            String token = rules.get(i).token;
+            out.append("\n            ").append(token.equals(SKIP) ? "null" : "Lexer.Token." + token).append(i < rules.size() - 1 ? "," : "");
+        }
+        out.append("\n    };\n\n");
+        out.append("    private DfaTables() {\n    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: LexerGenerator <specification> <output directory>");
+            System.exit(2);
+        }
+        List<Rule> rules = parseSpecification(Files.readAllLines(Path.of(args[0])));
+        Nfa nfa = buildNfa(rules);
+        int[] classes = equivalenceClasses(nfa);
+        int classCount = Arrays.stream(classes).max().orElse(0) + 1;
+        Dfa dfa = minimize(determinize(nfa, classes, classCount));
+        if ((long) dfa.size() << (32 - Integer.numberOfLeadingZeros(classCount - 1)) > Short.MAX_VALUE || rules.size() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Automaton too large for the table types");
+        }
+        Path output = Path.of(args[1], "compiler", "Lexer", "DfaTables.java");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, generate(rules, classes, dfa));
+        System.out.println("Generated " + output + ": " + rules.size() + " rules, " + classCount + " classes, "
+                + dfa.size() + " states");
+    }
+}
@@ -0,0 +1,628 @@
+package compiler.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Build-time generator compiling the grammar into the LL(1) tables of compiler.Parser.TableParser
+ * FIRST and FOLLOW sets are computed for every rule, each alternative is entered in the table on the tokens that
+ * select it, and the last alternative of a rule fills the remaining entries of its row
+ * Usage: ParserGenerator <grammar> <token specification> <output directory>
+ */
+public class ParserGenerator {
+    // Kinds of symbols, a symbol of a production is its index shifted left by KIND_BITS, or its kind
+    static final int KIND_BITS = 3;
+    static final int TERMINAL = 0; // Token matched and dropped
+    static final int KEPT = 1; // Token matched and pushed for the actions
+    static final int NONTERMINAL = 2; // Rule
+    static final int ACTION = 3; // Semantic action
+    static final int ERROR = 4; // Syntax error
+
+    static final String EOF = "EOF"; // End of the source, a token without a rule in the token specification
+
+    /**
+     * Alternative of a rule
+     */
+    static final class Alternative {
+        final List<String> symbols; // Symbols as written, without "e"
+        final List<String> guard; // Tokens selecting the alternative, null to select it by FIRST and FOLLOW
+        final int line; // Line of the alternative in the grammar
+
+        Alternative(List<String> symbols, List<String> guard, int line) {
+            this.symbols = symbols;
+            this.guard = guard;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Rule of the grammar
+     */
+    static final class Rule {
+        final String name; // Nonterminal
+        final List<Alternative> alternatives = new ArrayList<>(); // Alternatives in order, the last one is the default
+        final int line; // Line of the rule in the grammar
+
+        Rule(String name, int line) {
+            this.name = name;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Grammar with its symbols numbered
+     */
+    static final class Grammar {
+        final Map<String, Rule> rules = new LinkedHashMap<>(); // Rules by nonterminal, in order
+        final Map<String, Integer> nonterminals = new HashMap<>(); // Index of each nonterminal
+        final Map<String, Integer> terminals = new LinkedHashMap<>(); // Column of each token, in order of first use
+        final Map<String, Integer> actions = new LinkedHashMap<>(); // Index of each action, in order of first use
+        final List<String> messages = new ArrayList<>(); // What each error symbol expected
+        final Set<String> kept = new HashSet<>(); // Nonterminals never expanded ahead in the tables
+        final Map<String, String> literals; // Token of each rule of the token specification matching exactly one text
+        final Set<String> tokens; // Tokens of the token specification
+
+        Grammar(Map<String, String> literals, Set<String> tokens) {
+            this.literals = literals;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * Split a line of the grammar into words, a quoted text is one word with its quotes
+     * @param line - Line without its comment
+     * @param number - Line number, for errors
+     * @return Words of the line
+     */
+    static List<String> words(String line, int number) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '|' || c == '[' || c == ']') {
+                words.add(String.valueOf(c));
+                i++;
+            } else if (c == '"' || (c == '!' && i + 1 < line.length() && line.charAt(i + 1) == '"')) {
+                int open = line.indexOf('"', i);
+                int close = line.indexOf('"', open + 1);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Line " + number + ": unterminated text");
+                }
+                words.add(line.substring(i, close + 1));
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < line.length() && !Character.isWhitespace(line.charAt(end)) && "|[]\"".indexOf(line.charAt(end)) < 0) {
+                    end++;
+                }
+                words.add(line.substring(i, end));
+                i = end;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Read the rules of a grammar
+     * @param lines - Lines of the grammar
+     * @param literals - Token of each rule of the token specification matching exactly one text
+     * @param tokens - Tokens of the token specification
+     * @return Grammar, not yet numbered
+     */
+    static Grammar parseGrammar(List<String> lines, Map<String, String> literals, Set<String> tokens) {
+        Grammar grammar = new Grammar(literals, tokens);
+        Rule rule = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> words = words(line, i + 1);
+            if (words.get(0).equals("%keep")) {
+                grammar.kept.addAll(words.subList(1, words.size()));
+                continue;
+            }
+            if (!words.get(0).equals("|")) {
+                if (words.size() < 2 || !words.get(1).equals("->")) {
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": expected a nonterminal and \"->\"");
+                }
+                rule = new Rule(words.get(0), i + 1);
+                if (grammar.rules.put(rule.name, rule) != null) {
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": " + rule.name + " is already defined");
+                }
+                words = words.subList(2, words.size());
+            } else if (rule == null) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": alternative outside of a rule");
+            } else {
+                words = words.subList(1, words.size());
+            }
+            // Alternatives of the line, separated by '|'
+            int from = 0;
+            for (int to = 0; to <= words.size(); to++) {
+                if (to == words.size() || words.get(to).equals("|")) {
+                    rule.alternatives.add(alternative(words.subList(from, to), i + 1));
+                    from = to + 1;
+                }
+            }
+        }
+        return grammar;
+    }
+
+    /**
+     * Read an alternative
+     * @param words - Words of the alternative
+     * @param line - Line of the alternative
+     * @return Alternative
+     */
+    static Alternative alternative(List<String> words, int line) {
+        List<String> guard = null;
+        int i = 0;
+        if (!words.isEmpty() && words.get(0).equals("[")) {
+            guard = new ArrayList<>();
+            for (i = 1; i < words.size() && !words.get(i).equals("]"); i++) {
+                guard.add(words.get(i));
+            }
+            if (i == words.size()) {
+                throw new IllegalArgumentException("Line " + line + ": expected \"]\"");
+            }
+            i++;
+        }
+        List<String> symbols = new ArrayList<>();
+        for (; i < words.size(); i++) {
+            if (!words.get(i).equals("e")) {
+                symbols.add(words.get(i));
+            }
+        }
+        return new Alternative(symbols, guard, line);
+    }
+
+    /**
+     * Find the token matching exactly the text of a regular expression
+     * @param regex - Regular expression of a rule of the token specification
+     * @return Text matched, null if the expression matches anything else
+     */
+    static String literal(String regex) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if ("|*+?()[].".indexOf(c) >= 0) {
+                return null;
+            }
+            if (c == '\\' && i + 1 < regex.length()) {
+                c = regex.charAt(++i);
+                if ("ntrfvxUDS".indexOf(c) >= 0) {
+                    return null;
+                }
+            }
+            text.append(c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Number a symbol of a production
+     * @param grammar - Grammar being numbered
+     * @param symbol - Symbol as written
+     * @param line - Line of the symbol, for errors
+     * @return Symbol as stored in the tables
+     */
+    static int encode(Grammar grammar, String symbol, int line) {
+        if (symbol.startsWith("\"")) {
+            return terminal(grammar, symbol, line) << KIND_BITS | TERMINAL;
+        }
+        if (symbol.startsWith("!")) {
+            grammar.messages.add(symbol.substring(2, symbol.length() - 1));
+            return (grammar.messages.size() - 1) << KIND_BITS | ERROR;
+        }
+        if (symbol.startsWith("@")) {
+            grammar.actions.putIfAbsent(symbol.substring(1), grammar.actions.size());
+            return grammar.actions.get(symbol.substring(1)) << KIND_BITS | ACTION;
+        }
+        if (grammar.nonterminals.containsKey(symbol)) {
+            return grammar.nonterminals.get(symbol) << KIND_BITS | NONTERMINAL;
+        }
+        return terminal(grammar, symbol, line) << KIND_BITS | KEPT;
+    }
+
+    /**
+     * Get the column of a token
+     * @param grammar - Grammar being numbered
+     * @param symbol - Token name, or quoted text of a token
+     * @param line - Line of the symbol, for errors
+     * @return Column of the token
+     */
+    static int terminal(Grammar grammar, String symbol, int line) {
+        String token = symbol;
+        if (symbol.startsWith("\"")) {
+            token = grammar.literals.get(symbol.substring(1, symbol.length() - 1));
+            if (token == null) {
+                throw new IllegalArgumentException("Line " + line + ": no token matches exactly " + symbol);
+            }
+        } else if (!token.equals(EOF) && !grammar.tokens.contains(token)) {
+            throw new IllegalArgumentException("Line " + line + ": " + symbol + " is neither a nonterminal nor a token");
+        }
+        grammar.terminals.putIfAbsent(token, grammar.terminals.size());
+        return grammar.terminals.get(token);
+    }
+
+    /**
+     * Sets of tokens computed from the grammar, as bit sets of columns
+     */
+    static final class Sets {
+        final boolean[] nullable; // Whether each nonterminal can derive nothing
+        final BitSet[] first; // Tokens starting each nonterminal
+        final BitSet[] follow; // Tokens following each nonterminal
+
+        Sets(int nonterminals) {
+            this.nullable = new boolean[nonterminals];
+            this.first = new BitSet[nonterminals];
+            this.follow = new BitSet[nonterminals];
+            for (int i = 0; i < nonterminals; i++) {
+                this.first[i] = new BitSet();
+                this.follow[i] = new BitSet();
+            }
+        }
+
+        /**
+         * Add the tokens starting a sequence of symbols
+         * @param symbols - Encoded symbols
+         * @param from - Index of the first symbol of the sequence
+         * @param into - Set receiving the tokens
+         * @return Whether the sequence can derive nothing
+         */
+        boolean first(int[] symbols, int from, BitSet into) {
+            for (int i = from; i < symbols.length; i++) {
+                int symbol = symbols[i];
+                switch (symbol & ((1 << KIND_BITS) - 1)) {
+                    case TERMINAL, KEPT -> {
+                        into.set(symbol >> KIND_BITS);
+                        return false;
+                    }
+                    case NONTERMINAL -> {
+                        into.or(this.first[symbol >> KIND_BITS]);
+                        if (!this.nullable[symbol >> KIND_BITS]) {
+                            return false;
+                        }
+                    }
+                    case ERROR -> {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Compute the nullable nonterminals, then FIRST and FOLLOW sets, each by iterating to a fixed point
+     * A guarded alternative starts with its guard tokens and cannot be empty, it is only chosen before them
+     * @param productions - Encoded alternatives of each nonterminal
+     * @param guards - Guard tokens of each alternative, null for an alternative without guard
+     * @return Sets of the grammar
+     */
+    static Sets analyse(List<List<int[]>> productions, List<List<BitSet>> guards) {
+        Sets sets = new Sets(productions.size());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int nonterminal = 0; nonterminal < productions.size(); nonterminal++) {
+                for (int a = 0; a < productions.get(nonterminal).size(); a++) {
+                    BitSet guard = guards.get(nonterminal).get(a);
+                    BitSet first = sets.first[nonterminal];
+                    int before = first.cardinality();
+                    boolean nullable = false;
+                    if (guard != null) {
+                        first.or(guard);
+                    } else {
+                        nullable = sets.first(productions.get(nonterminal).get(a), 0, first);
+                    }
+                    if (nullable && !sets.nullable[nonterminal]) {
+                        sets.nullable[nonterminal] = true;
+                        changed = true;
+                    }
+                    changed |= first.cardinality() != before;
+                }
+            }
+        }
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (int nonterminal = 0; nonterminal < productions.size(); nonterminal++) {
+                for (int[] production : productions.get(nonterminal)) {
+                    for (int i = 0; i < production.length; i++) {
+                        if ((production[i] & ((1 << KIND_BITS) - 1)) != NONTERMINAL) {
+                            continue;
+                        }
+                        BitSet follow = sets.follow[production[i] >> KIND_BITS];
+                        int before = follow.cardinality();
+                        if (sets.first(production, i + 1, follow)) {
+                            follow.or(sets.follow[nonterminal]);
+                        }
+                        changed |= follow.cardinality() != before;
+                    }
+                }
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Fill the table, one row per nonterminal and one column per token, plus a last column for any other token
+     * @param grammar - Numbered grammar
+     * @param productions - Encoded alternatives of each nonterminal
+     * @param guards - Guard tokens of each alternative, null for an alternative without guard
+     * @param sets - Sets of the grammar
+     * @param notes - Receives the conflicts resolved in favour of a non-empty alternative
+     * @return Index of the production chosen for each entry, productions numbered in order
+     */
+    static int[][] table(Grammar grammar, List<List<int[]>> productions, List<List<BitSet>> guards, Sets sets, List<String> notes) {
+        int columns = grammar.terminals.size() + 1;
+        List<String> names = new ArrayList<>(grammar.rules.keySet());
+        List<String> tokens = new ArrayList<>(grammar.terminals.keySet());
+        int[][] table = new int[productions.size()][];
+        int number = 0;
+        for (int nonterminal = 0; nonterminal < productions.size(); nonterminal++) {
+            Rule rule = grammar.rules.get(names.get(nonterminal));
+            int[] row = new int[columns];
+            Arrays.fill(row, -1);
+            List<int[]> alternatives = productions.get(nonterminal);
+            for (int a = 0; a < alternatives.size(); a++) {
+                Alternative alternative = rule.alternatives.get(a);
+                boolean last = a == alternatives.size() - 1;
+                BitSet selected = new BitSet();
+                BitSet following = new BitSet();
+                if (alternative.guard != null) {
+                    selected.or(guards.get(nonterminal).get(a));
+                } else if (sets.first(alternatives.get(a), 0, selected)) {
+                    following.or(sets.follow[nonterminal]);
+                    following.andNot(selected);
+                }
+                for (int column = selected.nextSetBit(0); column >= 0; column = selected.nextSetBit(column + 1)) {
+                    if (row[column] >= 0) {
+                        throw new IllegalStateException("Line " + alternative.line + ": " + rule.name + " is not LL(1), "
+                                + tokens.get(column) + " selects two alternatives");
+                    }
+                    row[column] = number + a;
+                }
+                for (int column = following.nextSetBit(0); column >= 0; column = following.nextSetBit(column + 1)) {
+                    if (row[column] < 0) {
+                        row[column] = number + a;
+                    } else if (last) {
+                        notes.add(rule.name + ": " + tokens.get(column) + " may follow an empty " + rule.name
+                                + ", the alternative starting with it is chosen");
+                    } else {
+                        throw new IllegalStateException("Line " + alternative.line + ": " + rule.name + " is not LL(1), "
+                                + tokens.get(column) + " selects two alternatives");
+                    }
+                }
+                if (last) {
+                    for (int column = 0; column < columns; column++) {
+                        if (row[column] < 0) {
+                            row[column] = number + a;
+                        }
+                    }
+                }
+            }
+            table[nonterminal] = row;
+            number += alternatives.size();
+        }
+        return table;
+    }
+
+    /**
+     * Expand ahead the nonterminals starting the productions of the table, so that the parser replaces a chain of
+     * nonterminals by their symbols in one step
+     * The lookahead is the same along the chain, so each nonterminal is replaced by the production of its entry in the
+     * same column
+     * @param grammar - Numbered grammar
+     * @param numbered - Encoded productions, in the order of their numbers
+     * @param table - Production of each entry
+     * @param sequences - Receives the distinct sequences of symbols the entries expand to
+     * @return Index in sequences of each entry
+     */
+    static int[][] inline(Grammar grammar, List<int[]> numbered, int[][] table, List<int[]> sequences) {
+        Set<Integer> kept = new HashSet<>();
+        for (String name : grammar.kept) {
+            if (!grammar.nonterminals.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown nonterminal " + name + " to keep");
+            }
+            kept.add(grammar.nonterminals.get(name));
+        }
+        Map<List<Integer>, Integer> numbers = new HashMap<>();
+        int[][] inlined = new int[table.length][];
+        for (int nonterminal = 0; nonterminal < table.length; nonterminal++) {
+            inlined[nonterminal] = new int[table[nonterminal].length];
+            for (int column = 0; column < table[nonterminal].length; column++) {
+                List<Integer> symbols = new ArrayList<>();
+                Arrays.stream(numbered.get(table[nonterminal][column])).forEach(symbols::add);
+                int steps = 0;
+                while (!symbols.isEmpty() && (symbols.get(0) & (1 << KIND_BITS) - 1) == NONTERMINAL
+                        && !kept.contains(symbols.get(0) >> KIND_BITS)) {
+                    if (++steps > table.length) {
+                        throw new IllegalStateException("The grammar is left-recursive");
+                    }
+                    int first = symbols.remove(0) >> KIND_BITS;
+                    List<Integer> production = new ArrayList<>();
+                    Arrays.stream(numbered.get(table[first][column])).forEach(production::add);
+                    symbols.addAll(0, production);
+                }
+                inlined[nonterminal][column] = numbers.computeIfAbsent(symbols, key -> {
+                    sequences.add(key.stream().mapToInt(Integer::intValue).toArray());
+                    return sequences.size() - 1;
+                });
+            }
+        }
+        return inlined;
+    }
+
+    /**
+     * Name of the constant of a nonterminal or an action
+     * @param name - Name in the grammar
+     * @return Name in upper case, words separated by '_'
+     */
+    static String constant(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    /**
+     * Write the Java source of the tables
+     * @param grammar - Numbered grammar
+     * @param sequences - Sequences of symbols the entries expand to
+     * @param table - Sequence of each entry
+     * @return Source of compiler.Parser.ParseTables
+     */
+    static String generate(Grammar grammar, List<int[]> sequences, int[][] table) {
+        StringBuilder out = new StringBuilder();
+        out.append("package compiler.Parser;\n\n");
+        out.append("import compiler.Lexer.Lexer;\n\n");
+        out.append("import java.util.Arrays;\n\n");
+        out.append("/**\n * LL(1) tables of TableParser, generated from Grammar.txt by compiler.tools.ParserGenerator, do not edit\n */\n");
+        out.append("final class ParseTables {\n");
+        out.append("    // Kinds of symbols, a symbol of a production is its index shifted left by KIND_BITS, or its kind\n");
+        out.append("    static final int KIND_BITS = ").append(KIND_BITS).append(";\n");
+        out.append("    static final int KIND_MASK = (1 << KIND_BITS) - 1;\n");
+        out.append("    static final int TERMINAL = ").append(TERMINAL).append("; // Token matched and dropped, indexing TERMINALS\n");
+        out.append("    static final int KEPT = ").append(KEPT).append("; // Token matched and pushed for the actions, indexing TERMINALS\n");
+        out.append("    static final int NONTERMINAL = ").append(NONTERMINAL).append("; // Rule, indexing the rows of TABLE\n");
+        out.append("    static final int ACTION = ").append(ACTION).append("; // Semantic action\n");
+        out.append("    static final int ERROR = ").append(ERROR).append("; // Syntax error, indexing MESSAGES\n\n");
+        out.append("    // Nonterminals\n");
+        for (String name : grammar.rules.keySet()) {
+            out.append("    static final int ").append(constant(name)).append(" = ").append(grammar.nonterminals.get(name)).append(";\n");
+        }
+        out.append("\n    // Actions\n");
+        for (Map.Entry<String, Integer> action : grammar.actions.entrySet()) {
+            out.append("    static final int ACTION_").append(constant(action.getKey())).append(" = ").append(action.getValue()).append(";\n");
+        }
+        int columns = grammar.terminals.size() + 1;
+        out.append("\n    static final int COLUMN_COUNT = ").append(columns).append("; // One column per token of the grammar, then one for any other token\n\n");
+        out.append("    // Token of each column\n");
+        out.append("    static final Lexer.Token[] TERMINALS = {");
+        int i = 0;
+        for (String token : grammar.terminals.keySet()) {
+            out.append("\n            Lexer.Token.").append(token).append(++i < grammar.terminals.size() ? "," : "");
+        }
+        out.append("\n    };\n\n");
+        out.append("    // Column of each token, indexed by ordinal\n");
+        out.append("    static final byte[] COLUMNS = new byte[Lexer.Token.values().length];\n\n");
+        out.append("    // Symbols of each production, last first as they are pushed on the parse stack\n");
+        out.append("    // Production p is PRODUCTIONS[OFFSETS[p] .. OFFSETS[p + 1] - 1]\n");
+        out.append("    static final int[] PRODUCTIONS = {");
+        StringBuilder offsets = new StringBuilder();
+        int offset = 0;
+        boolean firstSymbol = true;
+        for (int[] production : sequences) {
+            offsets.append(offsets.length() == 0 ? "" : ", ").append(offset);
+            if (production.length > 0) {
+                out.append(firstSymbol ? "\n            " : ",\n            ");
+                firstSymbol = false;
+            }
+            for (int s = production.length - 1; s >= 0; s--) {
+                out.append(production[s]).append(s > 0 ? ", " : "");
+            }
+            offset += production.length;
+        }
+        offsets.append(", ").append(offset);
+        out.append("\n    };\n");
+        out.append("    static final short[] OFFSETS = {\n            ").append(offsets).append("\n    };\n\n");
+        out.append("    // Production chosen by each nonterminal for each column, at index nonterminal * COLUMN_COUNT + column\n");
+        out.append("    // The nonterminals starting a production are already replaced by the production of their own entry\n");
+        out.append("    static final short[] TABLE = {");
+        for (int nonterminal = 0; nonterminal < table.length; nonterminal++) {
+            out.append("\n            ");
+            for (int column = 0; column < columns; column++) {
+                boolean last = nonterminal == table.length - 1 && column == columns - 1;
+                out.append(table[nonterminal][column]).append(last ? "" : ",").append(column < columns - 1 ? " " : "");
+            }
+        }
+        out.append("\n    };\n\n");
+        out.append("    // What each error symbol expected\n");
+        out.append("    static final String[] MESSAGES = {");
+        for (int m = 0; m < grammar.messages.size(); m++) {
+            out.append("\n            \"").append(grammar.messages.get(m)).append("\"").append(m < grammar.messages.size() - 1 ? "," : "");
+        }
+        out.append("\n    };\n\n");
+        out.append("    static {\n");
+        out.append("        Arrays.fill(COLUMNS, (byte) TERMINALS.length);\n");
+        out.append("        for (int column = 0; column < TERMINALS.length; column++) {\n");
+        out.append("            COLUMNS[TERMINALS[column].ordinal()] = (byte) column;\n");
+        out.append("        }\n");
+        out.append("    }\n\n");
+        out.append("    private ParseTables() {\n    }\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: ParserGenerator <grammar> <token specification> <output directory>");
+            System.exit(2);
+        }
+        // Quoted texts of the grammar are the tokens whose rule matches exactly that text
+        Map<String, String> literals = new HashMap<>();
+        Set<String> tokens = new HashSet<>();
+        for (LexerGenerator.Rule rule : LexerGenerator.parseSpecification(Files.readAllLines(Path.of(args[1])))) {
+            String text = literal(rule.regex);
+            if (!rule.token.equals(LexerGenerator.SKIP)) {
+                tokens.add(rule.token);
+                if (text != null) {
+                    literals.put(text, rule.token);
+                }
+            }
+        }
+        Grammar grammar = parseGrammar(Files.readAllLines(Path.of(args[0])), literals, tokens);
+        for (String name : grammar.rules.keySet()) {
+            grammar.nonterminals.put(name, grammar.nonterminals.size());
+        }
+        List<List<int[]>> productions = new ArrayList<>();
+        List<List<BitSet>> guards = new ArrayList<>();
+        int count = 0;
+        for (Rule rule : grammar.rules.values()) {
+            List<int[]> alternatives = new ArrayList<>();
+            List<BitSet> ruleGuards = new ArrayList<>();
+            for (Alternative alternative : rule.alternatives) {
+                BitSet guard = alternative.guard == null ? null : new BitSet();
+                if (guard != null) {
+                    alternative.guard.forEach(token -> guard.set(terminal(grammar, token, alternative.line)));
+                }
+                ruleGuards.add(guard);
+                alternatives.add(alternative.symbols.stream().mapToInt(symbol -> encode(grammar, symbol, alternative.line)).toArray());
+            }
+            productions.add(alternatives);
+            guards.add(ruleGuards);
+            count += alternatives.size();
+        }
+        Sets sets = analyse(productions, guards);
+        List<String> notes = new ArrayList<>();
+        int[][] table = table(grammar, productions, guards, sets, notes);
+        List<int[]> numbered = new ArrayList<>();
+        productions.forEach(numbered::addAll);
+        List<int[]> sequences = new ArrayList<>();
+        int[][] inlined = inline(grammar, numbered, table, sequences);
+        if (sequences.size() > Short.MAX_VALUE || sequences.stream().mapToInt(s -> s.length).sum() > Short.MAX_VALUE
+                || grammar.terminals.size() + 1 > Byte.MAX_VALUE
+                || Math.max(grammar.terminals.size(), grammar.rules.size()) << KIND_BITS > Short.MAX_VALUE) {
+            throw new IllegalStateException("Grammar too large for the table types");
+        }
+        for (String note : notes) {
+            System.out.println(note);
+        }
+        Path output = Path.of(args[2], "compiler", "Parser", "ParseTables.java");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, generate(grammar, sequences, inlined));
+        System.out.println("Generated " + output + ": " + grammar.rules.size() + " rules, " + count + " productions, "
+                + grammar.terminals.size() + " tokens, " + sequences.size() + " expanded productions");
+    }
+}